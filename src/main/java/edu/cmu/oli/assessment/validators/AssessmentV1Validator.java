@@ -20,15 +20,15 @@ import edu.cmu.oli.assessment.evaluators.NumericNotation;
 import edu.cmu.oli.content.AppUtils;
 import edu.cmu.oli.content.models.persistance.JsonWrapper;
 import edu.cmu.oli.content.models.persistance.entities.*;
+import edu.cmu.oli.content.resource.builders.XPathRegistry;
 import edu.cmu.oli.content.resource.validators.BaseResourceValidator;
+import edu.cmu.oli.content.resource.validators.ElementVisitor;
 import edu.cmu.oli.content.resource.validators.ResourceValidator;
 import org.jdom2.*;
 import org.jdom2.filter.AbstractFilter;
-import org.jdom2.filter.Filters;
 import org.jdom2.output.Format;
 import org.jdom2.output.XMLOutputter;
 import org.jdom2.xpath.XPathExpression;
-import org.jdom2.xpath.XPathFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -96,11 +96,16 @@ public class AssessmentV1Validator implements ResourceValidator {
     protected Document doc;
     protected boolean throwErrors;
 
-    private XPathFactory xFactory = XPathFactory.instance();
     private XMLOutputter outputter = new XMLOutputter(Format.getCompactFormat());
 
     BaseResourceValidator baseResourceValidator;
 
+    // Elements the document-wide checks work on, gathered in one traversal of the document
+    private ElementVisitor.Rule imageInputs;
+    private ElementVisitor.Rule links;
+    private ElementVisitor.Rule dependencies;
+    private ElementVisitor.Rule skillReferences;
+
     public AssessmentV1Validator() {
     }
 
@@ -135,6 +140,7 @@ public class AssessmentV1Validator implements ResourceValidator {
             }
         }
 
+        matchElements();
         validateImageInputs();
 
         if ("pool".equals(rootElmnt.getName())) {
@@ -542,7 +548,7 @@ public class AssessmentV1Validator implements ResourceValidator {
     private void validateInputRefs(JsonObject q, Element qElem) {
         // Scan question body for input references
         Element bodyElem = qElem.getChild("body");
-        XPathExpression<Element> xexpression = xFactory.compile("descendant::input_ref", Filters.element());
+        XPathExpression<Element> xexpression = XPathRegistry.elements("descendant::input_ref");
         List<Element> inputRefs = xexpression.evaluate(bodyElem);
 
         // For each input reference...
@@ -762,7 +768,7 @@ public class AssessmentV1Validator implements ResourceValidator {
 
         // Scan question body for input references
         Element bodyElem = qElem.getChild("body");
-        XPathExpression<Element> xexpression = xFactory.compile("descendant::input_ref", Filters.element());
+        XPathExpression<Element> xexpression = XPathRegistry.elements("descendant::input_ref");
         List<Element> inputRefs = xexpression.evaluate(bodyElem);
 
         JsonArray interactions = q.getAsJsonArray("interactions");
@@ -872,7 +878,7 @@ public class AssessmentV1Validator implements ResourceValidator {
 
         // Scan question body for input references
         Element bodyElem = qElem.getChild("body");
-        XPathExpression<Element> xexpression = xFactory.compile("descendant::input_ref", Filters.element());
+        XPathExpression<Element> xexpression = XPathRegistry.elements("descendant::input_ref");
         List<Element> inputRefs = xexpression.evaluate(bodyElem);
 
         // Define interaction for each implicit input, if not already added
@@ -1677,10 +1683,19 @@ public class AssessmentV1Validator implements ResourceValidator {
         return (!hasChildren && ((text == null) || "".equals(text)));
     }
 
+    private void matchElements() {
+        ElementVisitor visitor = new ElementVisitor();
+        imageInputs = visitor.match("image_input");
+        links = visitor.match("activity", "activity_link", "alternate");
+        dependencies = visitor.match("pool_ref", "question_bank_ref");
+        skillReferences = visitor.match(Collections.singletonList(Namespace.getNamespace("cmd",
+                "http://oli.web.cmu.edu/content/metadata/2.1/")), "cmd:concept", "skillref");
+        visitor.visit(doc);
+    }
+
     private void validateImageInputs() {
         // Locate image elements in document
-        XPathExpression<Element> xexpression = xFactory.compile("//image_input", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = imageInputs.elements();
 
         // For each image...
         for (Element imageElem : kids) {
@@ -1691,8 +1706,7 @@ public class AssessmentV1Validator implements ResourceValidator {
     protected void createLinkEdges() {
 
         // Locate all activity links in document
-        XPathExpression<Element> xexpression = xFactory.compile("//activity | //activity_link | //alternate ", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = links.elements();
 
         ContentPackage pkg = rsrc.getContentPackage();
         Set<Edge> filteredEdges = pkg.getEdges().stream().filter(e -> e.getSourceId()
@@ -1775,8 +1789,7 @@ public class AssessmentV1Validator implements ResourceValidator {
 
     private void createDependencies() {
         // Assessment Pools and Question Banks
-        XPathExpression<Element> xexpression = xFactory.compile("//pool_ref | //question_bank_ref ", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = dependencies.elements();
 
         ContentPackage pkg = rsrc.getContentPackage();
         Set<Edge> filteredEdges = pkg.getEdges().stream().filter(e -> e.getSourceId()
@@ -1809,9 +1822,7 @@ public class AssessmentV1Validator implements ResourceValidator {
 
     private void createSkillsDependencies() {
         // Locate Skill references elements in document
-        XPathExpression<Element> xexpression = xFactory.compile("//cmd:concept | //skillref", Filters.element(), null,
-                Namespace.getNamespace("cmd", "http://oli.web.cmu.edu/content/metadata/2.1/"));
-        List<Element> skillrefs = xexpression.evaluate(doc);
+        List<Element> skillrefs = skillReferences.elements();
 
         ContentPackage pkg = rsrc.getContentPackage();
         Set<Edge> filteredEdges = pkg.getEdges().stream().filter(e -> e.getSourceId()
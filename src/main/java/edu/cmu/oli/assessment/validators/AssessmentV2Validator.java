@@ -18,14 +18,14 @@ import edu.cmu.oli.assessment.ScoringMethod;
 import edu.cmu.oli.content.AppUtils;
 import edu.cmu.oli.content.models.persistance.JsonWrapper;
 import edu.cmu.oli.content.models.persistance.entities.*;
+import edu.cmu.oli.content.resource.builders.XPathRegistry;
 import edu.cmu.oli.content.resource.validators.BaseResourceValidator;
+import edu.cmu.oli.content.resource.validators.ElementVisitor;
 import edu.cmu.oli.content.resource.validators.ResourceValidator;
 import org.jdom2.*;
-import org.jdom2.filter.Filters;
 import org.jdom2.output.Format;
 import org.jdom2.output.XMLOutputter;
 import org.jdom2.xpath.XPathExpression;
-import org.jdom2.xpath.XPathFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,11 +43,16 @@ public class AssessmentV2Validator implements ResourceValidator {
     protected Document doc;
     protected boolean throwErrors;
 
-    private XPathFactory xFactory = XPathFactory.instance();
     private XMLOutputter outputter = new XMLOutputter(Format.getCompactFormat());
 
     BaseResourceValidator baseResourceValidator;
 
+    // Elements the document-wide checks work on, gathered in one traversal of the document
+    private ElementVisitor.Rule imageInputs;
+    private ElementVisitor.Rule links;
+    private ElementVisitor.Rule dependencies;
+    private ElementVisitor.Rule skillReferences;
+
     public AssessmentV2Validator() {
     }
 
@@ -82,6 +87,7 @@ public class AssessmentV2Validator implements ResourceValidator {
             }
         }
 
+        matchElements();
         validateImageInputs();
         Gson gson = AppUtils.gsonBuilder().serializeNulls().create();
         if ("assessment".equals(rootElmnt.getName())) {
@@ -353,7 +359,7 @@ public class AssessmentV2Validator implements ResourceValidator {
 
         // Scan question body for input references
         Element bodyElem = qElem.getChild("body");
-        XPathExpression<Element> xexpression = xFactory.compile("descendant::input_ref", Filters.element());
+        XPathExpression<Element> xexpression = XPathRegistry.elements("descendant::input_ref");
         List<Element> inputRefs = xexpression.evaluate(bodyElem);
 
         // For each input reference...
@@ -374,7 +380,7 @@ public class AssessmentV2Validator implements ResourceValidator {
         }
 
         // Scan question for input references outside body
-        xexpression = xFactory.compile("descendant::input_ref[not(ancestor::body)]", Filters.element());
+        xexpression = XPathRegistry.elements("descendant::input_ref[not(ancestor::body)]");
         List<Element> invalidRefs = xexpression.evaluate(qElem);
         if (!invalidRefs.isEmpty()) {
             String message = "input_ref only valid within question body: question=" + q.get("id").getAsString();
@@ -387,7 +393,7 @@ public class AssessmentV2Validator implements ResourceValidator {
 
         // Scan question body for input references
         Element bodyElem = qElem.getChild("body");
-        XPathExpression<Element> xexpression = xFactory.compile("descendant::choice_ref", Filters.element());
+        XPathExpression<Element> xexpression = XPathRegistry.elements("descendant::choice_ref");
         List<Element> inputRefs = xexpression.evaluate(bodyElem);
 
         // For each input reference...
@@ -1274,11 +1280,19 @@ public class AssessmentV2Validator implements ResourceValidator {
         return questionBankRef;
     }
 
+    private void matchElements() {
+        ElementVisitor visitor = new ElementVisitor();
+        imageInputs = visitor.match("image_input");
+        links = visitor.match("activity", "activity_link", "alternate");
+        dependencies = visitor.match("pool_ref", "question_bank_ref");
+        skillReferences = visitor.match(Collections.singletonList(Namespace.getNamespace("cmd",
+                "http://oli.web.cmu.edu/content/metadata/2.1/")), "cmd:concept", "skillref");
+        visitor.visit(doc);
+    }
+
     private void validateImageInputs() {
         // Locate image elements in document
-        XPathFactory xFactory = XPathFactory.instance();
-        XPathExpression<Element> xexpression = xFactory.compile("//image_input", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = imageInputs.elements();
 
         // For each image...
         for (Element imageElem : kids) {
@@ -1288,9 +1302,7 @@ public class AssessmentV2Validator implements ResourceValidator {
 
     protected void createLinkEdges() {
         // Locate all activity links in document
-        XPathFactory xFactory = XPathFactory.instance();
-        XPathExpression<Element> xexpression = xFactory.compile("//activity | //activity_link | //alternate ", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = links.elements();
 
         ContentPackage pkg = rsrc.getContentPackage();
 
@@ -1375,8 +1387,7 @@ public class AssessmentV2Validator implements ResourceValidator {
 
     private void createDependencies() {
         // Assessment Pools and Question Banks
-        XPathExpression<Element> xexpression = xFactory.compile("//pool_ref | //question_bank_ref ", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = dependencies.elements();
 
         ContentPackage pkg = rsrc.getContentPackage();
         Set<Edge> filteredEdges = pkg.getEdges().stream().filter(e -> e.getSourceId()
@@ -1407,9 +1418,7 @@ public class AssessmentV2Validator implements ResourceValidator {
 
     private void createSkillsDependencies() {
         // Locate Skill references elements in document
-        XPathExpression<Element> xexpression = xFactory.compile("//cmd:concept | //skillref", Filters.element(), null,
-                Namespace.getNamespace("cmd", "http://oli.web.cmu.edu/content/metadata/2.1/"));
-        List<Element> skillrefs = xexpression.evaluate(doc);
+        List<Element> skillrefs = skillReferences.elements();
 
         ContentPackage pkg = rsrc.getContentPackage();
         Set<Edge> filteredEdges = pkg.getEdges().stream().filter(e -> e.getSourceId()
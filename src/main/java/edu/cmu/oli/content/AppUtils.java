@@ -6,6 +6,7 @@ import edu.cmu.oli.content.models.persistance.JsonWrapper;
 import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
 import edu.cmu.oli.content.models.persistance.entities.ErrorLevel;
 import edu.cmu.oli.content.models.persistance.entities.Resource;
+import edu.cmu.oli.content.resource.builders.CachingEntityResolver;
 import edu.cmu.oli.content.resource.builders.Xml2Json;
 import org.apache.tika.Tika;
 import org.apache.xml.resolver.tools.CatalogResolver;
@@ -49,6 +50,9 @@ public class AppUtils {
 
     static final Gson gson = new Gson();
 
+    // DTDs resolved through the XML catalog, kept for every validating parse after the first
+    private static final CachingEntityResolver dtdResolver = new CachingEntityResolver(new CatalogResolver());
+
     public static String toString(javax.json.JsonValue jsonValue) {
         StringWriter stWriter = new StringWriter();
         try (javax.json.JsonWriter jsonWriter = Json.createWriter(stWriter)) {
@@ -359,8 +363,7 @@ public class AppUtils {
     public static SAXBuilder validatingSaxBuilder() {
         SAXBuilder builder = new SAXBuilder(XMLReaders.DTDVALIDATING);
         builder.setExpandEntities(false);
-        CatalogResolver cr = new CatalogResolver();
-        builder.setEntityResolver(cr);
+        builder.setEntityResolver(dtdResolver);
         return builder;
     }
 
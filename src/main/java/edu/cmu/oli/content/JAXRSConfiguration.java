@@ -76,6 +76,7 @@ public class JAXRSConfiguration extends Application {
         set.add(ResourceDelivery.class);
         set.add(WebResource.class);
         set.add(LongPollResource.class);
+        set.add(PackageEventResource.class);
         set.add(LockResource.class);
         set.add(DeveloperResource.class);
         set.add(CorsFilter.class);
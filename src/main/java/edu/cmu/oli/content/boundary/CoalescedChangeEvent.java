@@ -0,0 +1,22 @@
+package edu.cmu.oli.content.boundary;
+
+import java.io.Serializable;
+
+/**
+ * Committed resource change as delivered to change watchers. A burst of updates to one resource is delivered as a
+ * single change carrying the latest update.
+ *
+ * @author Raphael Gachuhi
+ */
+public class CoalescedChangeEvent implements Serializable {
+
+    private final ResourceChangeEvent change;
+
+    public CoalescedChangeEvent(ResourceChangeEvent change) {
+        this.change = change;
+    }
+
+    public ResourceChangeEvent getChange() {
+        return change;
+    }
+}
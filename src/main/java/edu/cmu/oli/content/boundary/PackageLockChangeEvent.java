@@ -0,0 +1,25 @@
+package edu.cmu.oli.content.boundary;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Change of the edit lock of one or more packages. Observed once the change has committed, so that cached lock
+ * states are dropped only when the new state can be read back.
+ *
+ * @author Raphael Gachuhi
+ */
+public class PackageLockChangeEvent implements Serializable {
+
+    private final Set<String> packageGuids;
+
+    public PackageLockChangeEvent(Set<String> packageGuids) {
+        this.packageGuids = Collections.unmodifiableSet(new HashSet<>(packageGuids));
+    }
+
+    public Set<String> getPackageGuids() {
+        return packageGuids;
+    }
+}
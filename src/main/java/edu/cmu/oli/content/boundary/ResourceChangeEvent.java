@@ -16,12 +16,20 @@ public class ResourceChangeEvent implements Serializable {
         RESOURCE_DELETED
     }
 
+    private String packageGuid;
+
     private String resourceId;
 
     private ResourceEventType changeInfo;
 
     private JsonElement eventPayload;
 
+    private String revision;
+
+    private int merged = 1;
+
+    private long sequence;
+
     public ResourceChangeEvent(String resourceId, ResourceEventType changeInfo) {
         this.resourceId = resourceId;
         this.changeInfo = changeInfo;
@@ -33,6 +41,25 @@ public class ResourceChangeEvent implements Serializable {
         this.eventPayload = eventPayload;
     }
 
+    public ResourceChangeEvent(String packageGuid, String resourceId, ResourceEventType changeInfo,
+            JsonElement eventPayload) {
+        this.packageGuid = packageGuid;
+        this.resourceId = resourceId;
+        this.changeInfo = changeInfo;
+        this.eventPayload = eventPayload;
+    }
+
+    /**
+     * Guid of the package the changed resource belongs to, or of the package itself for package changes.
+     */
+    public String getPackageGuid() {
+        return packageGuid;
+    }
+
+    public void setPackageGuid(String packageGuid) {
+        this.packageGuid = packageGuid;
+    }
+
     public String getResourceId() {
         return resourceId;
     }
@@ -56,4 +83,37 @@ public class ResourceChangeEvent implements Serializable {
     public void setEventPayload(JsonElement eventPayload) {
         this.eventPayload = eventPayload;
     }
+
+    /**
+     * Position of the change in the change journal, 0 until journaled.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Guid of the resource revision the change produced, null when the change did not produce a revision.
+     */
+    public String getRevision() {
+        return revision;
+    }
+
+    public void setRevision(String revision) {
+        this.revision = revision;
+    }
+
+    /**
+     * Number of successive changes this change stands for, more than 1 when a burst of updates was coalesced.
+     */
+    public int getMerged() {
+        return merged;
+    }
+
+    public void setMerged(int merged) {
+        this.merged = merged;
+    }
 }
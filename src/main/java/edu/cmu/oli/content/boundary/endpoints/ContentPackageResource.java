@@ -11,6 +11,7 @@ import edu.cmu.oli.content.configuration.ConfigurationCache;
 import edu.cmu.oli.content.configuration.Configurations;
 import edu.cmu.oli.content.logging.Logging;
 import edu.cmu.oli.content.models.DeployStage;
+import edu.cmu.oli.content.models.KeysetPage;
 import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
 import edu.cmu.oli.content.security.AppSecurityContext;
 import edu.cmu.oli.content.security.AppSecurityContextFactory;
@@ -106,6 +107,44 @@ public class ContentPackageResource {
                                 .thenAccept(response::resume);
         }
 
+        @Operation(summary = "List package summaries", description = "List summaries of all course content packages, one keyset page at a time", responses = {
+                        @ApiResponse(responseCode = "200", description = "Successful response for the content package summaries requested", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = KeysetPage.class)) }),
+
+                        @ApiResponse(responseCode = "400", description = "Invalid request information supplied"),
+                        @ApiResponse(responseCode = "403", description = "Request not authorized") })
+        @GET
+        @Path("v1/packages/summaries")
+        public void packageSummaries(@Suspended AsyncResponse response,
+                        @Parameter(description = "Guid of the last package on the previous page") @QueryParam("after") String after,
+                        @QueryParam("limit") @DefaultValue("100") int limit) {
+                AppSecurityContext appSecurityContext = appSecurityContextFactory
+                                .extractSecurityContext(httpServletRequest);
+                CompletableFuture.supplyAsync(() -> cm.packageSummaries(appSecurityContext, after, limit), executor)
+                                .thenApply(this::serializeResponse).exceptionally(ExceptionHandler::handleExceptions)
+                                .thenAccept(response::resume);
+        }
+
+        @Operation(summary = "List editable package summaries", description = "List summaries of the course content packages editable by current user, one keyset page at a time", responses = {
+                        @ApiResponse(responseCode = "200", description = "Successful response for the content package summaries requested", content = {
+                                        @Content(mediaType = "application/json", schema = @Schema(implementation = KeysetPage.class)) }),
+
+                        @ApiResponse(responseCode = "400", description = "Invalid request information supplied"),
+                        @ApiResponse(responseCode = "403", description = "Request not authorized") })
+        @GET
+        @Path("v1/packages/editable/summaries")
+        public void editablePackageSummaries(@Suspended AsyncResponse response,
+                        @Parameter(description = "Guid of the last package on the previous page") @QueryParam("after") String after,
+                        @QueryParam("limit") @DefaultValue("100") int limit) {
+                AppSecurityContext appSecurityContext = appSecurityContextFactory
+                                .extractSecurityContext(httpServletRequest);
+                CompletableFuture
+                                .supplyAsync(() -> cm.editablePackageSummaries(appSecurityContext, after, limit),
+                                                executor)
+                                .thenApply(this::serializeResponse).exceptionally(ExceptionHandler::handleExceptions)
+                                .thenAccept(response::resume);
+        }
+
         @GET
         @Path("v1/packages/{packageIdOrGuid}/details")
         @Operation(summary = "Fetch package details by GUID", description = "Returns details for a single course content package (includes summary info for resources and webcontent)", responses = {
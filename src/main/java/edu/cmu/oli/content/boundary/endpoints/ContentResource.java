@@ -108,6 +108,26 @@ public class ContentResource {
                 .thenAccept(response::resume);
     }
 
+    @POST
+    @Path("v1/{packageIdOrGuid}/resources/bulk/stream")
+    public void streamResourcesByFilter(@Suspended AsyncResponse response,
+            @PathParam("packageIdOrGuid") String packageIdOrGuid, @QueryParam("action") String action,
+            @QueryParam("after") String after, @QueryParam("limit") @DefaultValue("100") int limit, JsonArray body) {
+        if (packageIdOrGuid == null || action == null || body == null) {
+            response.resume(ExceptionHandler.errorResponse(PARAMETERS_MISSING, Response.Status.BAD_REQUEST));
+            return;
+        }
+        AppSecurityContext appSecurityContext = appSecurityContextFactory.extractSecurityContext(httpServletRequest);
+        JsonParser jsonParser = new JsonParser();
+        CompletableFuture
+                .supplyAsync(() -> pm.streamResourcesByFilter(appSecurityContext, packageIdOrGuid, action,
+                        jsonParser.parse(AppUtils.toString(body)).getAsJsonArray(), after, limit), mes)
+                .thenApply(output -> Response.status(Response.Status.OK).entity(output)
+                        .type(MediaType.APPLICATION_JSON).build())
+                .exceptionally(ExceptionHandler::handleExceptions)
+                .thenAccept(response::resume);
+    }
+
     @PUT
     @Path("v1/{packageIdOrGuid}/resources/{resourceId}")
     public void updateResource(@Suspended AsyncResponse response, @PathParam("packageIdOrGuid") String packageIdOrGuid,
@@ -168,6 +188,21 @@ public class ContentResource {
                 .thenAccept(response::resume);
     }
 
+    @GET
+    @Path("v1/{packageIdOrGuid}/resources/{resourceId}/revisions/{revisionGuid}")
+    public void fetchRevision(@Suspended AsyncResponse response, @PathParam("packageIdOrGuid") String packageIdOrGuid,
+            @PathParam("resourceId") String resourceId, @PathParam("revisionGuid") String revisionGuid) {
+        if (packageIdOrGuid == null || resourceId == null || revisionGuid == null) {
+            response.resume(ExceptionHandler.errorResponse(PARAMETERS_MISSING, Response.Status.BAD_REQUEST));
+            return;
+        }
+        AppSecurityContext appSecurityContext = appSecurityContextFactory.extractSecurityContext(httpServletRequest);
+        CompletableFuture
+                .supplyAsync(() -> pm.fetchRevision(appSecurityContext, packageIdOrGuid, resourceId, revisionGuid), mes)
+                .thenApply(this::toResponse).exceptionally(ExceptionHandler::handleExceptions)
+                .thenAccept(response::resume);
+    }
+
     private Response toResponse(JsonElement resourceJson) {
         Gson gson = AppUtils.gsonBuilder().serializeNulls().create();
         return Response.status(Response.Status.OK).entity(gson.toJson(resourceJson)).type(MediaType.APPLICATION_JSON)
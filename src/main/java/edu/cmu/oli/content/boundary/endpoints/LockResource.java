@@ -2,6 +2,7 @@ package edu.cmu.oli.content.boundary.endpoints;
 
 import edu.cmu.oli.content.configuration.DedicatedExecutor;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 import edu.cmu.oli.content.AppUtils;
 import edu.cmu.oli.content.boundary.ExceptionHandler;
 import edu.cmu.oli.content.boundary.managers.LockResourceManager;
@@ -13,7 +14,9 @@ import org.slf4j.Logger;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
+import javax.json.JsonArray;
 import javax.ws.rs.GET;
+import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.QueryParam;
@@ -62,6 +65,37 @@ public class LockResource {
                 .thenApply(this::lock).exceptionally(ExceptionHandler::handleExceptions).thenAccept(response::resume);
     }
 
+    /**
+     * Applies the action, AQUIRE, RENEW, RELEASE or STATUS, to every resource id of the body, returning the outcome
+     * for each resource.
+     */
+    @POST
+    @Path("v1/{packageIdOrGuid}/locks/batch")
+    public void lockBatch(@Suspended AsyncResponse response, @PathParam("packageIdOrGuid") String packageIdOrGuid,
+            @QueryParam("action") String action, JsonArray body) {
+        if (packageIdOrGuid == null || action == null || body == null) {
+            String message = "Parameters missing";
+            response.resume(ExceptionHandler.errorResponse(message, Response.Status.BAD_REQUEST));
+            return;
+        }
+        AppSecurityContext appSecurityContext = appSecurityContextFactory.extractSecurityContext(httpServletRequest);
+        JsonParser jsonParser = new JsonParser();
+        CompletableFuture.supplyAsync(() -> lm.lockBatch(appSecurityContext, packageIdOrGuid, action,
+                jsonParser.parse(AppUtils.toString(body)).getAsJsonArray()), mes)
+                .thenApply(this::lock).exceptionally(ExceptionHandler::handleExceptions).thenAccept(response::resume);
+    }
+
+    /**
+     * Size of the edit lock table and lock churn counters, for administrators.
+     */
+    @GET
+    @Path("v1/locks/stats")
+    public void stats(@Suspended AsyncResponse response) {
+        AppSecurityContext appSecurityContext = appSecurityContextFactory.extractSecurityContext(httpServletRequest);
+        CompletableFuture.supplyAsync(() -> lm.stats(appSecurityContext), mes)
+                .thenApply(this::lock).exceptionally(ExceptionHandler::handleExceptions).thenAccept(response::resume);
+    }
+
     Response lock(JsonElement element) {
         return Response.status(Response.Status.OK)
                 .entity(AppUtils.gsonBuilder().serializeNulls().create().toJson(element))
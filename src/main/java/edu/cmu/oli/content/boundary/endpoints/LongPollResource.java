@@ -1,27 +1,26 @@
 package edu.cmu.oli.content.boundary.endpoints;
 
-import edu.cmu.oli.content.configuration.DedicatedExecutor;
-import com.google.gson.Gson;
 import edu.cmu.oli.content.AppUtils;
 import edu.cmu.oli.content.boundary.ExceptionHandler;
 import edu.cmu.oli.content.controllers.LongPollController;
 import edu.cmu.oli.content.logging.Logging;
-import edu.cmu.oli.content.models.ChangePayload;
 import org.slf4j.Logger;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
+import javax.json.JsonArray;
 import javax.json.JsonObject;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author Raphael Gachuhi
@@ -38,29 +37,35 @@ public class LongPollResource {
     @Inject
     private LongPollController longPollController;
 
-    @Inject
-    @DedicatedExecutor("pollsResourceApiExecutor")
-    ExecutorService executor;
-
     @POST
     @Path("v1/polls")
+    @Produces(MediaType.APPLICATION_JSON)
     public void longPoll(@Suspended AsyncResponse response, @QueryParam("timeout") long timeout,
             @QueryParam("include_docs") boolean includeDocs, @QueryParam("since") String since,
             @QueryParam("filter") String filter, JsonObject body) {
-        CompletableFuture.supplyAsync(() -> {
-            ChangePayload changePayload = new ChangePayload(body.getJsonArray("doc_ids").get(0).toString());
-            this.longPollController.registerPayloadChangePayload(changePayload);
-            synchronized (changePayload) {
-                try {
-                    changePayload.wait(timeout);
-                } catch (InterruptedException e) {
-                }
+        JsonArray docIds = body == null ? null : body.getJsonArray("doc_ids");
+        if (docIds == null || docIds.isEmpty()) {
+            response.resume(ExceptionHandler.errorResponse("doc_ids required", Response.Status.BAD_REQUEST));
+            return;
+        }
+        Long cursor = null;
+        if (since != null && since.trim().equalsIgnoreCase("now")) {
+            cursor = this.longPollController.cursor();
+        } else if (since != null && !since.trim().isEmpty()) {
+            try {
+                cursor = Long.valueOf(since.trim());
+            } catch (NumberFormatException e) {
+                response.resume(ExceptionHandler.errorResponse("since must be a change sequence number or 'now'",
+                        Response.Status.BAD_REQUEST));
+                return;
             }
-            this.longPollController.unRegisterPayloadChangePayload(changePayload);
-            Gson gson2 = AppUtils.gsonBuilder().excludeFieldsWithoutExposeAnnotation().serializeNulls().create();
-            return Response.status(Response.Status.OK).entity(gson2.toJson(changePayload))
-                    .type(MediaType.APPLICATION_JSON).build();
-        }, executor).exceptionally(ExceptionHandler::handleExceptions).thenAccept(response::resume);
+        }
+        List<String> resourceIds = new ArrayList<>();
+        for (int i = 0; i < docIds.size(); i++) {
+            resourceIds.add(docIds.getString(i));
+        }
+        // Returns right away, the response is resumed by the controller on change or timeout
+        this.longPollController.register(resourceIds, timeout, cursor, includeDocs, response);
     }
 
     @GET
@@ -0,0 +1,73 @@
+package edu.cmu.oli.content.boundary.endpoints;
+
+import edu.cmu.oli.content.boundary.ExceptionHandler;
+import edu.cmu.oli.content.boundary.managers.PackageEventResourceManager;
+import edu.cmu.oli.content.logging.Logging;
+import edu.cmu.oli.content.security.AppSecurityContext;
+import edu.cmu.oli.content.security.AppSecurityContextFactory;
+import org.slf4j.Logger;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import java.util.List;
+
+/**
+ * @author Raphael Gachuhi
+ */
+@Stateless
+@Path("/")
+public class PackageEventResource {
+
+    @Inject
+    @Logging
+    Logger log;
+
+    @Inject
+    private PackageEventResourceManager pm;
+
+    @Context
+    private HttpServletRequest httpServletRequest;
+
+    @Inject
+    AppSecurityContextFactory appSecurityContextFactory;
+
+    /**
+     * Streams the changes of a package as Server-Sent Events over a single connection, in place of one long poll per
+     * watched resource.
+     *
+     * @param resourceIds resource guids to stream, all resources of the package when omitted
+     * @param types       change types to stream, e.g. RESOURCE_UPDATED; all types when omitted
+     * @param since       sequence number of the last change received, changes missed since are sent first; now
+     *                    streams the changes committed from here on, with their ids
+     * @param lastEventId sent by reconnecting EventSource clients, used when since is omitted
+     */
+    @GET
+    @Path("v1/{packageIdOrGuid}/events")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void events(@Context SseEventSink sink, @Context Sse sse,
+            @PathParam("packageIdOrGuid") String packageIdOrGuid, @QueryParam("resourceId") List<String> resourceIds,
+            @QueryParam("type") List<String> types, @QueryParam("since") String since,
+            @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) String lastEventId) {
+        AppSecurityContext appSecurityContext = appSecurityContextFactory.extractSecurityContext(httpServletRequest);
+        try {
+            String cursor = since != null ? since : lastEventId;
+            pm.subscribe(appSecurityContext, packageIdOrGuid, resourceIds, types, cursor, sink, sse);
+        } catch (RuntimeException e) {
+            sink.close();
+            throw new WebApplicationException(ExceptionHandler.handleExceptions(e));
+        }
+    }
+}
@@ -6,6 +6,7 @@ import edu.cmu.oli.content.AppUtils;
 import edu.cmu.oli.content.ResourceException;
 import edu.cmu.oli.content.analytics.DatasetBuilder;
 import edu.cmu.oli.content.configuration.DedicatedExecutor;
+import edu.cmu.oli.content.controllers.PackageKeyResolver;
 import edu.cmu.oli.content.logging.Logging;
 import edu.cmu.oli.content.models.persistance.entities.*;
 import edu.cmu.oli.content.security.*;
@@ -43,6 +44,9 @@ public class AnalyticsResourceManager {
     @PersistenceContext
     EntityManager em;
 
+    @Inject
+    PackageKeyResolver packageKeyResolver;
+
     @Inject
     DatasetBuilder datasetBuilder;
 
@@ -235,34 +239,7 @@ public class AnalyticsResourceManager {
 
     // packageIdentifier is db guid or packageId-version combo
     private ContentPackage findContentPackage(String packageIdOrGuid) {
-        ContentPackage contentPackage = null;
-        Boolean isIdAndVersion = packageIdOrGuid.contains("-");
-        try {
-            if (isIdAndVersion) {
-                String pkgId = packageIdOrGuid.substring(0, packageIdOrGuid.lastIndexOf("-"));
-                String version = packageIdOrGuid.substring(packageIdOrGuid.lastIndexOf("-") + 1);
-                TypedQuery<ContentPackage> q = em
-                        .createNamedQuery("ContentPackage.findByIdAndVersion", ContentPackage.class)
-                        .setParameter("id", pkgId).setParameter("version", version);
-
-                contentPackage = q.getResultList().isEmpty() ? null : q.getResultList().get(0);
-            } else {
-                String packageGuid = packageIdOrGuid;
-                contentPackage = em.find(ContentPackage.class, packageGuid);
-            }
-
-            if (contentPackage == null) {
-                String message = "Error: package requested was not found " + packageIdOrGuid;
-                log.error(message);
-                throw new ResourceException(Response.Status.NOT_FOUND, packageIdOrGuid, message);
-            }
-
-        } catch (IllegalArgumentException e) {
-            String message = "Server Error while locating package " + packageIdOrGuid;
-            log.error(message);
-            throw new ResourceException(Response.Status.INTERNAL_SERVER_ERROR, packageIdOrGuid, message);
-        }
-        return contentPackage;
+        return packageKeyResolver.findContentPackage(packageIdOrGuid);
     }
 
     // Verify a user has access to the package
@@ -65,6 +65,7 @@ import edu.cmu.oli.content.ContentServiceException;
 import edu.cmu.oli.content.DirectoryUtils;
 import edu.cmu.oli.content.ResourceException;
 import edu.cmu.oli.content.AppUtils.EmbedActivityType;
+import edu.cmu.oli.content.boundary.PackageLockChangeEvent;
 import edu.cmu.oli.content.boundary.ResourceChangeEvent;
 import edu.cmu.oli.content.boundary.ResourceChangeEvent.ResourceEventType;
 import edu.cmu.oli.content.boundary.endpoints.ContentPackageResource;
@@ -75,11 +76,16 @@ import edu.cmu.oli.content.controllers.DeployController;
 import edu.cmu.oli.content.controllers.EdgesController;
 import edu.cmu.oli.content.controllers.LockController;
 import edu.cmu.oli.content.controllers.PackageFileController;
+import edu.cmu.oli.content.controllers.PackageKeyResolver;
+import edu.cmu.oli.content.controllers.PackageLoader;
+import edu.cmu.oli.content.controllers.RevisionBlobStore;
 import edu.cmu.oli.content.controllers.SVNImportController;
 import edu.cmu.oli.content.controllers.SVNSyncController;
 import edu.cmu.oli.content.controllers.VersionBatchProcess;
 import edu.cmu.oli.content.logging.Logging;
+import edu.cmu.oli.content.models.ContentPackageSummary;
 import edu.cmu.oli.content.models.DeployStage;
+import edu.cmu.oli.content.models.KeysetPage;
 import edu.cmu.oli.content.models.persistance.JsonWrapper;
 import edu.cmu.oli.content.models.persistance.entities.BuildStatus;
 import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
@@ -102,6 +108,8 @@ import edu.cmu.oli.content.security.UserInfo;
 @Stateless
 public class ContentPackageManager {
 
+    private static final int MAX_SUMMARY_PAGE_SIZE = 500;
+
     @Inject
     @Logging
     Logger log;
@@ -109,6 +117,15 @@ public class ContentPackageManager {
     @PersistenceContext
     EntityManager em;
 
+    @Inject
+    PackageKeyResolver packageKeyResolver;
+
+    @Inject
+    PackageLoader packageLoader;
+
+    @Inject
+    RevisionBlobStore revisionBlobStore;
+
     @Inject
     @Secure
     AppSecurityController securityManager;
@@ -135,6 +152,9 @@ public class ContentPackageManager {
     @Inject
     Event<ResourceChangeEvent> resourceChange;
 
+    @Inject
+    Event<PackageLockChangeEvent> packageLockChange;
+
     @Inject
     DirectoryUtils directoryUtils;
 
@@ -196,6 +216,59 @@ public class ContentPackageManager {
         return jsonElement;
     }
 
+    public JsonElement packageSummaries(AppSecurityContext session, String after, int limit) {
+        securityManager.authorize(session, Collections.singletonList(ADMIN), null, null, null);
+
+        TypedQuery<ContentPackageSummary> q = em.createQuery(
+                ContentPackageSummary.SELECT + "WHERE p.guid > :after ORDER BY p.guid", ContentPackageSummary.class);
+        return summaryPage(q, after, limit);
+    }
+
+    public JsonElement editablePackageSummaries(AppSecurityContext session, String after, int limit) {
+        Set<String> permittedPkgs = securityManager.authorize(session, Arrays.asList(ADMIN, CONTENT_DEVELOPER),
+                null, "type=" + ContentPackageResource.resourceType, Arrays.asList(Scopes.VIEW_MATERIAL_ACTION));
+
+        String filter = "WHERE p.guid > :after AND (p.visible IS NULL OR p.visible = true) AND p.buildStatus <> :failed ";
+        TypedQuery<ContentPackageSummary> q = null;
+        if (permittedPkgs.contains("all")) {
+            q = em.createQuery(ContentPackageSummary.SELECT + filter + "ORDER BY p.guid", ContentPackageSummary.class);
+        } else if (!permittedPkgs.isEmpty()) {
+            q = em.createQuery(ContentPackageSummary.SELECT + filter + "AND p.guid IN :guids ORDER BY p.guid",
+                    ContentPackageSummary.class);
+            q.setParameter("guids", permittedPkgs);
+        }
+        if (q != null) {
+            q.setParameter("failed", BuildStatus.FAILED);
+        }
+        return summaryPage(q, after, limit);
+    }
+
+    // Keyset pagination on the primary key, so each page costs the same regardless of how deep it is
+    private JsonElement summaryPage(TypedQuery<ContentPackageSummary> q, String after, int limit) {
+        String from = after == null ? "" : after;
+        int pageSize = Math.max(1, Math.min(limit, MAX_SUMMARY_PAGE_SIZE));
+        List<ContentPackageSummary> results = new ArrayList<>();
+        String next = null;
+        if (q != null) {
+            q.setParameter("after", from);
+            q.setMaxResults(pageSize + 1);
+            results.addAll(q.getResultList());
+            if (results.size() > pageSize) {
+                results.subList(pageSize, results.size()).clear();
+                next = results.get(pageSize - 1).getGuid();
+            }
+        }
+        if (from.isEmpty()) {
+            // Packages still being imported are not persisted yet, list them with the first page
+            for (ContentPackage pending : SVNImportController.importPending.values()) {
+                results.add(ContentPackageSummary.of(pending));
+            }
+        }
+
+        Gson gson = AppUtils.gsonBuilder().excludeFieldsWithoutExposeAnnotation().serializeNulls().create();
+        return gson.toJsonTree(new KeysetPage<>(from, pageSize, next, results));
+    }
+
     private List<ContentPackage> fetchPackagesByGuids(Set<String> packageGuids, boolean readOnly) {
 
         CriteriaBuilder cb = em.getCriteriaBuilder();
@@ -221,6 +294,7 @@ public class ContentPackageManager {
         });
 
         fetchPackagesByGuids(packageGuidSet, false).forEach(contentPackage -> contentPackage.setEditable(editable));
+        packageLockChange.fire(new PackageLockChangeEvent(packageGuidSet));
 
         JsonObject locked = new JsonObject();
         locked.addProperty("editable", editable);
@@ -352,6 +426,7 @@ public class ContentPackageManager {
         em.persist(contentPackage);
         // Force flush to get autogenerated guid
         em.flush();
+        packageKeyResolver.invalidate(contentPackage.getId(), contentPackage.getVersion());
 
         securityManager.createResource(contentPackage.getGuid(), "/packages/" + contentPackage.getGuid(),
                 ContentPackageResource.resourceType,
@@ -683,6 +758,7 @@ public class ContentPackageManager {
                     volumeLocation, null);
             em.persist(cloneVersion);
             em.flush();
+            packageKeyResolver.invalidate(cloneVersion.getId(), cloneVersion.getVersion());
         } catch (Exception e) {
             final String message = "Package cloning error: " + e.getMessage();
             log.error(message, e);
@@ -906,13 +982,17 @@ public class ContentPackageManager {
     }
 
     private void fireResourceChangeEvent(String resourceId, ResourceEventType eventType, JsonElement payload) {
-        resourceChange.fire(new ResourceChangeEvent(resourceId, eventType, payload));
+        // Package level events are scoped to the package itself
+        resourceChange.fire(new ResourceChangeEvent(resourceId, resourceId, eventType, payload));
     }
 
     private void doDeletePackage(String packageGuid) {
         ContentPackage contentPackage = findContentPackage(packageGuid);
 
+        List<String> blobGuids = revisionBlobStore.blobGuidsOf(contentPackage.getGuid());
         em.remove(contentPackage);
+        revisionBlobStore.deleteOrphans(blobGuids);
+        packageKeyResolver.invalidateGuid(contentPackage.getGuid());
 
         // Delete resource from Keycloak
         securityManager.deleteResource(contentPackage.getGuid());
@@ -953,14 +1033,7 @@ public class ContentPackageManager {
         if (svnRepositoryUrl.isPresent()) {
             contentPkgJson.addProperty("svnLocation", svnRepositoryUrl.get());
         }
-        List<UserInfo> allUsers = securityManager.getAllUsers();
-        allUsers.sort((o1, o2) -> {
-            Map<String, List<String>> attributes = o1.getAttributes();
-            Boolean isDev01 = attributes != null && attributes.containsKey(contentPackage.getGuid());
-            attributes = o2.getAttributes();
-            Boolean isDev02 = attributes != null && attributes.containsKey(contentPackage.getGuid());
-            return isDev02.compareTo(isDev01);
-        });
+        List<UserInfo> allUsers = securityManager.getPackageUsers(contentPackage.getGuid());
         JsonArray users = new JsonArray();
 
         for (UserInfo ur : allUsers) {
@@ -981,6 +1054,7 @@ public class ContentPackageManager {
     }
 
     private JsonElement pkgLoad(ContentPackage contentPackage) {
+        packageLoader.loadGraph(contentPackage);
         Gson gson = AppUtils.gsonBuilder().excludeFieldsWithoutExposeAnnotation().serializeNulls().create();
         JsonElement contentPkgJson = gson.toJsonTree(contentPackage);
         Collection<Resource> resources = contentPackage.getResources();
@@ -1004,14 +1078,15 @@ public class ContentPackageManager {
         Collection<Resource> embedActivityResources = resources.stream()
             .filter(r -> r.getType().equalsIgnoreCase("x-oli-embed-activity"))
             .collect(Collectors.toList());
-            
+        packageLoader.prefetchLastRevisionBodies(embedActivityResources);
+
         HashMap<String, String> embedActivityTypes = new HashMap<String, String>();
         for (Resource embedActivityResource : embedActivityResources) {
             Revision lastestRev = embedActivityResource.getLastRevision();
             JsonWrapper jsonPayload = lastestRev.getBody().getJsonPayload();
 
             if (jsonPayload != null) {
-                JsonObject embedActivity = jsonPayload.getJsonObject().getAsJsonObject()
+                JsonObject embedActivity = jsonPayload.getSharedJsonObject().getAsJsonObject()
                     .get("embed_activity").getAsJsonObject();
                 embedActivityTypes.put(
                     embedActivityResource.getId(), AppUtils.inferEmbedActivityType(embedActivity).getAsString());
@@ -1025,34 +1100,7 @@ public class ContentPackageManager {
 
     // packageIdentifier is db guid or packageId-version combo
     private ContentPackage findContentPackage(String packageIdOrGuid) {
-        ContentPackage contentPackage = null;
-        Boolean isIdAndVersion = packageIdOrGuid.contains("-");
-        try {
-            if (isIdAndVersion) {
-                String pkgId = packageIdOrGuid.substring(0, packageIdOrGuid.lastIndexOf("-"));
-                String version = packageIdOrGuid.substring(packageIdOrGuid.lastIndexOf("-") + 1);
-                TypedQuery<ContentPackage> q = em
-                        .createNamedQuery("ContentPackage.findByIdAndVersion", ContentPackage.class)
-                        .setParameter("id", pkgId).setParameter("version", version);
-
-                contentPackage = q.getResultList().isEmpty() ? null : q.getResultList().get(0);
-            } else {
-                String packageGuid = packageIdOrGuid;
-                contentPackage = em.find(ContentPackage.class, packageGuid);
-            }
-
-            if (contentPackage == null) {
-                String message = "Error: package requested was not found " + packageIdOrGuid;
-                log.error(message);
-                throw new ResourceException(Response.Status.NOT_FOUND, packageIdOrGuid, message);
-            }
-
-        } catch (IllegalArgumentException e) {
-            String message = "Server Error while locating package " + packageIdOrGuid;
-            log.error(message);
-            throw new ResourceException(Response.Status.INTERNAL_SERVER_ERROR, packageIdOrGuid, message);
-        }
-        return contentPackage;
+        return packageKeyResolver.findContentPackage(packageIdOrGuid);
     }
 
 }
@@ -3,6 +3,7 @@ package edu.cmu.oli.content.boundary.managers;
 import edu.cmu.oli.content.configuration.DedicatedExecutor;
 import com.google.common.collect.Iterables;
 import com.google.gson.*;
+import com.google.gson.stream.JsonWriter;
 import edu.cmu.oli.assessment.builders.Assessment2Transform;
 import edu.cmu.oli.content.AppUtils;
 import edu.cmu.oli.content.DirectoryUtils;
@@ -15,6 +16,10 @@ import edu.cmu.oli.content.configuration.Configurations;
 import edu.cmu.oli.content.contentfiles.writers.ResourceToXml;
 import edu.cmu.oli.content.controllers.EdgesController;
 import edu.cmu.oli.content.controllers.LockController;
+import edu.cmu.oli.content.controllers.PackageLoader;
+import edu.cmu.oli.content.controllers.PackageKeyResolver;
+import edu.cmu.oli.content.controllers.RevisionBlobStore;
+import edu.cmu.oli.content.controllers.RevisionStore;
 import edu.cmu.oli.content.controllers.SVNSyncController;
 import edu.cmu.oli.content.logging.Logging;
 import edu.cmu.oli.content.models.persistance.JsonWrapper;
@@ -23,8 +28,7 @@ import edu.cmu.oli.content.resource.builders.Json2Xml;
 import edu.cmu.oli.content.resource.builders.ResourceJsonReader;
 import edu.cmu.oli.content.resource.builders.ResourceXmlReader;
 import edu.cmu.oli.content.resource.builders.Xml2Json;
-import edu.cmu.oli.content.resource.validators.BaseResourceValidator;
-import edu.cmu.oli.content.resource.validators.ResourceValidator;
+import edu.cmu.oli.content.resource.validators.ValidatorRegistry;
 import edu.cmu.oli.content.security.AppSecurityContext;
 import edu.cmu.oli.content.security.AppSecurityController;
 import edu.cmu.oli.content.security.Scopes;
@@ -49,8 +53,10 @@ import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
@@ -75,6 +81,7 @@ public class ContentResourceManager {
     public static final String OLD_DYNA_DROP_SRC_FILENAME = "DynaDropHTML-1.0.js";
     public static final String DYNA_DROP_SRC_FILENAME = "DynaDropHTML.js";
     public static final String REPL_ACTIVITY_SOURCE_FILENAME = "repl.js";
+    private static final int MAX_BULK_PAGE_SIZE = 500;
 
     @Inject
     @Logging
@@ -83,6 +90,18 @@ public class ContentResourceManager {
     @PersistenceContext
     EntityManager em;
 
+    @Inject
+    PackageKeyResolver packageKeyResolver;
+
+    @Inject
+    PackageLoader packageLoader;
+
+    @Inject
+    RevisionBlobStore revisionBlobStore;
+
+    @Inject
+    RevisionStore revisionStore;
+
     @Inject
     @Secure
     AppSecurityController securityManager;
@@ -106,6 +125,9 @@ public class ContentResourceManager {
     @Inject
     EdgesController edgesController;
 
+    @Inject
+    ValidatorRegistry validatorRegistry;
+
     @Inject
     @DedicatedExecutor("svnExecutor")
     ExecutorService svnExecutor;
@@ -118,7 +140,8 @@ public class ContentResourceManager {
 
         JsonObject resourceJson = serializeEditResource(resource, session);
 
-        resourceChange.fire(new ResourceChangeEvent(resourceId, ResourceEventType.RESOURCE_REQUESTED));
+        resourceChange.fire(new ResourceChangeEvent(contentPackage.getGuid(), resourceId,
+                ResourceEventType.RESOURCE_REQUESTED, null));
         return resourceJson;
     }
 
@@ -504,7 +527,8 @@ public class ContentResourceManager {
                 gson.toJsonTree(this.lockController.getLockForResource(session, resource.getGuid(), true)));
         resourceJson.add("doc", resourceContent.getAsJsonObject().get("doc"));
 
-        resourceChange.fire(new ResourceChangeEvent(resource.getGuid(), ResourceEventType.RESOURCE_CREATED));
+        resourceChange.fire(new ResourceChangeEvent(contentPackage.getGuid(), resource.getGuid(),
+                ResourceEventType.RESOURCE_CREATED, null));
         return resourceJson;
     }
 
@@ -602,12 +626,12 @@ public class ContentResourceManager {
         }
 
         // Parse update payload into final xml and json documents
-        Map<String, String> contentValues = contentValues(resourceContent, resource, jsonCapable);
-        validateXmlContent(contentPackage.getGuid(), resource, contentValues.get("xmlContent"), throwErrors);
+        String xmlContent = xmlContent(resourceContent, resource, jsonCapable);
+        validateXmlContent(contentPackage.getGuid(), resource, xmlContent, throwErrors);
 
-        RevisionBlob revisionBlob = jsonCapable
-                ? new RevisionBlob(new JsonWrapper(new JsonParser().parse(contentValues.get("content"))))
-                : new RevisionBlob(contentValues.get("xmlContent"));
+        RevisionBlob revisionBlob = revisionBlobStore.intern(jsonCapable
+                ? new RevisionBlob(new JsonWrapper(resourceContent))
+                : new RevisionBlob(xmlContent));
         Revision revision = new Revision(resource, resource.getLastRevision(), revisionBlob, author);
         revision.setRevisionType(Revision.RevisionType.SYSTEM);
         resource.addRevision(revision);
@@ -616,8 +640,7 @@ public class ContentResourceManager {
         resource.setBuildStatus(BuildStatus.READY);
         em.persist(resource);
 
-        updateXMLFile(contentPackage, resource, contentValues.get("xmlContent"), resource.getType(), Optional.empty(),
-                true);
+        updateXMLFile(contentPackage, resource, xmlContent, resource.getType(), Optional.empty(), true);
 
         return resource;
     }
@@ -665,9 +688,9 @@ public class ContentResourceManager {
         ((JsonObject) resourceJson).add("lock",
                 gson.toJsonTree(this.lockController.getLockForResource(session, resource.getGuid(), false)));
         ((JsonObject) resourceJson).add("doc", resourceContent);
-        ResourceChangeEvent resourceChangeEvent = new ResourceChangeEvent(resource.getGuid(),
-                ResourceEventType.RESOURCE_UPDATED);
-        resourceChangeEvent.setEventPayload((JsonObject) resourceJson);
+        ResourceChangeEvent resourceChangeEvent = new ResourceChangeEvent(contentPackage.getGuid(),
+                resource.getGuid(), ResourceEventType.RESOURCE_UPDATED, resourceJson);
+        resourceChangeEvent.setRevision(resource.getLastRevision().getGuid());
         this.resourceChange.fire(resourceChangeEvent);
         logElapsed(mark6, "ConverttoJSONTree");
 
@@ -699,9 +722,9 @@ public class ContentResourceManager {
         ((JsonObject) resourceJson).add("lock",
                 gson.toJsonTree(this.lockController.getLockForResource(session, resource.getGuid(), false)));
         ((JsonObject) resourceJson).add("doc", resourceContent);
-        ResourceChangeEvent resourceChangeEvent = new ResourceChangeEvent(resource.getGuid(),
-                ResourceEventType.RESOURCE_UPDATED);
-        resourceChangeEvent.setEventPayload((JsonObject) resourceJson);
+        ResourceChangeEvent resourceChangeEvent = new ResourceChangeEvent(contentPackage.getGuid(),
+                resource.getGuid(), ResourceEventType.RESOURCE_UPDATED, resourceJson);
+        resourceChangeEvent.setRevision(resource.getLastRevision().getGuid());
         this.resourceChange.fire(resourceChangeEvent);
 
         return resourceJson;
@@ -822,11 +845,11 @@ public class ContentResourceManager {
 
         // Parse update payload into final xml and json documents
 
-        Map<String, String> contentValues = contentValues(resourceContent, resource, jsonCapable);
-        logElapsed(mark3a, "doUpdate::contentValues");
+        String xmlContent = xmlContent(resourceContent, resource, jsonCapable);
+        logElapsed(mark3a, "doUpdate::xmlContent");
 
         final long mark3b = mark();
-        Document document = validateXmlContent(contentPackage.getGuid(), resource, contentValues.get("xmlContent"),
+        Document document = validateXmlContent(contentPackage.getGuid(), resource, xmlContent,
                 throwErrors);
         logElapsed(mark3b, "doUpdate::validateXmlContent");
 
@@ -852,20 +875,24 @@ public class ContentResourceManager {
         resource.setFileNode(packageNode);
 
         if (resource.getLastSession() != null && resource.getLastSession().equals(lockId)) {
-            // still in an editing session, modify the existing revision blob
+            // still in an editing session, modify the existing revision blob unless other revisions reference it
             RevisionBlob revisionBlob = resource.getLastRevision().getBody();
-            if (jsonCapable) {
-                revisionBlob.setJsonPayload(new JsonWrapper(new JsonParser().parse(contentValues.get("content"))));
+            if (revisionBlob.isShared()) {
+                revisionBlob = revisionBlobStore.intern(jsonCapable
+                        ? new RevisionBlob(new JsonWrapper(resourceContent))
+                        : new RevisionBlob(xmlContent));
+            } else if (jsonCapable) {
+                revisionBlob.setJsonPayload(new JsonWrapper(resourceContent));
             } else {
-                revisionBlob.setXmlPayload(contentValues.get("xmlContent"));
+                revisionBlob.setXmlPayload(xmlContent);
             }
 
             resource.getLastRevision().setBody(revisionBlob);
         } else {
             // different editing session, create a new revision and blob
-            RevisionBlob revisionBlob = jsonCapable
-                    ? new RevisionBlob(new JsonWrapper(new JsonParser().parse(contentValues.get("content"))))
-                    : new RevisionBlob(contentValues.get("xmlContent"));
+            RevisionBlob revisionBlob = revisionBlobStore.intern(jsonCapable
+                    ? new RevisionBlob(new JsonWrapper(resourceContent))
+                    : new RevisionBlob(xmlContent));
 
             // The client can specify a revision guid to use
             Revision revision = nextRevision != null
@@ -884,7 +911,7 @@ public class ContentResourceManager {
 
         final long mark6 = mark();
         boolean ldModelUpdate = author != null && author.equalsIgnoreCase("LDModel");
-        updateXMLFile(contentPackage, resource, contentValues.get("xmlContent"), oldType,
+        updateXMLFile(contentPackage, resource, xmlContent, oldType,
                 oldType.equals(resource.getType()) ? Optional.empty() : Optional.of(oldPathFromResourceFile),
                 ldModelUpdate ? false : true);
         logElapsed(mark6, "doUpdate::updateXMLFile");
@@ -934,8 +961,8 @@ public class ContentResourceManager {
 
         Gson gson = AppUtils.gsonBuilder().excludeFieldsWithoutExposeAnnotation().serializeNulls().create();
         JsonElement resourceJson = gson.toJsonTree(resource);
-        ResourceChangeEvent resourceChangeEvent = new ResourceChangeEvent(resource.getGuid(),
-                ResourceEventType.RESOURCE_DELETED);
+        ResourceChangeEvent resourceChangeEvent = new ResourceChangeEvent(contentPackage.getGuid(),
+                resource.getGuid(), ResourceEventType.RESOURCE_DELETED, null);
         this.resourceChange.fire(resourceChangeEvent);
         svnExecutor.submit(() -> {
             svnSyncController.updateSvnRepo(
@@ -948,16 +975,142 @@ public class ContentResourceManager {
     public JsonElement fetchResourcesByFilter(AppSecurityContext session, String packageIdOrGuid, String action,
             JsonArray items) {
         ContentPackage contentPackage = findContentPackage(packageIdOrGuid);
-        if (!action.equalsIgnoreCase("byIds") && !action.equalsIgnoreCase("byTypes")) {
-            String message = "Wrong action parameter; value should be either 'byIds' or 'byTypes' " + action;
-            throw new ResourceException(Response.Status.BAD_REQUEST, null, message);
-        }
+        validateBulkAction(action);
         securityManager.authorize(session, Arrays.asList(ADMIN, CONTENT_DEVELOPER), contentPackage.getGuid(),
                 "name=" + contentPackage.getGuid(), Collections.singletonList(Scopes.VIEW_MATERIAL_ACTION));
         // Query q;
         CriteriaBuilder cb = em.getCriteriaBuilder();
         CriteriaQuery<Resource> criteria = cb.createQuery(Resource.class);
         Root<Resource> resourceRoot = criteria.from(Resource.class);
+        criteria.select(resourceRoot).where(bulkFilter(cb, resourceRoot, contentPackage, action, items));
+
+        List<Resource> resultList = em.createQuery(criteria).getResultList();
+
+        JsonArray resourcesArray = new JsonArray();
+        buildBulkResponse(resultList, resourcesArray);
+        return resourcesArray;
+    }
+
+    /**
+     * Keyset paginated variant of {@link #fetchResourcesByFilter}. Resources are ordered by guid and the page is
+     * written straight to the response as it is serialized, so the full response is never held in memory.
+     * <p>
+     * Output: {"after": .., "limit": .., "next": guid of the last resource or null on the last page, "results": [..]}
+     */
+    public StreamingOutput streamResourcesByFilter(AppSecurityContext session, String packageIdOrGuid, String action,
+            JsonArray items, String after, int limit) {
+        ContentPackage contentPackage = findContentPackage(packageIdOrGuid);
+        validateBulkAction(action);
+        securityManager.authorize(session, Arrays.asList(ADMIN, CONTENT_DEVELOPER), contentPackage.getGuid(),
+                "name=" + contentPackage.getGuid(), Collections.singletonList(Scopes.VIEW_MATERIAL_ACTION));
+
+        String from = after == null ? "" : after;
+        int pageSize = Math.max(1, Math.min(limit, MAX_BULK_PAGE_SIZE));
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Resource> criteria = cb.createQuery(Resource.class);
+        Root<Resource> resourceRoot = criteria.from(Resource.class);
+        criteria.select(resourceRoot)
+                .where(cb.and(bulkFilter(cb, resourceRoot, contentPackage, action, items),
+                        cb.greaterThan(resourceRoot.get("guid"), from)))
+                .orderBy(cb.asc(resourceRoot.get("guid")));
+        List<Resource> resultList = new ArrayList<>(
+                em.createQuery(criteria).setMaxResults(pageSize + 1).getResultList());
+        String next = null;
+        if (resultList.size() > pageSize) {
+            resultList.subList(pageSize, resultList.size()).clear();
+            next = resultList.get(pageSize - 1).getGuid();
+        }
+
+        // Everything that needs the persistence context is resolved here, the payloads themselves are only
+        // inflated and written once the response is being streamed
+        Map<String, RevisionBlob> bodies = packageLoader.prefetchLastRevisionBodies(resultList);
+        Gson gson = AppUtils.gsonBuilder().excludeFieldsWithoutExposeAnnotation().serializeNulls().create();
+        List<BulkEntry> entries = new ArrayList<>(resultList.size());
+        for (Resource resource : resultList) {
+            RevisionBlob body = resource.getLastRevision() == null || resource.getLastRevision().getBody() == null
+                    ? null : bodies.get(resource.getLastRevision().getBody().getGuid());
+            boolean jsonCapable = body != null ? body.getXmlPayload() == null
+                    : configuration.get().getResourceTypeById(resource.getType()).get(JSON_CAPABLE).getAsBoolean();
+            Path path = Paths.get(resource.getFileNode().getVolumeLocation(), resource.getFileNode().getPathTo());
+            entries.add(new BulkEntry(gson.toJsonTree(resource).getAsJsonObject(), body, path, jsonCapable));
+        }
+
+        String nextGuid = next;
+        return output -> {
+            JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(output,
+                    StandardCharsets.UTF_8)));
+            writer.setSerializeNulls(true);
+            writer.beginObject();
+            writer.name("after").value(from);
+            writer.name("limit").value(pageSize);
+            writer.name("next").value(nextGuid);
+            writer.name("results").beginArray();
+            for (BulkEntry entry : entries) {
+                writeBulkEntry(gson, writer, entry);
+            }
+            writer.endArray();
+            writer.endObject();
+            writer.flush();
+        };
+    }
+
+    private void writeBulkEntry(Gson gson, JsonWriter writer, BulkEntry entry) throws IOException {
+        writer.beginObject();
+        for (Map.Entry<String, JsonElement> member : entry.resourceJson.entrySet()) {
+            writer.name(member.getKey());
+            gson.toJson(member.getValue(), writer);
+        }
+        writer.name("doc");
+        if (entry.body != null) {
+            if (entry.jsonCapable) {
+                writer.jsonValue(entry.body.getJsonPayload().getAsString());
+            } else {
+                writer.value(entry.body.getXmlPayload());
+            }
+        } else {
+            // No revision yet, the payload is still only on disk
+            try (Reader reader = Files.newBufferedReader(entry.path, StandardCharsets.UTF_8)) {
+                if (entry.jsonCapable) {
+                    gson.toJson(new JsonParser().parse(reader), writer);
+                } else {
+                    StringWriter xml = new StringWriter();
+                    char[] buffer = new char[8192];
+                    for (int n; (n = reader.read(buffer)) != -1; ) {
+                        xml.write(buffer, 0, n);
+                    }
+                    writer.value(xml.toString());
+                }
+            } catch (IOException | JsonParseException ex) {
+                log.error("Error streaming resource file " + entry.path, ex);
+                throw new IOException(ex.getLocalizedMessage(), ex);
+            }
+        }
+        writer.endObject();
+    }
+
+    private static final class BulkEntry {
+        private final JsonObject resourceJson;
+        private final RevisionBlob body;
+        private final Path path;
+        private final boolean jsonCapable;
+
+        private BulkEntry(JsonObject resourceJson, RevisionBlob body, Path path, boolean jsonCapable) {
+            this.resourceJson = resourceJson;
+            this.body = body;
+            this.path = path;
+            this.jsonCapable = jsonCapable;
+        }
+    }
+
+    private void validateBulkAction(String action) {
+        if (!action.equalsIgnoreCase("byIds") && !action.equalsIgnoreCase("byTypes")) {
+            String message = "Wrong action parameter; value should be either 'byIds' or 'byTypes' " + action;
+            throw new ResourceException(Response.Status.BAD_REQUEST, null, message);
+        }
+    }
+
+    private Predicate bulkFilter(CriteriaBuilder cb, Root<Resource> resourceRoot, ContentPackage contentPackage,
+            String action, JsonArray items) {
         if (action.equalsIgnoreCase("byTypes")) {
             Set<String> types = new HashSet<>();
             items.forEach(val -> types.add(val.getAsString()));
@@ -968,30 +1121,41 @@ public class ContentResourceManager {
                 throw new ResourceException(Response.Status.BAD_REQUEST, null, message);
             }
 
-            criteria.select(resourceRoot)
-                    .where(cb.and(cb.equal(resourceRoot.get("contentPackage").get("guid"), contentPackage.getGuid()),
-                            resourceRoot.get("type").in(types)));
+            return cb.and(cb.equal(resourceRoot.get("contentPackage").get("guid"), contentPackage.getGuid()),
+                    resourceRoot.get("type").in(types));
+        }
+        Set<String> guids = new HashSet<>();
+        items.forEach((val) -> guids.add(val.getAsString()));
 
-        } else {
-            Set<String> guids = new HashSet<>();
-            items.forEach((val) -> guids.add(val.getAsString()));
+        if (guids.isEmpty()) {
+            String message = "ContentResource guid's cannot be empty";
+            log.error(message);
+            throw new ResourceException(Response.Status.BAD_REQUEST, null, message);
+        }
+        return cb.and(cb.equal(resourceRoot.get("contentPackage").get("guid"), contentPackage.getGuid()),
+                resourceRoot.get("guid").in(guids));
+    }
 
-            if (guids.isEmpty()) {
-                String message = "ContentResource guid's cannot be empty";
-                log.error(message);
-                throw new ResourceException(Response.Status.BAD_REQUEST, null, message);
-            }
-            criteria.select(resourceRoot)
-                    .where(cb.and(cb.equal(resourceRoot.get("contentPackage").get("guid"), contentPackage.getGuid()),
-                            resourceRoot.get("guid").in(guids)));
+    public JsonElement fetchRevision(AppSecurityContext session, String packageIdOrGuid, String resourceId,
+            String revisionGuid) {
+        ContentPackage contentPackage = findContentPackage(packageIdOrGuid);
+        securityManager.authorize(session, Arrays.asList(ADMIN, CONTENT_DEVELOPER), contentPackage.getGuid(),
+                "name=" + contentPackage.getGuid(), Collections.singletonList(Scopes.VIEW_MATERIAL_ACTION));
+        Resource resource = findContentResource(resourceId, contentPackage);
 
+        Revision revision = em.find(Revision.class, revisionGuid);
+        if (revision == null || !resource.equals(revision.getResource())) {
+            String message = "Revision not found " + revisionGuid;
+            throw new ResourceException(Response.Status.NOT_FOUND, revisionGuid, message);
         }
 
-        List<Resource> resultList = em.createQuery(criteria).getResultList();
-
-        JsonArray resourcesArray = new JsonArray();
-        buildBulkResponse(resultList, resourcesArray);
-        return resourcesArray;
+        Gson gson = AppUtils.gsonBuilder().excludeFieldsWithoutExposeAnnotation().serializeNulls().create();
+        JsonObject revisionJson = (JsonObject) gson.toJsonTree(revision);
+        RevisionBlob payload = revisionStore.payload(revision);
+        JsonWrapper jsonPayload = payload.getJsonPayload();
+        revisionJson.add("doc", jsonPayload != null ? jsonPayload.getJsonObject()
+                : new JsonPrimitive(payload.getXmlPayload()));
+        return revisionJson;
     }
 
     public JsonElement fetchResourceEdges(AppSecurityContext session, String packageIdOrGuid, String resourceId) {
@@ -1151,30 +1315,11 @@ public class ContentResourceManager {
                 // log.info("XML Content \n" + xmlContent);
             }
 
-            ResourceValidator validator = new BaseResourceValidator();
-            validator.initValidator(resource, build, throwErrors);
-            validator.validate();
-            logElapsed(mark1, "BaseResourceValidator");
+            logElapsed(mark1, "build");
 
             final long mark2 = mark();
-            Configurations serviceConfig = this.configuration.get();
-            JsonObject resourceTypeDefinition = serviceConfig.getResourceTypeById(resource.getType());
-            if (resourceTypeDefinition == null || !resourceTypeDefinition.has("validatorClass")) {
-                String message = resource.getType() + " has no validator class";
-                log.error(message);
-            } else {
-                String validatorClass = resourceTypeDefinition.get("validatorClass").getAsString();
-                try {
-                    Class<?> aClass = Class.forName(validatorClass);
-                    ResourceValidator resourceValidator = (ResourceValidator) AppUtils.lookupCDIBean(aClass);
-                    resourceValidator.initValidator(resource, build, throwErrors);
-                    resourceValidator.validate();
-                    logElapsed(mark2, "SpecificResourceValidator");
-                } catch (ClassNotFoundException e) {
-                    String message = resource.getType() + " validator class not found";
-                    log.error(message);
-                }
-            }
+            validatorRegistry.validate(resource, build, throwErrors);
+            logElapsed(mark2, "ResourceValidators");
 
             return build;
         } catch (JDOMException | RuntimeException e) {
@@ -1210,7 +1355,7 @@ public class ContentResourceManager {
             if (jsonCapable) {
                 if (resource.getLastRevision() != null) {
                     ((JsonObject) resourceJson).add("doc",
-                            resource.getLastRevision().getBody().getJsonPayload().getJsonObject());
+                            resource.getLastRevision().getBody().getJsonPayload().getSharedJsonObject());
                     resourcesArray.add(resourceJson);
                 } else {
                     try (FileReader fileReader = new FileReader(path)) {
@@ -1245,30 +1390,20 @@ public class ContentResourceManager {
         }
     }
 
-    private Map<String, String> contentValues(JsonElement resourceContent, Resource resource, boolean jsonCapable) {
-        Map<String, String> values = new HashMap<>();
-        String content;
-        String xmlContent;
-
-        if (jsonCapable) {
-            Gson gson = AppUtils.gsonBuilder().setPrettyPrinting().create();
-            content = gson.toJson(resourceContent);
-            ResourceToXml resourceToXml = new ResourceToXml();
-            resourceToXml.setConfig(configuration.get());
-            try {
-                xmlContent = resourceToXml.resourceToXml(resource.getType(), content);
-            } catch (Exception e) {
-                log.error(content);
-                throw e;
-            }
-
-        } else {
-            content = resourceContent.getAsString();
-            xmlContent = AppUtils.escapeAmpersand(content);
+    // Converts the update payload into the resource's final XML, serialized once for validation, the revision and
+    // the source file; a JSON model is converted and stored as received, without a serialize and parse round trip
+    private String xmlContent(JsonElement resourceContent, Resource resource, boolean jsonCapable) {
+        if (!jsonCapable) {
+            return AppUtils.escapeAmpersand(resourceContent.getAsString());
+        }
+        ResourceToXml resourceToXml = new ResourceToXml();
+        resourceToXml.setConfig(configuration.get());
+        try {
+            return resourceToXml.resourceToXml(resource.getType(), resourceContent);
+        } catch (Exception e) {
+            log.error(resourceContent.toString());
+            throw e;
         }
-        values.put("content", content);
-        values.put("xmlContent", xmlContent);
-        return values;
     }
 
     private Resource findContentResource(String resourceId, ContentPackage contentPackage) {
@@ -1296,33 +1431,6 @@ public class ContentResourceManager {
 
     // packageIdentifier is db guid or packageId-version combo
     private ContentPackage findContentPackage(String packageIdOrGuid) {
-        ContentPackage contentPackage = null;
-        Boolean isIdAndVersion = packageIdOrGuid.contains("-");
-        try {
-            if (isIdAndVersion) {
-                String pkgId = packageIdOrGuid.substring(0, packageIdOrGuid.lastIndexOf("-"));
-                String version = packageIdOrGuid.substring(packageIdOrGuid.lastIndexOf("-") + 1);
-                TypedQuery<ContentPackage> q = em
-                        .createNamedQuery("ContentPackage.findByIdAndVersion", ContentPackage.class)
-                        .setParameter("id", pkgId).setParameter("version", version);
-
-                contentPackage = q.getResultList().isEmpty() ? null : q.getResultList().get(0);
-            } else {
-                String packageGuid = packageIdOrGuid;
-                contentPackage = em.find(ContentPackage.class, packageGuid);
-            }
-
-            if (contentPackage == null) {
-                String message = "Error: package requested was not found " + packageIdOrGuid;
-                log.error(message);
-                throw new ResourceException(Response.Status.NOT_FOUND, packageIdOrGuid, message);
-            }
-
-        } catch (IllegalArgumentException e) {
-            String message = "Server Error while locating package " + packageIdOrGuid;
-            log.error(message);
-            throw new ResourceException(Response.Status.INTERNAL_SERVER_ERROR, packageIdOrGuid, message);
-        }
-        return contentPackage;
+        return packageKeyResolver.findContentPackage(packageIdOrGuid);
     }
 }
\ No newline at end of file
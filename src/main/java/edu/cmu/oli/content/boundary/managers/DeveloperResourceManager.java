@@ -4,6 +4,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import edu.cmu.oli.content.ResourceException;
+import edu.cmu.oli.content.controllers.PackageKeyResolver;
 import edu.cmu.oli.content.logging.Logging;
 import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
 import edu.cmu.oli.content.security.*;
@@ -13,7 +14,6 @@ import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import javax.persistence.TypedQuery;
 import javax.ws.rs.core.Response;
 import java.util.*;
 
@@ -33,6 +33,9 @@ public class DeveloperResourceManager {
     @PersistenceContext
     EntityManager em;
 
+    @Inject
+    PackageKeyResolver packageKeyResolver;
+
     @Inject
     @Secure
     AppSecurityController securityManager;
@@ -41,14 +44,7 @@ public class DeveloperResourceManager {
         ContentPackage contentPackage = findContentPackage(packageIdOrGuid);
         securityManager.authorize(session, Arrays.asList(ADMIN, CONTENT_DEVELOPER), contentPackage.getGuid(),
                 "name=" + contentPackage.getGuid(), Arrays.asList(Scopes.VIEW_MATERIAL_ACTION));
-        List<UserInfo> allUsers = securityManager.getAllUsers();
-        allUsers.sort((o1, o2) -> {
-            Map<String, List<String>> attributes = o1.getAttributes();
-            Boolean isDev01 = attributes != null && attributes.containsKey(contentPackage.getGuid());
-            attributes = o2.getAttributes();
-            Boolean isDev02 = attributes != null && attributes.containsKey(contentPackage.getGuid());
-            return isDev02.compareTo(isDev01);
-        });
+        List<UserInfo> allUsers = securityManager.getPackageUsers(contentPackage.getGuid());
         JsonArray users = new JsonArray();
         for (UserInfo ur : allUsers) {
             if (ur.getServiceAccountClientId() != null || ur.getUsername().equalsIgnoreCase("manager")) {
@@ -115,34 +111,7 @@ public class DeveloperResourceManager {
 
     // packageIdentifier is db guid or packageId-version combo
     private ContentPackage findContentPackage(String packageIdOrGuid) {
-        ContentPackage contentPackage = null;
-        Boolean isIdAndVersion = packageIdOrGuid.contains("-");
-        try {
-            if (isIdAndVersion) {
-                String pkgId = packageIdOrGuid.substring(0, packageIdOrGuid.lastIndexOf("-"));
-                String version = packageIdOrGuid.substring(packageIdOrGuid.lastIndexOf("-") + 1);
-                TypedQuery<ContentPackage> q = em
-                        .createNamedQuery("ContentPackage.findByIdAndVersion", ContentPackage.class)
-                        .setParameter("id", pkgId).setParameter("version", version);
-
-                contentPackage = q.getResultList().isEmpty() ? null : q.getResultList().get(0);
-            } else {
-                String packageGuid = packageIdOrGuid;
-                contentPackage = em.find(ContentPackage.class, packageGuid);
-            }
-
-            if (contentPackage == null) {
-                String message = "Error: package requested was not found " + packageIdOrGuid;
-                log.error(message);
-                throw new ResourceException(Response.Status.NOT_FOUND, packageIdOrGuid, message);
-            }
-
-        } catch (IllegalArgumentException e) {
-            String message = "Server Error while locating package " + packageIdOrGuid;
-            log.error(message);
-            throw new ResourceException(Response.Status.INTERNAL_SERVER_ERROR, packageIdOrGuid, message);
-        }
-        return contentPackage;
+        return packageKeyResolver.findContentPackage(packageIdOrGuid);
     }
 
 }
@@ -8,6 +8,7 @@ import edu.cmu.oli.content.ResourceException;
 import edu.cmu.oli.content.configuration.ConfigurationCache;
 import edu.cmu.oli.content.configuration.Configurations;
 import edu.cmu.oli.content.controllers.EdgesController;
+import edu.cmu.oli.content.controllers.PackageKeyResolver;
 import edu.cmu.oli.content.logging.Logging;
 import edu.cmu.oli.content.models.persistance.entities.*;
 import edu.cmu.oli.content.security.AppSecurityContext;
@@ -21,7 +22,6 @@ import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Predicate;
@@ -45,6 +45,9 @@ public class EdgeResourceManager {
     @PersistenceContext
     EntityManager em;
 
+    @Inject
+    PackageKeyResolver packageKeyResolver;
+
     @Inject
     @Secure
     AppSecurityController securityManager;
@@ -93,24 +96,14 @@ public class EdgeResourceManager {
             predicates.add(cb.equal(edgeRoot.get("purpose"), enumType));
         }
         if (sourceIds != null) {
-            // create an "or" predicate of all source ids
-            final Predicate sourceIdsPredicate = sourceIds.stream()
-                    .map(id -> pkg.getId() + ":" + pkg.getVersion() + ":" + id).reduce(cb.or(),
-                            (acc, id) -> cb.or(acc, cb.equal(edgeRoot.get("sourceId"), id)), (a, b) -> cb.or(a, b));
-
-            predicates.add(sourceIdsPredicate);
+            predicates.add(sourceIds.isEmpty() ? cb.disjunction() : edgeRoot.get("sourceResourceId").in(sourceIds));
         }
         if (sourceType != null) {
             predicates.add(cb.equal(edgeRoot.get("sourceType"), sourceType));
         }
         if (destinationIds != null) {
-            // create an "or" predicate of all destination ids
-            final Predicate destinationIdsPredicate = destinationIds.stream()
-                    .map(id -> pkg.getId() + ":" + pkg.getVersion() + ":" + id).reduce(cb.or(),
-                            (acc, id) -> cb.or(acc, cb.equal(edgeRoot.get("destinationId"), id)),
-                            (a, b) -> cb.or(a, b));
-
-            predicates.add(destinationIdsPredicate);
+            predicates.add(destinationIds.isEmpty() ? cb.disjunction()
+                    : edgeRoot.get("destinationResourceId").in(destinationIds));
         }
         if (destinationType != null) {
             predicates.add(cb.equal(edgeRoot.get("destinationType"), destinationType));
@@ -140,33 +133,6 @@ public class EdgeResourceManager {
 
     // packageIdentifier is db guid or packageId-version combo
     private ContentPackage findContentPackage(String packageIdOrGuid) {
-        ContentPackage contentPackage = null;
-        Boolean isIdAndVersion = packageIdOrGuid.contains("-");
-        try {
-            if (isIdAndVersion) {
-                String pkgId = packageIdOrGuid.substring(0, packageIdOrGuid.lastIndexOf("-"));
-                String version = packageIdOrGuid.substring(packageIdOrGuid.lastIndexOf("-") + 1);
-                TypedQuery<ContentPackage> q = em
-                        .createNamedQuery("ContentPackage.findByIdAndVersion", ContentPackage.class)
-                        .setParameter("id", pkgId).setParameter("version", version);
-
-                contentPackage = q.getResultList().isEmpty() ? null : q.getResultList().get(0);
-            } else {
-                String packageGuid = packageIdOrGuid;
-                contentPackage = em.find(ContentPackage.class, packageGuid);
-            }
-
-            if (contentPackage == null) {
-                String message = "Error: package requested was not found " + packageIdOrGuid;
-                log.error(message);
-                throw new ResourceException(Response.Status.NOT_FOUND, packageIdOrGuid, message);
-            }
-
-        } catch (IllegalArgumentException e) {
-            String message = "Server Error while locating package " + packageIdOrGuid;
-            log.error(message);
-            throw new ResourceException(Response.Status.INTERNAL_SERVER_ERROR, packageIdOrGuid, message);
-        }
-        return contentPackage;
+        return packageKeyResolver.findContentPackage(packageIdOrGuid);
     }
 }
@@ -1,11 +1,15 @@
 package edu.cmu.oli.content.boundary.managers;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import edu.cmu.oli.content.AppUtils;
 import edu.cmu.oli.content.ResourceException;
 import edu.cmu.oli.content.controllers.LockController;
+import edu.cmu.oli.content.controllers.PackageKeyResolver;
 import edu.cmu.oli.content.logging.Logging;
 import edu.cmu.oli.content.models.ResourceEditLock;
 import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
@@ -22,9 +26,17 @@ import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static edu.cmu.oli.content.security.Roles.ADMIN;
 import static edu.cmu.oli.content.security.Roles.CONTENT_DEVELOPER;
@@ -38,9 +50,11 @@ import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
 public class LockResourceManager {
 
     enum LockActions {
-        AQUIRE, RELEASE, STATUS
+        AQUIRE, RENEW, RELEASE, STATUS
     }
 
+    static final int MAX_BATCH_SIZE = 500;
+
     @Inject
     @Logging
     Logger log;
@@ -48,6 +62,9 @@ public class LockResourceManager {
     @PersistenceContext
     EntityManager em;
 
+    @Inject
+    PackageKeyResolver packageKeyResolver;
+
     @Inject
     @Secure
     AppSecurityController securityManager;
@@ -59,22 +76,20 @@ public class LockResourceManager {
         ContentPackage contentPackage = findContentPackage(packageIdOrGuid);
         securityManager.authorize(session, Arrays.asList(ADMIN, CONTENT_DEVELOPER), contentPackage.getGuid(),
                 "name=" + contentPackage.getGuid(), Arrays.asList(Scopes.VIEW_MATERIAL_ACTION));
-        LockActions act;
-        try {
-            act = LockActions.valueOf(action.toUpperCase());
-        } catch (Exception ex) {
-            String message = "Action not supported " + action;
-            throw new ResourceException(BAD_REQUEST, null, message);
-        }
+        LockActions act = lockAction(action);
         Resource resource = findContentResource(resourceId, contentPackage);
+        Gson gson = AppUtils.gsonBuilder().excludeFieldsWithoutExposeAnnotation().serializeNulls().create();
         switch (act) {
         case AQUIRE:
             ResourceEditLock resourceEditLock = lockController.aquire(session, resource.getGuid());
-            Gson gson = AppUtils.gsonBuilder().excludeFieldsWithoutExposeAnnotation().serializeNulls().create();
             JsonElement lockJson = gson.toJsonTree(resourceEditLock);
             return lockJson;
+        case RENEW:
+            ResourceEditLock renewed = lockController.renew(session, resource.getGuid());
+            return renewed == null ? JsonNull.INSTANCE : gson.toJsonTree(renewed);
         case RELEASE:
-            return new JsonPrimitive(lockController.release(session, resource.getGuid()));
+            return new JsonPrimitive(lockController.release(session, resource.getGuid()) ? "ResourceEditLock Released"
+                    : "ResourceEditLock does not exist");
         case STATUS:
             return new JsonPrimitive(lockController.status(resource.getGuid()));
         default:
@@ -83,6 +98,103 @@ public class LockResourceManager {
         }
     }
 
+    /**
+     * Applies the lock action to each of the resources, one resource at a time, so that an editor opening or keeping
+     * several resources makes one request instead of one per resource.
+     * <p>
+     * Output, in the order of the request: [{"resourceId": .., "status": .., "lock": ..}, ..] where status is
+     * GRANTED or DENIED for AQUIRE and RENEW, RELEASED or NOT_HELD for RELEASE, NONE, ACTIVE or EXPIRED for STATUS,
+     * and NOT_FOUND for unknown resources. lock is the lock in force after AQUIRE and RENEW.
+     */
+    public JsonElement lockBatch(AppSecurityContext session, String packageIdOrGuid, String action,
+            JsonArray resourceIds) {
+        ContentPackage contentPackage = findContentPackage(packageIdOrGuid);
+        securityManager.authorize(session, Arrays.asList(ADMIN, CONTENT_DEVELOPER), contentPackage.getGuid(),
+                "name=" + contentPackage.getGuid(), Arrays.asList(Scopes.VIEW_MATERIAL_ACTION));
+        LockActions act = lockAction(action);
+        Set<String> ids = new LinkedHashSet<>();
+        for (JsonElement id : resourceIds) {
+            if (!id.isJsonPrimitive()) {
+                String message = "Resource ids expected, found " + id;
+                throw new ResourceException(BAD_REQUEST, null, message);
+            }
+            ids.add(id.getAsString());
+        }
+        if (ids.isEmpty() || ids.size() > MAX_BATCH_SIZE) {
+            String message = "Between 1 and " + MAX_BATCH_SIZE + " resource ids expected";
+            throw new ResourceException(BAD_REQUEST, null, message);
+        }
+
+        Map<String, Resource> resources = findContentResources(ids, contentPackage);
+        Gson gson = AppUtils.gsonBuilder().excludeFieldsWithoutExposeAnnotation().serializeNulls().create();
+        String user = session.getPreferredUsername();
+        JsonArray outcomes = new JsonArray();
+        for (String id : ids) {
+            JsonObject outcome = new JsonObject();
+            outcome.addProperty("resourceId", id);
+            outcomes.add(outcome);
+            Resource resource = resources.get(id);
+            if (resource == null) {
+                outcome.addProperty("status", "NOT_FOUND");
+                continue;
+            }
+            switch (act) {
+            case AQUIRE:
+            case RENEW:
+                ResourceEditLock resourceEditLock = act == LockActions.AQUIRE
+                        ? lockController.aquire(session, resource.getGuid())
+                        : lockController.renew(session, resource.getGuid());
+                boolean granted = resourceEditLock != null && resourceEditLock.getLockedBy().equalsIgnoreCase(user);
+                outcome.addProperty("status", granted ? "GRANTED" : "DENIED");
+                outcome.add("lock", resourceEditLock == null ? JsonNull.INSTANCE : gson.toJsonTree(resourceEditLock));
+                break;
+            case RELEASE:
+                boolean released = lockController.release(session, resource.getGuid());
+                outcome.addProperty("status", released ? "RELEASED" : "NOT_HELD");
+                break;
+            case STATUS:
+                outcome.addProperty("status", lockController.status(resource.getGuid()));
+                break;
+            }
+        }
+        return outcomes;
+    }
+
+    public JsonElement stats(AppSecurityContext session) {
+        securityManager.authorize(session, Collections.singletonList(ADMIN), null, null, null);
+        Gson gson = AppUtils.gsonBuilder().excludeFieldsWithoutExposeAnnotation().serializeNulls().create();
+        return gson.toJsonTree(lockController.stats());
+    }
+
+    private static LockActions lockAction(String action) {
+        try {
+            return LockActions.valueOf(action.toUpperCase());
+        } catch (Exception ex) {
+            String message = "Action not supported " + action;
+            throw new ResourceException(BAD_REQUEST, null, message);
+        }
+    }
+
+    // Resources of the package by guid or id, looked up in one query, keyed by the requested guid or id
+    private Map<String, Resource> findContentResources(Set<String> ids, ContentPackage contentPackage) {
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Resource> criteria = cb.createQuery(Resource.class);
+        Root<Resource> resourceRoot = criteria.from(Resource.class);
+        criteria.select(resourceRoot).where(cb.and(cb.equal(resourceRoot.get("contentPackage"), contentPackage),
+                cb.notEqual(resourceRoot.get("resourceState"), ResourceState.DELETED),
+                cb.or(resourceRoot.get("guid").in(ids), resourceRoot.get("id").in(ids))));
+        Map<String, Resource> resources = new HashMap<>();
+        for (Resource resource : em.createQuery(criteria).getResultList()) {
+            if (ids.contains(resource.getId())) {
+                resources.put(resource.getId(), resource);
+            }
+            if (ids.contains(resource.getGuid())) {
+                resources.put(resource.getGuid(), resource);
+            }
+        }
+        return resources;
+    }
+
     private Resource findContentResource(String resourceId, ContentPackage contentPackage) {
         Resource resource = null;
         try {
@@ -108,33 +220,6 @@ public class LockResourceManager {
 
     // packageIdentifier is db guid or packageId-version combo
     private ContentPackage findContentPackage(String packageIdOrGuid) {
-        ContentPackage contentPackage = null;
-        Boolean isIdAndVersion = packageIdOrGuid.contains("-");
-        try {
-            if (isIdAndVersion) {
-                String pkgId = packageIdOrGuid.substring(0, packageIdOrGuid.lastIndexOf("-"));
-                String version = packageIdOrGuid.substring(packageIdOrGuid.lastIndexOf("-") + 1);
-                TypedQuery<ContentPackage> q = em
-                        .createNamedQuery("ContentPackage.findByIdAndVersion", ContentPackage.class)
-                        .setParameter("id", pkgId).setParameter("version", version);
-
-                contentPackage = q.getResultList().isEmpty() ? null : q.getResultList().get(0);
-            } else {
-                String packageGuid = packageIdOrGuid;
-                contentPackage = em.find(ContentPackage.class, packageGuid);
-            }
-
-            if (contentPackage == null) {
-                String message = "Error: package requested was not found " + packageIdOrGuid;
-                log.error(message);
-                throw new ResourceException(Response.Status.NOT_FOUND, packageIdOrGuid, message);
-            }
-
-        } catch (IllegalArgumentException e) {
-            String message = "Server Error while locating package " + packageIdOrGuid;
-            log.error(message);
-            throw new ResourceException(Response.Status.INTERNAL_SERVER_ERROR, packageIdOrGuid, message);
-        }
-        return contentPackage;
+        return packageKeyResolver.findContentPackage(packageIdOrGuid);
     }
 }
@@ -0,0 +1,78 @@
+package edu.cmu.oli.content.boundary.managers;
+
+import edu.cmu.oli.content.ResourceException;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent.ResourceEventType;
+import edu.cmu.oli.content.controllers.PackageEventStream;
+import edu.cmu.oli.content.controllers.PackageKeyResolver;
+import edu.cmu.oli.content.logging.Logging;
+import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
+import edu.cmu.oli.content.security.AppSecurityContext;
+import edu.cmu.oli.content.security.AppSecurityController;
+import edu.cmu.oli.content.security.Scopes;
+import edu.cmu.oli.content.security.Secure;
+import org.slf4j.Logger;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static edu.cmu.oli.content.security.Roles.ADMIN;
+import static edu.cmu.oli.content.security.Roles.CONTENT_DEVELOPER;
+import static javax.ws.rs.core.Response.Status.BAD_REQUEST;
+
+/**
+ * @author Raphael Gachuhi
+ */
+@Stateless
+public class PackageEventResourceManager {
+
+    @Inject
+    @Logging
+    Logger log;
+
+    @Inject
+    PackageKeyResolver packageKeyResolver;
+
+    @Inject
+    @Secure
+    AppSecurityController securityManager;
+
+    @Inject
+    PackageEventStream packageEventStream;
+
+    public void subscribe(AppSecurityContext session, String packageIdOrGuid, List<String> resourceIds,
+            List<String> types, String since, SseEventSink sink, Sse sse) {
+        ContentPackage contentPackage = packageKeyResolver.findContentPackage(packageIdOrGuid);
+        securityManager.authorize(session, Arrays.asList(ADMIN, CONTENT_DEVELOPER), contentPackage.getGuid(),
+                "name=" + contentPackage.getGuid(), Arrays.asList(Scopes.VIEW_MATERIAL_ACTION));
+
+        Set<ResourceEventType> eventTypes = EnumSet.noneOf(ResourceEventType.class);
+        for (String type : types) {
+            try {
+                eventTypes.add(ResourceEventType.valueOf(type.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                String message = "Event type not supported " + type;
+                throw new ResourceException(BAD_REQUEST, null, message);
+            }
+        }
+        Long cursor = null;
+        if (since != null && since.trim().equalsIgnoreCase("now")) {
+            cursor = packageEventStream.cursor();
+        } else if (since != null && !since.trim().isEmpty()) {
+            try {
+                cursor = Long.valueOf(since.trim());
+            } catch (NumberFormatException e) {
+                String message = "Event id not valid " + since + ", expected a sequence number or now";
+                throw new ResourceException(BAD_REQUEST, null, message);
+            }
+        }
+        packageEventStream.subscribe(contentPackage.getGuid(), new HashSet<>(resourceIds), eventTypes, cursor,
+                sink, sse);
+    }
+}
@@ -28,6 +28,10 @@ public class ThreadPoolsConfigurator extends ExecutorConfigurator {
             return new ExecutorConfiguration.Builder().corePoolSize(1).maxPoolSize(2).queueCapacity(20000).build();
         }
 
+        if ("blobCompactExec".equals(name)) {
+            return new ExecutorConfiguration.Builder().corePoolSize(1).maxPoolSize(1).queueCapacity(100000).build();
+        }
+
         if ("versionBatchExec".equals(name)) {
             return new ExecutorConfiguration.Builder().corePoolSize(1).maxPoolSize(2).queueCapacity(20000).build();
         }
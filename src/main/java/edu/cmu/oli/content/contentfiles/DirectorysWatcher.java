@@ -89,6 +89,24 @@ public class DirectorysWatcher {
             }
         }
 
+        Path compactBlobsFlagFile = FileSystems.getDefault().getPath(config.get().getContentSourceXml()).resolve("compactblobs.do");
+        if (Files.exists(compactBlobsFlagFile)) {
+            try {
+                Files.delete(compactBlobsFlagFile);
+                compactBlobs();
+            } catch (IOException e) {
+            }
+        }
+
+        Path compactHistoryFlagFile = FileSystems.getDefault().getPath(config.get().getContentSourceXml()).resolve("compacthistory.do");
+        if (Files.exists(compactHistoryFlagFile)) {
+            try {
+                Files.delete(compactHistoryFlagFile);
+                compactHistory();
+            } catch (IOException e) {
+            }
+        }
+
         Set<Map.Entry<PollKey, Path>> entries = keys.entrySet();
         for (Map.Entry<PollKey, Path> entry : entries) {
             Path dir = entry.getValue();
@@ -151,6 +169,28 @@ public class DirectorysWatcher {
         }
     }
 
+    private void compactBlobs() {
+        try {
+            RevisionBlobMigrationProcessor revisionBlobMigrationProcessor = (RevisionBlobMigrationProcessor)
+                    new InitialContext().lookup("java:global/content-service/RevisionBlobMigrationProcessor");
+            revisionBlobMigrationProcessor.compact();
+        } catch (Throwable e) {
+            String message = "Error while compacting revision blobs ";
+            log.error(message, e);
+        }
+    }
+
+    private void compactHistory() {
+        try {
+            RevisionBlobMigrationProcessor revisionBlobMigrationProcessor = (RevisionBlobMigrationProcessor)
+                    new InitialContext().lookup("java:global/content-service/RevisionBlobMigrationProcessor");
+            revisionBlobMigrationProcessor.compactHistory();
+        } catch (Throwable e) {
+            String message = "Error while compacting revision history ";
+            log.error(message, e);
+        }
+    }
+
     public void destroy(@Observes @Destroyed(ApplicationScoped.class) Object destroy) {
         keys.clear();
     }
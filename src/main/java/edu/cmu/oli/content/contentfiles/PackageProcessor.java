@@ -10,6 +10,8 @@ import edu.cmu.oli.content.configuration.Configurations;
 import edu.cmu.oli.content.contentfiles.readers.XmlToContentPackage;
 import edu.cmu.oli.content.controllers.EdgesController;
 import edu.cmu.oli.content.controllers.LDModelController;
+import edu.cmu.oli.content.controllers.PackageKeyResolver;
+import edu.cmu.oli.content.controllers.RevisionBlobStore;
 import edu.cmu.oli.content.logging.Logging;
 import edu.cmu.oli.content.models.persistance.entities.BuildStatus;
 import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
@@ -55,6 +57,12 @@ public class PackageProcessor {
     @PersistenceContext
     EntityManager em;
 
+    @Inject
+    PackageKeyResolver packageKeyResolver;
+
+    @Inject
+    RevisionBlobStore revisionBlobStore;
+
     @Inject
     EdgesController edgesController;
 
@@ -99,18 +107,13 @@ public class PackageProcessor {
             Set<String> existingPkgDevelopers = new HashSet<>();
             if (existingPkg != null) {
                 if (instruction.equals("redeploy")) {
-//                // :FIXME: very inefficient. Need to filter users by role
-                    List<UserInfo> allUsers = auth.getAllUsers();
-
-                    for (UserInfo ur : allUsers) {
+                    // Developers are carried over to the redeployed package, read them as the realm has them now
+                    auth.refreshUsers();
+                    for (UserInfo ur : auth.getPackageDevelopers(existingPkg.getGuid())) {
                         if (ur.getServiceAccountClientId() != null || ur.getUsername().equalsIgnoreCase("manager")) {
                             continue;
                         }
-                        Map<String, List<String>> attributes = ur.getAttributes();
-                        boolean isDeveloper = attributes != null && attributes.containsKey(existingPkg.getGuid());
-                        if (isDeveloper) {
-                            existingPkgDevelopers.add(ur.getUsername());
-                        }
+                        existingPkgDevelopers.add(ur.getUsername());
                     }
                     contentPackage.setGuid(existingPkg.getGuid());
                     Map<String, String> oldResourceGuids = new HashMap<>();
@@ -134,6 +137,7 @@ public class PackageProcessor {
                 em.persist(contentPackage);
                 // Issue flush to get the Guid for next steps
                 em.flush();
+                packageKeyResolver.invalidate(contentPackage.getId(), contentPackage.getVersion());
 
                 auth.createResource(contentPackage.getGuid(), "/packages/" + contentPackage.getGuid(),
                         ContentPackageResource.resourceType,
@@ -170,8 +174,11 @@ public class PackageProcessor {
     private void removeExistingPackage(ContentPackage existingPkg) {
         if (existingPkg != null) {
             log.debug("Removing existing package: id " + existingPkg.getId() + " version " + existingPkg.getVersion());
+            List<String> blobGuids = revisionBlobStore.blobGuidsOf(existingPkg.getGuid());
             em.remove(existingPkg);
             em.flush();
+            revisionBlobStore.deleteOrphans(blobGuids);
+            packageKeyResolver.invalidateGuid(existingPkg.getGuid());
 
             // Delete resource from Keycloak
             try {
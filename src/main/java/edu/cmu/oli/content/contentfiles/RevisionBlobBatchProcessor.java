@@ -0,0 +1,130 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018. Carnegie Mellon University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.cmu.oli.content.contentfiles;
+
+import edu.cmu.oli.content.controllers.RevisionBlobStore;
+import edu.cmu.oli.content.controllers.RevisionStore;
+import edu.cmu.oli.content.logging.Logging;
+import edu.cmu.oli.content.models.persistance.entities.Resource;
+import edu.cmu.oli.content.models.persistance.entities.RevisionBlob;
+import org.slf4j.Logger;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * @author Raphael Gachuhi
+ */
+@Stateless
+public class RevisionBlobBatchProcessor {
+
+    @Inject
+    @Logging
+    Logger log;
+
+    @Inject
+    RevisionBlobStore revisionBlobStore;
+
+    @Inject
+    RevisionStore revisionStore;
+
+    @PersistenceContext
+    EntityManager em;
+
+    /**
+     * Compresses legacy revision blobs and folds any blob whose payload is already stored into the existing copy.
+     */
+    public void batchCompressBlobs(@NotNull Set<String> blobGuids) {
+        log.info("batchCompressBlobs");
+        if (blobGuids.isEmpty()) {
+            return;
+        }
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<RevisionBlob> criteria = cb.createQuery(RevisionBlob.class);
+        Root<RevisionBlob> blobRoot = criteria.from(RevisionBlob.class);
+        criteria.select(blobRoot).where(blobRoot.get("guid").in(blobGuids));
+
+        List<RevisionBlob> revisionBlobs = em.createQuery(criteria).getResultList();
+        int compacted = 0;
+        int merged = 0;
+        for (RevisionBlob revisionBlob : revisionBlobs) {
+            if (!revisionBlob.compact()) {
+                continue;
+            }
+            compacted++;
+            Optional<RevisionBlob> match = revisionBlobStore.findMatch(revisionBlob);
+            if (match.isPresent()) {
+                RevisionBlob existing = match.get();
+                existing.setShared(true);
+                em.createQuery("UPDATE Revision r SET r.body = :existing WHERE r.body = :duplicate")
+                        .setParameter("existing", existing)
+                        .setParameter("duplicate", revisionBlob)
+                        .executeUpdate();
+                em.remove(revisionBlob);
+                merged++;
+            }
+        }
+        log.info("Revision blobs compressed " + compacted + ", duplicates merged " + merged);
+    }
+
+    /**
+     * Rewrites the revision history of each resource into checkpoints and deltas.
+     */
+    public void batchEncodeHistory(@NotNull Set<String> resourceGuids) {
+        log.info("batchEncodeHistory");
+        if (resourceGuids.isEmpty()) {
+            return;
+        }
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<Resource> criteria = cb.createQuery(Resource.class);
+        Root<Resource> resourceRoot = criteria.from(Resource.class);
+        criteria.select(resourceRoot).where(resourceRoot.get("guid").in(resourceGuids));
+
+        List<Resource> resources = em.createQuery(criteria).getResultList();
+        int encoded = 0;
+        for (Resource resource : resources) {
+            encoded += revisionStore.encodeHistory(resource);
+        }
+        log.info("Revisions delta encoded " + encoded);
+    }
+
+    /**
+     * Removes blobs no longer referenced by any revision. Blobs are shared between revisions, so they are not
+     * removed along with the revision that created them.
+     */
+    public int purgeOrphans() {
+        int removed = revisionBlobStore.purgeOrphans();
+        log.info("Orphaned revision blobs removed " + removed);
+        return removed;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2018. Carnegie Mellon University
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package edu.cmu.oli.content.contentfiles;
+
+import edu.cmu.oli.content.configuration.DedicatedExecutor;
+import edu.cmu.oli.content.logging.Logging;
+import org.slf4j.Logger;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import javax.naming.InitialContext;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Background jobs over revision storage: backfilling compressed, content addressed blobs for rows written before
+ * it was introduced, and compacting revision history into checkpoints and deltas.
+ *
+ * @author Raphael Gachuhi
+ */
+@Stateless
+public class RevisionBlobMigrationProcessor {
+
+    @Inject
+    @Logging
+    Logger log;
+
+    // Single threaded so that duplicate payloads in different batches are always seen by each other
+    @Inject
+    @DedicatedExecutor("blobCompactExec")
+    ExecutorService blobExec;
+
+    @PersistenceContext
+    EntityManager em;
+
+    private static int BATCH_SIZE = 100;
+
+    public void compact() {
+        String lastGuid = "";
+        int batches = 0;
+        while (true) {
+            TypedQuery<String> q = em.createNamedQuery("RevisionBlob.findUncompressedGuids", String.class);
+            q.setParameter("lastGuid", lastGuid);
+            q.setMaxResults(BATCH_SIZE);
+            List<String> guids = q.getResultList();
+            if (guids.isEmpty()) {
+                break;
+            }
+            lastGuid = guids.get(guids.size() - 1);
+            Set<String> blobsToProcess = new HashSet<>(guids);
+            batches++;
+
+            blobExec.submit(() -> {
+                try {
+                    lookupBatchProcessor().batchCompressBlobs(blobsToProcess);
+                } catch (Throwable e) {
+                    String message = "Error while compressing revision blobs ";
+                    log.error(message, e);
+                }
+            });
+        }
+
+        submitOrphanPurge();
+        log.info("Revision blob compaction, batches submitted " + batches);
+    }
+
+    public void compactHistory() {
+        String lastGuid = "";
+        int batches = 0;
+        while (true) {
+            TypedQuery<String> q = em.createQuery(
+                    "SELECT r.guid FROM Resource r WHERE r.guid > :lastGuid AND r.lastRevision IS NOT NULL ORDER BY r.guid",
+                    String.class);
+            q.setParameter("lastGuid", lastGuid);
+            q.setMaxResults(BATCH_SIZE);
+            List<String> guids = q.getResultList();
+            if (guids.isEmpty()) {
+                break;
+            }
+            lastGuid = guids.get(guids.size() - 1);
+            Set<String> resourcesToProcess = new HashSet<>(guids);
+            batches++;
+
+            blobExec.submit(() -> {
+                try {
+                    lookupBatchProcessor().batchEncodeHistory(resourcesToProcess);
+                } catch (Throwable e) {
+                    String message = "Error while compacting revision history ";
+                    log.error(message, e);
+                }
+            });
+        }
+
+        submitOrphanPurge();
+        log.info("Revision history compaction, batches submitted " + batches);
+    }
+
+    private void submitOrphanPurge() {
+        blobExec.submit(() -> {
+            try {
+                lookupBatchProcessor().purgeOrphans();
+            } catch (Throwable e) {
+                String message = "Error while removing orphaned revision blobs ";
+                log.error(message, e);
+            }
+        });
+    }
+
+    private RevisionBlobBatchProcessor lookupBatchProcessor() throws Exception {
+        return (RevisionBlobBatchProcessor)
+                new InitialContext().lookup("java:global/content-service/RevisionBlobBatchProcessor");
+    }
+}
@@ -13,8 +13,7 @@ import edu.cmu.oli.content.logging.Logging;
 import edu.cmu.oli.content.models.persistance.JsonWrapper;
 import edu.cmu.oli.content.models.persistance.entities.*;
 import edu.cmu.oli.content.resource.builders.*;
-import edu.cmu.oli.content.resource.validators.BaseResourceValidator;
-import edu.cmu.oli.content.resource.validators.ResourceValidator;
+import edu.cmu.oli.content.resource.validators.ValidatorRegistry;
 import edu.cmu.oli.content.security.AppSecurityController;
 import edu.cmu.oli.content.security.Scopes;
 import edu.cmu.oli.content.security.Secure;
@@ -76,6 +75,9 @@ public class XmlToContentPackage {
     @Inject
     Xml2Json xml2Json;
 
+    @Inject
+    ValidatorRegistry validatorRegistry;
+
     ContentPackage contentPackage;
 
     Map<String, String> oldResourceGuids = new HashMap<>();
@@ -626,26 +628,7 @@ public class XmlToContentPackage {
         ResourceUtils.adjustNestedBlocks(document);
         ResourceXmlReader.documentToResource(rsrc, document);
 
-        ResourceValidator validator = new BaseResourceValidator();
-        validator.initValidator(rsrc, document, false);
-        validator.validate();
-        Configurations serviceConfig = this.config.get();
-        JsonObject resourceTypeDefinition = serviceConfig.getResourceTypeById(rsrc.getType());
-        if (resourceTypeDefinition == null || !resourceTypeDefinition.has("validatorClass")) {
-            String message = rsrc.getType() + " has no validator class";
-            log.error(message);
-        } else {
-            String validatorClass = resourceTypeDefinition.get("validatorClass").getAsString();
-            try {
-                Class<?> aClass = Class.forName(validatorClass);
-                ResourceValidator resourceValidator = (ResourceValidator) AppUtils.lookupCDIBean(aClass);
-                resourceValidator.initValidator(rsrc, document, false);
-                resourceValidator.validate();
-            } catch (ClassNotFoundException e) {
-                String message = rsrc.getType() + " validator class not found";
-                log.error(message);
-            }
-        }
+        validatorRegistry.validate(rsrc, document, false);
         Format format = Format.getPrettyFormat();
         format.setIndent("\t");
         format.setTextMode(Format.TextMode.PRESERVE);
@@ -8,10 +8,10 @@ import edu.cmu.oli.assessment.builders.Assessment2Transform;
 import edu.cmu.oli.content.AppUtils;
 import edu.cmu.oli.content.configuration.Configurations;
 import edu.cmu.oli.content.resource.builders.Json2Xml;
+import edu.cmu.oli.content.resource.builders.XPathRegistry;
 import org.apache.commons.text.StringEscapeUtils;
 import org.jdom2.*;
 import org.jdom2.filter.ElementFilter;
-import org.jdom2.filter.Filters;
 import org.jdom2.input.SAXBuilder;
 import org.jdom2.input.sax.XMLReaders;
 import org.jdom2.output.Format;
@@ -19,7 +19,6 @@ import org.jdom2.output.Format.TextMode;
 import org.jdom2.output.XMLOutputter;
 import org.jdom2.util.IteratorIterable;
 import org.jdom2.xpath.XPathExpression;
-import org.jdom2.xpath.XPathFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,6 +28,7 @@ import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.regex.Pattern;
 
 /**
  * @author Raphael Gachuhi
@@ -37,6 +37,10 @@ public class ResourceToXml {
 
     Logger log = LoggerFactory.getLogger(ResourceToXml.class);
 
+    // MathML is carried through the JSON model as CDATA and unwrapped in the serialized document
+    private static final Pattern MATH_CDATA_START = Pattern.compile("<m:math.*><!\\[CDATA\\[");
+    private static final Pattern MATH_CDATA_END = Pattern.compile("\\]\\]>.*</m:math>");
+
     private Map<String, Namespace> namespaceMap = new HashMap<>();
 
     Configurations config;
@@ -62,17 +66,52 @@ public class ResourceToXml {
     }
 
     public String resourceToXml(String type, String s) {
-        JsonObject resourceTypeDef = this.config.getResourceTypeById(type).getAsJsonObject();
-
         JsonParser parser = new JsonParser();
         JsonElement parse = parser.parse(s);
         if (!parse.isJsonObject()) {
             throw new RuntimeException("Error: Not a Json Object " + s);
         }
-        Document document = new Json2Xml().jsonToXml((JsonObject) parse, this.namespaceMap);
-        Set<Map.Entry<String, JsonElement>> entries = ((JsonObject) parse).entrySet();
+        return toXml(type, (JsonObject) parse);
+    }
+
+    /**
+     * Converts a resource's JSON model, as received, without serializing and re-parsing it first. The model is left
+     * unchanged.
+     */
+    public String resourceToXml(String type, JsonElement json) {
+        if (!json.isJsonObject()) {
+            throw new RuntimeException("Error: Not a Json Object " + json);
+        }
+        return toXml(type, (JsonObject) copyOf(json));
+    }
+
+    // Deep copy, for Json2Xml rewrites the model it converts, matching a serialize and parse round trip of the
+    // model, which drops object members whose value is null
+    private static JsonElement copyOf(JsonElement json) {
+        if (json.isJsonObject()) {
+            JsonObject copy = new JsonObject();
+            json.getAsJsonObject().entrySet().forEach(member -> {
+                if (!member.getValue().isJsonNull()) {
+                    copy.add(member.getKey(), copyOf(member.getValue()));
+                }
+            });
+            return copy;
+        }
+        if (json.isJsonArray()) {
+            JsonArray copy = new JsonArray();
+            json.getAsJsonArray().forEach(element -> copy.add(copyOf(element)));
+            return copy;
+        }
+        return json;
+    }
+
+    private String toXml(String type, JsonObject parse) {
+        JsonObject resourceTypeDef = this.config.getResourceTypeById(type).getAsJsonObject();
+
+        Document document = new Json2Xml().jsonToXml(parse, this.namespaceMap);
+        Set<Map.Entry<String, JsonElement>> entries = parse.entrySet();
         if (entries.isEmpty() || entries.size() > 1) {
-            throw new RuntimeException("only one entry expected " + s);
+            throw new RuntimeException("only one entry expected " + parse);
         }
         Map.Entry<String, JsonElement> next = entries.iterator().next();
         String key = next.getKey();
@@ -120,8 +159,8 @@ public class ResourceToXml {
         StringBuilder sb = new StringBuilder();
         for (String str : split) {
             str = StringEscapeUtils.unescapeXml(str);
-            str = str.replaceAll("<m:math.*><!\\[CDATA\\[", "")
-                    .replaceAll("\\]\\]>.*</m:math>", "");
+            str = MATH_CDATA_START.matcher(str).replaceAll("");
+            str = MATH_CDATA_END.matcher(str).replaceAll("");
             sb.append(str);
             sb.append("\n");
         }
@@ -132,7 +171,7 @@ public class ResourceToXml {
 
     private void cleanupObjectiveModel(Document document) {
         String query = "//*[@expanded] | //*[@parent] | //objective[@category]";
-        XPathExpression<Element> xexpression = XPathFactory.instance().compile(query, Filters.element());
+        XPathExpression<Element> xexpression = XPathRegistry.elements(query);
         List<Element> kids = xexpression.evaluate(document.getRootElement());
         for (Element el : kids) {
             el.removeAttribute("parent");
@@ -148,7 +187,7 @@ public class ResourceToXml {
         String query = "//*[@id] | //*[@max_attempts] | //*[@recommended_attempts] | //grading_criteria | //essay "
                 + "| //short_title | //content | //question | //page | //short_answer | //concept | //input_ref | //choice"
                 + "| //part | //explanation | //*[@color]";
-        XPathExpression<Element> xexpression = XPathFactory.instance().compile(query, Filters.element());
+        XPathExpression<Element> xexpression = XPathRegistry.elements(query);
         Element rootElement = document.getRootElement();
         rootElement.removeAttribute("recommendedAttempts");
         rootElement.removeAttribute("maxAttempts");
@@ -289,7 +328,7 @@ public class ResourceToXml {
             }
         }
         query = "//response | //match";
-        xexpression = XPathFactory.instance().compile(query, Filters.element());
+        xexpression = XPathRegistry.elements(query);
         kids = xexpression.evaluate(rootElement);
         for (Element el : kids) {
             Attribute match = el.getAttribute("match");
@@ -309,7 +348,7 @@ public class ResourceToXml {
     private void cleanupAssessment2(Document document) {
         String query = "//*[@id] | //content | //short_title | //page | //*[@select] | //part"
                 + "| //concept | //criteria | //explanation | //choice | //input | //input_ref | //selection";
-        XPathExpression<Element> xexpression = XPathFactory.instance().compile(query, Filters.element());
+        XPathExpression<Element> xexpression = XPathRegistry.elements(query);
         Element rootElement = document.getRootElement();
 
         Attribute attrib = rootElement.getAttribute("recommendedAttempts");
@@ -473,7 +512,7 @@ public class ResourceToXml {
             }
         }
         query = "//response | //match";
-        xexpression = XPathFactory.instance().compile(query, Filters.element());
+        xexpression = XPathRegistry.elements(query);
         kids = xexpression.evaluate(rootElement);
         for (Element el : kids) {
             Attribute match = el.getAttribute("match");
@@ -492,7 +531,7 @@ public class ResourceToXml {
 
     private void cleanupOrganization(Document document) {
         String query = "//*[@expanded] | //description | //audience";
-        XPathExpression<Element> xexpression = XPathFactory.instance().compile(query, Filters.element());
+        XPathExpression<Element> xexpression = XPathRegistry.elements(query);
         List<Element> kids = xexpression.evaluate(document.getRootElement());
         for (Element el : kids) {
             if (el.getAttribute("expanded") != null) {
@@ -512,7 +551,7 @@ public class ResourceToXml {
                 + "| //*[@orient] | //section | //video | //audio | //cite | //*[@targets] | //title | //content "
                 + "| //pullout | //example | //codeblock | //iframe | //youtube | //definition | //math | //link | //alternate"
                 + "| //short_title | //sym";
-        XPathExpression<Element> xexpression = XPathFactory.instance().compile(query, Filters.element());
+        XPathExpression<Element> xexpression = XPathRegistry.elements(query);
         List<Element> kids = xexpression.evaluate(document.getRootElement());
         for (Element el : kids) {
             if (!el.isRootElement()) {
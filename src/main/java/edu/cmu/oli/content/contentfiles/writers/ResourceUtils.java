@@ -1,11 +1,11 @@
 package edu.cmu.oli.content.contentfiles.writers;
 
+import edu.cmu.oli.content.resource.builders.XPathRegistry;
+
 import org.jdom2.Content;
 import org.jdom2.Document;
 import org.jdom2.Element;
-import org.jdom2.filter.Filters;
 import org.jdom2.xpath.XPathExpression;
-import org.jdom2.xpath.XPathFactory;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -32,7 +32,7 @@ public final class ResourceUtils {
     public final static void adjustNestedBlocks(final Document document) {
 
         final String query = "//p/ul | //p/ol | //p/dl | //p/table | //p/p";
-        final XPathExpression<Element> xexpression = XPathFactory.instance().compile(query, Filters.element());
+        final XPathExpression<Element> xexpression = XPathRegistry.elements(query);
         final Element rootElement = document.getRootElement();
 
         List<Element> kids = xexpression.evaluate(rootElement);
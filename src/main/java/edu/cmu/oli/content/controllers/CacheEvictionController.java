@@ -0,0 +1,68 @@
+package edu.cmu.oli.content.controllers;
+
+import edu.cmu.oli.content.boundary.ResourceChangeEvent;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent.ResourceEventType;
+import edu.cmu.oli.content.logging.Logging;
+import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
+import edu.cmu.oli.content.models.persistance.entities.Resource;
+import org.slf4j.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import javax.persistence.PersistenceUnit;
+
+/**
+ * Evicts the second-level cache entry of a package or resource once a change to it has committed on this server.
+ * <p>
+ * Changes made through the entity manager keep the cache current on their own, including its bulk JPQL statements,
+ * which Hibernate follows by invalidating the regions and queries they touch. This covers a statement run past the
+ * entity manager on the row of the changed package or resource only; such a write to any other cached row has to
+ * evict what it touched itself. Evicting whole regions or the query cache on every change would empty them several
+ * times per second while autosave runs.
+ * <p>
+ * The cache is local to each server: writes made by other servers, or manual database edits, are not seen here and
+ * leave entries stale until they expire. Running several servers against one database needs the "hibernate" cache
+ * container of standalone.xml switched to invalidation caches, or the second-level cache turned off.
+ *
+ * @author Raphael Gachuhi
+ */
+@ApplicationScoped
+public class CacheEvictionController {
+
+    @Inject
+    @Logging
+    Logger log;
+
+    @PersistenceUnit
+    EntityManagerFactory emf;
+
+    public void onResourceChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ResourceChangeEvent resourceChangeEvent) {
+        if (resourceChangeEvent.getChangeInfo() == ResourceEventType.RESOURCE_REQUESTED
+                || resourceChangeEvent.getResourceId() == null) {
+            return;
+        }
+        evict(resourceChangeEvent.getPackageGuid(), resourceChangeEvent.getResourceId());
+    }
+
+    /**
+     * Drops the cached entry of the given resource, or of the package when the change is to the package itself.
+     * Package level changes pass the package guid as the resource id.
+     */
+    public void evict(String packageGuid, String resourceId) {
+        try {
+            Cache cache = emf.getCache();
+            if (resourceId.equals(packageGuid)) {
+                cache.evict(ContentPackage.class, packageGuid);
+            } else {
+                cache.evict(Resource.class, resourceId);
+            }
+        } catch (PersistenceException e) {
+            log.warn("Unable to evict cached entity " + resourceId, e);
+        }
+    }
+}
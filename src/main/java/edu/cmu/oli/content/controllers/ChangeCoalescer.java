@@ -0,0 +1,167 @@
+package edu.cmu.oli.content.controllers;
+
+import edu.cmu.oli.content.boundary.CoalescedChangeEvent;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent.ResourceEventType;
+import edu.cmu.oli.content.logging.Logging;
+import org.slf4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Relays committed resource changes to change watchers as {@link CoalescedChangeEvent}s, merging bursts of updates.
+ * <p>
+ * Autosave updates a resource every few keystrokes, and every update makes the watchers of the resource refetch it.
+ * The first update of a resource opens a window during which further updates only replace the pending one; when the
+ * window closes the latest update is delivered once, with the number of updates it stands for. Any other change to
+ * the resource delivers the pending update right away, ahead of itself, so watchers see changes in order. Reads are
+ * passed on as they come and leave a pending update waiting for its window, since watchers refetching a delivered
+ * update would otherwise flush every following one.
+ * <p>
+ * Changes are picked for delivery under the coalescer monitor but delivered outside it, so a slow watcher holds up
+ * other deliveries only, not the threads reporting changes. Deliveries keep the order they were picked in.
+ *
+ * @author Raphael Gachuhi
+ */
+@ApplicationScoped
+public class ChangeCoalescer {
+
+    static final long DEFAULT_WINDOW_MILLIS = 1000;
+
+    @Inject
+    @Logging
+    Logger log;
+
+    @Inject
+    Event<CoalescedChangeEvent> coalescedChange;
+
+    // Zero or less delivers every update as it comes
+    long windowMillis = windowFromEnv();
+
+    // Guarded by this
+    private final Map<String, Pending> pending = new HashMap<>();
+    // Changes picked for delivery, in order; appended under this and delivered by one thread at a time
+    private final Queue<ResourceChangeEvent> outbox = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock delivering = new ReentrantLock();
+    private ScheduledThreadPoolExecutor timer;
+
+    @PostConstruct
+    void init() {
+        timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "change-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timer.shutdownNow();
+    }
+
+    public void onResourceChange(
+            @Observes(during = TransactionPhase.AFTER_SUCCESS) ResourceChangeEvent resourceChangeEvent) {
+        String resourceId = resourceChangeEvent.getResourceId();
+        synchronized (this) {
+            // Reads go out as they come and leave the pending update to its window
+            Pending waiting = resourceChangeEvent.getChangeInfo() == ResourceEventType.RESOURCE_REQUESTED ? null
+                    : pending.get(resourceId);
+            if (resourceChangeEvent.getChangeInfo() == ResourceEventType.RESOURCE_UPDATED && windowMillis > 0) {
+                if (waiting != null) {
+                    waiting.merge(resourceChangeEvent);
+                    return;
+                }
+                Pending update = new Pending(resourceChangeEvent);
+                pending.put(resourceId, update);
+                update.flush = timer.schedule(() -> flush(resourceId, update), windowMillis, TimeUnit.MILLISECONDS);
+                return;
+            }
+            if (waiting != null) {
+                waiting.flush.cancel(false);
+                pending.remove(resourceId);
+                outbox.add(waiting.latest);
+            }
+            outbox.add(resourceChangeEvent);
+        }
+        deliverPicked();
+    }
+
+    synchronized int pending() {
+        return pending.size();
+    }
+
+    private void flush(String resourceId, Pending update) {
+        synchronized (this) {
+            // Already delivered ahead of a later change
+            if (!pending.remove(resourceId, update)) {
+                return;
+            }
+            outbox.add(update.latest);
+        }
+        deliverPicked();
+    }
+
+    private void deliverPicked() {
+        // The thread delivering takes along changes picked meanwhile; checked again once it lets go, so that a change
+        // picked just as it finished is not left behind
+        while (!outbox.isEmpty() && delivering.tryLock()) {
+            try {
+                ResourceChangeEvent next;
+                while ((next = outbox.poll()) != null) {
+                    deliver(next);
+                }
+            } finally {
+                delivering.unlock();
+            }
+        }
+    }
+
+    private void deliver(ResourceChangeEvent resourceChangeEvent) {
+        try {
+            coalescedChange.fire(new CoalescedChangeEvent(resourceChangeEvent));
+        } catch (RuntimeException e) {
+            log.error("Change watchers not notified of " + resourceChangeEvent.getResourceId(), e);
+        }
+    }
+
+    private static long windowFromEnv() {
+        String window = System.getenv().get("change_coalesce_window");
+        try {
+            return window == null ? DEFAULT_WINDOW_MILLIS : Long.parseLong(window.trim());
+        } catch (NumberFormatException e) {
+            return DEFAULT_WINDOW_MILLIS;
+        }
+    }
+
+    private static final class Pending {
+        private ResourceChangeEvent latest;
+        private ScheduledFuture<?> flush;
+
+        private Pending(ResourceChangeEvent first) {
+            this.latest = first;
+        }
+
+        private void merge(ResourceChangeEvent update) {
+            update.setMerged(latest.getMerged() + update.getMerged());
+            if (update.getRevision() == null) {
+                update.setRevision(latest.getRevision());
+            }
+            latest = update;
+        }
+    }
+}
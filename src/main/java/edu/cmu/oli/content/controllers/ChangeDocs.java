@@ -0,0 +1,49 @@
+package edu.cmu.oli.content.controllers;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import edu.cmu.oli.content.AppUtils;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent;
+import edu.cmu.oli.content.models.persistance.JsonWrapper;
+import edu.cmu.oli.content.models.persistance.entities.Revision;
+
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Loads the documents of journaled changes for replays that ask for them. The {@link ChangeJournal} keeps no
+ * payloads, so the document is read back from the revision the change produced.
+ *
+ * @author Raphael Gachuhi
+ */
+@Stateless
+public class ChangeDocs {
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Inject
+    RevisionStore revisionStore;
+
+    /**
+     * The changed resource with the content of the revision under "doc", shaped like the payload of a live change, or
+     * null when the change produced no revision or the revision no longer exists.
+     */
+    public JsonElement load(ResourceChangeEvent resourceChangeEvent) {
+        if (resourceChangeEvent.getRevision() == null) {
+            return null;
+        }
+        Revision revision = em.find(Revision.class, resourceChangeEvent.getRevision());
+        if (revision == null) {
+            return null;
+        }
+        Gson gson = AppUtils.gsonBuilder().excludeFieldsWithoutExposeAnnotation().serializeNulls().create();
+        JsonObject resourceJson = (JsonObject) gson.toJsonTree(revision.getResource());
+        JsonWrapper content = revisionStore.payload(revision).getJsonPayload();
+        resourceJson.add("doc", content == null ? null : content.getJsonObject());
+        return resourceJson;
+    }
+}
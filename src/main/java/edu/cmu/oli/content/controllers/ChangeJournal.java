@@ -0,0 +1,151 @@
+package edu.cmu.oli.content.controllers;
+
+import edu.cmu.oli.content.boundary.CoalescedChangeEvent;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent.ResourceEventType;
+
+import javax.annotation.Priority;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.interceptor.Interceptor;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Bounded in-memory journal of committed resource changes, as relayed by the {@link ChangeCoalescer}. Every change
+ * gets a monotonic sequence number before any other watcher sees it, so that poll and stream clients can resume from
+ * the last sequence they received instead of refetching everything after a reconnect.
+ * <p>
+ * The journal keeps the most recent changes only, and of each change only what identifies it: the resource, the
+ * change type and the revision, without the payload. Sequence numbers start from the server start time in
+ * microseconds, so cursors handed out before a restart are older than the journal, and cursors handed out by a node
+ * started later are ahead of it; both are answered with a reset.
+ * <p>
+ * Reads are not journaled, they change nothing a resuming client would have to refetch and would push changes out of
+ * the journal within seconds on a busy server. They are still delivered live, with no sequence number.
+ *
+ * @author Raphael Gachuhi
+ */
+@ApplicationScoped
+public class ChangeJournal {
+
+    static final int DEFAULT_CAPACITY = 2000;
+
+    private final int capacity;
+    private final Deque<ResourceChangeEvent> entries = new ArrayDeque<>();
+    private long sequence;
+    // Highest sequence number no longer kept in the journal
+    private long floor;
+
+    public ChangeJournal() {
+        this(capacityFromEnv(), System.currentTimeMillis() * 1000);
+    }
+
+    ChangeJournal(int capacity, long firstSequence) {
+        this.capacity = capacity;
+        this.sequence = firstSequence - 1;
+        this.floor = firstSequence - 1;
+    }
+
+    public void onResourceChange(
+            @Observes @Priority(Interceptor.Priority.PLATFORM_BEFORE) CoalescedChangeEvent coalescedChangeEvent) {
+        ResourceChangeEvent resourceChangeEvent = coalescedChangeEvent.getChange();
+        if (resourceChangeEvent.getChangeInfo() != ResourceEventType.RESOURCE_REQUESTED) {
+            append(resourceChangeEvent);
+        }
+    }
+
+    /**
+     * Assigns the next sequence number to the change and keeps it without its payload, dropping the oldest change
+     * when full.
+     */
+    public synchronized long append(ResourceChangeEvent resourceChangeEvent) {
+        resourceChangeEvent.setSequence(++sequence);
+        ResourceChangeEvent entry = new ResourceChangeEvent(resourceChangeEvent.getPackageGuid(),
+                resourceChangeEvent.getResourceId(), resourceChangeEvent.getChangeInfo(), null);
+        entry.setRevision(resourceChangeEvent.getRevision());
+        entry.setMerged(resourceChangeEvent.getMerged());
+        entry.setSequence(sequence);
+        entries.addLast(entry);
+        if (entries.size() > capacity) {
+            floor = entries.removeFirst().getSequence();
+        }
+        return sequence;
+    }
+
+    /**
+     * Sequence number of the latest change.
+     */
+    public synchronized long cursor() {
+        return sequence;
+    }
+
+    /**
+     * Changes accepted by the filter with a sequence number above the cursor, oldest first and without payloads. The
+     * replay is marked as a reset when changes after the cursor have already been dropped, or the cursor was not
+     * handed out by this journal: from before a restart, or ahead of it.
+     */
+    public synchronized Replay since(long cursor, Predicate<ResourceChangeEvent> filter) {
+        if (cursor < floor || cursor > sequence) {
+            return new Replay(Collections.emptyList(), sequence, true);
+        }
+        // Walk back from the newest change, live clients are only a few changes behind
+        List<ResourceChangeEvent> missed = new ArrayList<>();
+        Iterator<ResourceChangeEvent> newestFirst = entries.descendingIterator();
+        while (newestFirst.hasNext()) {
+            ResourceChangeEvent entry = newestFirst.next();
+            if (entry.getSequence() <= cursor) {
+                break;
+            }
+            if (filter.test(entry)) {
+                missed.add(entry);
+            }
+        }
+        Collections.reverse(missed);
+        return new Replay(missed, sequence, false);
+    }
+
+    private static int capacityFromEnv() {
+        String capacity = System.getenv().get("change_journal_capacity");
+        try {
+            return capacity == null ? DEFAULT_CAPACITY : Integer.parseInt(capacity.trim());
+        } catch (NumberFormatException e) {
+            return DEFAULT_CAPACITY;
+        }
+    }
+
+    public static final class Replay {
+        private final List<ResourceChangeEvent> changes;
+        private final long cursor;
+        private final boolean reset;
+
+        private Replay(List<ResourceChangeEvent> changes, long cursor, boolean reset) {
+            this.changes = changes;
+            this.cursor = cursor;
+            this.reset = reset;
+        }
+
+        public List<ResourceChangeEvent> getChanges() {
+            return changes;
+        }
+
+        /**
+         * Sequence number to resume from next time.
+         */
+        public long getCursor() {
+            return cursor;
+        }
+
+        /**
+         * Whether changes may have been missed that the journal does not hold; the client has to refetch.
+         */
+        public boolean isReset() {
+            return reset;
+        }
+    }
+}
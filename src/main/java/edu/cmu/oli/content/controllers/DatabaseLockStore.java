@@ -0,0 +1,172 @@
+package edu.cmu.oli.content.controllers;
+
+import edu.cmu.oli.content.AppUtils;
+import edu.cmu.oli.content.models.LockStats;
+import edu.cmu.oli.content.models.ResourceEditLock;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lock store in the resource_lock table, shared by every server of a deployment and kept across restarts.
+ * <p>
+ * Locks are granted with conditional upserts, so the database decides which user wins a race whichever server the
+ * users went through. Lock reads go through a small local cache; a lock granted through another server is seen here
+ * after at most lock_cache_ttl milliseconds. Lock changes always go to the database.
+ * <p>
+ * Expired leases are deleted {@link InMemoryLockStore#EXPIRED_RETENTION_HOURS} hours after they expired. Until then
+ * they are still the lock in force, which their holder can renew or save unless another user took it over.
+ *
+ * @author Raphael Gachuhi
+ */
+@ApplicationScoped
+public class DatabaseLockStore implements LockStore {
+
+    static final long DEFAULT_CACHE_TTL_MILLIS = 1000;
+
+    @Inject
+    ResourceLockRepository repository;
+
+    long cacheTtlMillis = cacheTtlFromEnv();
+
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+    private final LockChurn churn = new LockChurn();
+
+    @Override
+    public ResourceEditLock acquire(String resourceId, String user, long leaseMillis) {
+        String lockId = AppUtils.generateGUID();
+        ResourceEditLock resourceEditLock = cache(resourceId,
+                repository.acquire(resourceId, lockId, user, leaseMillis));
+        if (resourceEditLock != null && lockId.equals(resourceEditLock.getLockId())) {
+            churn.acquired.increment();
+        } else if (resourceEditLock != null && resourceEditLock.getLockedBy().equalsIgnoreCase(user)) {
+            // Acquired again by its holder, the lock keeps its id
+            churn.renewed.increment();
+        } else {
+            churn.contended.increment();
+        }
+        return resourceEditLock;
+    }
+
+    @Override
+    public ResourceEditLock replace(String resourceId, String user, long leaseMillis) {
+        churn.acquired.increment();
+        return cache(resourceId, repository.replace(resourceId, AppUtils.generateGUID(), user, leaseMillis));
+    }
+
+    @Override
+    public ResourceEditLock findOrCreate(String resourceId, String user, long leaseMillis) {
+        ResourceEditLock cached = cached(resourceId);
+        if (cached != null) {
+            return cached;
+        }
+        String lockId = AppUtils.generateGUID();
+        ResourceEditLock resourceEditLock = cache(resourceId,
+                repository.findOrCreate(resourceId, lockId, user, leaseMillis));
+        if (resourceEditLock != null && lockId.equals(resourceEditLock.getLockId())) {
+            churn.acquired.increment();
+        }
+        return resourceEditLock;
+    }
+
+    @Override
+    public ResourceEditLock find(String resourceId) {
+        Cached cached = cache.get(resourceId);
+        if (cached != null && cached.isFresh(System.currentTimeMillis(), cacheTtlMillis)) {
+            return cached.resourceEditLock;
+        }
+        return cache(resourceId, repository.find(resourceId));
+    }
+
+    @Override
+    public ResourceEditLock renew(String resourceId, String user, long leaseMillis) {
+        ResourceEditLock resourceEditLock = cache(resourceId, repository.renew(resourceId, user, leaseMillis));
+        if (resourceEditLock != null && resourceEditLock.getLockedBy().equalsIgnoreCase(user)) {
+            churn.renewed.increment();
+        }
+        return resourceEditLock;
+    }
+
+    @Override
+    public boolean release(String resourceId, String user) {
+        boolean released = repository.release(resourceId, user) > 0;
+        cache.remove(resourceId);
+        if (released) {
+            churn.released.increment();
+        }
+        return released;
+    }
+
+    @Override
+    public boolean remove(String resourceId) {
+        boolean removed = repository.remove(resourceId) > 0;
+        cache.remove(resourceId);
+        if (removed) {
+            churn.released.increment();
+        }
+        return removed;
+    }
+
+    /**
+     * Removes the leases past their expiry time, as set when they were granted, by more than the retention period,
+     * and drops stale cache entries.
+     */
+    @Override
+    public int evictExpired(long leaseMillis) {
+        int evicted = repository.evictExpired(TimeUnit.HOURS.toMillis(InMemoryLockStore.EXPIRED_RETENTION_HOURS));
+        churn.expired.add(evicted);
+        long now = System.currentTimeMillis();
+        cache.values().removeIf(cached -> evicted > 0 || !cached.isFresh(now, cacheTtlMillis));
+        return evicted;
+    }
+
+    @Override
+    public LockStats stats() {
+        return churn.snapshot(repository.count());
+    }
+
+    @Override
+    public long now() {
+        return repository.now();
+    }
+
+    // A cached lock held by nobody is null, findOrCreate then goes to the database
+    private ResourceEditLock cached(String resourceId) {
+        Cached cached = cache.get(resourceId);
+        return cached != null && cached.isFresh(System.currentTimeMillis(), cacheTtlMillis)
+                ? cached.resourceEditLock : null;
+    }
+
+    private ResourceEditLock cache(String resourceId, ResourceEditLock resourceEditLock) {
+        if (cacheTtlMillis > 0) {
+            cache.put(resourceId, new Cached(resourceEditLock, System.currentTimeMillis()));
+        }
+        return resourceEditLock;
+    }
+
+    private static long cacheTtlFromEnv() {
+        String ttl = System.getenv().get("lock_cache_ttl");
+        try {
+            return ttl == null ? DEFAULT_CACHE_TTL_MILLIS : Long.parseLong(ttl.trim());
+        } catch (NumberFormatException e) {
+            return DEFAULT_CACHE_TTL_MILLIS;
+        }
+    }
+
+    private static final class Cached {
+        private final ResourceEditLock resourceEditLock;
+        private final long fetchedAt;
+
+        private Cached(ResourceEditLock resourceEditLock, long fetchedAt) {
+            this.resourceEditLock = resourceEditLock;
+            this.fetchedAt = fetchedAt;
+        }
+
+        private boolean isFresh(long now, long ttlMillis) {
+            return now - fetchedAt < ttlMillis;
+        }
+    }
+}
@@ -154,7 +154,7 @@ public class DeployControllerImpl implements DeployController {
             orgVersion = "1.0";
             JsonWrapper metadata = resource.getMetadata();
             if (metadata != null) {
-                JsonElement version = metadata.getJsonObject().getAsJsonObject().get("version");
+                JsonElement version = metadata.getSharedJsonObject().getAsJsonObject().get("version");
                 if (version != null) {
                     orgVersion = version.getAsString();
                 }
@@ -165,8 +165,7 @@ public class DeployControllerImpl implements DeployController {
             Root<Edge> edgeRoot = criteria.from(Edge.class);
             criteria.select(edgeRoot)
                     .where(cb.and(cb.equal(edgeRoot.get("sourceType"), "x-oli-organization"),
-                            cb.equal(edgeRoot.get("destinationId"),
-                                    pkg.getId() + ":" + pkg.getVersion() + ":" + resource.getId()),
+                            cb.equal(edgeRoot.get("destinationResourceId"), resource.getId()),
                             cb.equal(edgeRoot.get("contentPackage").get("guid"), pkg.getGuid())));
 
             List<Edge> edges = em.createQuery(criteria).getResultList();
@@ -187,7 +186,7 @@ public class DeployControllerImpl implements DeployController {
 
             orgIdToUse = edgeForOrg.getSourceId();
             orgIdToUse = orgIdToUse.substring(orgIdToUse.lastIndexOf(":") + 1);
-            orgVersion = ((JsonObject) edgeForOrg.getMetadata().getJsonObject()).get("version").getAsString();
+            orgVersion = ((JsonObject) edgeForOrg.getMetadata().getSharedJsonObject()).get("version").getAsString();
         }
         log.debug("OrgId " + orgIdToUse + " Version " + orgVersion);
 
@@ -329,15 +328,9 @@ public class DeployControllerImpl implements DeployController {
     }
 
     private Set<String> authorEmails(String pkgGuid) {
-        List<UserInfo> allUsers = securityManager.getAllUsers();
         // && !teachTeamEmails.contains(new JsonPrimitive(userInfo.getEmail()))
         Set<String> authorEmails = new HashSet<>();
-        allUsers.forEach(userInfo -> {
-            final Map<String, List<String>> attributes = userInfo.getAttributes();
-            if (attributes != null && attributes.containsKey(pkgGuid)) {
-                authorEmails.add(userInfo.getEmail());
-            }
-        });
+        securityManager.getPackageDevelopers(pkgGuid).forEach(userInfo -> authorEmails.add(userInfo.getEmail()));
         return authorEmails;
     }
 
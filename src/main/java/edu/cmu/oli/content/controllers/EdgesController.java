@@ -4,7 +4,6 @@ import com.google.gson.JsonObject;
 import edu.cmu.oli.content.configuration.ConfigurationCache;
 import edu.cmu.oli.content.configuration.Configurations;
 import edu.cmu.oli.content.logging.Logging;
-import edu.cmu.oli.content.models.persistance.JsonWrapper;
 import edu.cmu.oli.content.models.persistance.entities.*;
 import org.slf4j.Logger;
 
@@ -16,7 +15,6 @@ import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import java.util.*;
 import java.util.concurrent.Executors;
@@ -44,8 +42,9 @@ public class EdgesController {
 
     public void validateAllEdges(ContentPackage pkg) {
         Set<Edge> edges = pkg.getEdges();
-        JsonWrapper objectivesIndex = pkg.getObjectivesIndex();
-        JsonWrapper skillsIndex = pkg.getSkillsIndex();
+        pkg.backfillLearningIndexes();
+        Map<String, ObjectiveIndexEntry> objectiveIndex = pkg.getObjectiveIndexEntries();
+        Map<String, SkillIndexEntry> skillIndex = pkg.getSkillIndexEntries();
         List<Resource> resources = pkg.getResources();
         List<WebContent> webContents = pkg.getWebContents();
         Set<String> fileNodeFromPath = new HashSet<>();
@@ -60,18 +59,14 @@ public class EdgesController {
         });
 
         edges.forEach(edge -> {
-            if (edge.getReferenceType().equals("objref") && objectivesIndex != null
-                    && objectivesIndex.getJsonObject() != null) {
-                JsonObject index = (JsonObject) objectivesIndex.getJsonObject();
+            if (edge.getReferenceType().equals("objref")) {
                 String destinationId = edge.getDestinationId();
-                if (index.has(destinationId.substring(destinationId.lastIndexOf(":") + 1))) {
+                if (objectiveIndex.containsKey(destinationId.substring(destinationId.lastIndexOf(":") + 1))) {
                     edge.setStatus(EdgeStatus.DESTINATION_PRESENT);
                 }
-            } else if ((edge.getReferenceType().equals("skillref") || edge.getReferenceType().equals("concept")) && skillsIndex != null
-                    && skillsIndex.getJsonObject() != null) {
-                JsonObject index = (JsonObject) skillsIndex.getJsonObject();
+            } else if (edge.getReferenceType().equals("skillref") || edge.getReferenceType().equals("concept")) {
                 String destinationId = edge.getDestinationId();
-                if (index.has(destinationId.substring(destinationId.lastIndexOf(":") + 1))) {
+                if (skillIndex.containsKey(destinationId.substring(destinationId.lastIndexOf(":") + 1))) {
                     edge.setStatus(EdgeStatus.DESTINATION_PRESENT);
                 }
             } else if (fileNodeFromPath.contains(edge.getDestinationId())) {
@@ -212,96 +207,78 @@ public class EdgesController {
             }
         });
 
-        JsonWrapper objectivesIndex = pkg.getObjectivesIndex();
-        if (objectivesIndex != null && objectivesIndex.getJsonObject() != null) {
-            JsonObject objIndex = (JsonObject) objectivesIndex.getJsonObject();
-            objIndex.entrySet().forEach(e -> {
-                List<Edge> edges = edgesByDestination.get(e.getKey());
-                if (edges != null) {
-                    edges.forEach(edge -> {
-                        edge.setStatus(EdgeStatus.DESTINATION_PRESENT);
-                    });
-                }
-            });
-        }
-
-        JsonWrapper skillsIndex = pkg.getSkillsIndex();
-        if (skillsIndex != null && skillsIndex.getJsonObject() != null) {
-            JsonObject skIndex = (JsonObject) skillsIndex.getJsonObject();
-            skIndex.entrySet().forEach(e -> {
-                List<Edge> edges = edgesByDestination.get(e.getKey());
-                if (edges != null) {
-                    edges.forEach(edge -> {
-                        edge.setStatus(EdgeStatus.DESTINATION_PRESENT);
-                    });
-                }
-            });
-        }
+        ensureLearningIndexes(pkg);
+        Set<String> presentIds = new HashSet<>();
+        presentIds.addAll(em.createNamedQuery("ObjectiveIndexEntry.findIdsIn", String.class)
+                .setParameter("packageGuid", pkgGuid)
+                .setParameter("objectiveIds", edgesByDestination.keySet()).getResultList());
+        presentIds.addAll(em.createNamedQuery("SkillIndexEntry.findIdsIn", String.class)
+                .setParameter("packageGuid", pkgGuid)
+                .setParameter("skillIds", edgesByDestination.keySet()).getResultList());
+        presentIds.forEach(id -> edgesByDestination.get(id).forEach(edge -> {
+            edge.setStatus(EdgeStatus.DESTINATION_PRESENT);
+        }));
     }
 
     public List<Edge> edgesForResource(ContentPackage contentPackage, Resource resource,
                                        boolean includeSource, boolean includeDestination) {
-        String edgeResourceId = contentPackage.getId() + ":" + contentPackage.getVersion() + ":" + resource.getId();
-        Set<String> objectiveIds = objectiveIds(contentPackage, resource);
-        Set<String> skillIds = skillIds(contentPackage, resource);
+        Set<String> destinationIds = new HashSet<>();
+        if (includeDestination) {
+            // Edges into the resource, and into the objectives and skills it defines
+            destinationIds.add(resource.getId());
+            destinationIds.addAll(objectiveIds(contentPackage, resource));
+            destinationIds.addAll(skillIds(contentPackage, resource));
+        }
 
-        return fetchEdgesForResource(objectiveIds, skillIds, edgeResourceId, contentPackage.getGuid(), includeSource, includeDestination);
+        return fetchEdgesForResource(resource.getId(), destinationIds, contentPackage.getGuid(), includeSource);
     }
 
-    private List<Edge> fetchEdgesForResource(Set<String> objectiveIds, Set<String> skillIds, String edgeResourceId,
-                                             String pkgGuid, boolean includeSource, boolean includeDestination) {
-        CriteriaBuilder cb = em.getCriteriaBuilder();
-        CriteriaQuery<Edge> criteria = cb.createQuery(Edge.class);
-        Root<Edge> edgeRoot = criteria.from(Edge.class);
-        List<Predicate> p = new ArrayList<>();
+    // Outgoing and incoming edges are fetched by separate queries so that each is a range scan on its own index
+    private List<Edge> fetchEdgesForResource(String resourceId, Set<String> destinationIds, String pkgGuid,
+                                             boolean includeSource) {
+        Map<String, Edge> edges = new LinkedHashMap<>();
         if (includeSource) {
-            p.add(cb.equal(edgeRoot.get("sourceId"), edgeResourceId));
+            em.createNamedQuery("Edge.findBySourceResource", Edge.class)
+                    .setParameter("packageGuid", pkgGuid)
+                    .setParameter("resourceId", resourceId)
+                    .getResultList().forEach(edge -> edges.put(edge.getGuid(), edge));
         }
-        if (includeDestination) {
-            p.add(cb.equal(edgeRoot.get("destinationId"), edgeResourceId));
-            if (!objectiveIds.isEmpty()) {
-                p.add(edgeRoot.get("destinationId").in(objectiveIds));
-            }
-            if (!skillIds.isEmpty()) {
-                p.add(edgeRoot.get("destinationId").in(skillIds));
-            }
+        if (!destinationIds.isEmpty()) {
+            em.createNamedQuery("Edge.findByDestinationResources", Edge.class)
+                    .setParameter("packageGuid", pkgGuid)
+                    .setParameter("resourceIds", destinationIds)
+                    .getResultList().forEach(edge -> edges.put(edge.getGuid(), edge));
         }
-        criteria.select(edgeRoot).where(cb.and(cb.or(p.toArray(new Predicate[p.size()])),
-                cb.equal(edgeRoot.get("contentPackage").get("guid"), pkgGuid)));
-
-        return em.createQuery(criteria).getResultList();
+        return new ArrayList<>(edges.values());
     }
 
     private Set<String> objectiveIds(ContentPackage contentPackage, Resource resource) {
-        Set<String> objectiveIds = new HashSet<>();
-        JsonWrapper objectivesIndex = contentPackage.getObjectivesIndex();
-        if (objectivesIndex != null && objectivesIndex.getJsonObject() != null) {
-            JsonObject index = (JsonObject) objectivesIndex.getJsonObject();
-            index.entrySet().forEach(e -> {
-                JsonObject details = (JsonObject) e.getValue();
-                if (details.has("resourceId")
-                        && details.get("resourceId").getAsString().equals(resource.getId())) {
-                    objectiveIds.add(e.getKey());
-                }
-            });
-        }
-        return objectiveIds;
+        ensureLearningIndexes(contentPackage);
+        return new HashSet<>(em.createNamedQuery("ObjectiveIndexEntry.findIdsByResource", String.class)
+                .setParameter("packageGuid", contentPackage.getGuid())
+                .setParameter("resourceId", resource.getId()).getResultList());
     }
 
     private Set<String> skillIds(ContentPackage contentPackage, Resource resource) {
-        Set<String> skillIds = new HashSet<>();
-        JsonWrapper skillsIndex = contentPackage.getSkillsIndex();
-        if (skillsIndex != null && skillsIndex.getJsonObject() != null) {
-            JsonObject index = (JsonObject) skillsIndex.getJsonObject();
-            index.entrySet().forEach(e -> {
-                JsonObject details = (JsonObject) e.getValue();
-                if (details.has("resourceId")
-                        && details.get("resourceId").getAsString().equals(resource.getId())) {
-                    skillIds.add(e.getKey());
-                }
-            });
+        ensureLearningIndexes(contentPackage);
+        return new HashSet<>(em.createNamedQuery("SkillIndexEntry.findIdsByResource", String.class)
+                .setParameter("packageGuid", contentPackage.getGuid())
+                .setParameter("resourceId", resource.getId()).getResultList());
+    }
+
+    /**
+     * Packages indexed before the objective and skill index tables existed only have the JSON indexes. They are
+     * copied into the tables the first time such a package is looked up here; the package records that it has been
+     * backfilled, so this happens once and only if the transaction commits.
+     */
+    private void ensureLearningIndexes(ContentPackage contentPackage) {
+        if (contentPackage.isLearningIndexed()) {
+            return;
+        }
+        if (contentPackage.backfillLearningIndexes()) {
+            log.info("Backfilled objective and skill index tables for package " + contentPackage.getGuid());
         }
-        return skillIds;
+        em.flush();
     }
 
     public void processResourceDelete(ContentPackage contentPackage, Resource resource) {
@@ -329,7 +306,7 @@ public class EdgesController {
         CriteriaBuilder cb = em.getCriteriaBuilder();
         CriteriaQuery<Edge> criteria = cb.createQuery(Edge.class);
         Root<Edge> edgeRoot = criteria.from(Edge.class);
-        criteria.select(edgeRoot).where(cb.and(cb.equal(edgeRoot.get("destinationId"), fileNode.getPathFrom()), cb.equal(edgeRoot.get("contentPackage").get("guid"), contentPackage.getGuid())));
+        criteria.select(edgeRoot).where(cb.and(cb.equal(edgeRoot.get("destinationResourceId"), fileNode.getPathFrom()), cb.equal(edgeRoot.get("contentPackage").get("guid"), contentPackage.getGuid())));
 
         List<Edge> edges = em.createQuery(criteria).getResultList();
         edges.forEach(e -> {
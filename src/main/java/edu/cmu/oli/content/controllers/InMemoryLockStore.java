@@ -0,0 +1,182 @@
+package edu.cmu.oli.content.controllers;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import edu.cmu.oli.content.models.LockStats;
+import edu.cmu.oli.content.models.ResourceEditLock;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lock store held in the heap of this server. Every lock change is a single atomic operation on the lock table, so
+ * two users racing for the same resource can never both get the lock.
+ * <p>
+ * Leases evicted by the sweeper are kept aside for {@link #EXPIRED_RETENTION_HOURS} hours, up to
+ * {@link #MAX_EXPIRED_LOCKS} of them, and still reported as the lock in force. An author coming back to an idle
+ * editor can then renew or save the expired lease as long as nobody else took the lock meanwhile.
+ *
+ * @author Raphael Gachuhi
+ */
+public class InMemoryLockStore implements LockStore {
+
+    static final long EXPIRED_RETENTION_HOURS = 24;
+    static final int MAX_EXPIRED_LOCKS = 10000;
+
+    private final Map<String, ResourceEditLock> resourceLocks = new ConcurrentHashMap<>();
+    // Changed only from within an atomic operation on the same resource in resourceLocks
+    private final Cache<String, ResourceEditLock> expiredLocks = CacheBuilder.newBuilder()
+            .maximumSize(MAX_EXPIRED_LOCKS).expireAfterWrite(EXPIRED_RETENTION_HOURS, TimeUnit.HOURS).build();
+    private final LockChurn churn = new LockChurn();
+
+    @Override
+    public ResourceEditLock acquire(String resourceId, String user, long leaseMillis) {
+        long now = System.currentTimeMillis();
+        return resourceLocks.compute(resourceId, (k, resourceEditLock) -> {
+            if (resourceEditLock == null) {
+                churn.acquired.increment();
+            } else if (resourceEditLock.getLockedBy().equalsIgnoreCase(user)) {
+                churn.renewed.increment();
+            } else if (isExpired(resourceEditLock, now, leaseMillis)) {
+                churn.expired.increment();
+                churn.acquired.increment();
+            } else {
+                churn.contended.increment();
+                return resourceEditLock;
+            }
+            expiredLocks.invalidate(resourceId);
+            return new ResourceEditLock(resourceId, user, now);
+        });
+    }
+
+    @Override
+    public ResourceEditLock replace(String resourceId, String user, long leaseMillis) {
+        ResourceEditLock resourceEditLock = new ResourceEditLock(resourceId, user, System.currentTimeMillis());
+        resourceLocks.compute(resourceId, (k, previous) -> {
+            expiredLocks.invalidate(resourceId);
+            return resourceEditLock;
+        });
+        churn.acquired.increment();
+        return resourceEditLock;
+    }
+
+    @Override
+    public ResourceEditLock findOrCreate(String resourceId, String user, long leaseMillis) {
+        ResourceEditLock[] inForce = new ResourceEditLock[1];
+        resourceLocks.compute(resourceId, (k, resourceEditLock) -> {
+            if (resourceEditLock == null) {
+                inForce[0] = expiredLocks.getIfPresent(resourceId);
+                if (inForce[0] != null) {
+                    return null;
+                }
+                churn.acquired.increment();
+                resourceEditLock = new ResourceEditLock(resourceId, user, System.currentTimeMillis());
+            }
+            inForce[0] = resourceEditLock;
+            return resourceEditLock;
+        });
+        return inForce[0];
+    }
+
+    @Override
+    public ResourceEditLock find(String resourceId) {
+        ResourceEditLock resourceEditLock = resourceLocks.get(resourceId);
+        return resourceEditLock != null ? resourceEditLock : expiredLocks.getIfPresent(resourceId);
+    }
+
+    @Override
+    public ResourceEditLock renew(String resourceId, String user, long leaseMillis) {
+        long now = System.currentTimeMillis();
+        ResourceEditLock[] inForce = new ResourceEditLock[1];
+        resourceLocks.compute(resourceId, (k, resourceEditLock) -> {
+            if (resourceEditLock == null) {
+                // The user's lease may have been evicted once expired, it is theirs again unless somebody took it
+                ResourceEditLock expired = expiredLocks.getIfPresent(resourceId);
+                if (expired == null || !expired.getLockedBy().equalsIgnoreCase(user)) {
+                    inForce[0] = expired;
+                    return null;
+                }
+                expiredLocks.invalidate(resourceId);
+                resourceEditLock = expired;
+            } else if (!resourceEditLock.getLockedBy().equalsIgnoreCase(user)) {
+                inForce[0] = resourceEditLock;
+                return resourceEditLock;
+            }
+            churn.renewed.increment();
+            inForce[0] = resourceEditLock.withUpdatedLockedAt(now);
+            return inForce[0];
+        });
+        return inForce[0];
+    }
+
+    @Override
+    public boolean release(String resourceId, String user) {
+        boolean[] removed = new boolean[1];
+        resourceLocks.compute(resourceId, (k, resourceEditLock) -> {
+            ResourceEditLock held = resourceEditLock != null ? resourceEditLock
+                    : expiredLocks.getIfPresent(resourceId);
+            if (held == null || !held.getLockedBy().equalsIgnoreCase(user)) {
+                return resourceEditLock;
+            }
+            expiredLocks.invalidate(resourceId);
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0]) {
+            churn.released.increment();
+        }
+        return removed[0];
+    }
+
+    @Override
+    public boolean remove(String resourceId) {
+        boolean[] removed = new boolean[1];
+        resourceLocks.compute(resourceId, (k, resourceEditLock) -> {
+            removed[0] = resourceEditLock != null || expiredLocks.getIfPresent(resourceId) != null;
+            expiredLocks.invalidate(resourceId);
+            return null;
+        });
+        if (removed[0]) {
+            churn.released.increment();
+        }
+        return removed[0];
+    }
+
+    @Override
+    public int evictExpired(long leaseMillis) {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        for (String resourceId : resourceLocks.keySet()) {
+            // Each lease removed atomically, so that a lease renewed meanwhile is kept
+            boolean[] removed = new boolean[1];
+            resourceLocks.computeIfPresent(resourceId, (k, resourceEditLock) -> {
+                removed[0] = isExpired(resourceEditLock, now, leaseMillis);
+                if (!removed[0]) {
+                    return resourceEditLock;
+                }
+                expiredLocks.put(resourceId, resourceEditLock);
+                return null;
+            });
+            if (removed[0]) {
+                evicted++;
+            }
+        }
+        churn.expired.add(evicted);
+        return evicted;
+    }
+
+    @Override
+    public LockStats stats() {
+        return churn.snapshot(resourceLocks.size());
+    }
+
+    @Override
+    public long now() {
+        return System.currentTimeMillis();
+    }
+
+    static boolean isExpired(ResourceEditLock resourceEditLock, long now, long leaseMillis) {
+        return now - resourceEditLock.getLockedAt() > leaseMillis;
+    }
+}
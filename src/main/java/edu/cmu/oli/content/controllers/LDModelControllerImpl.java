@@ -357,7 +357,7 @@ public class LDModelControllerImpl implements LDModelController {
             throws ContentServiceException {
         log.info("importLOsSkillsMap " + fileName);
         JsonWrapper skillsIndexWrapper = pkg.getSkillsIndex();
-        if (skillsIndexWrapper == null || ((JsonObject) skillsIndexWrapper.getJsonObject()).entrySet().isEmpty()) {
+        if (skillsIndexWrapper == null || ((JsonObject) skillsIndexWrapper.getSharedJsonObject()).entrySet().isEmpty()) {
             String message = "Error loading Learning Objective skill map. Package " + pkg.getId() + "_"
                     + pkg.getVersion() + " contains zero skills";
             log.error(message);
@@ -366,7 +366,7 @@ public class LDModelControllerImpl implements LDModelController {
 
         JsonWrapper objectivesIndexWrapper = pkg.getObjectivesIndex();
         if (objectivesIndexWrapper == null
-                || ((JsonObject) objectivesIndexWrapper.getJsonObject()).entrySet().isEmpty()) {
+                || ((JsonObject) objectivesIndexWrapper.getSharedJsonObject()).entrySet().isEmpty()) {
             String message = "Error loading Learning Objective skill map. Package " + pkg.getId() + "_"
                     + pkg.getVersion() + " contains zero objectives";
             log.error(message);
@@ -667,7 +667,7 @@ public class LDModelControllerImpl implements LDModelController {
     protected List<String> importProblemsSkillsMap(ContentPackage pkg, String fileName, String value)
             throws ContentServiceException {
         JsonWrapper skillsIndexWrapper = pkg.getSkillsIndex();
-        if (skillsIndexWrapper == null || ((JsonObject) skillsIndexWrapper.getJsonObject()).entrySet().isEmpty()) {
+        if (skillsIndexWrapper == null || ((JsonObject) skillsIndexWrapper.getSharedJsonObject()).entrySet().isEmpty()) {
             String message = "Error loading Learning Objective skill map. Package " + pkg.getId() + "_"
                     + pkg.getVersion() + " contains zero skills";
             log.error(message);
@@ -1255,7 +1255,7 @@ public class LDModelControllerImpl implements LDModelController {
                 String resourceId = split[split.length - 1];
                 String problem = null;
                 String step = null;
-                JsonObject pathInfo = e.getMetadata().getJsonObject().getAsJsonObject().get("pathInfo")
+                JsonObject pathInfo = e.getMetadata().getSharedJsonObject().getAsJsonObject().get("pathInfo")
                         .getAsJsonObject();
                 JsonObject parent = pathInfo.get("parent").getAsJsonObject();
                 String name = parent.get("name").getAsString();
@@ -1347,7 +1347,7 @@ public class LDModelControllerImpl implements LDModelController {
 
         JsonWrapper skillsIndexWrapper = pkg.getSkillsIndex();
         JsonObject skillsIndex = skillsIndexWrapper == null ? new JsonObject()
-                : skillsIndexWrapper.getJsonObject().getAsJsonObject();
+                : skillsIndexWrapper.getSharedJsonObject().getAsJsonObject();
 
         for (Map<String, String> tags : problemTags) {
             sb.append(tags.get("resource")).append("\t");
@@ -1417,7 +1417,7 @@ public class LDModelControllerImpl implements LDModelController {
                 if (!s.getSourceType().equals("x-oli-objective")) {
                     return;
                 }
-                JsonObject obMeta = s.getMetadata().getJsonObject().getAsJsonObject();
+                JsonObject obMeta = s.getMetadata().getSharedJsonObject().getAsJsonObject();
                 if (obMeta.has("obIdref") && obMeta.get("obIdref").getAsString().equals(e.getKey())) {
                     skillsRef.add(s);
                 }
@@ -1441,7 +1441,7 @@ public class LDModelControllerImpl implements LDModelController {
 
         JsonWrapper skillsIndexWrapper = pkg.getSkillsIndex();
         JsonObject skillsIndex = skillsIndexWrapper == null ? new JsonObject()
-                : skillsIndexWrapper.getJsonObject().getAsJsonObject();
+                : skillsIndexWrapper.getSharedJsonObject().getAsJsonObject();
 
         obLoad.stream().forEach(e -> {
             JsonObject objective = e.objectivePayload.getValue().getAsJsonObject();
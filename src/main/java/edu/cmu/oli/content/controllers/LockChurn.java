@@ -0,0 +1,23 @@
+package edu.cmu.oli.content.controllers;
+
+import edu.cmu.oli.content.models.LockStats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock churn counters of a lock store.
+ *
+ * @author Raphael Gachuhi
+ */
+final class LockChurn {
+
+    final LongAdder acquired = new LongAdder();
+    final LongAdder renewed = new LongAdder();
+    final LongAdder released = new LongAdder();
+    final LongAdder contended = new LongAdder();
+    final LongAdder expired = new LongAdder();
+
+    LockStats snapshot(long active) {
+        return new LockStats(active, acquired.sum(), renewed.sum(), released.sum(), contended.sum(), expired.sum());
+    }
+}
@@ -1,6 +1,7 @@
 package edu.cmu.oli.content.controllers;
 
 import com.google.gson.JsonElement;
+import edu.cmu.oli.content.models.LockStats;
 import edu.cmu.oli.content.models.ResourceEditLock;
 import edu.cmu.oli.content.security.AppSecurityContext;
 
@@ -12,7 +13,12 @@ public interface LockController {
 
     void removeLock(String resourceguid);
 
-    String release(AppSecurityContext session, String resourceId);
+    /**
+     * Removes the lock of the resource when held by the user.
+     *
+     * @return whether the user held the lock
+     */
+    boolean release(AppSecurityContext session, String resourceId);
 
     String status(String resourceId);
 
@@ -21,4 +27,8 @@ public interface LockController {
     JsonElement getJsonLockForResource(AppSecurityContext session, String resourceId, boolean doCreate);
 
     void checkLockPermission(AppSecurityContext session, String resourceId, boolean update);
+
+    ResourceEditLock renew(AppSecurityContext session, String resourceId);
+
+    LockStats stats();
 }
@@ -7,25 +7,36 @@ import edu.cmu.oli.content.ResourceException;
 import edu.cmu.oli.content.configuration.ConfigurationCache;
 import edu.cmu.oli.content.configuration.Configurations;
 import edu.cmu.oli.content.logging.Logging;
+import edu.cmu.oli.content.models.LockStats;
 import edu.cmu.oli.content.models.ResourceEditLock;
 import edu.cmu.oli.content.security.AppSecurityContext;
 import org.slf4j.Logger;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static javax.ws.rs.core.Response.Status.FORBIDDEN;
 
 /**
+ * Edit locks held as leases in a {@link LockStore}. Leases older than the configured edit lock duration are expired;
+ * a sweeper evicts them so that the store only holds locks in use. The holder of an expired lease can still renew it
+ * or save, as long as no other user took the lock meanwhile.
+ * <p>
+ * Locks are kept in memory unless the lock_store environment variable is set to database, which lets several servers
+ * share the locks and keeps them across restarts.
+ *
  * @author Raphael Gachuhi
  */
 @ApplicationScoped
 public class LockControllerImpl implements LockController {
 
+    static final long SWEEP_SECONDS = 60;
+
     @Inject
     @Logging
     Logger log;
@@ -34,57 +45,57 @@ public class LockControllerImpl implements LockController {
     @ConfigurationCache
     Instance<Configurations> configuration;
 
-    private Map<String, ResourceEditLock> resourceLocks;
+    @Inject
+    Instance<DatabaseLockStore> databaseLockStore;
+
+    LockStore lockStore;
+    private ScheduledThreadPoolExecutor sweeper;
 
     @PostConstruct
     void init() {
-        resourceLocks = new ConcurrentHashMap<>();
+        if (lockStore == null) {
+            lockStore = "database".equalsIgnoreCase(System.getenv().get("lock_store")) ? databaseLockStore.get()
+                    : new InMemoryLockStore();
+        }
+        sweeper = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "edit-lock-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_SECONDS, SWEEP_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sweeper.shutdownNow();
     }
 
     @Override
     public ResourceEditLock aquire(AppSecurityContext session, String resourceId) {
-        
-        ResourceEditLock resourceEditLock = resourceLocks.get(resourceId);
-
-        // Update the lock if either:
+        // Take the lock if either:
         //
         // 1. One does not exist for this resource
         // 2. The user name of an existing lock matches the current user name
         // 3. The lock has expired
-        if (resourceEditLock == null
-            || resourceEditLock.getLockedBy().equalsIgnoreCase(session.getPreferredUsername())
-            || System.currentTimeMillis() - resourceEditLock.getLockedAt() > configuration.get().getEditLockMaxDuration()) {
-
-            resourceEditLock = new ResourceEditLock(resourceId, session.getPreferredUsername(), System.currentTimeMillis());
-            resourceLocks.put(resourceId, resourceEditLock);
-        }
-
-        return resourceEditLock;
+        return lockStore.acquire(resourceId, session.getPreferredUsername(), maxDuration());
     }
 
     @Override
-    public String release(AppSecurityContext session, String resourceId) {
-        ResourceEditLock resourceEditLock = resourceLocks.get(resourceId);
-        if (resourceEditLock != null && resourceEditLock.getLockedBy().equalsIgnoreCase(session.getPreferredUsername())) {
-            resourceLocks.remove(resourceId);
-            return "ResourceEditLock Released";
-        } else {
-            return "ResourceEditLock does not exist";
-        }
+    public boolean release(AppSecurityContext session, String resourceId) {
+        return lockStore.release(resourceId, session.getPreferredUsername());
     }
 
     @Override
     public void removeLock(String resourceguid){
-        resourceLocks.remove(resourceguid);
+        lockStore.remove(resourceguid);
     }
 
     @Override
     public String status(String resourceId) {
-        ResourceEditLock resourceEditLock = resourceLocks.get(resourceId);
-        // if resourceEditLock has expired create new one
+        ResourceEditLock resourceEditLock = lockStore.find(resourceId);
         if (resourceEditLock == null) {
             return "NONE";
-        } else if (System.currentTimeMillis() - resourceEditLock.getLockedAt() > configuration.get().getEditLockMaxDuration()) {
+        } else if (lockStore.now() - resourceEditLock.getLockedAt() > maxDuration()) {
             return "EXPIRED";
         }
         return "ACTIVE";
@@ -92,13 +103,9 @@ public class LockControllerImpl implements LockController {
 
     @Override
     public ResourceEditLock getLockForResource(AppSecurityContext session, String resourceId, boolean doCreate) {
-        ResourceEditLock resourceEditLock = resourceLocks.get(resourceId);
-        // if resourceEditLock has expired create new one
-        if (resourceEditLock == null || doCreate) {
-            resourceEditLock = new ResourceEditLock(resourceId, session.getPreferredUsername(), System.currentTimeMillis());
-            resourceLocks.put(resourceId, resourceEditLock);
-        }
-        return resourceEditLock;
+        String user = session.getPreferredUsername();
+        return doCreate ? lockStore.replace(resourceId, user, maxDuration())
+                : lockStore.findOrCreate(resourceId, user, maxDuration());
     }
 
     @Override
@@ -110,19 +117,49 @@ public class LockControllerImpl implements LockController {
 
     @Override
     public void checkLockPermission(AppSecurityContext session, String resourceId, boolean update) {
-        ResourceEditLock resourceEditLock = resourceLocks.get(resourceId);
-        // if resourceEditLock has expired create new one
+        String user = session.getPreferredUsername();
+        // Checked and renewed in one step, the sweeper cannot evict the lock in between
+        ResourceEditLock resourceEditLock = update ? lockStore.renew(resourceId, user, maxDuration())
+                : lockStore.find(resourceId);
         if (resourceEditLock == null) {
             String message = "Not Authorized - resourceEditLock does not exist";
             throw new ResourceException(FORBIDDEN, null, message);
         }
-        if (!resourceEditLock.getLockedBy().equalsIgnoreCase(session.getPreferredUsername())) {
+        if (!resourceEditLock.getLockedBy().equalsIgnoreCase(user)) {
             String message = "Not Authorized - ResourceEditLock user not the same";
             throw new ResourceException(FORBIDDEN, null, message);
         }
-        if (update) {
-            resourceLocks.put(resourceId, resourceEditLock.withUpdatedLockedAt(System.currentTimeMillis()));
+    }
+
+    /**
+     * Restarts the lease of the user's lock.
+     *
+     * @return the lock in force, held by another user when the lease was not restarted, or null when the resource is
+     * not locked
+     */
+    @Override
+    public ResourceEditLock renew(AppSecurityContext session, String resourceId) {
+        return lockStore.renew(resourceId, session.getPreferredUsername(), maxDuration());
+    }
+
+    @Override
+    public LockStats stats() {
+        return lockStore.stats();
+    }
+
+    void sweep() {
+        try {
+            int evicted = lockStore.evictExpired(maxDuration());
+            if (evicted > 0) {
+                log.debug("Evicted " + evicted + " expired edit locks");
+            }
+        } catch (RuntimeException e) {
+            // Keep the sweeper scheduled
+            log.error("Error sweeping expired edit locks", e);
         }
     }
 
+    private long maxDuration() {
+        return configuration.get().getEditLockMaxDuration();
+    }
 }
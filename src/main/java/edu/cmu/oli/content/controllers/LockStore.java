@@ -0,0 +1,67 @@
+package edu.cmu.oli.content.controllers;
+
+import edu.cmu.oli.content.models.LockStats;
+import edu.cmu.oli.content.models.ResourceEditLock;
+
+/**
+ * Storage of edit lock leases. Every operation is atomic for the resource it is applied to, whatever the number of
+ * threads or servers sharing the store.
+ *
+ * @author Raphael Gachuhi
+ */
+public interface LockStore {
+
+    /**
+     * Grants a new lock to the user unless another user holds a lease younger than leaseMillis.
+     *
+     * @return the lock in force afterwards, the user's new lock or the lock of the other user
+     */
+    ResourceEditLock acquire(String resourceId, String user, long leaseMillis);
+
+    /**
+     * Grants a new lock to the user whoever holds the resource.
+     */
+    ResourceEditLock replace(String resourceId, String user, long leaseMillis);
+
+    /**
+     * Lock in force, expired or not, granting one to the user when the resource is not locked.
+     */
+    ResourceEditLock findOrCreate(String resourceId, String user, long leaseMillis);
+
+    /**
+     * Lock in force, expired or not, or null.
+     */
+    ResourceEditLock find(String resourceId);
+
+    /**
+     * Restarts the lease of the lock when held by the user.
+     *
+     * @return the lock in force afterwards, or null when the resource is not locked
+     */
+    ResourceEditLock renew(String resourceId, String user, long leaseMillis);
+
+    /**
+     * Removes the lock when held by the user.
+     */
+    boolean release(String resourceId, String user);
+
+    /**
+     * Removes the lock whoever holds it.
+     */
+    boolean remove(String resourceId);
+
+    /**
+     * Removes leases older than leaseMillis from the leases in use. Stores keep the removed leases a while longer, as
+     * expired locks their holder can still renew.
+     *
+     * @return number of leases removed
+     */
+    int evictExpired(long leaseMillis);
+
+    LockStats stats();
+
+    /**
+     * Current time on the clock the lease times of the store are taken from.
+     */
+    long now();
+}
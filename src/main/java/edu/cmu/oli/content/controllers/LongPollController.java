@@ -1,45 +1,225 @@
 package edu.cmu.oli.content.controllers;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import edu.cmu.oli.content.AppUtils;
+import edu.cmu.oli.content.boundary.CoalescedChangeEvent;
 import edu.cmu.oli.content.boundary.ResourceChangeEvent;
 import edu.cmu.oli.content.logging.Logging;
 import edu.cmu.oli.content.models.ChangePayload;
 import org.slf4j.Logger;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
+import javax.ws.rs.container.AsyncResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
+ * Registry of suspended long-poll requests, keyed by the resource ids they wait on.
+ * <p>
+ * No thread is held while a poll waits. A resource change resumes every poll waiting on the resource from the thread
+ * that fired the change, serializing the change once for all of them. Polls that see no change are resumed by a
+ * single shared timer thread. Responses are resumed with the JSON serialized {@link ChangePayload}.
+ * <p>
+ * Polls that pass the sequence number of the last change they saw are answered with every change they missed since,
+ * taken from the {@link ChangeJournal}, together with the cursor to pass on the next poll. The journal keeps no
+ * payloads; polls including docs get the document of each change loaded back from its revision.
+ *
  * @author Raphael Gachuhi
  */
 @ApplicationScoped
 public class LongPollController {
 
+    static final long MAX_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
     @Inject
     @Logging
     Logger log;
 
-    private Map<String, ChangePayload> changePayloadHashMap = new ConcurrentHashMap<>();
+    @Inject
+    ChangeJournal journal;
+
+    @Inject
+    ChangeDocs changeDocs;
+
+    private final Map<String, Set<Poll>> polls = new ConcurrentHashMap<>();
+    private ScheduledThreadPoolExecutor timer;
 
-    public void onFileChange(@Observes ResourceChangeEvent resourceChangeEvent) {
-        ChangePayload changePayload = changePayloadHashMap.get(resourceChangeEvent.getResourceId());
-        if (changePayload == null) {
+    @PostConstruct
+    void init() {
+        timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "long-poll-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    public void onFileChange(@Observes CoalescedChangeEvent coalescedChangeEvent) {
+        ResourceChangeEvent resourceChangeEvent = coalescedChangeEvent.getChange();
+        Set<Poll> waiting = polls.get(resourceChangeEvent.getResourceId());
+        if (waiting == null || waiting.isEmpty()) {
             return;
         }
-        changePayload.changeInfo = resourceChangeEvent.getChangeInfo();
-        changePayload.payload = resourceChangeEvent.getEventPayload();
-        synchronized (changePayload) {
-            changePayload.notifyAll();
+        String json = null;
+        // Polls resuming from the same cursor on the same resources get the same answer
+        Map<String, String> replays = new HashMap<>();
+        for (Poll poll : new ArrayList<>(waiting)) {
+            if (poll.since == null) {
+                if (json == null) {
+                    json = toJson(new ChangePayload(resourceChangeEvent));
+                }
+                poll.complete(json);
+            } else if (resourceChangeEvent.getSequence() != 0) {
+                // Reads are not journaled and leave polls resuming from a cursor waiting
+                poll.complete(replays.computeIfAbsent(poll.since + " " + poll.includeDocs + " " + poll.resourceIds,
+                        k -> replay(poll)));
+            }
+        }
+    }
+
+    /**
+     * Sequence number of the latest change, for clients that ask for changes since now.
+     */
+    public long cursor() {
+        return journal.cursor();
+    }
+
+    /**
+     * Suspends the response until one of the resources changes or the timeout elapses, whichever comes first. A
+     * timeout of zero or above {@link #MAX_TIMEOUT_MILLIS} waits for the maximum.
+     *
+     * @param since       sequence number of the last change seen by the client, or null to wait for the next change
+     *                    only. Changes to the resources after it are returned right away, all in one response
+     * @param includeDocs whether changes replayed after since carry the document of the revision they produced
+     */
+    public void register(List<String> resourceIds, long timeoutMillis, Long since, boolean includeDocs,
+            AsyncResponse response) {
+        Poll poll = new Poll(resourceIds, since, includeDocs, response);
+        for (String resourceId : resourceIds) {
+            polls.compute(resourceId, (k, waiting) -> {
+                if (waiting == null) {
+                    waiting = ConcurrentHashMap.newKeySet();
+                }
+                waiting.add(poll);
+                return waiting;
+            });
+        }
+        if (since != null) {
+            // Registered first so that a change committed meanwhile is either replayed here or resumes the poll
+            ChangeJournal.Replay missed = journal.since(since, poll::accepts);
+            if (missed.isReset() || !missed.getChanges().isEmpty()) {
+                poll.complete(toJson(missed, includeDocs));
+                return;
+            }
+        }
+        long timeout = timeoutMillis <= 0 ? MAX_TIMEOUT_MILLIS : Math.min(timeoutMillis, MAX_TIMEOUT_MILLIS);
+        if (since == null) {
+            String unchanged = toJson(new ChangePayload(resourceIds.get(0)));
+            poll.timeout = timer.schedule(() -> poll.complete(unchanged), timeout, TimeUnit.MILLISECONDS);
+        } else {
+            poll.timeout = timer.schedule(() -> poll.complete(replay(poll)), timeout, TimeUnit.MILLISECONDS);
         }
+        if (poll.done.get()) {
+            poll.timeout.cancel(false);
+        }
+    }
+
+    int waiting(String resourceId) {
+        Set<Poll> waiting = polls.get(resourceId);
+        return waiting == null ? 0 : waiting.size();
     }
 
-    public void registerPayloadChangePayload(ChangePayload cp) {
-        changePayloadHashMap.put(cp.resourceId, cp);
+    @PreDestroy
+    void shutdown() {
+        timer.shutdownNow();
     }
 
-    public void unRegisterPayloadChangePayload(ChangePayload cp) {
-        changePayloadHashMap.remove(cp);
+    private void unregister(Poll poll) {
+        for (String resourceId : poll.resourceIds) {
+            polls.computeIfPresent(resourceId, (k, waiting) -> {
+                waiting.remove(poll);
+                return waiting.isEmpty() ? null : waiting;
+            });
+        }
+    }
+
+    private String replay(Poll poll) {
+        return toJson(journal.since(poll.since, poll::accepts), poll.includeDocs);
+    }
+
+    private static String toJson(ChangePayload changePayload) {
+        return gson().toJson(changePayload);
+    }
+
+    private String toJson(ChangeJournal.Replay replay, boolean includeDocs) {
+        Gson gson = gson();
+        JsonArray changes = new JsonArray();
+        for (ResourceChangeEvent change : replay.getChanges()) {
+            ChangePayload changePayload = new ChangePayload(change);
+            if (includeDocs) {
+                changePayload.payload = changeDocs.load(change);
+            }
+            changes.add(gson.toJsonTree(changePayload));
+        }
+        JsonObject batch = new JsonObject();
+        batch.addProperty("cursor", replay.getCursor());
+        batch.addProperty("reset", replay.isReset());
+        batch.add("changes", changes);
+        return gson.toJson(batch);
+    }
+
+    private static Gson gson() {
+        return AppUtils.gsonBuilder().excludeFieldsWithoutExposeAnnotation().serializeNulls().create();
+    }
+
+    private final class Poll {
+        private final List<String> resourceIds;
+        private final Long since;
+        private final boolean includeDocs;
+        private final AsyncResponse response;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private volatile ScheduledFuture<?> timeout;
+
+        private Poll(List<String> resourceIds, Long since, boolean includeDocs, AsyncResponse response) {
+            this.resourceIds = resourceIds;
+            this.since = since;
+            this.includeDocs = includeDocs;
+            this.response = response;
+        }
+
+        private boolean accepts(ResourceChangeEvent resourceChangeEvent) {
+            return resourceIds.contains(resourceChangeEvent.getResourceId());
+        }
+
+        private void complete(String json) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            ScheduledFuture<?> scheduled = this.timeout;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            unregister(this);
+            try {
+                response.resume(json);
+            } catch (RuntimeException e) {
+                // Client already gone
+                log.debug("Long poll not resumed " + e.getMessage());
+            }
+        }
     }
 }
@@ -0,0 +1,219 @@
+package edu.cmu.oli.content.controllers;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import edu.cmu.oli.content.AppUtils;
+import edu.cmu.oli.content.boundary.CoalescedChangeEvent;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent.ResourceEventType;
+import edu.cmu.oli.content.logging.Logging;
+import edu.cmu.oli.content.models.ChangePayload;
+import org.slf4j.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams committed resource changes of a package to Server-Sent Events subscribers, one connection per subscriber
+ * for the whole package.
+ * <p>
+ * Each subscriber may narrow the stream down to a set of resource guids and a set of change types. Every change is
+ * sent as an event named after its {@link ResourceEventType} with the JSON serialized {@link ChangePayload} as data.
+ * Idle streams get a periodic comment so that closed connections are noticed and dropped.
+ * <p>
+ * Events carry the {@link ChangeJournal} sequence number of the change as their id. A subscriber reconnecting with the
+ * last id it received is first sent every matching change it missed, without payloads as the journal keeps none, or
+ * a {@value #RESET_EVENT} event carrying the current cursor when the journal does not hold them.
+ *
+ * @author Raphael Gachuhi
+ */
+@ApplicationScoped
+public class PackageEventStream {
+
+    static final long HEARTBEAT_SECONDS = 30;
+    static final String RESET_EVENT = "RESET";
+
+    @Inject
+    @Logging
+    Logger log;
+
+    @Inject
+    ChangeJournal journal;
+
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private ScheduledThreadPoolExecutor heartbeat;
+
+    @PostConstruct
+    void init() {
+        heartbeat = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "package-event-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::sendHeartbeats, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS,
+                TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeat.shutdownNow();
+        subscribers.values().forEach(packageSubscribers -> packageSubscribers.forEach(s -> s.sink.close()));
+    }
+
+    /**
+     * Sequence number of the latest change, for subscribers that ask for changes since now.
+     */
+    public long cursor() {
+        return journal.cursor();
+    }
+
+    /**
+     * Streams changes of the package to the sink until it is closed.
+     *
+     * @param resourceIds resource guids to stream, empty for all resources of the package
+     * @param types       change types to stream, empty for all types
+     * @param since       sequence number of the last change the subscriber received, or null to stream new changes
+     *                    only
+     */
+    public void subscribe(String packageGuid, Set<String> resourceIds, Set<ResourceEventType> types, Long since,
+            SseEventSink sink, Sse sse) {
+        Subscriber subscriber = new Subscriber(packageGuid, resourceIds, types, sink, sse);
+        // Live changes wait for the replay and are skipped if it already covered them
+        synchronized (subscriber) {
+            subscribers.compute(packageGuid, (k, packageSubscribers) -> {
+                if (packageSubscribers == null) {
+                    packageSubscribers = ConcurrentHashMap.newKeySet();
+                }
+                packageSubscribers.add(subscriber);
+                return packageSubscribers;
+            });
+            if (since == null) {
+                return;
+            }
+            ChangeJournal.Replay missed = journal.since(since, subscriber::accepts);
+            if (missed.isReset()) {
+                JsonObject reset = new JsonObject();
+                reset.addProperty("cursor", missed.getCursor());
+                subscriber.send(sse.newEventBuilder().id(String.valueOf(missed.getCursor())).name(RESET_EVENT)
+                        .mediaType(MediaType.APPLICATION_JSON_TYPE).data(String.class, reset.toString()).build());
+                subscriber.lastSent = missed.getCursor();
+                return;
+            }
+            subscriber.lastSent = since;
+            missed.getChanges().forEach(change -> subscriber.deliver(change, toJson(change)));
+        }
+    }
+
+    public void onResourceChange(@Observes CoalescedChangeEvent coalescedChangeEvent) {
+        ResourceChangeEvent resourceChangeEvent = coalescedChangeEvent.getChange();
+        if (resourceChangeEvent.getPackageGuid() == null) {
+            return;
+        }
+        Set<Subscriber> packageSubscribers = subscribers.get(resourceChangeEvent.getPackageGuid());
+        if (packageSubscribers == null) {
+            return;
+        }
+        String data = null;
+        for (Subscriber subscriber : new ArrayList<>(packageSubscribers)) {
+            if (!subscriber.accepts(resourceChangeEvent)) {
+                continue;
+            }
+            if (data == null) {
+                data = toJson(resourceChangeEvent);
+            }
+            subscriber.deliver(resourceChangeEvent, data);
+        }
+    }
+
+    int subscribers(String packageGuid) {
+        Set<Subscriber> packageSubscribers = subscribers.get(packageGuid);
+        return packageSubscribers == null ? 0 : packageSubscribers.size();
+    }
+
+    void sendHeartbeats() {
+        subscribers.values().forEach(packageSubscribers -> new ArrayList<>(packageSubscribers)
+                .forEach(subscriber -> subscriber.send(subscriber.sse.newEventBuilder().comment("").build())));
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.packageGuid, (k, packageSubscribers) -> {
+            packageSubscribers.remove(subscriber);
+            return packageSubscribers.isEmpty() ? null : packageSubscribers;
+        });
+    }
+
+    private static String toJson(ResourceChangeEvent resourceChangeEvent) {
+        ChangePayload changePayload = new ChangePayload(resourceChangeEvent);
+        Gson gson = AppUtils.gsonBuilder().excludeFieldsWithoutExposeAnnotation().serializeNulls().create();
+        return gson.toJson(changePayload);
+    }
+
+    private final class Subscriber {
+        private final String packageGuid;
+        private final Set<String> resourceIds;
+        private final Set<ResourceEventType> types;
+        private final SseEventSink sink;
+        private final Sse sse;
+        // Sequence number of the last change sent, guarded by this subscriber
+        private long lastSent;
+
+        private Subscriber(String packageGuid, Set<String> resourceIds, Set<ResourceEventType> types,
+                SseEventSink sink, Sse sse) {
+            this.packageGuid = packageGuid;
+            this.resourceIds = resourceIds;
+            this.types = types;
+            this.sink = sink;
+            this.sse = sse;
+        }
+
+        private boolean accepts(ResourceChangeEvent resourceChangeEvent) {
+            return (resourceIds.isEmpty() || resourceIds.contains(resourceChangeEvent.getResourceId()))
+                    && (types.isEmpty() || types.contains(resourceChangeEvent.getChangeInfo()));
+        }
+
+        private synchronized void deliver(ResourceChangeEvent resourceChangeEvent, String data) {
+            long sequence = resourceChangeEvent.getSequence();
+            if (sequence != 0 && sequence <= lastSent) {
+                return;
+            }
+            OutboundSseEvent.Builder event = sse.newEventBuilder().name(resourceChangeEvent.getChangeInfo().name())
+                    .mediaType(MediaType.APPLICATION_JSON_TYPE).data(String.class, data);
+            if (sequence != 0) {
+                event.id(String.valueOf(sequence));
+                lastSent = sequence;
+            }
+            send(event.build());
+        }
+
+        private void send(OutboundSseEvent event) {
+            if (sink.isClosed()) {
+                unsubscribe(this);
+                return;
+            }
+            try {
+                sink.send(event).whenComplete((result, error) -> {
+                    if (error != null) {
+                        log.debug("Package event stream closed " + error.getMessage());
+                        unsubscribe(this);
+                        sink.close();
+                    }
+                });
+            } catch (RuntimeException e) {
+                unsubscribe(this);
+            }
+        }
+    }
+}
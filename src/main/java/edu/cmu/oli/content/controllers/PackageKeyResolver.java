@@ -0,0 +1,119 @@
+package edu.cmu.oli.content.controllers;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import edu.cmu.oli.content.ResourceException;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent.ResourceEventType;
+import edu.cmu.oli.content.logging.Logging;
+import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
+import org.slf4j.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.ws.rs.core.Response;
+import java.util.List;
+
+/**
+ * Resolves package references of the form "pkgId-version" or a package guid to the content package entity.
+ * <p>
+ * The "pkgId-version" to guid mapping is kept in a bounded cache so repeated REST calls against the same package
+ * skip the id/version query and go straight to an entity lookup by primary key. Misses are never cached, and a cached
+ * guid that no longer resolves to the same id and version is dropped and looked up again.
+ *
+ * @author Raphael Gachuhi
+ */
+@ApplicationScoped
+public class PackageKeyResolver {
+
+    private static final int MAX_CACHED_KEYS = 5000;
+
+    @Inject
+    @Logging
+    Logger log;
+
+    @PersistenceContext
+    EntityManager em;
+
+    private final Cache<String, String> guidsByKey = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_KEYS).build();
+
+    public ContentPackage findContentPackage(String packageIdOrGuid) {
+        ContentPackage contentPackage = null;
+        Boolean isIdAndVersion = packageIdOrGuid.contains("-");
+        try {
+            if (isIdAndVersion) {
+                String pkgId = packageIdOrGuid.substring(0, packageIdOrGuid.lastIndexOf("-"));
+                String version = packageIdOrGuid.substring(packageIdOrGuid.lastIndexOf("-") + 1);
+                contentPackage = findByIdAndVersion(pkgId, version);
+            } else {
+                String packageGuid = packageIdOrGuid;
+                contentPackage = em.find(ContentPackage.class, packageGuid);
+            }
+
+            if (contentPackage == null) {
+                String message = "Error: package requested was not found " + packageIdOrGuid;
+                log.error(message);
+                throw new ResourceException(Response.Status.NOT_FOUND, packageIdOrGuid, message);
+            }
+
+        } catch (IllegalArgumentException e) {
+            String message = "Server Error while locating package " + packageIdOrGuid;
+            log.error(message);
+            throw new ResourceException(Response.Status.INTERNAL_SERVER_ERROR, packageIdOrGuid, message);
+        }
+        return contentPackage;
+    }
+
+    private ContentPackage findByIdAndVersion(String pkgId, String version) {
+        String key = key(pkgId, version);
+        String guid = guidsByKey.getIfPresent(key);
+        if (guid != null) {
+            ContentPackage contentPackage = em.find(ContentPackage.class, guid);
+            if (contentPackage != null && pkgId.equals(contentPackage.getId())
+                    && version.equals(contentPackage.getVersion())) {
+                return contentPackage;
+            }
+            guidsByKey.invalidate(key);
+        }
+
+        TypedQuery<ContentPackage> q = em.createNamedQuery("ContentPackage.findByIdAndVersion", ContentPackage.class)
+                .setParameter("id", pkgId).setParameter("version", version);
+        List<ContentPackage> resultList = q.getResultList();
+        if (resultList.isEmpty()) {
+            return null;
+        }
+        ContentPackage contentPackage = resultList.get(0);
+        guidsByKey.put(key, contentPackage.getGuid());
+        return contentPackage;
+    }
+
+    /**
+     * Drops the cached guid for a package id and version; call whenever a package with that key is created.
+     */
+    public void invalidate(String pkgId, String version) {
+        guidsByKey.invalidate(key(pkgId, version));
+    }
+
+    /**
+     * Drops every cached key that resolves to the given package guid; call whenever that package is removed.
+     */
+    public void invalidateGuid(String packageGuid) {
+        guidsByKey.asMap().values().removeIf(packageGuid::equals);
+    }
+
+    public void onResourceChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) ResourceChangeEvent resourceChangeEvent) {
+        if (resourceChangeEvent.getChangeInfo() == ResourceEventType.RESOURCE_DELETED
+                && resourceChangeEvent.getResourceId() != null) {
+            invalidateGuid(resourceChangeEvent.getResourceId());
+        }
+    }
+
+    private static String key(String pkgId, String version) {
+        return pkgId + "-" + version;
+    }
+}
@@ -0,0 +1,75 @@
+package edu.cmu.oli.content.controllers;
+
+import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
+import edu.cmu.oli.content.models.persistance.entities.Resource;
+import edu.cmu.oli.content.models.persistance.entities.RevisionBlob;
+import org.hibernate.jpa.QueryHints;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Loads a content package together with the associations needed to serialize it in full, in a fixed number of
+ * queries regardless of package size.
+ * <p>
+ * Resources and web contents are both lists, so they cannot be join fetched in one query; each is loaded through its
+ * own entity graph along with the eager one-to-one associations of its elements.
+ *
+ * @author Raphael Gachuhi
+ */
+@ApplicationScoped
+public class PackageLoader {
+
+    @PersistenceContext
+    EntityManager em;
+
+    /**
+     * Initializes resources (with file nodes and last revisions) and web contents (with file nodes) of a managed
+     * package.
+     */
+    public ContentPackage loadGraph(ContentPackage contentPackage) {
+        fetchGraph(contentPackage, "ContentPackage.withResources");
+        fetchGraph(contentPackage, "ContentPackage.withWebContents");
+        return contentPackage;
+    }
+
+    /**
+     * Loads the last revision bodies of the given resources in a single query, so that reading them afterwards does
+     * not issue a select per resource.
+     *
+     * @return the loaded blobs by guid
+     */
+    public Map<String, RevisionBlob> prefetchLastRevisionBodies(Collection<Resource> resources) {
+        // Blob ids are read from the uninitialized proxies without loading them
+        Set<String> blobGuids = resources.stream()
+                .filter(resource -> resource.getLastRevision() != null && resource.getLastRevision().getBody() != null)
+                .map(resource -> resource.getLastRevision().getBody().getGuid())
+                .collect(Collectors.toSet());
+        if (blobGuids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        CriteriaBuilder cb = em.getCriteriaBuilder();
+        CriteriaQuery<RevisionBlob> criteria = cb.createQuery(RevisionBlob.class);
+        Root<RevisionBlob> blobRoot = criteria.from(RevisionBlob.class);
+        criteria.select(blobRoot).where(blobRoot.get("guid").in(blobGuids));
+        return em.createQuery(criteria).getResultList().stream()
+                .collect(Collectors.toMap(RevisionBlob::getGuid, Function.identity()));
+    }
+
+    private void fetchGraph(ContentPackage contentPackage, String graphName) {
+        em.createNamedQuery("ContentPackage.findByGuid", ContentPackage.class)
+                .setParameter("guid", contentPackage.getGuid())
+                .setHint(QueryHints.HINT_LOADGRAPH, em.getEntityGraph(graphName))
+                .getResultList();
+    }
+}
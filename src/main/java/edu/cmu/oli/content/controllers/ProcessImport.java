@@ -67,6 +67,9 @@ public class ProcessImport {
     @PersistenceContext
     EntityManager em;
 
+    @Inject
+    PackageKeyResolver packageKeyResolver;
+
     @Inject
     EdgesController edgesController;
 
@@ -94,6 +97,7 @@ public class ProcessImport {
             em.persist(newContentPackage);
             // flush to get autogenerated guid
             em.flush();
+            packageKeyResolver.invalidate(newContentPackage.getId(), newContentPackage.getVersion());
 
             securityManager.createResource(newContentPackage.getGuid(), "/packages/" + newContentPackage.getGuid(),
                     ContentPackageResource.resourceType,
@@ -0,0 +1,119 @@
+package edu.cmu.oli.content.controllers;
+
+import edu.cmu.oli.content.models.ResourceEditLock;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+/**
+ * SQL access to the resource_lock table. Each call commits on its own, so that a lock is visible to the other
+ * servers as soon as it is granted, whatever becomes of the caller's transaction.
+ * <p>
+ * Lease times are taken from the database clock, the one clock all servers share.
+ *
+ * @author Raphael Gachuhi
+ */
+@Stateless
+@TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+public class ResourceLockRepository {
+
+    private static final String NOW_MILLIS = "CAST(UNIX_TIMESTAMP(NOW(3)) * 1000 AS SIGNED)";
+
+    private static final String INSERT = "INSERT INTO resource_lock (resource_id, lock_id, locked_by, locked_at, "
+            + "expires_at) VALUES (?1, ?2, ?3, " + NOW_MILLIS + ", " + NOW_MILLIS + " + ?4)";
+
+    // MySQL applies the assignments in order, each one seeing the columns already assigned. locked_by is assigned
+    // after every column whose condition reads it or expires_at, and expires_at last, when locked_by already tells
+    // whether the lock was taken. The holder acquiring again keeps the lock id, so that callers can tell a renewal
+    // from a lock newly granted.
+    private static final String TAKE_OVER = "locked_by = VALUES(locked_by) OR expires_at < " + NOW_MILLIS;
+
+    private static final String ACQUIRE = INSERT + " ON DUPLICATE KEY UPDATE "
+            + "lock_id = IF(locked_by <> VALUES(locked_by) AND expires_at < " + NOW_MILLIS
+            + ", VALUES(lock_id), lock_id), "
+            + "locked_at = IF(" + TAKE_OVER + ", VALUES(locked_at), locked_at), "
+            + "locked_by = IF(" + TAKE_OVER + ", VALUES(locked_by), locked_by), "
+            + "expires_at = IF(" + TAKE_OVER + ", VALUES(expires_at), expires_at)";
+
+    private static final String REPLACE = INSERT + " ON DUPLICATE KEY UPDATE lock_id = VALUES(lock_id), "
+            + "locked_by = VALUES(locked_by), locked_at = VALUES(locked_at), expires_at = VALUES(expires_at)";
+
+    private static final String SELECT = "SELECT lock_id, resource_id, locked_by, locked_at FROM resource_lock "
+            + "WHERE resource_id = ?1";
+
+    @PersistenceContext
+    EntityManager em;
+
+    public ResourceEditLock acquire(String resourceId, String lockId, String user, long leaseMillis) {
+        write(ACQUIRE, resourceId, lockId, user, leaseMillis);
+        return find(resourceId);
+    }
+
+    public ResourceEditLock replace(String resourceId, String lockId, String user, long leaseMillis) {
+        write(REPLACE, resourceId, lockId, user, leaseMillis);
+        return find(resourceId);
+    }
+
+    public ResourceEditLock findOrCreate(String resourceId, String lockId, String user, long leaseMillis) {
+        write(INSERT.replaceFirst("INSERT", "INSERT IGNORE"), resourceId, lockId, user, leaseMillis);
+        return find(resourceId);
+    }
+
+    public ResourceEditLock find(String resourceId) {
+        List<?> rows = em.createNativeQuery(SELECT).setParameter(1, resourceId).getResultList();
+        if (rows.isEmpty()) {
+            return null;
+        }
+        Object[] row = (Object[]) rows.get(0);
+        return new ResourceEditLock((String) row[0], (String) row[1], (String) row[2], ((Number) row[3]).longValue());
+    }
+
+    public ResourceEditLock renew(String resourceId, String user, long leaseMillis) {
+        em.createNativeQuery("UPDATE resource_lock SET locked_at = " + NOW_MILLIS + ", expires_at = " + NOW_MILLIS
+                + " + ?3 WHERE resource_id = ?1 AND locked_by = ?2").setParameter(1, resourceId)
+                .setParameter(2, user).setParameter(3, leaseMillis).executeUpdate();
+        return find(resourceId);
+    }
+
+    public int release(String resourceId, String user) {
+        return em.createNativeQuery("DELETE FROM resource_lock WHERE resource_id = ?1 AND locked_by = ?2")
+                .setParameter(1, resourceId).setParameter(2, user).executeUpdate();
+    }
+
+    public int remove(String resourceId) {
+        return em.createNativeQuery("DELETE FROM resource_lock WHERE resource_id = ?1").setParameter(1, resourceId)
+                .executeUpdate();
+    }
+
+    /**
+     * Deletes the leases that expired more than retentionMillis ago.
+     */
+    public int evictExpired(long retentionMillis) {
+        return em.createNativeQuery("DELETE FROM resource_lock WHERE expires_at < " + NOW_MILLIS + " - ?1")
+                .setParameter(1, retentionMillis).executeUpdate();
+    }
+
+    /**
+     * Number of leases not expired.
+     */
+    public long count() {
+        return ((Number) em.createNativeQuery("SELECT COUNT(*) FROM resource_lock WHERE expires_at >= "
+                + NOW_MILLIS).getSingleResult()).longValue();
+    }
+
+    /**
+     * Current time on the database clock, in milliseconds.
+     */
+    public long now() {
+        return ((Number) em.createNativeQuery("SELECT " + NOW_MILLIS).getSingleResult()).longValue();
+    }
+
+    private void write(String sql, String resourceId, String lockId, String user, long leaseMillis) {
+        em.createNativeQuery(sql).setParameter(1, resourceId).setParameter(2, lockId).setParameter(3, user)
+                .setParameter(4, leaseMillis).executeUpdate();
+    }
+}
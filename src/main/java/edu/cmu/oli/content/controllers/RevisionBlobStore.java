@@ -0,0 +1,145 @@
+package edu.cmu.oli.content.controllers;
+
+import edu.cmu.oli.content.logging.Logging;
+import edu.cmu.oli.content.models.persistance.entities.RevisionBlob;
+import org.slf4j.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Content addressed access to revision blobs. New blobs are interned against existing blobs with the same content
+ * hash so that saving unchanged content, or versioning a package, reuses the stored payload instead of writing a
+ * new copy.
+ * <p>
+ * Because blobs are shared, they are not removed with the revisions referencing them. Blobs left unreferenced are
+ * deleted through {@link #deleteOrphans(Collection)}, which like {@link #intern(RevisionBlob)} write locks the blob
+ * rows it considers: a blob being reused is never deleted, and a blob being deleted is never reused.
+ *
+ * @author Raphael Gachuhi
+ */
+@ApplicationScoped
+public class RevisionBlobStore {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Inject
+    @Logging
+    Logger log;
+
+    @PersistenceContext
+    EntityManager em;
+
+    /**
+     * Returns an existing blob holding the same payload as the candidate, marked as shared, or the candidate itself
+     * when no such blob exists yet.
+     */
+    public RevisionBlob intern(RevisionBlob candidate) {
+        Optional<RevisionBlob> existing = findMatch(candidate);
+        if (!existing.isPresent()) {
+            return candidate;
+        }
+        RevisionBlob revisionBlob = existing.get();
+        if (!revisionBlob.isShared()) {
+            revisionBlob.setShared(true);
+        }
+        log.debug("Reusing revision blob " + revisionBlob.getGuid() + " hash=" + revisionBlob.getContentHash());
+        return revisionBlob;
+    }
+
+    /**
+     * Finds a blob, other than the one supplied, holding exactly the same payload. The match is write locked until
+     * the transaction ends, so that it cannot be deleted as an orphan before the caller references it.
+     */
+    public Optional<RevisionBlob> findMatch(RevisionBlob revisionBlob) {
+        if (revisionBlob.getContentHash() == null) {
+            return Optional.empty();
+        }
+        TypedQuery<RevisionBlob> q = em.createNamedQuery("RevisionBlob.findByContentHash", RevisionBlob.class);
+        q.setParameter("contentHash", revisionBlob.getContentHash());
+        q.setLockMode(LockModeType.PESSIMISTIC_WRITE);
+        List<RevisionBlob> matches = q.getResultList();
+        return matches.stream()
+                .filter(match -> match != revisionBlob && !match.getGuid().equals(revisionBlob.getGuid()))
+                .filter(match -> match.samePayload(revisionBlob))
+                .findFirst();
+    }
+
+    /**
+     * Guids of the blobs referenced by the revisions of a package. Collect them before removing the package, then
+     * pass them to {@link #deleteOrphans(Collection)}.
+     */
+    public List<String> blobGuidsOf(String packageGuid) {
+        return em.createNamedQuery("RevisionBlob.findGuidsByPackage", String.class)
+                .setParameter("packageGuid", packageGuid)
+                .getResultList();
+    }
+
+    /**
+     * Deletes those of the given blobs that no revision references any longer, including revisions removed earlier
+     * in the current transaction.
+     *
+     * @return the number of blobs deleted
+     */
+    public int deleteOrphans(Collection<String> blobGuids) {
+        if (blobGuids.isEmpty()) {
+            return 0;
+        }
+        em.flush();
+        List<String> guids = new ArrayList<>(blobGuids);
+        int removed = 0;
+        for (int from = 0; from < guids.size(); from += BATCH_SIZE) {
+            List<String> batch = guids.subList(from, Math.min(from + BATCH_SIZE, guids.size()));
+            // Lock first: a concurrent intern either committed its reference already, or waits for the delete
+            List<RevisionBlob> blobs = em.createNamedQuery("RevisionBlob.findByGuids", RevisionBlob.class)
+                    .setParameter("guids", batch)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getResultList();
+            if (blobs.isEmpty()) {
+                continue;
+            }
+            Set<String> referenced = new HashSet<>(em.createNamedQuery("RevisionBlob.findReferencedGuids",
+                    String.class).setParameter("guids", batch).getResultList());
+            for (RevisionBlob blob : blobs) {
+                if (!referenced.contains(blob.getGuid())) {
+                    em.remove(blob);
+                    removed++;
+                }
+            }
+        }
+        em.flush();
+        log.debug("Orphaned revision blobs removed " + removed + " of " + guids.size());
+        return removed;
+    }
+
+    /**
+     * Deletes every blob no revision references, a batch at a time.
+     *
+     * @return the number of blobs deleted
+     */
+    public int purgeOrphans() {
+        int removed = 0;
+        String lastGuid = "";
+        while (true) {
+            List<String> orphans = em.createNamedQuery("RevisionBlob.findOrphanGuids", String.class)
+                    .setParameter("lastGuid", lastGuid)
+                    .setMaxResults(BATCH_SIZE)
+                    .getResultList();
+            if (orphans.isEmpty()) {
+                return removed;
+            }
+            lastGuid = orphans.get(orphans.size() - 1);
+            removed += deleteOrphans(orphans);
+        }
+    }
+}
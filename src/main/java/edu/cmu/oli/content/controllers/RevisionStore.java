@@ -0,0 +1,145 @@
+package edu.cmu.oli.content.controllers;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import edu.cmu.oli.content.logging.Logging;
+import edu.cmu.oli.content.models.persistance.JsonDelta;
+import edu.cmu.oli.content.models.persistance.JsonWrapper;
+import edu.cmu.oli.content.models.persistance.entities.Resource;
+import edu.cmu.oli.content.models.persistance.entities.Revision;
+import edu.cmu.oli.content.models.persistance.entities.RevisionBlob;
+import org.slf4j.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reverse delta revision history. The latest revision of a resource, the one before it and every revision whose
+ * number is a multiple of {@link #CHECKPOINT_INTERVAL} always hold a full payload. Older JSON revisions in between
+ * may be rewritten by {@link #encodeHistory(Resource)} to a delta against the next newer revision, so reading one
+ * walks forward at most {@link #CHECKPOINT_INTERVAL} revisions to a full payload and applies the deltas back.
+ *
+ * @author Raphael Gachuhi
+ */
+@ApplicationScoped
+public class RevisionStore {
+
+    public static final int CHECKPOINT_INTERVAL = 10;
+
+    @Inject
+    @Logging
+    Logger log;
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Inject
+    RevisionBlobStore revisionBlobStore;
+
+    /**
+     * Returns the full payload of a revision. Delta encoded revisions are reconstructed into a new, unmanaged blob.
+     */
+    public RevisionBlob payload(Revision revision) {
+        RevisionBlob body = revision.getBody();
+        if (!body.isDelta()) {
+            return body;
+        }
+        Deque<JsonObject> deltas = new ArrayDeque<>();
+        Revision current = revision;
+        while (current.getBody().isDelta()) {
+            deltas.push(current.getBody().getDelta());
+            current = next(current);
+            if (current == null) {
+                throw new IllegalStateException("Revision chain ends in a delta " + revision);
+            }
+        }
+        JsonWrapper checkpoint = current.getBody().getJsonPayload();
+        if (checkpoint == null) {
+            throw new IllegalStateException("Revision delta is not based on a json payload " + revision);
+        }
+        JsonElement content = checkpoint.getSharedJsonObject();
+        while (!deltas.isEmpty()) {
+            content = JsonDelta.apply(content, deltas.pop());
+        }
+        return new RevisionBlob(new JsonWrapper(content));
+    }
+
+    /**
+     * Rewrites full JSON payloads in the resource history to deltas wherever that takes less space. Replaced blobs
+     * are left for the orphan purge in RevisionBlobBatchProcessor.
+     *
+     * @return number of revisions encoded
+     */
+    public int encodeHistory(Resource resource) {
+        Revision lastRevision = resource.getLastRevision();
+        if (lastRevision == null) {
+            return 0;
+        }
+        Map<String, Revision> revisionsByGuid = new HashMap<>();
+        Map<String, Integer> childCounts = new HashMap<>();
+        for (Revision revision : resource.getRevisions()) {
+            revisionsByGuid.put(revision.getGuid(), revision);
+            if (revision.getPreviousRevision() != null) {
+                childCounts.merge(revision.getPreviousRevision(), 1, Integer::sum);
+            }
+        }
+
+        // Newest first, following previous revision links within this resource
+        List<Revision> chain = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        for (Revision revision = lastRevision; revision != null && visited.add(revision.getGuid());
+             revision = revisionsByGuid.get(revision.getPreviousRevision())) {
+            chain.add(revision);
+        }
+
+        int encoded = 0;
+        JsonElement newer = null;
+        for (int i = 1; i < chain.size(); i++) {
+            Revision revision = chain.get(i);
+            RevisionBlob body = revision.getBody();
+            JsonElement content;
+            if (body.isDelta()) {
+                content = newer == null ? null : JsonDelta.apply(newer, body.getDelta());
+            } else {
+                content = body.getJsonPayload() == null ? null : body.getJsonPayload().getSharedJsonObject();
+            }
+
+            // The latest revision can still change within an editing session, so nothing is encoded against it.
+            // A revision with more than one successor cannot be reconstructed unambiguously.
+            boolean encodable = i >= 2 && newer != null && content != null && !body.isDelta()
+                    && revision.getRevisionNumber() % CHECKPOINT_INTERVAL != 0
+                    && childCounts.getOrDefault(revision.getGuid(), 0) == 1;
+            if (encodable) {
+                RevisionBlob delta = RevisionBlob.delta(JsonDelta.diff(newer, content));
+                if (delta.storedSize() < body.storedSize()) {
+                    revision.setBody(revisionBlobStore.intern(delta));
+                    encoded++;
+                }
+            }
+            newer = content;
+        }
+        if (encoded > 0) {
+            log.debug("Resource " + resource.getId() + " revisions delta encoded " + encoded);
+        }
+        return encoded;
+    }
+
+    private Revision next(Revision revision) {
+        List<Revision> next = em.createNamedQuery("Revision.findNextInResource", Revision.class)
+                .setParameter("previousRevision", revision.getGuid())
+                .setParameter("resource", revision.getResource())
+                .setMaxResults(1)
+                .getResultList();
+        return next.isEmpty() ? null : next.get(0);
+    }
+}
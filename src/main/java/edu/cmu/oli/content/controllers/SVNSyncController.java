@@ -13,8 +13,7 @@ import edu.cmu.oli.content.logging.Logging;
 import edu.cmu.oli.content.models.persistance.JsonWrapper;
 import edu.cmu.oli.content.models.persistance.entities.*;
 import edu.cmu.oli.content.resource.builders.*;
-import edu.cmu.oli.content.resource.validators.BaseResourceValidator;
-import edu.cmu.oli.content.resource.validators.ResourceValidator;
+import edu.cmu.oli.content.resource.validators.ValidatorRegistry;
 import edu.cmu.oli.content.svnmanager.SVNManager;
 import org.jboss.ejb3.annotation.TransactionTimeout;
 import org.jdom2.Document;
@@ -91,6 +90,12 @@ public class SVNSyncController {
     @Inject
     LockController lockController;
 
+    @Inject
+    RevisionBlobStore revisionBlobStore;
+
+    @Inject
+    ValidatorRegistry validatorRegistry;
+
     // :FIXME: avoid use of global state, not good for horizontal scaling. Distributed cache is a better option
     static final Map<String, Boolean> repos = new ConcurrentHashMap<>();
 
@@ -786,8 +791,9 @@ public class SVNSyncController {
             content = gson.toJson(jsonElement);
         }
 
-        RevisionBlob revisionBlob = jsonCapable ? new RevisionBlob(new JsonWrapper(new JsonParser().parse(content)))
-                : new RevisionBlob(xmlContent);
+        RevisionBlob revisionBlob = revisionBlobStore.intern(jsonCapable
+                ? new RevisionBlob(new JsonWrapper(new JsonParser().parse(content)))
+                : new RevisionBlob(xmlContent));
         Revision revision = new Revision(resource, resource.getLastRevision(), revisionBlob, "SVNSync");
         revision.setRevisionType(Revision.RevisionType.SYSTEM);
         resource.addRevision(revision);
@@ -1014,8 +1020,9 @@ public class SVNSyncController {
         }
 
         // Create ContentResource file
-        RevisionBlob revisionBlob = jsonCapable ? new RevisionBlob(new JsonWrapper(new JsonParser().parse(content)))
-                : new RevisionBlob(xmlContent);
+        RevisionBlob revisionBlob = revisionBlobStore.intern(jsonCapable
+                ? new RevisionBlob(new JsonWrapper(new JsonParser().parse(content)))
+                : new RevisionBlob(xmlContent));
         Revision revision = new Revision(resource, resource.getLastRevision(), revisionBlob, "SVNSync");
         revision.setRevisionType(Revision.RevisionType.SYSTEM);
         resource.addRevision(revision);
@@ -1037,26 +1044,7 @@ public class SVNSyncController {
             Document document = builder.build(new StringReader(xmlContent));
             log.debug("resource.getType() " + resource.getType());
             //log.debug("XML Content \n" + xmlContent);
-            ResourceValidator validator = new BaseResourceValidator();
-            validator.initValidator(resource, document, false);
-            validator.validate();
-            Configurations serviceConfig = this.configuration.get();
-            JsonObject resourceTypeDefinition = serviceConfig.getResourceTypeById(resource.getType());
-            if (resourceTypeDefinition == null || !resourceTypeDefinition.has("validatorClass")) {
-                String message = resource.getType() + " has no validator class";
-                log.error(message);
-            } else {
-                String validatorClass = resourceTypeDefinition.get("validatorClass").getAsString();
-                try {
-                    Class<?> aClass = Class.forName(validatorClass);
-                    ResourceValidator resourceValidator = (ResourceValidator) AppUtils.lookupCDIBean(aClass);
-                    resourceValidator.initValidator(resource, document, false);
-                    resourceValidator.validate();
-                } catch (ClassNotFoundException e) {
-                    String message = resource.getType() + " validator class not found";
-                    log.error(message);
-                }
-            }
+            validatorRegistry.validate(resource, document, false);
             return Optional.of(document);
         } catch (JDOMException | RuntimeException e) {
             log.error("\n\nValidation issues file=" + resource.getFileNode().getPathFrom() + "\n" + e.getMessage() + "\n" + xmlContent, e);
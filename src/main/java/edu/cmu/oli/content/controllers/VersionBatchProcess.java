@@ -72,6 +72,9 @@ public class VersionBatchProcess {
     @PersistenceContext
     EntityManager em;
 
+    @Inject
+    RevisionBlobStore revisionBlobStore;
+
     public void versionProcess(String pkgGuid, Map<String, String> revsMap, Set<String> jobIds, String jobId) {
         log.info("versionProcess");
         try {
@@ -92,7 +95,8 @@ public class VersionBatchProcess {
 
             List<Revision> revisions = em.createQuery(rcriteria).getResultList();
             revisions.forEach(rev -> {
-                RevisionBlob revisionBlob = rev.getBody().cloneVersion();
+                // New versions start from identical content, so share the payload whenever it is already stored
+                RevisionBlob revisionBlob = revisionBlobStore.intern(rev.getBody().cloneVersion());
 
                 String resourceGuid = revsMap.get(rev.getGuid());
                 Optional<Resource> first = resourceList.stream().filter(r -> r.getGuid().equals(resourceGuid)).findAny();
@@ -120,8 +124,10 @@ public class VersionBatchProcess {
         if (existingPkg != null) {
             log.debug("Removing existing package: id " + existingPkg.getId() + " version " + existingPkg.getVersion());
             try {
+                List<String> blobGuids = revisionBlobStore.blobGuidsOf(existingPkg.getGuid());
                 em.remove(existingPkg);
                 em.flush();
+                revisionBlobStore.deleteOrphans(blobGuids);
             } catch (Throwable t) {
             }
 
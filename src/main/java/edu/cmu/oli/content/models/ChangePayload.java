@@ -2,6 +2,7 @@ package edu.cmu.oli.content.models;
 
 import com.google.gson.JsonElement;
 import com.google.gson.annotations.Expose;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent;
 
 import java.io.Serializable;
 
@@ -18,6 +19,12 @@ public class ChangePayload implements Serializable {
     public ResourceEventType changeInfo;
     @Expose()
     public JsonElement payload;
+    @Expose()
+    public String revision;
+    @Expose()
+    public Integer merged;
+    @Expose()
+    public Long sequence;
 
     public ChangePayload() {
     }
@@ -26,4 +33,13 @@ public class ChangePayload implements Serializable {
         this.resourceId = resourceId;
     }
 
+    public ChangePayload(ResourceChangeEvent resourceChangeEvent) {
+        this.resourceId = resourceChangeEvent.getResourceId();
+        this.changeInfo = resourceChangeEvent.getChangeInfo();
+        this.payload = resourceChangeEvent.getEventPayload();
+        this.revision = resourceChangeEvent.getRevision();
+        this.merged = resourceChangeEvent.getMerged();
+        this.sequence = resourceChangeEvent.getSequence();
+    }
+
 }
@@ -0,0 +1,135 @@
+package edu.cmu.oli.content.models;
+
+import com.google.gson.annotations.Expose;
+import edu.cmu.oli.content.models.persistance.entities.BuildStatus;
+import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
+import edu.cmu.oli.content.models.persistance.entities.WebContent;
+
+import java.util.Date;
+
+/**
+ * Listing view of a content package, populated by JPQL constructor expressions so that package listings never
+ * load the package document, indexes or other JSON columns.
+ *
+ * @author Raphael Gachuhi
+ */
+public class ContentPackageSummary {
+
+    public static final String SELECT = "SELECT NEW edu.cmu.oli.content.models.ContentPackageSummary(p.guid, "
+            + "p.id, p.version, p.type, p.title, p.description, p.editable, p.visible, p.language, p.theme, "
+            + "p.parentPackage, p.packageFamily, p.deploymentStatus, p.buildStatus, p.dateCreated, p.dateUpdated, "
+            + "f.pathTo) FROM ContentPackage p LEFT JOIN p.icon i LEFT JOIN i.fileNode f ";
+
+    @Expose()
+    private String guid;
+
+    @Expose()
+    private String id;
+
+    @Expose()
+    private String version;
+
+    @Expose()
+    private String type;
+
+    @Expose()
+    private String title;
+
+    @Expose()
+    private String description;
+
+    @Expose()
+    private Boolean editable;
+
+    @Expose()
+    private Boolean visible;
+
+    @Expose()
+    private String language;
+
+    @Expose()
+    private String theme;
+
+    @Expose()
+    private String parentPackage;
+
+    @Expose()
+    private String packageFamily;
+
+    @Expose()
+    private ContentPackage.DeploymentStatus deploymentStatus;
+
+    @Expose()
+    private BuildStatus buildStatus;
+
+    @Expose()
+    private Date dateCreated;
+
+    @Expose()
+    private Date dateUpdated;
+
+    @Expose()
+    private String iconPath;
+
+    public ContentPackageSummary(String guid, String id, String version, String type, String title,
+                                 String description, Boolean editable, Boolean visible, String language, String theme,
+                                 String parentPackage, String packageFamily,
+                                 ContentPackage.DeploymentStatus deploymentStatus, BuildStatus buildStatus,
+                                 Date dateCreated, Date dateUpdated, String iconPath) {
+        this.guid = guid;
+        this.id = id;
+        this.version = version;
+        this.type = type;
+        this.title = title;
+        this.description = description;
+        this.editable = editable;
+        this.visible = visible;
+        this.language = language;
+        this.theme = theme;
+        this.parentPackage = parentPackage;
+        this.packageFamily = packageFamily;
+        this.deploymentStatus = deploymentStatus;
+        this.buildStatus = buildStatus;
+        this.dateCreated = dateCreated;
+        this.dateUpdated = dateUpdated;
+        this.iconPath = iconPath;
+    }
+
+    /**
+     * Summary of a package that is not (yet) persisted, such as one still being imported.
+     */
+    public static ContentPackageSummary of(ContentPackage contentPackage) {
+        WebContent icon = contentPackage.getIcon();
+        String iconPath = icon != null && icon.getFileNode() != null ? icon.getFileNode().getPathTo() : null;
+        return new ContentPackageSummary(contentPackage.getGuid(), contentPackage.getId(), contentPackage.getVersion(),
+                contentPackage.getType(), contentPackage.getTitle(), contentPackage.getDescription(),
+                contentPackage.getEditable(), contentPackage.getVisible(), contentPackage.getLanguage(),
+                contentPackage.getTheme(), contentPackage.getParentPackage(), contentPackage.getPackageFamily(),
+                contentPackage.getDeploymentStatus(), contentPackage.getBuildStatus(), contentPackage.getDateCreated(),
+                contentPackage.getDateUpdated(), iconPath);
+    }
+
+    public String getGuid() {
+        return guid;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Boolean getVisible() {
+        return visible;
+    }
+
+    public BuildStatus getBuildStatus() {
+        return buildStatus;
+    }
+}
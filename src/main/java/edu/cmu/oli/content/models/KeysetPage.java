@@ -0,0 +1,36 @@
+package edu.cmu.oli.content.models;
+
+import com.google.gson.annotations.Expose;
+
+import java.util.List;
+
+/**
+ * Basic POJO for keyset paginated responses. The next page is requested by passing {@code next} back as the
+ * {@code after} parameter; {@code next} is null on the last page.
+ *
+ * @param <T> Result Type
+ */
+public class KeysetPage<T> {
+    @Expose()
+    private String after;
+
+    @Expose()
+    private int limit;
+
+    @Expose()
+    private String next;
+
+    @Expose()
+    private long numResults;
+
+    @Expose()
+    private List<T> results;
+
+    public KeysetPage(String after, int limit, String next, List<T> results) {
+        this.after = after;
+        this.limit = limit;
+        this.next = next;
+        this.numResults = results.size();
+        this.results = results;
+    }
+}
@@ -0,0 +1,65 @@
+package edu.cmu.oli.content.models;
+
+import com.google.gson.annotations.Expose;
+
+/**
+ * Snapshot of the edit lock table size and of the lock churn since the server started.
+ *
+ * @author Raphael Gachuhi
+ */
+public final class LockStats {
+
+    // Locks currently held, expired leases not yet swept included
+    @Expose
+    long active;
+
+    @Expose
+    long acquired;
+
+    @Expose
+    long renewed;
+
+    @Expose
+    long released;
+
+    // Acquire attempts turned down because another user held the lock
+    @Expose
+    long contended;
+
+    // Leases that ran out, whether swept or taken over by another user
+    @Expose
+    long expired;
+
+    public LockStats(long active, long acquired, long renewed, long released, long contended, long expired) {
+        this.active = active;
+        this.acquired = acquired;
+        this.renewed = renewed;
+        this.released = released;
+        this.contended = contended;
+        this.expired = expired;
+    }
+
+    public long getActive() {
+        return active;
+    }
+
+    public long getAcquired() {
+        return acquired;
+    }
+
+    public long getRenewed() {
+        return renewed;
+    }
+
+    public long getReleased() {
+        return released;
+    }
+
+    public long getContended() {
+        return contended;
+    }
+
+    public long getExpired() {
+        return expired;
+    }
+}
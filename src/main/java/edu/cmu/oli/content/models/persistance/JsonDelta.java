@@ -0,0 +1,126 @@
+package edu.cmu.oli.content.models.persistance;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.Map;
+
+/**
+ * Structural difference between two JSON documents.
+ * <p>
+ * A delta is itself a JSON object in one of three shapes:
+ * <ul>
+ * <li>{@code {"v": value}} replaces the base value outright</li>
+ * <li>{@code {"o": {key: delta}, "r": [key]}} patches the changed members of an object and removes the listed
+ * keys</li>
+ * <li>{@code {"a": {index: delta}, "n": length}} patches the changed elements of an array and resizes it</li>
+ * </ul>
+ * An empty object means the two documents are equal.
+ *
+ * @author Raphael Gachuhi
+ */
+public final class JsonDelta {
+
+    private JsonDelta() {
+    }
+
+    /**
+     * Computes the delta which, applied to {@code base}, produces {@code target}.
+     */
+    public static JsonObject diff(JsonElement base, JsonElement target) {
+        JsonObject delta = diffElement(base, target);
+        return delta == null ? new JsonObject() : delta;
+    }
+
+    /**
+     * Applies a delta produced by {@link #diff(JsonElement, JsonElement)}, returning a new document. The base is
+     * left unmodified.
+     */
+    public static JsonElement apply(JsonElement base, JsonObject delta) {
+        if (delta.size() == 0) {
+            return base == null ? null : base.deepCopy();
+        }
+        if (delta.has("v")) {
+            return delta.get("v").deepCopy();
+        }
+        if (delta.has("o")) {
+            JsonObject patched = base.getAsJsonObject().deepCopy();
+            if (delta.has("r")) {
+                delta.getAsJsonArray("r").forEach(key -> patched.remove(key.getAsString()));
+            }
+            for (Map.Entry<String, JsonElement> member : delta.getAsJsonObject("o").entrySet()) {
+                JsonElement current = patched.get(member.getKey());
+                patched.add(member.getKey(), apply(current, member.getValue().getAsJsonObject()));
+            }
+            return patched;
+        }
+        JsonArray source = base.getAsJsonArray();
+        JsonObject changes = delta.getAsJsonObject("a");
+        int length = delta.get("n").getAsInt();
+        JsonArray patched = new JsonArray();
+        for (int i = 0; i < length; i++) {
+            JsonElement current = i < source.size() ? source.get(i) : JsonNull.INSTANCE;
+            JsonElement change = changes.get(Integer.toString(i));
+            patched.add(change == null ? current.deepCopy() : apply(current, change.getAsJsonObject()));
+        }
+        return patched;
+    }
+
+    private static JsonObject diffElement(JsonElement base, JsonElement target) {
+        if (base == null ? target == null : base.equals(target)) {
+            return null;
+        }
+        if (base != null && target != null && base.isJsonObject() && target.isJsonObject()) {
+            return diffObject(base.getAsJsonObject(), target.getAsJsonObject());
+        }
+        if (base != null && target != null && base.isJsonArray() && target.isJsonArray()) {
+            return diffArray(base.getAsJsonArray(), target.getAsJsonArray());
+        }
+        return replace(target);
+    }
+
+    private static JsonObject diffObject(JsonObject base, JsonObject target) {
+        JsonObject changes = new JsonObject();
+        JsonArray removed = new JsonArray();
+        for (Map.Entry<String, JsonElement> member : base.entrySet()) {
+            if (!target.has(member.getKey())) {
+                removed.add(new JsonPrimitive(member.getKey()));
+            }
+        }
+        for (Map.Entry<String, JsonElement> member : target.entrySet()) {
+            JsonObject change = diffElement(base.get(member.getKey()), member.getValue());
+            if (change != null) {
+                changes.add(member.getKey(), change);
+            }
+        }
+        JsonObject delta = new JsonObject();
+        delta.add("o", changes);
+        if (removed.size() > 0) {
+            delta.add("r", removed);
+        }
+        return delta;
+    }
+
+    private static JsonObject diffArray(JsonArray base, JsonArray target) {
+        JsonObject changes = new JsonObject();
+        for (int i = 0; i < target.size(); i++) {
+            JsonObject change = i < base.size() ? diffElement(base.get(i), target.get(i)) : replace(target.get(i));
+            if (change != null) {
+                changes.add(Integer.toString(i), change);
+            }
+        }
+        JsonObject delta = new JsonObject();
+        delta.add("a", changes);
+        delta.addProperty("n", target.size());
+        return delta;
+    }
+
+    private static JsonObject replace(JsonElement target) {
+        JsonObject delta = new JsonObject();
+        delta.add("v", target == null ? JsonNull.INSTANCE : target.deepCopy());
+        return delta;
+    }
+}
@@ -1,5 +1,6 @@
 package edu.cmu.oli.content.models.persistance;
 
+import com.google.common.hash.Hashing;
 import com.google.gson.*;
 import edu.cmu.oli.content.AppUtils;
 
@@ -10,6 +11,11 @@ import java.io.ObjectOutput;
 import java.util.Objects;
 
 /**
+ * Holds a JSON column value as its serialized string together with a lazily parsed tree.
+ * <p>
+ * The string is the source of truth; the tree is parsed on first access and memoized until the
+ * wrapper is given a new value through {@link #setJsonObject(JsonElement)} or deserialization.
+ *
  * @author Raphael Gachuhi
  */
 public class JsonWrapper implements Externalizable {
@@ -18,6 +24,12 @@ public class JsonWrapper implements Externalizable {
     private static final Gson gson = AppUtils.gsonBuilder().create();
     private String jsonString;
 
+    // Memoized parse of jsonString, never handed out directly to callers that may mutate it
+    private transient JsonElement jsonTree;
+    // Memoized content hash of jsonString, used by JsonWrapperType for dirty checking
+    private transient long fingerprint;
+    private transient boolean fingerprinted;
+
     public JsonWrapper() {
     }
 
@@ -29,26 +41,79 @@ public class JsonWrapper implements Externalizable {
         this.jsonString = gson.toJson(jsonObject);
     }
 
+    /**
+     * A wrapper sharing this wrapper's string, and its fingerprint if one has already been computed.
+     */
+    JsonWrapper copy() {
+        JsonWrapper copy = new JsonWrapper(jsonString);
+        copy.fingerprint = fingerprint;
+        copy.fingerprinted = fingerprinted;
+        return copy;
+    }
+
+    /**
+     * Returns a private copy of the JSON tree which the caller is free to modify. Changes are not
+     * reflected in this wrapper unless passed back through {@link #setJsonObject(JsonElement)}.
+     */
     public JsonElement getJsonObject() {
-        return jp.parse(jsonString);
+        JsonElement tree = parsedTree();
+        return tree == null ? null : tree.deepCopy();
+    }
+
+    /**
+     * Returns the memoized JSON tree without copying it. The returned tree is shared by every
+     * caller of this method and must be treated as read-only.
+     */
+    public JsonElement getSharedJsonObject() {
+        return parsedTree();
     }
 
     public JsonElement serializeJson() {
-        return jp.parse(jsonString);
+        return getJsonObject();
     }
 
     public void setJsonObject(JsonElement jsonObject) {
         this.jsonString = gson.toJson(jsonObject);
+        invalidate();
     }
 
     public String getAsString() {
         return jsonString;
     }
 
+    /**
+     * A 64 bit content hash of the JSON string, computed once per value.
+     */
+    public long fingerprint() {
+        if (!fingerprinted) {
+            fingerprint = jsonString == null ? 0L
+                    : Hashing.murmur3_128().hashUnencodedChars(jsonString).asLong();
+            fingerprinted = true;
+        }
+        return fingerprint;
+    }
+
+    boolean isFingerprinted() {
+        return fingerprinted;
+    }
+
+    private JsonElement parsedTree() {
+        if (jsonTree == null && jsonString != null) {
+            jsonTree = jp.parse(jsonString);
+        }
+        return jsonTree;
+    }
+
+    private void invalidate() {
+        this.jsonTree = null;
+        this.fingerprinted = false;
+    }
+
     @Override
     public void writeExternal(ObjectOutput out) throws IOException {
         if (this.jsonString == null) {
             this.jsonString = gson.toJson(JsonNull.INSTANCE);
+            invalidate();
         }
         out.writeObject(jsonString);
     }
@@ -57,6 +122,7 @@ public class JsonWrapper implements Externalizable {
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
         String jsonString = (String) in.readObject();
         this.jsonString = jsonString;
+        invalidate();
     }
 
     @Override
@@ -64,11 +130,14 @@ public class JsonWrapper implements Externalizable {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         JsonWrapper that = (JsonWrapper) o;
+        if (this.jsonString == that.jsonString) return true;
+        // Fingerprints only short-circuit when both are already known; never hash just to compare
+        if (this.fingerprinted && that.fingerprinted && this.fingerprint != that.fingerprint) return false;
         return Objects.equals(this.jsonString, that.jsonString);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(jsonString);
+        return Long.hashCode(fingerprint());
     }
 }
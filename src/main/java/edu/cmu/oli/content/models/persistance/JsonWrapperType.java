@@ -33,7 +33,8 @@ public class JsonWrapperType implements UserType {
             return null;
         }
         try {
-            return new JsonWrapper(((JsonWrapper) value).getAsString());
+            // Snapshots share the string, so unchanged values compare by identity without hashing or parsing
+            return ((JsonWrapper) value).copy();
 //            return new JsonWrapper(AppUtils.gsonBuilder().create().fromJson(AppUtils.gsonBuilder().create().toJson(((JsonWrapper) value).getJsonObject()), JsonElement.class));
         } catch (Exception ex) {
             throw new HibernateException(ex);
@@ -65,6 +66,10 @@ public class JsonWrapperType implements UserType {
         if (obj1 == null) {
             return obj2 == null;
         }
+        if (obj2 == null) {
+            return false;
+        }
+        // Identical strings compare in constant time; known fingerprints rule out most changed values
         return obj1.equals(obj2);
     }
 
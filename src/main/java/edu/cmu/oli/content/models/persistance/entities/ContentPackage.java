@@ -1,10 +1,13 @@
 package edu.cmu.oli.content.models.persistance.entities;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.annotations.Expose;
 import edu.cmu.oli.content.models.persistance.JsonWrapper;
 import io.swagger.v3.oas.annotations.media.Schema;
 import org.hibernate.annotations.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.jpa.QueryHints;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,15 +33,26 @@ import java.util.*;
  * @author Raphael Gachuhi
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @DynamicUpdate
 @Table(name = "content_package", uniqueConstraints = { @UniqueConstraint(columnNames = { "id", "version" }) })
 @XmlRootElement
 @XmlAccessorType(XmlAccessType.FIELD)
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = "ContentPackage.withResources",
+                attributeNodes = @NamedAttributeNode(value = "resources", subgraph = "resource"),
+                subgraphs = @NamedSubgraph(name = "resource",
+                        attributeNodes = { @NamedAttributeNode("fileNode"), @NamedAttributeNode("lastRevision") })),
+        @NamedEntityGraph(name = "ContentPackage.withWebContents",
+                attributeNodes = @NamedAttributeNode(value = "webContents", subgraph = "webContent"),
+                subgraphs = @NamedSubgraph(name = "webContent", attributeNodes = @NamedAttributeNode("fileNode"))) })
 @NamedQueries({ @NamedQuery(name = "ContentPackage.findAll", query = "SELECT p FROM ContentPackage p"),
         @NamedQuery(name = "ContentPackage.findByGuid", query = "SELECT p FROM ContentPackage p WHERE p.guid = :guid"),
         @NamedQuery(name = "ContentPackage.findById", query = "SELECT p FROM ContentPackage p WHERE p.id = :id"),
         @NamedQuery(name = "ContentPackage.findByVersion", query = "SELECT p FROM ContentPackage p WHERE p.version = :version"),
-        @NamedQuery(name = "ContentPackage.findByIdAndVersion", query = "SELECT p FROM ContentPackage p WHERE p.id = :id AND p.version = :version"),
+        @NamedQuery(name = "ContentPackage.findByIdAndVersion", query = "SELECT p FROM ContentPackage p WHERE p.id = :id AND p.version = :version",
+                hints = { @QueryHint(name = QueryHints.HINT_CACHEABLE, value = "true") }),
         @NamedQuery(name = "ContentPackage.findByTitle", query = "SELECT p FROM ContentPackage p WHERE p.title = :title"),
         @NamedQuery(name = "ContentPackage.findByMoreLink", query = "SELECT p FROM ContentPackage p WHERE p.moreLink = :moreLink"),
         @NamedQuery(name = "ContentPackage.findByVisible", query = "SELECT p FROM ContentPackage p WHERE p.visible = :visible"),
@@ -231,6 +245,27 @@ public class ContentPackage implements Serializable {
     @Type(type = "json")
     private JsonWrapper skillsIndex;
 
+    // Extra lazy, so that indexing a single resource reads and writes only the entries it names
+    @Schema(hidden = true)
+    @XmlTransient
+    @OneToMany(mappedBy = "contentPackage", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @LazyCollection(LazyCollectionOption.EXTRA)
+    @MapKey(name = "objectiveId")
+    private Map<String, ObjectiveIndexEntry> objectiveIndexEntries = new HashMap<>();
+
+    @Schema(hidden = true)
+    @XmlTransient
+    @OneToMany(mappedBy = "contentPackage", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @LazyCollection(LazyCollectionOption.EXTRA)
+    @MapKey(name = "skillId")
+    private Map<String, SkillIndexEntry> skillIndexEntries = new HashMap<>();
+
+    // Set once the objective and skill index tables have been populated from the json indexes
+    @Schema(hidden = true)
+    @XmlTransient
+    @Column(name = "learning_indexed")
+    private boolean learningIndexed;
+
     @Schema(hidden = true)
     @XmlTransient
     @OneToMany(mappedBy = "contentPackage", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
@@ -508,6 +543,101 @@ public class ContentPackage implements Serializable {
         this.skillsIndex = skillsIndex;
     }
 
+    public Map<String, ObjectiveIndexEntry> getObjectiveIndexEntries() {
+        return objectiveIndexEntries;
+    }
+
+    public Map<String, SkillIndexEntry> getSkillIndexEntries() {
+        return skillIndexEntries;
+    }
+
+    /**
+     * Records the objectives currently defined by a resource, and drops the entries of the objectives it defined
+     * before and no longer defines. Only the entries named are read or written.
+     */
+    public void indexObjectives(String resourceId, Set<String> droppedIds, Set<String> objectiveIds) {
+        droppedIds.forEach(objectiveId -> {
+            ObjectiveIndexEntry entry = objectiveIndexEntries.get(objectiveId);
+            if (entry != null && entry.getResourceId().equals(resourceId) && !objectiveIds.contains(objectiveId)) {
+                objectiveIndexEntries.remove(objectiveId);
+            }
+        });
+        objectiveIds.forEach(objectiveId -> {
+            ObjectiveIndexEntry entry = objectiveIndexEntries.get(objectiveId);
+            if (entry == null) {
+                objectiveIndexEntries.put(objectiveId, new ObjectiveIndexEntry(this, objectiveId, resourceId));
+            } else if (!entry.getResourceId().equals(resourceId)) {
+                entry.setResourceId(resourceId);
+            }
+        });
+    }
+
+    /**
+     * Records the skills currently defined by a resource, and drops the entries of the skills it defined before and
+     * no longer defines. Only the entries named are read or written.
+     */
+    public void indexSkills(String resourceId, Set<String> droppedIds, Set<String> skillIds) {
+        droppedIds.forEach(skillId -> {
+            SkillIndexEntry entry = skillIndexEntries.get(skillId);
+            if (entry != null && entry.getResourceId().equals(resourceId) && !skillIds.contains(skillId)) {
+                skillIndexEntries.remove(skillId);
+            }
+        });
+        skillIds.forEach(skillId -> {
+            SkillIndexEntry entry = skillIndexEntries.get(skillId);
+            if (entry == null) {
+                skillIndexEntries.put(skillId, new SkillIndexEntry(this, skillId, resourceId));
+            } else if (!entry.getResourceId().equals(resourceId)) {
+                entry.setResourceId(resourceId);
+            }
+        });
+    }
+
+    public boolean isLearningIndexed() {
+        return learningIndexed;
+    }
+
+    /**
+     * Populates the objective and skill index tables from the JSON indexes, once per package, for packages indexed
+     * before the tables existed. Later changes are recorded resource by resource.
+     *
+     * @return true if any entry was added
+     */
+    public boolean backfillLearningIndexes() {
+        if (learningIndexed) {
+            return false;
+        }
+        learningIndexed = true;
+        boolean backfilled = false;
+        if (objectivesIndex != null) {
+            Map<String, Set<String>> objectives = resourceIdsByKey(objectivesIndex);
+            objectives.forEach((resourceId, ids) -> indexObjectives(resourceId, Collections.emptySet(), ids));
+            backfilled = !objectives.isEmpty();
+        }
+        if (skillsIndex != null) {
+            Map<String, Set<String>> skills = resourceIdsByKey(skillsIndex);
+            skills.forEach((resourceId, ids) -> indexSkills(resourceId, Collections.emptySet(), ids));
+            backfilled |= !skills.isEmpty();
+        }
+        return backfilled;
+    }
+
+    private static Map<String, Set<String>> resourceIdsByKey(JsonWrapper index) {
+        Map<String, Set<String>> keysByResource = new HashMap<>();
+        JsonElement json = index.getSharedJsonObject();
+        if (json == null || !json.isJsonObject()) {
+            return keysByResource;
+        }
+        json.getAsJsonObject().entrySet().forEach(e -> {
+            JsonElement resourceId = e.getValue().isJsonObject() ? e.getValue().getAsJsonObject().get("resourceId")
+                    : null;
+            if (resourceId != null && resourceId.isJsonPrimitive()) {
+                keysByResource.computeIfAbsent(resourceId.getAsString(), k -> new HashSet<>()).add(e.getKey());
+            }
+        });
+        return keysByResource;
+    }
+
     public void addResource(Resource resource) {
         this.resources.add(resource);
     }
@@ -620,6 +750,11 @@ public class ContentPackage implements Serializable {
 
         versionClone.objectivesIndex = this.objectivesIndex;
         versionClone.skillsIndex = this.skillsIndex;
+        this.objectiveIndexEntries.values().forEach(entry -> versionClone.objectiveIndexEntries
+                .put(entry.getObjectiveId(), new ObjectiveIndexEntry(versionClone, entry.getObjectiveId(),
+                        entry.getResourceId())));
+        this.skillIndexEntries.values().forEach(entry -> versionClone.skillIndexEntries
+                .put(entry.getSkillId(), new SkillIndexEntry(versionClone, entry.getSkillId(), entry.getResourceId())));
 
         this.webContents.forEach(webContent -> {
             WebContent webcontentClone = webContent.cloneVersion(webContentVolume);
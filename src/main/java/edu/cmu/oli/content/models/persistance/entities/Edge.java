@@ -3,6 +3,8 @@ package edu.cmu.oli.content.models.persistance.entities;
 import com.google.gson.annotations.Expose;
 import edu.cmu.oli.content.models.persistance.JsonWrapper;
 import io.swagger.v3.oas.annotations.media.Schema;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.Type;
@@ -23,7 +25,12 @@ import java.util.Date;
  * @author Raphael Gachuhi
  */
 @Entity
-@Table(name = "edge")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "edge", indexes = {
+        @Index(columnList = "content_package_guid,source_resource_id", name = "idx_edge_source"),
+        @Index(columnList = "content_package_guid,destination_resource_id,status", name = "idx_edge_destination"),
+        @Index(columnList = "content_package_guid,reference_type", name = "idx_edge_reference_type") })
 @XmlRootElement
 @XmlAccessorType(XmlAccessType.FIELD)
 @NamedQueries({
@@ -37,7 +44,13 @@ import java.util.Date;
         ,
         @NamedQuery(name = "Edge.findByDateCreated", query = "SELECT r FROM Edge r WHERE r.dateCreated = :dateCreated")
         ,
-        @NamedQuery(name = "Edge.findByDateUpdated", query = "SELECT r FROM Edge r WHERE r.dateUpdated = :dateUpdated")})
+        @NamedQuery(name = "Edge.findByDateUpdated", query = "SELECT r FROM Edge r WHERE r.dateUpdated = :dateUpdated")
+        ,
+        @NamedQuery(name = "Edge.findBySourceResource", query = "SELECT r FROM Edge r "
+                + "WHERE r.contentPackage.guid = :packageGuid AND r.sourceResourceId = :resourceId")
+        ,
+        @NamedQuery(name = "Edge.findByDestinationResources", query = "SELECT r FROM Edge r "
+                + "WHERE r.contentPackage.guid = :packageGuid AND r.destinationResourceId IN :resourceIds")})
 public class Edge implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -74,6 +87,10 @@ public class Edge implements Serializable {
     @Column(name = "sourceId")
     private String sourceId;
 
+    // Resource id part of sourceId, kept in its own column so lookups within a package can use an index
+    @Column(name = "source_resource_id")
+    private String sourceResourceId;
+
     @Expose()
     @Transient
     private String sourceGuid;
@@ -89,6 +106,9 @@ public class Edge implements Serializable {
     @Column(name = "destinationId")
     private String destinationId;
 
+    @Column(name = "destination_resource_id")
+    private String destinationResourceId;
+
     @Expose()
     @Transient
     private String destinationGuid;
@@ -144,7 +164,9 @@ public class Edge implements Serializable {
         this.dateCreated = new Date();
         this.dateUpdated = (Date) dateCreated.clone();
         this.sourceId = sourceId;
+        this.sourceResourceId = resourceId(sourceId);
         this.destinationId = destinationId;
+        this.destinationResourceId = resourceId(destinationId);
         this.sourceType = sourceType;
         this.destinationType = destinationType;
         this.referenceType = referenceType;
@@ -164,6 +186,11 @@ public class Edge implements Serializable {
 
     public void setSourceId(String sourceId) {
         this.sourceId = sourceId;
+        this.sourceResourceId = resourceId(sourceId);
+    }
+
+    public String getSourceResourceId() {
+        return sourceResourceId;
     }
 
     public String getDestinationId() {
@@ -172,6 +199,11 @@ public class Edge implements Serializable {
 
     public void setDestinationId(String destinationId) {
         this.destinationId = destinationId;
+        this.destinationResourceId = resourceId(destinationId);
+    }
+
+    public String getDestinationResourceId() {
+        return destinationResourceId;
     }
 
     public PurposeType getPurpose() {
@@ -277,6 +309,8 @@ public class Edge implements Serializable {
         versionClone.sourceId = packageId + ":" + version + ":" + this.sourceId.split(":")[2];
         versionClone.sourceType = this.sourceType;
         versionClone.destinationId = packageId + ":" + version + ":" + this.destinationId.split(":")[2];
+        versionClone.sourceResourceId = resourceId(versionClone.sourceId);
+        versionClone.destinationResourceId = resourceId(versionClone.destinationId);
         versionClone.destinationType = this.destinationType;
         versionClone.referenceType = this.referenceType;
         versionClone.status = EdgeStatus.NOT_VALIDATED;
@@ -285,6 +319,13 @@ public class Edge implements Serializable {
 
     }
 
+    /**
+     * Resource id part of a "packageId:version:resourceId" edge end.
+     */
+    public static String resourceId(String edgeId) {
+        return edgeId == null ? null : edgeId.substring(edgeId.lastIndexOf(":") + 1);
+    }
+
     @Override
     public String toString() {
         return "Edge{" +
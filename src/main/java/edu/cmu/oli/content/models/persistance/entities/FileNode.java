@@ -2,6 +2,8 @@ package edu.cmu.oli.content.models.persistance.entities;
 
 import com.google.gson.annotations.Expose;
 import io.swagger.v3.oas.annotations.media.Schema;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.UpdateTimestamp;
@@ -25,6 +27,8 @@ import java.util.Objects;
  * @author Raphael Gachuhi
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "file_node", indexes = {
         @Index(columnList = "volume_location", name = "volume_location_idx")
 })
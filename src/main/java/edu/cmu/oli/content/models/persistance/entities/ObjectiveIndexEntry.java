@@ -0,0 +1,113 @@
+package edu.cmu.oli.content.models.persistance.entities;
+
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Relational form of one entry of {@link ContentPackage#getObjectivesIndex()}: the resource defining an objective
+ * within a package.
+ *
+ * @author Raphael Gachuhi
+ */
+@Entity
+@Table(name = "objective_index", indexes = {
+        @Index(columnList = "package_guid,objective_id", name = "idx_objective_index_objective"),
+        @Index(columnList = "package_guid,resource_id", name = "idx_objective_index_resource") })
+@NamedQueries({
+        @NamedQuery(name = "ObjectiveIndexEntry.findIdsByResource",
+                query = "SELECT e.objectiveId FROM ObjectiveIndexEntry e "
+                        + "WHERE e.contentPackage.guid = :packageGuid AND e.resourceId = :resourceId")
+        ,
+        @NamedQuery(name = "ObjectiveIndexEntry.findIdsIn",
+                query = "SELECT e.objectiveId FROM ObjectiveIndexEntry e "
+                        + "WHERE e.contentPackage.guid = :packageGuid AND e.objectiveId IN :objectiveIds")})
+public class ObjectiveIndexEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Basic(optional = false)
+    @NotNull
+    @Size(min = 1, max = 32)
+    @Column(name = "guid")
+    @GeneratedValue(generator = "uuid")
+    @GenericGenerator(name = "uuid", strategy = "uuid")
+    @Access(AccessType.PROPERTY)
+    private String guid;
+
+    @NotNull
+    @JoinColumn(name = "package_guid", referencedColumnName = "guid")
+    @ManyToOne(fetch = FetchType.LAZY)
+    private ContentPackage contentPackage;
+
+    @NotNull
+    @Size(max = 255)
+    @Column(name = "objective_id")
+    private String objectiveId;
+
+    @NotNull
+    @Size(max = 255)
+    @Column(name = "resource_id")
+    private String resourceId;
+
+    public ObjectiveIndexEntry() {
+    }
+
+    public ObjectiveIndexEntry(ContentPackage contentPackage, String objectiveId, String resourceId) {
+        this.contentPackage = contentPackage;
+        this.objectiveId = objectiveId;
+        this.resourceId = resourceId;
+    }
+
+    public String getGuid() {
+        return guid;
+    }
+
+    public void setGuid(String guid) {
+        this.guid = guid;
+    }
+
+    public ContentPackage getContentPackage() {
+        return contentPackage;
+    }
+
+    public void setContentPackage(ContentPackage contentPackage) {
+        this.contentPackage = contentPackage;
+    }
+
+    public String getObjectiveId() {
+        return objectiveId;
+    }
+
+    public String getResourceId() {
+        return resourceId;
+    }
+
+    public void setResourceId(String resourceId) {
+        this.resourceId = resourceId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(objectiveId, resourceId);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof ObjectiveIndexEntry)) {
+            return false;
+        }
+        ObjectiveIndexEntry other = (ObjectiveIndexEntry) object;
+        return Objects.equals(this.objectiveId, other.objectiveId) && Objects.equals(this.resourceId, other.resourceId);
+    }
+
+    @Override
+    public String toString() {
+        return "ObjectiveIndexEntry{" + "objectiveId=" + objectiveId + ", resourceId=" + resourceId + '}';
+    }
+}
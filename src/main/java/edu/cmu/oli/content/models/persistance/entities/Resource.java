@@ -4,6 +4,8 @@ import com.google.gson.JsonObject;
 import com.google.gson.annotations.Expose;
 import edu.cmu.oli.content.models.persistance.JsonWrapper;
 import io.swagger.v3.oas.annotations.media.Schema;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.Type;
@@ -26,6 +28,8 @@ import java.util.*;
  * @author Raphael Gachuhi
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "resource", indexes = { @Index(columnList = "id", name = "resource_id_idx") })
 @XmlRootElement
 @XmlAccessorType(XmlAccessType.FIELD)
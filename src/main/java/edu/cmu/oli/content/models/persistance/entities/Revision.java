@@ -31,6 +31,7 @@ import java.util.UUID;
 
         @NamedQuery(name = "Revision.findByResource", query = "SELECT r FROM Revision r WHERE r.resource = :resource"),
         @NamedQuery(name = "Revision.findByPreviousRevision", query = "SELECT r FROM Revision r WHERE r.previousRevision = :previousRevision"),
+        @NamedQuery(name = "Revision.findNextInResource", query = "SELECT r FROM Revision r WHERE r.previousRevision = :previousRevision AND r.resource = :resource"),
         @NamedQuery(name = "Revision.findByAuthor", query = "SELECT r FROM Revision r WHERE r.author = :author"),
         @NamedQuery(name = "Revision.findByRevisionType", query = "SELECT r FROM Revision r WHERE r.revisionType = :revisionType") })
 public class Revision implements Serializable {
@@ -71,8 +72,11 @@ public class Revision implements Serializable {
     @Column(name = "md5")
     private String md5;
 
+    // Blobs are content addressed and may be shared between revisions, so removal is not cascaded. Unreferenced
+    // blobs are deleted through RevisionBlobStore when their package is removed.
     @JoinColumn(name = "revision_blob_guid", referencedColumnName = "guid")
-    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
+    @ManyToOne(cascade = { CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REFRESH,
+            CascadeType.DETACH }, fetch = FetchType.LAZY)
     private RevisionBlob body;
 
     @Expose()
@@ -24,6 +24,9 @@
 
 package edu.cmu.oli.content.models.persistance.entities;
 
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.annotations.Expose;
 import edu.cmu.oli.content.models.persistance.JsonWrapper;
 import org.hibernate.annotations.CreationTimestamp;
@@ -39,11 +42,26 @@ import javax.validation.constraints.Size;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Objects;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
+ * Revision payload storage. Payloads are kept deflate compressed in {@code compressed_payload} and keyed by a
+ * SHA-256 {@code content_hash} so that identical revisions can share a single blob. Rows written before compression
+ * was introduced keep their payload in the legacy {@code json_payload}/{@code xml_payload} columns until they are
+ * backfilled by {@link #compact()}.
+ *
  * @author Raphael Gachuhi
  */
 @Entity
@@ -52,11 +70,24 @@ import java.util.Objects;
 @XmlAccessorType(XmlAccessType.FIELD)
 @NamedQueries({
         @NamedQuery(name = "RevisionBlob.findAll", query = "SELECT r FROM RevisionBlob r"),
-        @NamedQuery(name = "RevisionBlob.findByGuid", query = "SELECT r FROM RevisionBlob r WHERE r.guid = :guid")})
+        @NamedQuery(name = "RevisionBlob.findByGuid", query = "SELECT r FROM RevisionBlob r WHERE r.guid = :guid"),
+        @NamedQuery(name = "RevisionBlob.findByContentHash", query = "SELECT r FROM RevisionBlob r WHERE r.contentHash = :contentHash"),
+        @NamedQuery(name = "RevisionBlob.findUncompressedGuids", query = "SELECT r.guid FROM RevisionBlob r WHERE r.contentHash IS NULL AND r.guid > :lastGuid ORDER BY r.guid"),
+        @NamedQuery(name = "RevisionBlob.findByGuids", query = "SELECT b FROM RevisionBlob b WHERE b.guid IN :guids"),
+        @NamedQuery(name = "RevisionBlob.findGuidsByPackage", query = "SELECT DISTINCT r.body.guid FROM Revision r WHERE r.resource.contentPackage.guid = :packageGuid"),
+        @NamedQuery(name = "RevisionBlob.findReferencedGuids", query = "SELECT DISTINCT r.body.guid FROM Revision r WHERE r.body.guid IN :guids"),
+        @NamedQuery(name = "RevisionBlob.findOrphanGuids", query = "SELECT b.guid FROM RevisionBlob b WHERE b.guid > :lastGuid AND NOT EXISTS (SELECT r FROM Revision r WHERE r.body = b) ORDER BY b.guid")})
 public class RevisionBlob implements Serializable {
     private static final Logger log = LoggerFactory.getLogger(RevisionBlob.class);
 
     private static final long serialVersionUID = 1L;
+
+    public enum PayloadFormat {
+        JSON, XML,
+        // A JsonDelta against the payload of the next revision in the same resource, see RevisionStore
+        JSON_DELTA
+    }
+
     @Expose()
     @Version
     private long rev;
@@ -81,6 +112,25 @@ public class RevisionBlob implements Serializable {
     @Column(name = "xml_payload")
     private String xmlPayload;
 
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payload_format", length = 8)
+    private PayloadFormat payloadFormat;
+
+    @Lob
+    @Column(name = "compressed_payload", columnDefinition = "LONGBLOB")
+    private byte[] compressedPayload;
+
+    // Set once more than one revision references this blob; shared blobs must never be modified in place
+    @Column(name = "shared")
+    private boolean shared;
+
+    // Inflated payload, populated on first read or on write
+    private transient JsonWrapper jsonCache;
+    private transient String xmlCache;
+
     @Expose()
     @Column(name = "date_created", columnDefinition = "DATETIME", updatable = false)
     @Temporal(TemporalType.TIMESTAMP)
@@ -102,13 +152,13 @@ public class RevisionBlob implements Serializable {
     public RevisionBlob(JsonWrapper jsonPayload) {
         this.dateCreated = new Date();
         this.dateUpdated = (Date) dateCreated.clone();
-        this.jsonPayload = jsonPayload;
+        setJsonPayload(jsonPayload);
     }
 
     public RevisionBlob(String xmlPayload) {
         this.dateCreated = new Date();
         this.dateUpdated = (Date) dateCreated.clone();
-        this.xmlPayload = xmlPayload;
+        setXmlPayload(xmlPayload);
     }
 
     public String getGuid() {
@@ -120,26 +170,175 @@ public class RevisionBlob implements Serializable {
     }
 
     public JsonWrapper getJsonPayload() {
-        return jsonPayload;
+        if (compressedPayload == null) {
+            return jsonPayload;
+        }
+        if (payloadFormat != PayloadFormat.JSON) {
+            return null;
+        }
+        if (jsonCache == null) {
+            jsonCache = new JsonWrapper(inflate(compressedPayload));
+        }
+        return jsonCache;
     }
 
     public void setJsonPayload(JsonWrapper body) {
-        this.jsonPayload = body;
+        storePayload(PayloadFormat.JSON, body == null ? null : body.getAsString());
+        this.jsonCache = body;
     }
 
     public String getXmlPayload() {
-        return xmlPayload;
+        if (compressedPayload == null) {
+            return xmlPayload;
+        }
+        if (payloadFormat != PayloadFormat.XML) {
+            return null;
+        }
+        if (xmlCache == null) {
+            xmlCache = inflate(compressedPayload);
+        }
+        return xmlCache;
     }
 
     public void setXmlPayload(String xmlPayload) {
-        this.xmlPayload = xmlPayload;
+        storePayload(PayloadFormat.XML, xmlPayload);
+        this.xmlCache = xmlPayload;
+    }
+
+    /**
+     * Creates a blob holding a delta rather than a full payload. Delta blobs are only ever read through
+     * RevisionStore, which reconstructs the full payload.
+     */
+    public static RevisionBlob delta(JsonObject delta) {
+        RevisionBlob revisionBlob = new RevisionBlob();
+        revisionBlob.storePayload(PayloadFormat.JSON_DELTA, delta.toString());
+        return revisionBlob;
+    }
+
+    public boolean isDelta() {
+        return payloadFormat == PayloadFormat.JSON_DELTA;
+    }
+
+    public JsonObject getDelta() {
+        if (!isDelta()) {
+            return null;
+        }
+        return new JsonParser().parse(inflate(compressedPayload)).getAsJsonObject();
+    }
+
+    /**
+     * Size in bytes of the stored payload, compressed where it has been compressed.
+     */
+    public int storedSize() {
+        if (compressedPayload != null) {
+            return compressedPayload.length;
+        }
+        String body = getBody();
+        return body == null ? 0 : body.length();
     }
 
     public String getBody() {
+        JsonWrapper json = getJsonPayload();
+        if (json != null) {
+            return json.getAsString();
+        }
+        return getXmlPayload();
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public PayloadFormat getPayloadFormat() {
+        return payloadFormat;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    public void setShared(boolean shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * Moves a payload still held in the legacy uncompressed columns into compressed, content addressed form.
+     *
+     * @return true if this blob was modified
+     */
+    public boolean compact() {
+        if (compressedPayload != null) {
+            return false;
+        }
         if (jsonPayload != null) {
-            return jsonPayload.getAsString();
+            setJsonPayload(jsonPayload);
+            return true;
+        }
+        if (xmlPayload != null) {
+            setXmlPayload(xmlPayload);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * True if the other blob holds exactly the same payload as this one.
+     */
+    public boolean samePayload(RevisionBlob other) {
+        return contentHash != null && contentHash.equals(other.contentHash)
+                && Arrays.equals(compressedPayload, other.compressedPayload);
+    }
+
+    private void storePayload(PayloadFormat format, String payload) {
+        this.jsonPayload = null;
+        this.xmlPayload = null;
+        this.jsonCache = null;
+        this.xmlCache = null;
+        if (payload == null) {
+            this.contentHash = null;
+            this.payloadFormat = null;
+            this.compressedPayload = null;
+            return;
+        }
+        String hash = contentHash(format, payload);
+        // Leave the compressed column untouched when the content has not changed so no update is issued
+        if (!hash.equals(this.contentHash)) {
+            this.contentHash = hash;
+            this.payloadFormat = format;
+            this.compressedPayload = deflate(payload);
+        }
+    }
+
+    static String contentHash(PayloadFormat format, String payload) {
+        return Hashing.sha256().newHasher()
+                .putString(format.name(), StandardCharsets.UTF_8)
+                .putByte((byte) 0)
+                .putString(payload, StandardCharsets.UTF_8)
+                .hash().toString();
+    }
+
+    static byte[] deflate(String payload) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new DeflaterOutputStream(bytes)) {
+            out.write(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return xmlPayload;
+        return bytes.toByteArray();
+    }
+
+    static String inflate(byte[] compressed) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(compressed.length * 4);
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
     }
 
     public Date getDateCreated() {
@@ -160,8 +359,16 @@ public class RevisionBlob implements Serializable {
 
     public RevisionBlob cloneVersion() {
         RevisionBlob versionClone = new RevisionBlob();
-        versionClone.jsonPayload = jsonPayload != null ? new JsonWrapper(this.jsonPayload.getAsString()) : null;
-        versionClone.xmlPayload = this.xmlPayload;
+        if (compressedPayload != null) {
+            // Compressed payloads are immutable, no need to inflate and compress again
+            versionClone.contentHash = this.contentHash;
+            versionClone.payloadFormat = this.payloadFormat;
+            versionClone.compressedPayload = this.compressedPayload;
+        } else if (jsonPayload != null) {
+            versionClone.setJsonPayload(new JsonWrapper(this.jsonPayload.getAsString()));
+        } else {
+            versionClone.setXmlPayload(this.xmlPayload);
+        }
 
         return versionClone;
     }
@@ -0,0 +1,113 @@
+package edu.cmu.oli.content.models.persistance.entities;
+
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Relational form of one entry of {@link ContentPackage#getSkillsIndex()}: the resource defining a skill within a
+ * package.
+ *
+ * @author Raphael Gachuhi
+ */
+@Entity
+@Table(name = "skill_index", indexes = {
+        @Index(columnList = "package_guid,skill_id", name = "idx_skill_index_skill"),
+        @Index(columnList = "package_guid,resource_id", name = "idx_skill_index_resource") })
+@NamedQueries({
+        @NamedQuery(name = "SkillIndexEntry.findIdsByResource",
+                query = "SELECT e.skillId FROM SkillIndexEntry e "
+                        + "WHERE e.contentPackage.guid = :packageGuid AND e.resourceId = :resourceId")
+        ,
+        @NamedQuery(name = "SkillIndexEntry.findIdsIn",
+                query = "SELECT e.skillId FROM SkillIndexEntry e "
+                        + "WHERE e.contentPackage.guid = :packageGuid AND e.skillId IN :skillIds")})
+public class SkillIndexEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Basic(optional = false)
+    @NotNull
+    @Size(min = 1, max = 32)
+    @Column(name = "guid")
+    @GeneratedValue(generator = "uuid")
+    @GenericGenerator(name = "uuid", strategy = "uuid")
+    @Access(AccessType.PROPERTY)
+    private String guid;
+
+    @NotNull
+    @JoinColumn(name = "package_guid", referencedColumnName = "guid")
+    @ManyToOne(fetch = FetchType.LAZY)
+    private ContentPackage contentPackage;
+
+    @NotNull
+    @Size(max = 255)
+    @Column(name = "skill_id")
+    private String skillId;
+
+    @NotNull
+    @Size(max = 255)
+    @Column(name = "resource_id")
+    private String resourceId;
+
+    public SkillIndexEntry() {
+    }
+
+    public SkillIndexEntry(ContentPackage contentPackage, String skillId, String resourceId) {
+        this.contentPackage = contentPackage;
+        this.skillId = skillId;
+        this.resourceId = resourceId;
+    }
+
+    public String getGuid() {
+        return guid;
+    }
+
+    public void setGuid(String guid) {
+        this.guid = guid;
+    }
+
+    public ContentPackage getContentPackage() {
+        return contentPackage;
+    }
+
+    public void setContentPackage(ContentPackage contentPackage) {
+        this.contentPackage = contentPackage;
+    }
+
+    public String getSkillId() {
+        return skillId;
+    }
+
+    public String getResourceId() {
+        return resourceId;
+    }
+
+    public void setResourceId(String resourceId) {
+        this.resourceId = resourceId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(skillId, resourceId);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof SkillIndexEntry)) {
+            return false;
+        }
+        SkillIndexEntry other = (SkillIndexEntry) object;
+        return Objects.equals(this.skillId, other.skillId) && Objects.equals(this.resourceId, other.resourceId);
+    }
+
+    @Override
+    public String toString() {
+        return "SkillIndexEntry{" + "skillId=" + skillId + ", resourceId=" + resourceId + '}';
+    }
+}
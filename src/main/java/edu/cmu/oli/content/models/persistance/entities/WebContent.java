@@ -3,6 +3,8 @@ package edu.cmu.oli.content.models.persistance.entities;
 import com.google.gson.annotations.Expose;
 import edu.cmu.oli.content.AppUtils;
 import io.swagger.v3.oas.annotations.media.Schema;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.UpdateTimestamp;
@@ -29,6 +31,8 @@ import java.util.UUID;
  * @author Raphael Gachuhi
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "web_content")
 @XmlRootElement
 @XmlAccessorType(XmlAccessType.FIELD)
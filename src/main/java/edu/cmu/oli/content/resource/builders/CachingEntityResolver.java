@@ -0,0 +1,141 @@
+package edu.cmu.oli.content.resource.builders;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Entity resolver keeping the content of every document type definition, DTD module and other external entity it
+ * resolves, shared by validating parsers.
+ * <p>
+ * Each validating parse used to resolve its DTD through the XML catalog and load it and all of its modules from disk,
+ * or from the DTD's server when the catalog has no entry. Entities are now loaded once, through the given resolver or
+ * from their system id, and later parses read them from memory. A cached entity keeps the system id it was loaded
+ * from, so that modules referenced relative to it resolve as before. Entities that fail to load are not cached.
+ * <p>
+ * Parses needing the same entity while it loads wait for that load only. At most {@link #MAX_ENTITIES} entities are
+ * kept, the least recently used ones are dropped first, since uploaded documents may name any system id. Entities
+ * not found through the given resolver are read from their system id with connect and read timeouts.
+ *
+ * @author Raphael Gachuhi
+ */
+public final class CachingEntityResolver implements EntityResolver {
+
+    static final int MAX_ENTITIES = 1000;
+    static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    static final int READ_TIMEOUT_MILLIS = 10000;
+
+    private static final Logger log = LoggerFactory.getLogger(CachingEntityResolver.class);
+
+    private final EntityResolver resolver;
+    private final Cache<String, CachedEntity> entities;
+
+    public CachingEntityResolver(EntityResolver resolver) {
+        this(resolver, MAX_ENTITIES);
+    }
+
+    CachingEntityResolver(EntityResolver resolver, int maxEntities) {
+        this.resolver = resolver;
+        this.entities = CacheBuilder.newBuilder().maximumSize(maxEntities).build();
+    }
+
+    @Override
+    public InputSource resolveEntity(String publicId, String systemId) throws SAXException, IOException {
+        if (systemId == null) {
+            return resolver.resolveEntity(publicId, null);
+        }
+        try {
+            // Loaded once per entity, parses needing other entities meanwhile do not wait for it
+            return entities.get(publicId + " " + systemId, () -> load(publicId, systemId)).inputSource(publicId);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SAXException(e);
+        }
+    }
+
+    long size() {
+        return entities.size();
+    }
+
+    private CachedEntity load(String publicId, String systemId) throws SAXException, IOException {
+        InputSource source = resolver.resolveEntity(publicId, systemId);
+        if (source == null) {
+            source = new InputSource(systemId);
+        }
+        String location = source.getSystemId() != null ? source.getSystemId() : systemId;
+        log.debug("Caching external entity publicId=" + publicId + " systemId=" + systemId + " from " + location);
+
+        if (source.getCharacterStream() != null) {
+            try (Reader reader = source.getCharacterStream()) {
+                StringBuilder text = new StringBuilder();
+                char[] buffer = new char[8192];
+                for (int n = reader.read(buffer); n != -1; n = reader.read(buffer)) {
+                    text.append(buffer, 0, n);
+                }
+                return new CachedEntity(location, null, text.toString(), null);
+            }
+        }
+        try (InputStream in = source.getByteStream() != null ? source.getByteStream() : open(location)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+                bytes.write(buffer, 0, n);
+            }
+            return new CachedEntity(location, bytes.toByteArray(), null, source.getEncoding());
+        }
+    }
+
+    private static InputStream open(String location) throws IOException {
+        URLConnection connection = new URL(location).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        return connection.getInputStream();
+    }
+
+    private static final class CachedEntity {
+        private final String systemId;
+        private final byte[] bytes;
+        private final String text;
+        private final String encoding;
+
+        CachedEntity(String systemId, byte[] bytes, String text, String encoding) {
+            this.systemId = systemId;
+            this.bytes = bytes;
+            this.text = text;
+            this.encoding = encoding;
+        }
+
+        InputSource inputSource(String publicId) {
+            InputSource source = text != null ? new InputSource(new StringReader(text))
+                    : new InputSource(new ByteArrayInputStream(bytes));
+            source.setPublicId(publicId);
+            source.setSystemId(systemId);
+            source.setEncoding(encoding);
+            return source;
+        }
+    }
+}
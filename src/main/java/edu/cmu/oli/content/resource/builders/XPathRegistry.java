@@ -0,0 +1,72 @@
+package edu.cmu.oli.content.resource.builders;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jdom2.filter.Filters;
+import org.jdom2.xpath.XPathExpression;
+import org.jdom2.xpath.XPathFactory;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled XPath element queries, shared by validators, writers and delivery instead of being compiled on every use.
+ * <p>
+ * Expressions are keyed by the query and the namespaces it is compiled with, and compiled once. A compiled expression
+ * holds no state while evaluating, so one instance is evaluated concurrently; only its variables are mutable, and
+ * expressions handed out here must not have any set. Queries must be constants, not built from document content.
+ *
+ * @author Raphael Gachuhi
+ */
+public final class XPathRegistry {
+
+    private static final Map<String, XPathExpression<Element>> elementQueries = new ConcurrentHashMap<>();
+
+    // Evaluated once before an expression is shared, so its lazily built evaluation context is safely published
+    private static final Document WARM_UP = new Document(new Element("warm-up"));
+
+    private XPathRegistry() {
+    }
+
+    /**
+     * Compiled query selecting elements.
+     */
+    public static XPathExpression<Element> elements(String query, Namespace... namespaces) {
+        return elementQueries.computeIfAbsent(key(query, namespaces), k -> compile(query, namespaces));
+    }
+
+    /**
+     * Compiled query selecting elements.
+     */
+    public static XPathExpression<Element> elements(String query, Collection<Namespace> namespaces) {
+        return elements(query, namespaces.toArray(new Namespace[0]));
+    }
+
+    static int size() {
+        return elementQueries.size();
+    }
+
+    private static XPathExpression<Element> compile(String query, Namespace[] namespaces) {
+        XPathExpression<Element> expression = XPathFactory.instance().compile(query, Filters.element(), null,
+                namespaces);
+        expression.evaluate(WARM_UP);
+        return expression;
+    }
+
+    private static String key(String query, Namespace[] namespaces) {
+        if (namespaces.length == 0) {
+            return query;
+        }
+        Namespace[] sorted = namespaces.clone();
+        Arrays.sort(sorted, Comparator.comparing(Namespace::getPrefix));
+        StringBuilder key = new StringBuilder(query);
+        for (Namespace namespace : sorted) {
+            key.append('\n').append(namespace.getPrefix()).append('=').append(namespace.getURI());
+        }
+        return key.toString();
+    }
+}
@@ -5,12 +5,11 @@ import edu.cmu.oli.content.AppUtils;
 import edu.cmu.oli.content.models.persistance.JsonWrapper;
 import edu.cmu.oli.content.models.persistance.entities.*;
 import edu.cmu.oli.content.resource.builders.ContentBuildUtils;
+import edu.cmu.oli.content.resource.builders.XPathRegistry;
 import org.jdom2.*;
-import org.jdom2.filter.Filters;
 import org.jdom2.output.Format;
 import org.jdom2.output.XMLOutputter;
 import org.jdom2.xpath.XPathExpression;
-import org.jdom2.xpath.XPathFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,7 +28,8 @@ public class BaseResourceValidator implements ResourceValidator {
     protected Document doc;
     protected boolean throwErrors;
 
-    private XPathFactory xFactory = XPathFactory.instance();
+    // Elements the checks below work on, gathered in one traversal of the document
+    private Matches matches;
 
     public BaseResourceValidator() {
     }
@@ -39,6 +39,7 @@ public class BaseResourceValidator implements ResourceValidator {
         this.rsrc = rsrc;
         this.doc = doc;
         this.throwErrors = throwErrors;
+        this.matches = null;
     }
 
     @Override
@@ -47,35 +48,46 @@ public class BaseResourceValidator implements ResourceValidator {
     }
 
     private void validateActivity() {
-        if (rsrc.getType().equalsIgnoreCase("x-oli-assessment2") ||
+        boolean fixEmptyParts = rsrc.getType().equalsIgnoreCase("x-oli-assessment2") ||
                 rsrc.getType().equalsIgnoreCase("x-oli-inline-assessment") ||
-                rsrc.getType().equalsIgnoreCase("x-oli-assessment2-pool")) {
-            fixEmptyPart();
-        }
-        fixEmptyElements();
+                rsrc.getType().equalsIgnoreCase("x-oli-assessment2-pool");
+        matches = new Matches(fixEmptyParts, true);
         validateActivity(false);
     }
 
-    private void fixEmptyPart() {
-        XPathExpression<Element> xexpression = xFactory.compile("//part", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
-        kids.forEach(element -> {
-            if (!element.hasAttributes() && element.getContent().isEmpty()) {
-                String s = (UUID.randomUUID()).toString();
-                element.setAttribute("id", s.substring(s.lastIndexOf("-")));
-            }
-        });
+    private Matches matches() {
+        if (matches == null) {
+            matches = new Matches(false, false);
+        }
+        return matches;
+    }
+
+    private static void fixEmptyPart(Element element) {
+        if (!element.hasAttributes() && element.getContent().isEmpty()) {
+            String s = (UUID.randomUUID()).toString();
+            element.setAttribute("id", s.substring(s.lastIndexOf("-")));
+        }
+    }
+
+    private static void fixEmptyElement(Element element) {
+        if (!element.hasAttributes() && element.getContent().isEmpty()) {
+            element.setAttribute("empty", "true");
+        }
     }
 
-    private void fixEmptyElements() {
-        XPathExpression<Element> xexpression = xFactory.compile("//p | //em | //th | //td | //sub | //sup " +
-                "| //li | //var | //bdo | //cite | //code | //formula | //ipa | //quote | //foreign", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
-        kids.forEach(element -> {
-            if (!element.hasAttributes() && element.getContent().isEmpty()) {
-                element.setAttribute("empty", "true");
+    // Same test as //*[contains(@src, 'webcontent/')] | //*[contains(text(),'webcontent/')], where text() compares
+    // the first text or CDATA child only
+    private static boolean referencesWebContent(Element element) {
+        String src = element.getAttributeValue("src");
+        if (src != null && src.contains("webcontent/")) {
+            return true;
+        }
+        for (Content content : element.getContent()) {
+            if (content instanceof Text) {
+                return ((Text) content).getText().contains("webcontent/");
             }
-        });
+        }
+        return false;
     }
 
     // :TODO: The following items could be validated, but are not currently.
@@ -129,8 +141,7 @@ public class BaseResourceValidator implements ResourceValidator {
 
     public void validateParagraphs() {
         // Locate all paragraphs in document
-        XPathExpression<Element> xexpression = xFactory.compile("//p", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = matches().paragraphs.elements();
 
         // For each paragraph...
         for (Element childElmnt : kids) {
@@ -146,8 +157,7 @@ public class BaseResourceValidator implements ResourceValidator {
     public void validateTitlesAndCaptions() {
 
         // Locate all titles and captions in document
-        XPathExpression<Element> xexpression = xFactory.compile("//title | //caption", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = matches().titlesAndCaptions.elements();
 
         // For each title or caption...
         for (Element childElmnt : kids) {
@@ -170,8 +180,7 @@ public class BaseResourceValidator implements ResourceValidator {
 
     public void validateDynamicPaths() {
         // Locate dynamic path elements in document
-        XPathExpression<Element> xexpression = xFactory.compile("//path", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = matches().paths.elements();
 
         // For each dynamic path...
         for (Element childElmnt : kids) {
@@ -186,8 +195,7 @@ public class BaseResourceValidator implements ResourceValidator {
     public void validateImages() {
 
         // Locate image elements in document
-        XPathExpression<Element> xexpression = xFactory.compile("//image", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = matches().images.elements();
 
         boolean altTextwarn = false;
 
@@ -234,8 +242,7 @@ public class BaseResourceValidator implements ResourceValidator {
     public void validateAudio() {
 
         // Locate audio elements in document
-        XPathExpression<Element> xexpression = xFactory.compile("//audio", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = matches().audio.elements();
 
         // For each audio...
         for (Element childElmnt : kids) {
@@ -252,8 +259,7 @@ public class BaseResourceValidator implements ResourceValidator {
 
         // Locate flash elements in document
 
-        XPathExpression<Element> xexpression = xFactory.compile("//flash", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = matches().flash.elements();
 
         // For each flash movie...
         for (Element childElmnt : kids) {
@@ -278,7 +284,7 @@ public class BaseResourceValidator implements ResourceValidator {
 
         // Was a problem or question file specified?
 
-        XPathExpression<Element> xexpression = xFactory.compile("params/param[@name='question_file']", Filters.element());
+        XPathExpression<Element> xexpression = XPathRegistry.elements("params/param[@name='question_file']");
         Element paramElmnt = xexpression.evaluateFirst(childElmnt);
 
         if (paramElmnt != null) {
@@ -293,8 +299,7 @@ public class BaseResourceValidator implements ResourceValidator {
     public void validateDirector() {
         // Locate director elements in document
 
-        XPathExpression<Element> xexpression = xFactory.compile("//director", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = matches().director.elements();
 
         // For each movie...
         for (Element childElmnt : kids) {
@@ -313,8 +318,7 @@ public class BaseResourceValidator implements ResourceValidator {
     public void validateMathematica() {
         // Locate mathematica elements in document
 
-        XPathExpression<Element> xexpression = xFactory.compile("//mathematica", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = matches().mathematica.elements();
 
         // For each video...
         for (Element childElmnt : kids) {
@@ -333,8 +337,7 @@ public class BaseResourceValidator implements ResourceValidator {
 
         // Locate unity elements in document
 
-        XPathExpression<Element> xexpression = xFactory.compile("//unity", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = matches().unity.elements();
 
         // For each unity...
         for (Element childElmnt : kids) {
@@ -353,8 +356,7 @@ public class BaseResourceValidator implements ResourceValidator {
     public void validateVideo() {
         // Locate video elements in document
 
-        XPathExpression<Element> xexpression = xFactory.compile("//video", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = matches().video.elements();
 
         // For each video...
         for (Element childElmnt : kids) {
@@ -393,8 +395,7 @@ public class BaseResourceValidator implements ResourceValidator {
 
         // Locate link elements in document
 
-        XPathExpression<Element> xexpression = xFactory.compile("//link", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = matches().links.elements();
 
         // For each link...
         for (Element childElmnt : kids) {
@@ -426,8 +427,7 @@ public class BaseResourceValidator implements ResourceValidator {
 
         // Locate speaker elements in document
 
-        XPathExpression<Element> xexpression = xFactory.compile("//speaker", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = matches().speakers.elements();
 
         // For each speaker...
         for (Element childElmnt : kids) {
@@ -467,8 +467,7 @@ public class BaseResourceValidator implements ResourceValidator {
 
         // Locate audio elements in document
 
-        XPathExpression<Element> xexpression = xFactory.compile("//pronunciation | //conjugate", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = matches().miscAudio.elements();
 
         // For each audio...
         for (Element childElmnt : kids) {
@@ -495,8 +494,7 @@ public class BaseResourceValidator implements ResourceValidator {
     public void validateDefinitions() {
         // Locate all definitions in document
 
-        XPathExpression<Element> xexpression = xFactory.compile("//definition", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = matches().definitions.elements();
 
         // For each definition...
         for (Element childElmnt : kids) {
@@ -526,8 +524,7 @@ public class BaseResourceValidator implements ResourceValidator {
     public void validateMixedContent() {
         // Locate all mixed content in document
 
-        XPathExpression<Element> xexpression = xFactory.compile("//code | //formula | //quote", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = matches().mixedContent.elements();
 
         // For each mixed content element...
         for (Element childElmnt : kids) {
@@ -565,8 +562,7 @@ public class BaseResourceValidator implements ResourceValidator {
     public void validatePopouts() {
         // Locate all popout directives in document
 
-        XPathExpression<Element> xexpression = xFactory.compile("//popout", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = matches().popouts.elements();
 
         // For each popout element...
         for (Element childElmnt : kids) {
@@ -782,8 +778,7 @@ public class BaseResourceValidator implements ResourceValidator {
 
         // Locate alternatives elements in document
 
-        XPathExpression<Element> xexpression = xFactory.compile("//alternatives", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = matches().alternatives.elements();
 
         // For each link...
         for (Element tabsElmnt : kids) {
@@ -825,8 +820,7 @@ public class BaseResourceValidator implements ResourceValidator {
     public void indexObjectives() {
         // Locate objective elements in document
 
-        XPathExpression<Element> xexpression = xFactory.compile("//objective", Filters.element());
-        List<Element> objectives = xexpression.evaluate(doc);
+        List<Element> objectives = matches().objectives.elements();
 
         ContentPackage pkg = rsrc.getContentPackage();
         Set<Edge> filteredEdges = pkg.getEdges().stream().filter(e -> e.getSourceId()
@@ -883,6 +877,9 @@ public class BaseResourceValidator implements ResourceValidator {
 
         // Cleanup objective indices that are no longer defined in the resource
         previousObjectivesIds.forEach(e -> objectiveIndex.remove(e));
+        pkg.backfillLearningIndexes();
+        pkg.indexObjectives(rsrc.getId(), previousObjectivesIds, objectives.stream().map(e -> e.getAttributeValue("id"))
+                .filter(Objects::nonNull).collect(Collectors.toSet()));
 
         // Cleanup objective edges that are no longer defined in a workbook page
         filteredEdges.forEach(e -> pkg.removeEdge(e));
@@ -894,8 +891,7 @@ public class BaseResourceValidator implements ResourceValidator {
 
     public void indexSkills() {
         // Locate Skills elements in document
-        XPathExpression<Element> xexpression = xFactory.compile("//skill", Filters.element());
-        List<Element> objectives = xexpression.evaluate(doc);
+        List<Element> objectives = matches().skills.elements();
 
         ContentPackage pkg = rsrc.getContentPackage();
 
@@ -930,6 +926,9 @@ public class BaseResourceValidator implements ResourceValidator {
 
         // Cleanup skill indices that are no longer defined in by resource
         previousSkills.forEach(e -> skillIndex.remove(e));
+        pkg.backfillLearningIndexes();
+        pkg.indexSkills(rsrc.getId(), previousSkills, objectives.stream().map(e -> e.getAttributeValue("id"))
+                .filter(Objects::nonNull).collect(Collectors.toSet()));
 
         if (!skillIndex.entrySet().isEmpty()) {
             pkg.setSkillsIndex(new JsonWrapper(skillIndex));
@@ -938,8 +937,7 @@ public class BaseResourceValidator implements ResourceValidator {
 
     private void createLearningObjectiveDependencies() {
         // Locate Objective references elements in document
-        XPathExpression<Element> xexpression = xFactory.compile("//objref", Filters.element());
-        List<Element> objrefs = xexpression.evaluate(doc);
+        List<Element> objrefs = matches().objrefs.elements();
 
         ContentPackage pkg = rsrc.getContentPackage();
         Set<Edge> filteredEdges = pkg.getEdges().stream().filter(e -> e.getSourceId()
@@ -974,8 +972,7 @@ public class BaseResourceValidator implements ResourceValidator {
                 && e.getDestinationType() != null && e.getDestinationType().equals("x-oli-webcontent"))
                 .collect(Collectors.toSet());
 
-        XPathExpression<Element> xexpression = xFactory.compile("//*[contains(@src, 'webcontent/')] | //*[contains(text(),'webcontent/')]", Filters.element());
-        List<Element> elements = xexpression.evaluate(doc);
+        List<Element> elements = matches().webContent.elements();
 
         for (Element childElem : elements) {
             List<Attribute> ats = childElem.getAttributes();
@@ -1023,6 +1020,67 @@ public class BaseResourceValidator implements ResourceValidator {
         filteredEdges.forEach(e -> pkg.removeEdge(e));
     }
 
+    /**
+     * Registers a rule for every whole-document check and visits the document once, applying the empty element
+     * fix-ups as elements are visited.
+     */
+    private final class Matches {
+        final ElementVisitor.Rule paragraphs;
+        final ElementVisitor.Rule titlesAndCaptions;
+        final ElementVisitor.Rule paths;
+        final ElementVisitor.Rule images;
+        final ElementVisitor.Rule audio;
+        final ElementVisitor.Rule flash;
+        final ElementVisitor.Rule director;
+        final ElementVisitor.Rule mathematica;
+        final ElementVisitor.Rule unity;
+        final ElementVisitor.Rule video;
+        final ElementVisitor.Rule links;
+        final ElementVisitor.Rule speakers;
+        final ElementVisitor.Rule miscAudio;
+        final ElementVisitor.Rule definitions;
+        final ElementVisitor.Rule mixedContent;
+        final ElementVisitor.Rule popouts;
+        final ElementVisitor.Rule alternatives;
+        final ElementVisitor.Rule objectives;
+        final ElementVisitor.Rule skills;
+        final ElementVisitor.Rule objrefs;
+        final ElementVisitor.Rule webContent;
+
+        Matches(boolean fixEmptyParts, boolean fixEmptyElements) {
+            ElementVisitor visitor = new ElementVisitor();
+            if (fixEmptyParts) {
+                visitor.match("part").onVisit(BaseResourceValidator::fixEmptyPart);
+            }
+            if (fixEmptyElements) {
+                visitor.match("p", "em", "th", "td", "sub", "sup", "li", "var", "bdo", "cite", "code", "formula",
+                        "ipa", "quote", "foreign").onVisit(BaseResourceValidator::fixEmptyElement);
+            }
+            paragraphs = visitor.match("p");
+            titlesAndCaptions = visitor.match("title", "caption");
+            paths = visitor.match("path");
+            images = visitor.match("image");
+            audio = visitor.match("audio");
+            flash = visitor.match("flash");
+            director = visitor.match("director");
+            mathematica = visitor.match("mathematica");
+            unity = visitor.match("unity");
+            video = visitor.match("video");
+            links = visitor.match("link");
+            speakers = visitor.match("speaker");
+            miscAudio = visitor.match("pronunciation", "conjugate");
+            definitions = visitor.match("definition");
+            mixedContent = visitor.match("code", "formula", "quote");
+            popouts = visitor.match("popout");
+            alternatives = visitor.match("alternatives");
+            objectives = visitor.match("objective");
+            skills = visitor.match("skill");
+            objrefs = visitor.match("objref");
+            webContent = visitor.matchAny().where(BaseResourceValidator::referencesWebContent);
+            visitor.visit(doc);
+        }
+    }
+
     protected boolean isEmptyElement(Element childElmnt) {
         if (childElmnt == null) {
             throw new NullPointerException("'childElmnt' cannot be null");
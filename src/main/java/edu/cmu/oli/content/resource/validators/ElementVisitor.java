@@ -0,0 +1,149 @@
+package edu.cmu.oli.content.resource.validators;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Walks a document once, depth first and in document order, handing each element to the rules registered for it.
+ * <p>
+ * Validators register one rule per check in place of a descendant XPath query such as {@code //p | //em}, visit the
+ * document, and then work through the elements each rule matched. A rule sees the elements the query would have
+ * returned, in the same order, so checks report exactly as they did when each ran its own query.
+ * <p>
+ * Rules registered for an element's name see the element before rules registered for any element, and rules of each
+ * kind see it in registration order; a rule's action may change an element's attributes for the rules after it, but
+ * must not add or remove elements.
+ *
+ * @author Raphael Gachuhi
+ */
+public class ElementVisitor {
+
+    private final Map<String, List<Rule>> rulesByName = new HashMap<>();
+    private final List<Rule> anyElementRules = new ArrayList<>();
+
+    public ElementVisitor() {
+    }
+
+    /**
+     * Registers a rule for elements in no namespace with one of the given names, as an unprefixed XPath name test
+     * would match them.
+     */
+    public Rule match(String... names) {
+        return match(Collections.emptyList(), names);
+    }
+
+    /**
+     * Registers a rule for elements with one of the given names. A prefixed name is resolved against the given
+     * namespaces, an unprefixed name matches elements in no namespace.
+     */
+    public Rule match(Collection<Namespace> namespaces, String... names) {
+        Rule rule = new Rule();
+        for (String name : names) {
+            String uri = "";
+            int colon = name.indexOf(':');
+            if (colon >= 0) {
+                String prefix = name.substring(0, colon);
+                uri = namespaces.stream().filter(ns -> ns.getPrefix().equals(prefix)).map(Namespace::getURI)
+                        .findFirst().orElseThrow(() -> new IllegalArgumentException("Unbound prefix: " + name));
+            }
+            List<Rule> rules = rulesByName.computeIfAbsent(key(uri, name.substring(colon + 1)),
+                    k -> new ArrayList<>());
+            if (!rules.contains(rule)) {
+                rules.add(rule);
+            }
+        }
+        return rule;
+    }
+
+    /**
+     * Registers a rule for every element, whatever its name or namespace.
+     */
+    public Rule matchAny() {
+        Rule rule = new Rule();
+        anyElementRules.add(rule);
+        return rule;
+    }
+
+    /**
+     * Visits the root element and all of its descendants, handing each to the rules registered for it.
+     */
+    public void visit(Document doc) {
+        visit(doc.getRootElement());
+    }
+
+    private void visit(Element element) {
+        List<Rule> rules = rulesByName.get(key(element.getNamespaceURI(), element.getName()));
+        if (rules != null) {
+            for (Rule rule : rules) {
+                rule.visit(element);
+            }
+        }
+        for (Rule rule : anyElementRules) {
+            rule.visit(element);
+        }
+        for (Element child : element.getChildren()) {
+            visit(child);
+        }
+    }
+
+    private static String key(String uri, String name) {
+        return uri.isEmpty() ? name : "{" + uri + "}" + name;
+    }
+
+    /**
+     * Elements matched by name, narrowed by conditions, with an optional action run on each as it is visited.
+     */
+    public static class Rule {
+
+        private Predicate<Element> condition = element -> true;
+        private Consumer<Element> action;
+        private final List<Element> elements = new ArrayList<>();
+
+        Rule() {
+        }
+
+        /**
+         * Narrows the rule to elements carrying the given attribute in no namespace.
+         */
+        public Rule withAttribute(String name) {
+            return where(element -> element.getAttribute(name) != null);
+        }
+
+        /**
+         * Narrows the rule to elements satisfying the given condition.
+         */
+        public Rule where(Predicate<Element> condition) {
+            this.condition = this.condition.and(condition);
+            return this;
+        }
+
+        /**
+         * Runs the given action on each matching element as soon as it is visited.
+         */
+        public Rule onVisit(Consumer<Element> action) {
+            this.action = this.action == null ? action : this.action.andThen(action);
+            return this;
+        }
+
+        /**
+         * The elements matched so far, in document order.
+         */
+        public List<Element> elements() {
+            return Collections.unmodifiableList(elements);
+        }
+
+        void visit(Element element) {
+            if (condition.test(element)) {
+                elements.add(element);
+                if (action != null) {
+                    action.accept(element);
+                }
+            }
+        }
+    }
+}
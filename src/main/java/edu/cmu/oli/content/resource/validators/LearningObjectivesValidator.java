@@ -6,9 +6,6 @@ import edu.cmu.oli.content.models.persistance.JsonWrapper;
 import edu.cmu.oli.content.models.persistance.entities.*;
 import org.jdom2.Document;
 import org.jdom2.Element;
-import org.jdom2.filter.Filters;
-import org.jdom2.xpath.XPathExpression;
-import org.jdom2.xpath.XPathFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,8 +26,6 @@ public class LearningObjectivesValidator implements ResourceValidator {
     protected Document doc;
     protected boolean throwErrors;
 
-    private XPathFactory xFactory = XPathFactory.instance();
-
     public LearningObjectivesValidator() {
     }
 
@@ -78,8 +73,10 @@ public class LearningObjectivesValidator implements ResourceValidator {
 
     private void createDependencies() {
         // Skill references
-        XPathExpression<Element> xexpression = xFactory.compile("//objective_skills", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        ElementVisitor visitor = new ElementVisitor();
+        ElementVisitor.Rule objectiveSkills = visitor.match("objective_skills");
+        visitor.visit(doc);
+        List<Element> kids = objectiveSkills.elements();
 
         ContentPackage pkg = rsrc.getContentPackage();
         Set<Edge> filteredEdges = pkg.getEdges().stream().filter(e -> e.getSourceId()
@@ -6,9 +6,6 @@ import edu.cmu.oli.content.models.persistance.JsonWrapper;
 import edu.cmu.oli.content.models.persistance.entities.*;
 import org.jdom2.Document;
 import org.jdom2.Element;
-import org.jdom2.filter.Filters;
-import org.jdom2.xpath.XPathExpression;
-import org.jdom2.xpath.XPathFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -28,8 +25,6 @@ public class OrganizationValidator implements ResourceValidator {
     protected Document doc;
     protected boolean throwErrors;
 
-    private XPathFactory xFactory = XPathFactory.instance();
-
     public OrganizationValidator() {
     }
 
@@ -63,8 +58,10 @@ public class OrganizationValidator implements ResourceValidator {
     }
 
     private void createDependencies() {
-        XPathExpression<Element> xexpression = xFactory.compile("//resourceref", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        ElementVisitor visitor = new ElementVisitor();
+        ElementVisitor.Rule resourceRefs = visitor.match("resourceref");
+        visitor.visit(doc);
+        List<Element> kids = resourceRefs.elements();
 
         ContentPackage pkg = rsrc.getContentPackage();
         Set<Edge> filteredEdges = pkg.getEdges().stream().filter(e -> e.getSourceId()
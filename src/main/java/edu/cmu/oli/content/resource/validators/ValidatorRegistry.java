@@ -0,0 +1,135 @@
+package edu.cmu.oli.content.resource.validators;
+
+import com.google.gson.JsonObject;
+import edu.cmu.oli.content.configuration.ConfigurationCache;
+import edu.cmu.oli.content.configuration.Configurations;
+import edu.cmu.oli.content.logging.Logging;
+import edu.cmu.oli.content.models.persistance.entities.Resource;
+import org.jdom2.Document;
+import org.slf4j.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Validators of each resource type, resolved once from the validatorClass of the resource type definitions instead
+ * of by reflection and bean lookup on every save.
+ * <p>
+ * Validators keep the resource and document being validated, so the registry caches the bean handle of each type and
+ * every validation still gets its own validator instance, destroyed once done.
+ *
+ * @author Raphael Gachuhi
+ */
+@ApplicationScoped
+public class ValidatorRegistry {
+
+    @Inject
+    @Logging
+    Logger log;
+
+    @Inject
+    @ConfigurationCache
+    Instance<Configurations> configuration;
+
+    @Inject
+    @Any
+    Instance<ResourceValidator> validators;
+
+    private volatile Handles handles;
+
+    public void init(@Observes @Initialized(ApplicationScoped.class) Object init) {
+        try {
+            handles();
+        } catch (RuntimeException e) {
+            // Resolved on first use instead
+            log.error("Validators not resolved at startup " + e.getMessage());
+        }
+    }
+
+    /**
+     * Validates the document of the resource with the base validator, then with the validator of its type.
+     */
+    public void validate(Resource resource, Document document, boolean throwErrors) {
+        ResourceValidator validator = new BaseResourceValidator();
+        validator.initValidator(resource, document, throwErrors);
+        validator.validate();
+
+        Instance<? extends ResourceValidator> handle = handles().byType.get(resource.getType());
+        if (handle == null) {
+            return;
+        }
+        validate(handle, resource, document, throwErrors);
+    }
+
+    private static <T extends ResourceValidator> void validate(Instance<T> handle, Resource resource,
+            Document document, boolean throwErrors) {
+        T resourceValidator = handle.get();
+        try {
+            resourceValidator.initValidator(resource, document, throwErrors);
+            resourceValidator.validate();
+        } finally {
+            handle.destroy(resourceValidator);
+        }
+    }
+
+    boolean hasValidator(String resourceType) {
+        return handles().byType.containsKey(resourceType);
+    }
+
+    // Resolved again should the configuration be reloaded
+    private Handles handles() {
+        Configurations configurations = configuration.get();
+        Handles current = this.handles;
+        if (current == null || current.configurations != configurations) {
+            current = resolve(configurations);
+            this.handles = current;
+        }
+        return current;
+    }
+
+    private Handles resolve(Configurations configurations) {
+        Map<String, Instance<? extends ResourceValidator>> byType = new HashMap<>();
+        Map<String, Class<? extends ResourceValidator>> resolved = new HashMap<>();
+        for (Map.Entry<String, JsonObject> resourceType : configurations.getResourceTypes().entrySet()) {
+            JsonObject resourceTypeDefinition = resourceType.getValue();
+            if (resourceTypeDefinition == null || !resourceTypeDefinition.has("validatorClass")) {
+                log.error(resourceType.getKey() + " has no validator class");
+                continue;
+            }
+            String validatorClass = resourceTypeDefinition.get("validatorClass").getAsString();
+            try {
+                Class<? extends ResourceValidator> aClass = resolved.get(validatorClass);
+                if (aClass == null) {
+                    aClass = Class.forName(validatorClass).asSubclass(ResourceValidator.class);
+                    resolved.put(validatorClass, aClass);
+                }
+                Instance<? extends ResourceValidator> handle = validators.select(aClass);
+                if (handle.isUnsatisfied()) {
+                    log.error(resourceType.getKey() + " validator class " + validatorClass + " is not a bean");
+                    continue;
+                }
+                byType.put(resourceType.getKey(), handle);
+            } catch (ClassNotFoundException | ClassCastException e) {
+                log.error(resourceType.getKey() + " validator class not found");
+            }
+        }
+        return new Handles(configurations, Collections.unmodifiableMap(byType));
+    }
+
+    private static final class Handles {
+        private final Configurations configurations;
+        private final Map<String, Instance<? extends ResourceValidator>> byType;
+
+        private Handles(Configurations configurations, Map<String, Instance<? extends ResourceValidator>> byType) {
+            this.configurations = configurations;
+            this.byType = byType;
+        }
+    }
+}
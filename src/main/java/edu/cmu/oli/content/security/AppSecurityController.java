@@ -16,11 +16,38 @@ public interface AppSecurityController {
 
     List<UserInfo> getAllUsers();
 
+    /**
+     * All users with the developers of the package first, each group sorted by username.
+     */
+    List<UserInfo> getPackageUsers(String packageGuid);
+
+    /**
+     * Users registered as developers of the package, sorted by username.
+     */
+    List<UserInfo> getPackageDevelopers(String packageGuid);
+
+    /**
+     * Reloads the users served by the getters above, which may otherwise lag behind changes made directly in the
+     * realm by a few minutes.
+     */
+    void refreshUsers();
+
+    /**
+     * Updates the attributes of the named users and returns them as updated.
+     *
+     * @throws UserAttributesUpdateException when some of the users were not updated, after updating the others
+     */
     Set<UserInfo> updateUsersAttributes(Set<String> userIds, Map<String, List<String>> addAttributes,
             Set<String> removeAttributes);
 
+    /**
+     * @throws UserAttributesUpdateException when some of the users were not updated, after updating the others
+     */
     void updateAllUsersAttributes(Map<String, List<String>> addAttributes, Set<String> removeAttributes);
 
+    /**
+     * @throws UserAttributesUpdateException when some of the users were not updated, after updating the others
+     */
     void clearAllUsersAttributes(String searchString);
 
     void createUser(String userName, String firstName, String lastName, String email, String password,
@@ -31,4 +58,10 @@ public interface AppSecurityController {
     void createResource(String name, String uri, String type, List<Scopes> scopes);
 
     void deleteResource(String name);
+
+    /**
+     * Drops any cached edit lock state of a package, to be called once a change locking or unlocking the package has
+     * committed; fire a PackageLockChangeEvent from within the transaction instead.
+     */
+    void invalidatePackageLock(String packageGuid);
 }
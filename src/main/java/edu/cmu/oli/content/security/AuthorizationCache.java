@@ -0,0 +1,138 @@
+package edu.cmu.oli.content.security;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Short lived cache of authorization decisions, so that repeated requests by the same user do not each go back to
+ * Keycloak and the database.
+ * <p>
+ * Decisions are kept per user and per role or scope set. Package edit locks are kept per package. Entries expire
+ * after a fixed time to live and are dropped explicitly whenever user attributes, user roles or package locks are
+ * changed through this server. The decisions of at most a bounded number of users are kept, and those of a user are
+ * dropped altogether once the user has made no request for the time to live.
+ *
+ * @author Raphael Gachuhi
+ */
+class AuthorizationCache {
+
+    static final long DEFAULT_TTL_SECONDS = 60;
+    static final long DEFAULT_MAX_USERS = 10000;
+
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    private final Cache<String, Map<String, Entry<?>>> userDecisions;
+    private final Map<String, Entry<Boolean>> packageLocks = new ConcurrentHashMap<>();
+    private final Map<String, Long> userChanges = new ConcurrentHashMap<>();
+    private volatile long allUsersChange;
+
+    AuthorizationCache(long ttlSeconds) {
+        this(ttlSeconds, System::nanoTime);
+    }
+
+    AuthorizationCache(long ttlSeconds, LongSupplier clock) {
+        this(ttlSeconds, DEFAULT_MAX_USERS, clock);
+    }
+
+    AuthorizationCache(long ttlSeconds, long maxUsers, LongSupplier clock) {
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.clock = clock;
+        this.userDecisions = CacheBuilder.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(ttlNanos, TimeUnit.NANOSECONDS)
+                .ticker(new Ticker() {
+                    @Override
+                    public long read() {
+                        return clock.getAsLong();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Returns the cached decision of a user for the given role or scope key, computing it when absent or expired.
+     * Exceptions thrown while computing are passed on and nothing is cached.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T decision(String userId, String key, Supplier<T> loader) {
+        Map<String, Entry<?>> decisions = userDecisions.asMap()
+                .computeIfAbsent(userId, k -> new ConcurrentHashMap<>());
+        Entry<?> entry = decisions.get(key);
+        if (entry != null && entry.isLive()) {
+            return (T) entry.value;
+        }
+        T value = loader.get();
+        decisions.put(key, new Entry<>(value, clock.getAsLong() + ttlNanos));
+        return value;
+    }
+
+    /**
+     * Returns the cached edit lock state of a package, computing it when absent or expired. A null result is not
+     * cached.
+     */
+    Boolean packageLock(String packageGuid, Supplier<Boolean> loader) {
+        Entry<Boolean> entry = packageLocks.get(packageGuid);
+        if (entry != null && entry.isLive()) {
+            return entry.value;
+        }
+        Boolean locked = loader.get();
+        if (locked != null) {
+            packageLocks.put(packageGuid, new Entry<>(locked, clock.getAsLong() + ttlNanos));
+        }
+        return locked;
+    }
+
+    void invalidateUser(String userId) {
+        userDecisions.invalidate(userId);
+        userChanges.put(userId, epochSeconds());
+    }
+
+    void invalidateAllUsers() {
+        userDecisions.invalidateAll();
+        allUsersChange = epochSeconds();
+    }
+
+    /**
+     * Whether the roles or attributes of a user were changed through this server at or after the given time, in
+     * epoch seconds. Claims of tokens issued before such a change no longer reflect the user's permissions.
+     */
+    boolean changedSince(String userId, long epochSeconds) {
+        Long userChange = userChanges.get(userId);
+        return allUsersChange >= epochSeconds || (userChange != null && userChange >= epochSeconds);
+    }
+
+    void invalidatePackageLock(String packageGuid) {
+        packageLocks.remove(packageGuid);
+    }
+
+    long cachedUsers() {
+        userDecisions.cleanUp();
+        return userDecisions.size();
+    }
+
+    private static long epochSeconds() {
+        return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    }
+
+    private final class Entry<T> {
+        private final T value;
+        private final long expiresAt;
+
+        private Entry(T value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isLive() {
+            return clock.getAsLong() - expiresAt < 0;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package edu.cmu.oli.content.security;
+
+import org.keycloak.representations.idm.UserRepresentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.WebApplicationException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Pushes user updates to the Keycloak admin API with bounded concurrency, retrying transient failures with
+ * exponential backoff and reporting the outcome for every user.
+ * <p>
+ * Connection failures, 429 and 5xx responses are retried up to the configured number of attempts; any other failure
+ * is reported right away. The concurrency should not exceed the connection pool size of the admin client.
+ *
+ * @author Raphael Gachuhi
+ */
+class BatchAttributeUpdater {
+
+    static final int DEFAULT_CONCURRENCY = 8;
+    static final int DEFAULT_MAX_ATTEMPTS = 3;
+    static final long DEFAULT_BACKOFF_MILLIS = 200;
+
+    private static final Logger log = LoggerFactory.getLogger(BatchAttributeUpdater.class);
+
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final ExecutorService executor;
+
+    BatchAttributeUpdater(int concurrency, int maxAttempts, long backoffMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = backoffMillis;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, concurrency), runnable -> {
+            Thread thread = new Thread(runnable, "user-attribute-updater-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Applies the update to every user and waits for all of them to complete. Results are in the order of the given
+     * users.
+     */
+    List<UserUpdate> updateAll(List<UserRepresentation> users, Consumer<UserRepresentation> update) {
+        List<CompletableFuture<UserUpdate>> updates = users.stream()
+                .map(user -> CompletableFuture.supplyAsync(() -> updateWithRetry(user, update), executor))
+                .collect(Collectors.toList());
+        return updates.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    private UserUpdate updateWithRetry(UserRepresentation user, Consumer<UserRepresentation> update) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                update.accept(user);
+                return new UserUpdate(user, attempt, null);
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isTransient(e)) {
+                    log.error("Updating user " + user.getUsername() + " failed after " + attempt + " attempt(s) "
+                            + e.getMessage());
+                    return new UserUpdate(user, attempt, e);
+                }
+                try {
+                    Thread.sleep(backoffMillis << (attempt - 1));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return new UserUpdate(user, attempt, e);
+                }
+            }
+        }
+    }
+
+    private static boolean isTransient(RuntimeException e) {
+        if (e instanceof ProcessingException) {
+            return true;
+        }
+        if (e instanceof WebApplicationException) {
+            int status = ((WebApplicationException) e).getResponse().getStatus();
+            return status == 429 || status >= 500;
+        }
+        return false;
+    }
+
+    /**
+     * Outcome of updating a single user.
+     */
+    static final class UserUpdate {
+        private final UserRepresentation user;
+        private final int attempts;
+        private final RuntimeException error;
+
+        private UserUpdate(UserRepresentation user, int attempts, RuntimeException error) {
+            this.user = user;
+            this.attempts = attempts;
+            this.error = error;
+        }
+
+        UserRepresentation getUser() {
+            return user;
+        }
+
+        boolean isUpdated() {
+            return error == null;
+        }
+
+        int getAttempts() {
+            return attempts;
+        }
+
+        RuntimeException getError() {
+            return error;
+        }
+    }
+}
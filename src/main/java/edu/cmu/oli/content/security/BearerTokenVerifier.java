@@ -0,0 +1,213 @@
+package edu.cmu.oli.content.security;
+
+import org.keycloak.TokenVerifier;
+import org.keycloak.common.VerificationException;
+import org.keycloak.jose.jwk.JSONWebKeySet;
+import org.keycloak.jose.jwk.JWK;
+import org.keycloak.jose.jwk.JWKParser;
+import org.keycloak.representations.AccessToken;
+import org.keycloak.util.JsonSerialization;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.PublicKey;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies realm access tokens locally against the realm's published signing keys, so that roles and package
+ * permissions can be read from the token claims instead of being fetched through the Keycloak admin API.
+ * <p>
+ * Keys are fetched from the realm JWKS endpoint once {@link #start()} is called and then refreshed in the background.
+ * A token signed with an unknown key id triggers an early refresh, at most once per
+ * {@link #MIN_REFRESH_INTERVAL_SECONDS} however many requests carry it, to pick up rotated keys. Tokens must have
+ * been issued by the configured realm URL.
+ * <p>
+ * Package permissions are expected in the {@value #PACKAGE_PERMISSIONS_CLAIM} claim, mapped from the user
+ * attributes with the same shape: package guid to list of granted scopes.
+ *
+ * @author Raphael Gachuhi
+ */
+public class BearerTokenVerifier {
+
+    public static final String PACKAGE_PERMISSIONS_CLAIM = "package_permissions";
+
+    static final long REFRESH_INTERVAL_SECONDS = 15 * 60;
+    static final long MIN_REFRESH_INTERVAL_SECONDS = 10;
+
+    private static final Logger log = LoggerFactory.getLogger(BearerTokenVerifier.class);
+
+    private final KeySource keySource;
+    private final String realmUrl;
+    private volatile Map<String, PublicKey> keys = Collections.emptyMap();
+    private volatile long lastRefresh;
+    private volatile boolean refreshed;
+    private ScheduledExecutorService refresher;
+
+    /**
+     * Source of the realm signing keys.
+     */
+    @FunctionalInterface
+    public interface KeySource {
+        JSONWebKeySet fetch() throws IOException;
+    }
+
+    public BearerTokenVerifier(KeySource keySource, String realmUrl) {
+        this.keySource = keySource;
+        this.realmUrl = realmUrl;
+    }
+
+    /**
+     * URL of a realm as it appears in the issuer claim of its tokens: keycloak_realm_url when configured, the realm
+     * on the Keycloak server configured through SERVER_URL otherwise.
+     */
+    public static String realmUrl(String realm) {
+        String configured = System.getenv().get("keycloak_realm_url");
+        if (configured != null) {
+            return configured;
+        }
+        String serverUrl = System.getenv().get("SERVER_URL");
+        return serverUrl == null ? null : serverUrl + "/auth/realms/" + realm;
+    }
+
+    /**
+     * Key source reading the JWKS endpoint of a realm on the Keycloak server configured through SERVER_URL.
+     */
+    public static KeySource realmCerts(String realm) {
+        return () -> {
+            String serverUrl = System.getenv().get("SERVER_URL");
+            if (serverUrl == null) {
+                throw new IOException("SERVER_URL not configured");
+            }
+            URL url = new URL(serverUrl + "/auth/realms/" + realm + "/protocol/openid-connect/certs");
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(5000);
+            connection.setReadTimeout(5000);
+            try (InputStream in = connection.getInputStream()) {
+                return JsonSerialization.readValue(in, JSONWebKeySet.class);
+            } finally {
+                connection.disconnect();
+            }
+        };
+    }
+
+    /**
+     * Returns the verified access token, or null if the signature cannot be checked locally or the token is not a
+     * valid, active bearer token.
+     */
+    public AccessToken verify(String tokenString) {
+        if (tokenString == null || realmUrl == null) {
+            return null;
+        }
+        try {
+            TokenVerifier<AccessToken> verifier = TokenVerifier.create(tokenString, AccessToken.class)
+                    .withDefaultChecks().realmUrl(realmUrl);
+            String kid = verifier.getHeader().getKeyId();
+            PublicKey publicKey = publicKey(kid);
+            if (publicKey == null) {
+                log.debug("No realm key for kid " + kid);
+                return null;
+            }
+            return verifier.publicKey(publicKey).verify().getToken();
+        } catch (VerificationException e) {
+            log.debug("Access token not verified " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Realm roles granted by a verified token, or null if the token carries no realm access claim.
+     */
+    public static Set<String> realmRoles(AccessToken token) {
+        AccessToken.Access realmAccess = token.getRealmAccess();
+        return realmAccess == null ? null : realmAccess.getRoles();
+    }
+
+    /**
+     * Package permissions granted by a verified token, or null if the token carries no permissions claim.
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, List<String>> packagePermissions(AccessToken token) {
+        Object claim = token.getOtherClaims().get(PACKAGE_PERMISSIONS_CLAIM);
+        if (!(claim instanceof Map)) {
+            return null;
+        }
+        Map<String, List<String>> permissions = new HashMap<>();
+        ((Map<String, Object>) claim).forEach((packageGuid, scopes) -> {
+            if (scopes instanceof Collection) {
+                List<String> granted = new ArrayList<>();
+                ((Collection<Object>) scopes).forEach(scope -> granted.add(String.valueOf(scope)));
+                permissions.put(packageGuid, granted);
+            } else if (scopes != null) {
+                permissions.put(packageGuid, Collections.singletonList(String.valueOf(scopes)));
+            }
+        });
+        return permissions;
+    }
+
+    private PublicKey publicKey(String kid) {
+        PublicKey publicKey = keys.get(kid);
+        if (publicKey == null && refreshDue()) {
+            publicKey = refreshKeysFor(kid);
+        }
+        return publicKey;
+    }
+
+    private synchronized PublicKey refreshKeysFor(String kid) {
+        // Checked again under the lock: requests that waited for another request's refresh use its keys
+        PublicKey publicKey = keys.get(kid);
+        if (publicKey == null && refreshDue()) {
+            refreshKeys();
+            publicKey = keys.get(kid);
+        }
+        return publicKey;
+    }
+
+    private boolean refreshDue() {
+        return !refreshed
+                || System.nanoTime() - lastRefresh > TimeUnit.SECONDS.toNanos(MIN_REFRESH_INTERVAL_SECONDS);
+    }
+
+    synchronized void refreshKeys() {
+        lastRefresh = System.nanoTime();
+        refreshed = true;
+        try {
+            JSONWebKeySet keySet = keySource.fetch();
+            Map<String, PublicKey> fetched = new HashMap<>();
+            if (keySet != null && keySet.getKeys() != null) {
+                for (JWK jwk : keySet.getKeys()) {
+                    JWKParser parser = JWKParser.create(jwk);
+                    if (jwk.getKeyId() != null && parser.isKeyTypeSupported(jwk.getKeyType())
+                            && !"enc".equals(jwk.getPublicKeyUse())) {
+                        fetched.put(jwk.getKeyId(), parser.toPublicKey());
+                    }
+                }
+            }
+            keys = fetched;
+        } catch (Exception e) {
+            // Keep serving the keys from the last successful fetch
+            log.debug("Could not refresh realm keys " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fetches the realm keys in the background right away, and again every {@link #REFRESH_INTERVAL_SECONDS}.
+     */
+    public synchronized void start() {
+        if (refresher != null) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "realm-key-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refreshKeys, 0, REFRESH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+}
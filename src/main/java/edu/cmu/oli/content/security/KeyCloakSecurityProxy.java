@@ -12,6 +12,7 @@ import org.keycloak.admin.client.resource.UsersResource;
 import org.keycloak.authorization.client.AuthzClient;
 import org.keycloak.authorization.client.Configuration;
 import org.keycloak.authorization.client.resource.ProtectedResource;
+import org.keycloak.representations.AccessToken;
 import org.keycloak.representations.idm.CredentialRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
 import org.keycloak.representations.idm.UserRepresentation;
@@ -39,6 +40,23 @@ public class KeyCloakSecurityProxy implements AppSecurityController {
     AuthzClient authzClient;
     RealmResource realmResource;
 
+    AuthorizationCache authorizationCache = new AuthorizationCache(
+            envLong("authz_cache_ttl", AuthorizationCache.DEFAULT_TTL_SECONDS));
+    UserDirectory userDirectory = new UserDirectory(this::fetchAllUsers,
+            envLong("user_directory_refresh", UserDirectory.DEFAULT_REFRESH_SECONDS));
+    BatchAttributeUpdater attributeUpdater = new BatchAttributeUpdater(
+            (int) envLong("keycloak_update_concurrency", BatchAttributeUpdater.DEFAULT_CONCURRENCY),
+            BatchAttributeUpdater.DEFAULT_MAX_ATTEMPTS, BatchAttributeUpdater.DEFAULT_BACKOFF_MILLIS);
+    BearerTokenVerifier tokenVerifier = new BearerTokenVerifier(BearerTokenVerifier.realmCerts(REALM),
+            BearerTokenVerifier.realmUrl(REALM));
+
+    /**
+     * Starts the background work of the proxy, so that it is not done on the first requests.
+     */
+    void start() {
+        tokenVerifier.start();
+    }
+
     @Override
     public Set<String> authorize(AppSecurityContext session, List<Roles> authRoles, String packageGuid, String filter,
             List<Scopes> authScopes) {
@@ -66,12 +84,21 @@ public class KeyCloakSecurityProxy implements AppSecurityController {
             throw new ResourceException(Response.Status.FORBIDDEN, null, message);
         }
 
+        // Claims of a locally verified token are trusted ahead of the admin API; any denial or missing claim falls
+        // back to a direct fetch since grants may be newer than the token
+        AccessToken claims = verifiedClaims(session);
+
         // Assume Role based authorization (RBA) is desired if scopes or filters not
         // supplied
         if (scopes == null || scopes.isEmpty() || filter == null) {
             log.info("role based");
+            Set<String> claimedRoles = claims == null ? null : BearerTokenVerifier.realmRoles(claims);
+            if (claimedRoles != null && !Collections.disjoint(claimedRoles, roles)) {
+                return new HashSet<>();
+            }
             // Don't trust roles from browser, do a direct fetch from Keycloak server
-            boolean byRole = authorizeByRole(session.getPreferredUsername(), roles);
+            boolean byRole = authorizationCache.decision(session.getPreferredUsername(),
+                    "roles=" + new TreeSet<>(roles), () -> authorizeByRole(session.getPreferredUsername(), roles));
             if (!byRole) {
                 String message = "Not authorized";
                 throw new ResourceException(Response.Status.FORBIDDEN, null, message);
@@ -80,7 +107,13 @@ public class KeyCloakSecurityProxy implements AppSecurityController {
             }
         }
         // If requested package is not permitted
-        Set<String> permittedPkgs = permissionsByUserAttribs(session.getPreferredUsername(), scopes);
+        Set<String> requestedScopes = scopes;
+        Set<String> permittedPkgs = claims == null ? null : permissionsByClaims(claims, scopes);
+        if (!grantsPackage(permittedPkgs, packageGuid)) {
+            permittedPkgs = new HashSet<>(authorizationCache.decision(session.getPreferredUsername(),
+                    "scopes=" + new TreeSet<>(scopes),
+                    () -> permissionsByUserAttribs(session.getPreferredUsername(), requestedScopes)));
+        }
         if (permittedPkgs.isEmpty()) {
             String message = "Not authorized";
             throw new ResourceException(Response.Status.FORBIDDEN, null, message);
@@ -94,28 +127,13 @@ public class KeyCloakSecurityProxy implements AppSecurityController {
             // Check if resource is edit locked
             if (scopes.contains(Scopes.EDIT_MATERIAL_ACTION.toString())) {
                 log.info("Auth with packageGuid 2");
-                boolean lockedUp = false;
-                try {
-                    ContentPackageLockLookup contentPackageLockLookup = (ContentPackageLockLookup) new InitialContext()
-                            .lookup("java:global/content-service/ContentPackageLockLookup");
-                    lockedUp = contentPackageLockLookup.lockLookup(packageGuid);
-                    log.info("Package Locked=" + lockedUp);
-
-                } catch (Throwable e) {
-                }
-                if (lockedUp) {
+                Boolean lockedUp = authorizationCache.packageLock(packageGuid, () -> lockLookup(packageGuid));
+                if (Boolean.TRUE.equals(lockedUp)) {
                     String message = "Not authorized";
                     throw new ResourceException(Response.Status.FORBIDDEN, null, message);
                 }
             }
-            boolean permitted = false;
-            for (String permittedPkg : permittedPkgs) {
-                if (permittedPkg.contains(packageGuid)) {
-                    permitted = true;
-                    break;
-                }
-            }
-            if (!permitted) {
+            if (!containsPackage(permittedPkgs, packageGuid)) {
                 String message = "Not authorized";
                 throw new ResourceException(Response.Status.FORBIDDEN, null, message);
             }
@@ -123,6 +141,81 @@ public class KeyCloakSecurityProxy implements AppSecurityController {
         return permittedPkgs;
     }
 
+    private static boolean grantsPackage(Set<String> permittedPkgs, String packageGuid) {
+        if (permittedPkgs == null || permittedPkgs.isEmpty()) {
+            return false;
+        }
+        return packageGuid == null || permittedPkgs.contains("all") || containsPackage(permittedPkgs, packageGuid);
+    }
+
+    private static boolean containsPackage(Set<String> permittedPkgs, String packageGuid) {
+        for (String permittedPkg : permittedPkgs) {
+            if (permittedPkg.contains(packageGuid)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The session's access token if it verifies locally, belongs to the session user and was issued after the last
+     * change to that user made through this server; null otherwise.
+     */
+    private AccessToken verifiedClaims(AppSecurityContext session) {
+        AccessToken token = tokenVerifier.verify(session.getTokenString());
+        if (token == null || !session.getPreferredUsername().equals(token.getPreferredUsername())) {
+            return null;
+        }
+        if (authorizationCache.changedSince(session.getPreferredUsername(), token.getIssuedAt())) {
+            return null;
+        }
+        return token;
+    }
+
+    private Set<String> permissionsByClaims(AccessToken token, Set<String> scopes) {
+        Set<String> claimedRoles = BearerTokenVerifier.realmRoles(token);
+        if (claimedRoles != null && claimedRoles.stream().anyMatch(ADMIN.toString()::equalsIgnoreCase)) {
+            return new HashSet<>(Arrays.asList("all"));
+        }
+        Map<String, List<String>> permissions = BearerTokenVerifier.packagePermissions(token);
+        if (permissions == null) {
+            return null;
+        }
+        Set<String> resourceNames = new HashSet<>();
+        permissions.forEach((granted, grantedScopes) -> {
+            if (!Collections.disjoint(grantedScopes, scopes)) {
+                resourceNames.add(granted);
+            }
+        });
+        return resourceNames;
+    }
+
+    private Boolean lockLookup(String packageGuid) {
+        try {
+            ContentPackageLockLookup contentPackageLockLookup = (ContentPackageLockLookup) new InitialContext()
+                    .lookup("java:global/content-service/ContentPackageLockLookup");
+            boolean lockedUp = contentPackageLockLookup.lockLookup(packageGuid);
+            log.info("Package Locked=" + lockedUp);
+            return lockedUp;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void invalidatePackageLock(String packageGuid) {
+        authorizationCache.invalidatePackageLock(packageGuid);
+    }
+
+    private static long envLong(String name, long defaultValue) {
+        String value = System.getenv().get(name);
+        try {
+            return value == null ? defaultValue : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     @Override
     public void deleteResource(String name) {
         AuthzClient authzClient = getAuthzClient();
@@ -260,6 +353,7 @@ public class KeyCloakSecurityProxy implements AppSecurityController {
         if (!users.isEmpty()) {
             return;
         }
+        authorizationCache.invalidateUser(userName);
 
         UserRepresentation user = new UserRepresentation();
         user.setUsername(userName);
@@ -271,6 +365,7 @@ public class KeyCloakSecurityProxy implements AppSecurityController {
         getRealmResource().users().create(user);
 
         users = getRealmResource().users().search(userName);
+        userDirectory.update(userInfo(users.get(0)));
 
         UserResource userResource = getRealmResource().users().get(users.get(0).getId());
 
@@ -325,6 +420,7 @@ public class KeyCloakSecurityProxy implements AppSecurityController {
 
         UserResource userResource = getRealmResource().users().get(users.get(0).getId());
         doAddUserRoles(realmRoles, userResource);
+        authorizationCache.invalidateUser(userName);
     }
 
     @Override
@@ -337,42 +433,72 @@ public class KeyCloakSecurityProxy implements AppSecurityController {
         // Should always be a single user
         UserRepresentation userRepresentation = users.get(0);
         setUserAttributes(userRepresentation, addAttributes, removeAttributes);
+        authorizationCache.invalidateUser(userId);
+        userDirectory.update(userInfo(userRepresentation));
     }
 
     @Override
     public List<UserInfo> getAllUsers() {
+        return new ArrayList<>(userDirectory.users());
+    }
+
+    @Override
+    public List<UserInfo> getPackageUsers(String packageGuid) {
+        return userDirectory.usersByPackage(packageGuid);
+    }
+
+    @Override
+    public List<UserInfo> getPackageDevelopers(String packageGuid) {
+        return userDirectory.packageDevelopers(packageGuid);
+    }
+
+    @Override
+    public void refreshUsers() {
+        userDirectory.refresh();
+    }
+
+    private List<UserInfo> fetchAllUsers() {
         UsersResource consumerUsers = getRealmResource().users();
         List<UserRepresentation> users = consumerUsers.search("", 0, consumerUsers.count());
-        return users.stream().map(uRep -> {
-            return new UserInfo(uRep.getId(), uRep.getUsername(), uRep.isEnabled(), uRep.isEmailVerified(),
-                    uRep.getFirstName(), uRep.getLastName(), uRep.getEmail(), uRep.getServiceAccountClientId(),
-                    uRep.getAttributes());
-        }).collect(Collectors.toList());
+        return users.stream().map(KeyCloakSecurityProxy::userInfo).collect(Collectors.toList());
+    }
+
+    private static UserInfo userInfo(UserRepresentation uRep) {
+        return new UserInfo(uRep.getId(), uRep.getUsername(), uRep.isEnabled(), uRep.isEmailVerified(),
+                uRep.getFirstName(), uRep.getLastName(), uRep.getEmail(), uRep.getServiceAccountClientId(),
+                uRep.getAttributes());
     }
 
     @Override
     public Set<UserInfo> updateUsersAttributes(Set<String> userIds, Map<String, List<String>> addAttributes,
             Set<String> removeAttributes) {
         UsersResource consumerUsers = getRealmResource().users();
-        List<UserRepresentation> users = consumerUsers.search("", 0, consumerUsers.count());
-        Set<UserInfo> usersProcessed = new HashSet<>();
-        if (users.isEmpty()) {
-            return usersProcessed;
-        }
+        List<UserRepresentation> users = consumerUsers.search("", 0, consumerUsers.count()).stream()
+                .filter(uRep -> userIds.contains(uRep.getUsername())).collect(Collectors.toList());
+        users.forEach(uRep -> applyUserAttributes(uRep, addAttributes, removeAttributes));
 
-        for (UserRepresentation uRep : users) {
-            if (userIds.contains(uRep.getUsername())) {
-                setUserAttributes(uRep, addAttributes, removeAttributes);
-                usersProcessed.add(new UserInfo(uRep.getId(), uRep.getUsername(), uRep.isEnabled(),
-                        uRep.isEmailVerified(), uRep.getFirstName(), uRep.getLastName(), uRep.getEmail(),
-                        uRep.getServiceAccountClientId(), uRep.getAttributes()));
+        List<BatchAttributeUpdater.UserUpdate> updates = attributeUpdater.updateAll(users, this::pushUser);
+        Set<UserInfo> usersProcessed = new HashSet<>();
+        for (BatchAttributeUpdater.UserUpdate update : updates) {
+            UserRepresentation uRep = update.getUser();
+            authorizationCache.invalidateUser(uRep.getUsername());
+            if (update.isUpdated()) {
+                usersProcessed.add(userInfo(uRep));
             }
         }
+        userDirectory.update(usersProcessed);
+        throwOnFailures(updates);
         return usersProcessed;
     }
 
     private void setUserAttributes(UserRepresentation userRepresentation, Map<String, List<String>> addAttributes,
             Set<String> removeAttributes) {
+        applyUserAttributes(userRepresentation, addAttributes, removeAttributes);
+        pushUser(userRepresentation);
+    }
+
+    private void applyUserAttributes(UserRepresentation userRepresentation, Map<String, List<String>> addAttributes,
+            Set<String> removeAttributes) {
         Map<String, List<String>> attributes = userRepresentation.getAttributes();
         if (attributes == null) {
             attributes = new HashMap<>();
@@ -386,6 +512,9 @@ public class KeyCloakSecurityProxy implements AppSecurityController {
             }
         }
         userRepresentation.setAttributes(attributes);
+    }
+
+    private void pushUser(UserRepresentation userRepresentation) {
         UserResource userResource = realmResource.users().get(userRepresentation.getId());
         userResource.update(userRepresentation);
     }
@@ -410,25 +539,39 @@ public class KeyCloakSecurityProxy implements AppSecurityController {
         }
 
         userRepresentation.setAttributes(attributes2);
-        UserResource userResource = realmResource.users().get(userRepresentation.getId());
-        userResource.update(userRepresentation);
     }
 
     @Override
     public void updateAllUsersAttributes(Map<String, List<String>> addAttributes, Set<String> removeAttributes) {
         UsersResource consumerUsers = getRealmResource().users();
         List<UserRepresentation> users = consumerUsers.search("", 0, consumerUsers.count());
-        for (UserRepresentation userRepresentation : users) {
-            setUserAttributes(userRepresentation, addAttributes, removeAttributes);
-        }
+        users.forEach(uRep -> applyUserAttributes(uRep, addAttributes, removeAttributes));
+        List<BatchAttributeUpdater.UserUpdate> updates = attributeUpdater.updateAll(users, this::pushUser);
+        authorizationCache.invalidateAllUsers();
+        userDirectory.refresh();
+        throwOnFailures(updates);
     }
 
     @Override
     public void clearAllUsersAttributes(String searchString) {
         UsersResource consumerUsers = getRealmResource().users();
         List<UserRepresentation> users = consumerUsers.search("", 0, consumerUsers.count());
-        for (UserRepresentation userRepresentation : users) {
-            removeUserAttributes(userRepresentation, searchString);
+        users.forEach(uRep -> removeUserAttributes(uRep, searchString));
+        List<BatchAttributeUpdater.UserUpdate> updates = attributeUpdater.updateAll(users, this::pushUser);
+        authorizationCache.invalidateAllUsers();
+        userDirectory.refresh();
+        throwOnFailures(updates);
+    }
+
+    private static void throwOnFailures(List<BatchAttributeUpdater.UserUpdate> updates) {
+        List<BatchAttributeUpdater.UserUpdate> failed = updates.stream().filter(update -> !update.isUpdated())
+                .collect(Collectors.toList());
+        if (failed.isEmpty()) {
+            return;
         }
+        UserAttributesUpdateException exception = new UserAttributesUpdateException(failed.stream()
+                .map(update -> update.getUser().getUsername()).collect(Collectors.toList()), updates.size());
+        failed.forEach(update -> exception.addSuppressed(update.getError()));
+        throw exception;
     }
 }
@@ -1,8 +1,11 @@
 package edu.cmu.oli.content.security;
 
+import edu.cmu.oli.content.boundary.PackageLockChangeEvent;
+
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.context.Initialized;
 import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
 import javax.enterprise.inject.Produces;
 import javax.enterprise.inject.spi.InjectionPoint;
 
@@ -19,7 +22,12 @@ public class SecurityManagerProducer {
     }
 
     private void doInit() {
-
+        if (this.appSecurityController == null) {
+            KeyCloakSecurityProxy keyCloakSecurityProxy = new KeyCloakSecurityProxy();
+            // Realm signing keys are fetched now rather than by the first request verifying a token
+            keyCloakSecurityProxy.start();
+            this.appSecurityController = keyCloakSecurityProxy;
+        }
     }
 
     @Produces
@@ -30,4 +38,14 @@ public class SecurityManagerProducer {
         }
         return appSecurityController;
     }
+
+    /**
+     * Drops cached package lock states once a lock change has committed. Dropping them earlier would let a concurrent
+     * request cache the state the change is replacing.
+     */
+    public void onPackageLockChange(@Observes(during = TransactionPhase.AFTER_SUCCESS) PackageLockChangeEvent event) {
+        if (this.appSecurityController != null) {
+            event.getPackageGuids().forEach(appSecurityController::invalidatePackageLock);
+        }
+    }
 }
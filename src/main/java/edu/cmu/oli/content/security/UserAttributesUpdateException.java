@@ -0,0 +1,27 @@
+package edu.cmu.oli.content.security;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown once a batch of user attribute updates completed with some of the users not updated. The users that were
+ * updated keep their changes; the error of each failed user is attached as a suppressed exception.
+ *
+ * @author Raphael Gachuhi
+ */
+public class UserAttributesUpdateException extends RuntimeException {
+
+    private final List<String> failedUsers;
+
+    public UserAttributesUpdateException(List<String> failedUsers, int users) {
+        super("Attributes of " + failedUsers.size() + " of " + users + " users not updated " + failedUsers);
+        this.failedUsers = Collections.unmodifiableList(failedUsers);
+    }
+
+    /**
+     * Usernames of the users whose attributes were not updated.
+     */
+    public List<String> getFailedUsers() {
+        return failedUsers;
+    }
+}
@@ -0,0 +1,167 @@
+package edu.cmu.oli.content.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * In-memory snapshot of the realm users, sorted by username and indexed by username and by package membership, so
+ * that package details and developer lookups do not page through the whole realm on every request.
+ * <p>
+ * The snapshot is loaded on first use and then reloaded on a fixed schedule. Users changed through this server are
+ * updated in place right away; users created or changed directly in Keycloak show up with the next scheduled reload.
+ * Package membership is the presence of the package guid among a user's attributes.
+ *
+ * @author Raphael Gachuhi
+ */
+public class UserDirectory {
+
+    static final long DEFAULT_REFRESH_SECONDS = 5 * 60;
+
+    private static final Logger log = LoggerFactory.getLogger(UserDirectory.class);
+
+    private static final Comparator<UserInfo> BY_USERNAME = Comparator.comparing(UserInfo::getUsername,
+            String.CASE_INSENSITIVE_ORDER);
+
+    private final Supplier<List<UserInfo>> loader;
+    private final long refreshSeconds;
+    private volatile Snapshot snapshot;
+    private ScheduledExecutorService refresher;
+
+    UserDirectory(Supplier<List<UserInfo>> loader, long refreshSeconds) {
+        this.loader = loader;
+        this.refreshSeconds = refreshSeconds;
+    }
+
+    /**
+     * All realm users sorted by username.
+     */
+    public List<UserInfo> users() {
+        return snapshot().users;
+    }
+
+    public Optional<UserInfo> user(String username) {
+        return Optional.ofNullable(snapshot().byUsername.get(username));
+    }
+
+    /**
+     * Users registered as developers of the package, sorted by username.
+     */
+    public List<UserInfo> packageDevelopers(String packageGuid) {
+        return snapshot().byPackage.getOrDefault(packageGuid, Collections.emptyList());
+    }
+
+    /**
+     * All realm users with the developers of the package first, each group sorted by username.
+     */
+    public List<UserInfo> usersByPackage(String packageGuid) {
+        Snapshot current = snapshot();
+        List<UserInfo> developers = current.byPackage.getOrDefault(packageGuid, Collections.emptyList());
+        List<UserInfo> users = new ArrayList<>(current.users.size());
+        users.addAll(developers);
+        for (UserInfo userInfo : current.users) {
+            if (!isDeveloper(userInfo, packageGuid)) {
+                users.add(userInfo);
+            }
+        }
+        return Collections.unmodifiableList(users);
+    }
+
+    /**
+     * Replaces a single user in the snapshot, typically after its attributes were changed through this server.
+     */
+    public void update(UserInfo userInfo) {
+        update(Collections.singletonList(userInfo));
+    }
+
+    /**
+     * Replaces the users in the snapshot, rebuilding it once for the whole batch.
+     */
+    public synchronized void update(Collection<UserInfo> userInfos) {
+        Snapshot current = this.snapshot;
+        if (current == null || userInfos.isEmpty()) {
+            return;
+        }
+        Map<String, UserInfo> updated = new HashMap<>();
+        userInfos.forEach(userInfo -> updated.put(userInfo.getUsername(), userInfo));
+        List<UserInfo> users = new ArrayList<>(current.users.size() + updated.size());
+        for (UserInfo existing : current.users) {
+            if (!updated.containsKey(existing.getUsername())) {
+                users.add(existing);
+            }
+        }
+        users.addAll(updated.values());
+        this.snapshot = new Snapshot(users);
+    }
+
+    /**
+     * Reloads the whole snapshot from the realm, if one was loaded already. A failed reload keeps the previous
+     * snapshot.
+     */
+    public synchronized void refresh() {
+        if (this.snapshot == null) {
+            return;
+        }
+        try {
+            this.snapshot = new Snapshot(loader.get());
+        } catch (RuntimeException e) {
+            log.error("Could not refresh user directory " + e.getMessage());
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = this.snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (this.snapshot == null) {
+                this.snapshot = new Snapshot(loader.get());
+                startRefresher();
+            }
+            return this.snapshot;
+        }
+    }
+
+    private void startRefresher() {
+        if (refresher != null || refreshSeconds <= 0) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "user-directory-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refresh, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    private static boolean isDeveloper(UserInfo userInfo, String packageGuid) {
+        Map<String, List<String>> attributes = userInfo.getAttributes();
+        return attributes != null && attributes.containsKey(packageGuid);
+    }
+
+    private static final class Snapshot {
+        private final List<UserInfo> users;
+        private final Map<String, UserInfo> byUsername = new HashMap<>();
+        private final Map<String, List<UserInfo>> byPackage = new HashMap<>();
+
+        private Snapshot(List<UserInfo> loaded) {
+            List<UserInfo> sorted = new ArrayList<>(loaded);
+            sorted.sort(BY_USERNAME);
+            this.users = Collections.unmodifiableList(sorted);
+            for (UserInfo userInfo : sorted) {
+                byUsername.put(userInfo.getUsername(), userInfo);
+                if (userInfo.getAttributes() != null) {
+                    userInfo.getAttributes().keySet().forEach(packageGuid ->
+                            byPackage.computeIfAbsent(packageGuid, k -> new ArrayList<>()).add(userInfo));
+                }
+            }
+            byPackage.replaceAll((packageGuid, developers) -> Collections.unmodifiableList(developers));
+        }
+    }
+}
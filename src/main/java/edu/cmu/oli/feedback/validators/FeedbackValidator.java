@@ -17,14 +17,12 @@ import edu.cmu.oli.content.AppUtils;
 import edu.cmu.oli.content.models.persistance.JsonWrapper;
 import edu.cmu.oli.content.models.persistance.entities.*;
 import edu.cmu.oli.content.resource.validators.BaseResourceValidator;
+import edu.cmu.oli.content.resource.validators.ElementVisitor;
 import edu.cmu.oli.content.resource.validators.ResourceValidator;
 import org.jdom2.Attribute;
 import org.jdom2.DataConversionException;
 import org.jdom2.Document;
 import org.jdom2.Element;
-import org.jdom2.filter.Filters;
-import org.jdom2.xpath.XPathExpression;
-import org.jdom2.xpath.XPathFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,6 +44,11 @@ public class FeedbackValidator implements ResourceValidator {
 
     BaseResourceValidator baseResourceValidator;
 
+    // Elements the document-wide checks work on, gathered in one traversal of the document
+    private ElementVisitor.Rule promptsAndLabels;
+    private ElementVisitor.Rule likertScales;
+    private ElementVisitor.Rule links;
+
     public FeedbackValidator() {
     }
 
@@ -64,6 +67,7 @@ public class FeedbackValidator implements ResourceValidator {
         validateBody();
         validateAndParseTitle();
         validateAndParseShortTitle();
+        matchElements();
         validatePromptsAndLabels();
         validateLikertScales();
 
@@ -114,11 +118,17 @@ public class FeedbackValidator implements ResourceValidator {
         }
     }
 
+    private void matchElements() {
+        ElementVisitor visitor = new ElementVisitor();
+        promptsAndLabels = visitor.match("prompt", "label");
+        likertScales = visitor.match("likert_scale");
+        links = visitor.match("activity", "activity_link", "alternate");
+        visitor.visit(doc);
+    }
+
     // Check for empty prompts and/or labels
     private void validatePromptsAndLabels() {
-        XPathFactory xFactory = XPathFactory.instance();
-        XPathExpression<Element> xexpression = xFactory.compile("//prompt | //label", Filters.element());
-        List<Element> children = xexpression.evaluate(doc);
+        List<Element> children = promptsAndLabels.elements();
 
         for (Element child : children) {
             String text = child.getTextNormalize();
@@ -135,9 +145,7 @@ public class FeedbackValidator implements ResourceValidator {
     }
 
     private void validateLikertScales() {
-        XPathFactory xFactory = XPathFactory.instance();
-        XPathExpression<Element> xexpression = xFactory.compile("//likert_scale", Filters.element());
-        List<Element> scales = xexpression.evaluate(doc);
+        List<Element> scales = likertScales.elements();
 
         // For each likert scale...
         for (Element scale : scales) {
@@ -195,10 +203,7 @@ public class FeedbackValidator implements ResourceValidator {
     // Replicated from AssessmentV2Validator
     protected void createLinkEdges() {
         // Locate all activity links in document
-        XPathFactory xFactory = XPathFactory.instance();
-        XPathExpression<Element> xexpression = xFactory.compile("//activity | //activity_link | //alternate ",
-                Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = links.elements();
 
         ContentPackage pkg = resource.getContentPackage();
 
@@ -11,14 +11,13 @@ import edu.cmu.oli.content.models.persistance.JsonWrapper;
 import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
 import edu.cmu.oli.content.models.persistance.entities.Edge;
 import edu.cmu.oli.content.models.persistance.entities.Resource;
+import edu.cmu.oli.content.resource.builders.XPathRegistry;
 import edu.cmu.oli.workbookpage.nodes.ActivityNode;
 import edu.cmu.oli.workbookpage.nodes.InlineNode;
 import org.jdom2.*;
-import org.jdom2.filter.Filters;
 import org.jdom2.input.SAXBuilder;
 import org.jdom2.input.sax.XMLReaders;
 import org.jdom2.xpath.XPathExpression;
-import org.jdom2.xpath.XPathFactory;
 import org.slf4j.Logger;
 
 import javax.enterprise.inject.Instance;
@@ -57,22 +56,18 @@ public class WorkbookPageDelivery implements Delivery {
         Configurations serviceConfig = this.config.get();
 
         ContentPackage contentPackage = resource.getContentPackage();
-        String edgeResourceId = contentPackage.getId() + ":" + contentPackage.getVersion() + ":" + resource.getId();
         CriteriaBuilder cb = em.getCriteriaBuilder();
         CriteriaQuery<Edge> criteria = cb.createQuery(Edge.class);
         Root<Edge> edgeRoot = criteria.from(Edge.class);
-        criteria.select(edgeRoot).where(cb.and(cb.equal(edgeRoot.get("sourceId"), edgeResourceId),
+        criteria.select(edgeRoot).where(cb.and(cb.equal(edgeRoot.get("sourceResourceId"), resource.getId()),
                 cb.equal(edgeRoot.get("contentPackage").get("guid"), contentPackage.getGuid())));
 
         List<Edge> edges = em.createQuery(criteria).getResultList();
 
         List<Resource> destResources = new ArrayList<>();
 
-        List<String> destResourceIds = edges.stream().map(edge -> {
-            String destinationId = edge.getDestinationId();
-            destinationId = destinationId.substring(destinationId.lastIndexOf(":") + 1);
-            return destinationId;
-        }).collect(Collectors.toList());
+        List<String> destResourceIds = edges.stream().map(Edge::getDestinationResourceId)
+                .collect(Collectors.toList());
 
         if (!destResourceIds.isEmpty()) {
             CriteriaQuery<Resource> c = cb.createQuery(Resource.class);
@@ -84,7 +79,7 @@ public class WorkbookPageDelivery implements Delivery {
         }
 
         String query = "//*[@idref]";
-        XPathExpression<Element> xexpression = XPathFactory.instance().compile(query, Filters.element());
+        XPathExpression<Element> xexpression = XPathRegistry.elements(query);
         List<Element> activityRefs = xexpression.evaluate(document.getRootElement());
 
         String webContentLocation = serverUrl + "webcontents/" + resource.getContentPackage().getGuid() + "/webcontent/";
@@ -112,7 +107,7 @@ public class WorkbookPageDelivery implements Delivery {
                 }
             }
         });
-        xexpression = XPathFactory.instance().compile("//metadata[1]", Filters.element());
+        xexpression = XPathRegistry.elements("//metadata[1]");
         List<Element> metadataElements = xexpression.evaluate(document.getRootElement());
         if (!metadataElements.isEmpty()) {
             try {
@@ -123,7 +118,7 @@ public class WorkbookPageDelivery implements Delivery {
                 throw new ProcessingException(e.getLocalizedMessage());
             }
         }
-        xexpression = XPathFactory.instance().compile("//objref", Filters.element());
+        xexpression = XPathRegistry.elements("//objref");
         List<Element> objrefs = xexpression.evaluate(document);
         Element head = document.getRootElement().getChild("head");
         Element objectives = head.getChild("objectives");
@@ -135,7 +130,7 @@ public class WorkbookPageDelivery implements Delivery {
         }
         JsonWrapper objectivesIndex = contentPackage.getObjectivesIndex();
         if (objectivesIndex != null) {
-            JsonObject objectivesList = objectivesIndex.getJsonObject().getAsJsonObject();
+            JsonObject objectivesList = objectivesIndex.getSharedJsonObject().getAsJsonObject();
             SAXBuilder builder = new SAXBuilder(XMLReaders.NONVALIDATING);
             builder.setExpandEntities(false);
             builder.setReuseParser(true);
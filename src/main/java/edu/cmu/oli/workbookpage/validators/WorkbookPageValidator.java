@@ -17,14 +17,12 @@ import edu.cmu.oli.content.AppUtils;
 import edu.cmu.oli.content.models.persistance.JsonWrapper;
 import edu.cmu.oli.content.models.persistance.entities.*;
 import edu.cmu.oli.content.resource.validators.BaseResourceValidator;
+import edu.cmu.oli.content.resource.validators.ElementVisitor;
 import edu.cmu.oli.content.resource.validators.ResourceValidator;
 import edu.cmu.oli.workbookpage.IdentifiableElement;
 import org.jdom2.Document;
 import org.jdom2.Element;
 import org.jdom2.Namespace;
-import org.jdom2.filter.Filters;
-import org.jdom2.xpath.XPathExpression;
-import org.jdom2.xpath.XPathFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,13 +52,19 @@ public class WorkbookPageValidator implements ResourceValidator {
     // Cross references, validated during post-processing
     private Map<IdentifiableElement, Resource> xrefToRsrc;
 
+    // Elements the page-wide checks work on, gathered in one traversal of the document
+    private ElementVisitor.Rule sectionBodies;
+    private ElementVisitor.Rule wbPaths;
+    private ElementVisitor.Rule identifiables;
+    private ElementVisitor.Rule links;
+    private ElementVisitor.Rule xrefs;
+    private ElementVisitor.Rule inlines;
+    private ElementVisitor.Rule commands;
 
     protected Resource rsrc;
     protected Document doc;
     protected boolean throwErrors;
 
-    private XPathFactory xFactory = XPathFactory.instance();
-
     public WorkbookPageValidator() {
         this.identElmnts = new HashSet<>();
         this.xrefToRsrc = new HashMap<>();
@@ -119,6 +123,7 @@ public class WorkbookPageValidator implements ResourceValidator {
         }
 
         // Validate workbook page specific markup
+        matchElements();
         validateWbDynamicPaths();
         //validateFlashTutor(filePath, rsrc, doc);
         validateSectionBodies();
@@ -141,10 +146,25 @@ public class WorkbookPageValidator implements ResourceValidator {
     // =======================================================================
     // Private instance methods
     // =======================================================================
+    private void matchElements() {
+        ElementVisitor visitor = new ElementVisitor();
+        sectionBodies = visitor.match("body").where(body -> body.getParentElement() != null
+                && body.getParentElement().getNamespaceURI().isEmpty()
+                && "section".equals(body.getParentElement().getName()));
+        wbPaths = visitor.match(workbookNamespaces.values(), "wb:path");
+        identifiables = visitor.matchAny().withAttribute("id");
+        links = visitor.match(workbookNamespaces.values(), "activity", "wb:activity", "activity_link", "alternate",
+                "feedback");
+        xrefs = visitor.match("xref");
+        inlines = visitor.match(workbookNamespaces.values(), "wb:inline", "activity_report");
+        commands = visitor.match("command").withAttribute("type")
+                .where(command -> !"broadcast".equals(command.getAttributeValue("type")));
+        visitor.visit(doc);
+    }
+
     private void validateSectionBodies() {
         // Locate all section bodies in document
-        XPathExpression<Element> xexpression = xFactory.compile("//section/body", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = sectionBodies.elements();
 
         // For each section body...
         for (Element childElmnt : kids) {
@@ -164,8 +184,7 @@ public class WorkbookPageValidator implements ResourceValidator {
 
     private void validateWbDynamicPaths() {
         // Locate dynamic path elements in document
-        XPathExpression<Element> xexpression = xFactory.compile("//wb:path", Filters.element(), null, workbookNamespaces.values());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = wbPaths.elements();
 
         // For each dynamic path...
         for (Element childElmnt : kids) {
@@ -179,8 +198,7 @@ public class WorkbookPageValidator implements ResourceValidator {
 
     protected void indexIdentifiableElements() {
         // Locate identifiable body elements
-        XPathExpression<Element> xexpression = xFactory.compile("/descendant::*[@id]", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = identifiables.elements();
 
         // For each identifiable body element...
         for (Element childElmnt : kids) {
@@ -197,9 +215,7 @@ public class WorkbookPageValidator implements ResourceValidator {
     protected void createLinkEdges() {
 
         // Locate all activity links in document
-        XPathExpression<Element> xexpression = xFactory.compile("//activity | //wb:activity | //activity_link " +
-                "| //alternate | //feedback ", Filters.element(), null, workbookNamespaces.values());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = links.elements();
 
         ContentPackage pkg = rsrc.getContentPackage();
         Set<Edge> filteredEdges = pkg.getEdges().stream().filter(e -> e.getSourceId()
@@ -293,8 +309,7 @@ public class WorkbookPageValidator implements ResourceValidator {
     private void createXRefEdges() {
 
         // Locate all cross references in document
-        XPathExpression<Element> xexpression = xFactory.compile("//xref", Filters.element());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = xrefs.elements();
 
         ContentPackage pkg = rsrc.getContentPackage();
 
@@ -347,8 +362,7 @@ public class WorkbookPageValidator implements ResourceValidator {
     private void createInlineEdges() {
 
         // Locate all inline content in document
-        XPathExpression<Element> xexpression = xFactory.compile("//wb:inline | //activity_report", Filters.element(), null, workbookNamespaces.values());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = inlines.elements();
 
         ContentPackage pkg = rsrc.getContentPackage();
         Set<Edge> filteredEdges = pkg.getEdges().stream().filter(e -> e.getSourceId()
@@ -422,8 +436,7 @@ public class WorkbookPageValidator implements ResourceValidator {
     private void validateCommands() {
 
         // Locate command elements in document
-        XPathExpression<Element> xexpression = xFactory.compile("//command[@type != 'broadcast']", Filters.element(), null, workbookNamespaces.values());
-        List<Element> kids = xexpression.evaluate(doc);
+        List<Element> kids = commands.elements();
 
         // For each command element...
         for (Element childElmnt : kids) {
@@ -0,0 +1,115 @@
+package edu.cmu.oli.content.boundary.managers;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import edu.cmu.oli.content.ResourceException;
+import edu.cmu.oli.content.controllers.LockController;
+import edu.cmu.oli.content.controllers.PackageKeyResolver;
+import edu.cmu.oli.content.models.ResourceEditLock;
+import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
+import edu.cmu.oli.content.models.persistance.entities.Resource;
+import edu.cmu.oli.content.security.AppSecurityContext;
+import edu.cmu.oli.content.security.AppSecurityController;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.ws.rs.core.Response;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the batch lock actions of LockResourceManager.
+ */
+public class LockResourceManagerTest {
+
+    private LockResourceManager cut;
+    private AppSecurityContext alice;
+
+    @Before
+    public void setUp() {
+        this.cut = new LockResourceManager();
+        this.cut.em = mock(EntityManager.class, RETURNS_DEEP_STUBS);
+        this.cut.securityManager = mock(AppSecurityController.class);
+        this.cut.packageKeyResolver = mock(PackageKeyResolver.class);
+        this.cut.lockController = mock(LockController.class);
+        when(cut.packageKeyResolver.findContentPackage("pkg1")).thenReturn(new ContentPackage("pkg1", "1.0"));
+        when(cut.em.createQuery(any(CriteriaQuery.class)).getResultList())
+                .thenReturn(Arrays.asList(resource("guid1", "page1"), resource("guid2", "page2")));
+        this.alice = new AppSecurityContext("token", "alice", "Alice", "Author", "alice@example.edu",
+                Collections.emptySet());
+    }
+
+    @Test
+    public void acquireReportsOutcomePerResource() {
+        when(cut.lockController.aquire(alice, "guid1")).thenReturn(new ResourceEditLock("guid1", "alice", 1));
+        when(cut.lockController.aquire(alice, "guid2")).thenReturn(new ResourceEditLock("guid2", "bob", 1));
+
+        JsonArray outcomes = cut.lockBatch(alice, "pkg1", "aquire", ids("page1", "guid2", "page3"))
+                .getAsJsonArray();
+
+        assertEquals(3, outcomes.size());
+        assertOutcome(outcomes.get(0).getAsJsonObject(), "page1", "GRANTED");
+        assertEquals("alice", outcomes.get(0).getAsJsonObject().getAsJsonObject("lock").get("lockedBy")
+                .getAsString());
+        assertOutcome(outcomes.get(1).getAsJsonObject(), "guid2", "DENIED");
+        assertOutcome(outcomes.get(2).getAsJsonObject(), "page3", "NOT_FOUND");
+        verify(cut.lockController, times(2)).aquire(any(AppSecurityContext.class), any(String.class));
+    }
+
+    @Test
+    public void releaseAndStatusUseResourceGuids() {
+        when(cut.lockController.release(alice, "guid1")).thenReturn(true);
+        when(cut.lockController.release(alice, "guid2")).thenReturn(false);
+
+        JsonArray released = cut.lockBatch(alice, "pkg1", "release", ids("page1", "page2")).getAsJsonArray();
+        assertOutcome(released.get(0).getAsJsonObject(), "page1", "RELEASED");
+        assertOutcome(released.get(1).getAsJsonObject(), "page2", "NOT_HELD");
+
+        when(cut.lockController.status("guid1")).thenReturn("EXPIRED");
+        JsonArray status = cut.lockBatch(alice, "pkg1", "status", ids("page1")).getAsJsonArray();
+        assertOutcome(status.get(0).getAsJsonObject(), "page1", "EXPIRED");
+    }
+
+    @Test(expected = ResourceException.class)
+    public void unknownActionIsRejected() {
+        cut.lockBatch(alice, "pkg1", "steal", ids("page1"));
+    }
+
+    @Test
+    public void nonPrimitiveIdIsABadRequest() {
+        JsonArray resourceIds = ids("page1");
+        resourceIds.add(new JsonObject());
+        try {
+            cut.lockBatch(alice, "pkg1", "aquire", resourceIds);
+            fail("object ids are rejected");
+        } catch (ResourceException e) {
+            assertEquals(Response.Status.BAD_REQUEST, e.getStatus());
+        }
+        verify(cut.lockController, never()).aquire(any(AppSecurityContext.class), any(String.class));
+    }
+
+    private static void assertOutcome(JsonObject outcome, String resourceId, String status) {
+        assertEquals(resourceId, outcome.get("resourceId").getAsString());
+        assertEquals(status, outcome.get("status").getAsString());
+    }
+
+    private static JsonArray ids(String... ids) {
+        JsonArray array = new JsonArray();
+        Arrays.stream(ids).forEach(id -> array.add(new JsonPrimitive(id)));
+        return array;
+    }
+
+    private static Resource resource(String guid, String id) {
+        Resource resource = new Resource();
+        resource.setGuid(guid);
+        resource.setId(id);
+        return resource;
+    }
+}
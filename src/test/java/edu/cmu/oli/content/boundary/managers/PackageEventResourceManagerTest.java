@@ -0,0 +1,78 @@
+package edu.cmu.oli.content.boundary.managers;
+
+import edu.cmu.oli.content.ResourceException;
+import edu.cmu.oli.content.controllers.PackageEventStream;
+import edu.cmu.oli.content.controllers.PackageKeyResolver;
+import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
+import edu.cmu.oli.content.security.AppSecurityContext;
+import edu.cmu.oli.content.security.AppSecurityController;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the resume cursors accepted by PackageEventResourceManager.
+ */
+public class PackageEventResourceManagerTest {
+
+    private PackageEventResourceManager cut;
+    private AppSecurityContext alice;
+    private String packageGuid;
+
+    @Before
+    public void setUp() {
+        this.cut = new PackageEventResourceManager();
+        this.cut.securityManager = mock(AppSecurityController.class);
+        this.cut.packageKeyResolver = mock(PackageKeyResolver.class);
+        this.cut.packageEventStream = mock(PackageEventStream.class);
+        ContentPackage contentPackage = new ContentPackage("pkg1", "1.0");
+        this.packageGuid = contentPackage.getGuid();
+        when(cut.packageKeyResolver.findContentPackage("pkg1")).thenReturn(contentPackage);
+        this.alice = new AppSecurityContext("token", "alice", "Alice", "Author", "alice@example.edu",
+                Collections.emptySet());
+    }
+
+    @Test
+    public void sinceNowResumesFromTheLatestChange() {
+        when(cut.packageEventStream.cursor()).thenReturn(42L);
+
+        subscribe("now");
+
+        verify(cut.packageEventStream).subscribe(eq(packageGuid), anySetOf(String.class), any(), eq(42L),
+                any(SseEventSink.class), any(Sse.class));
+    }
+
+    @Test
+    public void sinceSequenceNumberResumesFromIt() {
+        subscribe("7");
+
+        verify(cut.packageEventStream).subscribe(eq(packageGuid), anySetOf(String.class), any(), eq(7L),
+                any(SseEventSink.class), any(Sse.class));
+        verify(cut.packageEventStream, never()).cursor();
+    }
+
+    @Test
+    public void otherSinceIsABadRequest() {
+        try {
+            subscribe("yesterday");
+            fail("since accepted");
+        } catch (ResourceException e) {
+            assertEquals(Response.Status.BAD_REQUEST, e.getStatus());
+        }
+    }
+
+    private void subscribe(String since) {
+        cut.subscribe(alice, "pkg1", Collections.emptyList(), Collections.emptyList(), since,
+                mock(SseEventSink.class), mock(Sse.class));
+    }
+}
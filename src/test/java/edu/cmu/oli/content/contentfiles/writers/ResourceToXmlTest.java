@@ -4,6 +4,7 @@ import org.jdom2.JDOMException;
 import org.junit.Test;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonParser;
 import edu.cmu.oli.content.configuration.Configurations;
 import edu.cmu.oli.content.configuration.Configurator;
@@ -106,4 +107,34 @@ public class ResourceToXmlTest {
     assertTrue(xml.indexOf("match=\"sm_under\" score=\"1\" input=\"s5\"") > 1);
   }
 
-}
\ No newline at end of file
+  /**
+   * This test ensures that converting a JSON model as received produces the same XML as
+   * converting its serialized form, and leaves the model unchanged.
+   */
+  @Test
+  public void testConversionOfParsedModel() throws JDOMException, IOException {
+    final ResourceToXml toXml = new ResourceToXml();
+    toXml.setConfig(loadConfiguration());
+
+    String[][] resources = {{"./test.json", "x-oli-inline-assessment"},
+        {"./video-workbook.json", "x-oli-workbook_page"},
+        {"./audio-workbook.json", "x-oli-workbook_page"},
+        {"./multi-part-assessment.json", "x-oli-inline-assessment"}};
+    for (String[] resource : resources) {
+      Path path = Paths.get(ResourceToXmlTest.class.getResource(resource[0]).getFile());
+      String json = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+      JsonObject model = new JsonParser().parse(json).getAsJsonObject();
+      JsonObject original = model.deepCopy();
+
+      // Null members are dropped when the model is serialized
+      model.getAsJsonObject(model.keySet().iterator().next()).add("@dropped", JsonNull.INSTANCE);
+
+      // Empty ids are given random values
+      String fromString = toXml.resourceToXml(resource[1], json).replaceAll("id=\"i[0-9a-f]{32}\"", "id");
+      String fromModel = toXml.resourceToXml(resource[1], model).replaceAll("id=\"i[0-9a-f]{32}\"", "id");
+      assertEquals(resource[0], fromString, fromModel);
+      model.getAsJsonObject(model.keySet().iterator().next()).remove("@dropped");
+      assertEquals(resource[0], original, model);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package edu.cmu.oli.content.controllers;
+
+import edu.cmu.oli.content.boundary.ResourceChangeEvent;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent.ResourceEventType;
+import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
+import edu.cmu.oli.content.models.persistance.entities.Resource;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the cache entries CacheEvictionController evicts for each kind of change.
+ */
+public class CacheEvictionControllerTest {
+
+    private CacheEvictionController cut;
+    private Cache cache;
+
+    @Before
+    public void setUp() {
+        cache = mock(Cache.class);
+        EntityManagerFactory emf = mock(EntityManagerFactory.class);
+        when(emf.getCache()).thenReturn(cache);
+        cut = new CacheEvictionController();
+        cut.emf = emf;
+        cut.log = mock(Logger.class);
+    }
+
+    @Test
+    public void resourceChangeEvictsOnlyTheResource() {
+        cut.onResourceChange(new ResourceChangeEvent("pkg1", "res1", ResourceEventType.RESOURCE_UPDATED, null));
+
+        verify(cache).evict(Resource.class, "res1");
+        verifyNoMoreInteractions(cache);
+    }
+
+    @Test
+    public void packageChangeEvictsOnlyThePackage() {
+        cut.onResourceChange(new ResourceChangeEvent("pkg1", "pkg1", ResourceEventType.RESOURCE_UPDATED, null));
+
+        verify(cache).evict(ContentPackage.class, "pkg1");
+        verifyNoMoreInteractions(cache);
+    }
+
+    @Test
+    public void failedEvictionIsLogged() {
+        doThrow(new PersistenceException("region gone")).when(cache).evict(Resource.class, "res1");
+
+        cut.onResourceChange(new ResourceChangeEvent("pkg1", "res1", ResourceEventType.RESOURCE_UPDATED, null));
+
+        verify(cut.log).warn(anyString(), any(PersistenceException.class));
+    }
+
+    @Test
+    public void requestsEvictNothing() {
+        cut.onResourceChange(new ResourceChangeEvent("pkg1", "res1", ResourceEventType.RESOURCE_REQUESTED, null));
+
+        verifyZeroInteractions(cache);
+    }
+}
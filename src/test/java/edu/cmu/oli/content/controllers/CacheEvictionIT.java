@@ -0,0 +1,113 @@
+package edu.cmu.oli.content.controllers;
+
+import edu.cmu.oli.JsonWrapperSerializer;
+import edu.cmu.oli.content.AppUtils;
+import edu.cmu.oli.content.ResourceException;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent.ResourceEventType;
+import edu.cmu.oli.content.logging.LoggerExposer;
+import edu.cmu.oli.content.logging.Logging;
+import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
+import edu.cmu.oli.content.models.persistance.entities.FileNode;
+import edu.cmu.oli.content.models.persistance.entities.Resource;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.resolver.api.maven.Maven;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.sql.DataSource;
+import javax.transaction.UserTransaction;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that a change event evicts cached entries made stale by a write that bypassed the entity manager.
+ * <p>
+ * Run with: mvn clean test -Parq-wildfly-managed
+ */
+@RunWith(Arquillian.class)
+public class CacheEvictionIT {
+
+    @Deployment
+    public static WebArchive createDeployment() {
+        File[] libs = Maven.resolver().loadPomFromFile("pom.xml").importRuntimeDependencies().resolve()
+                .withTransitivity().asFile();
+        return ShrinkWrap.create(WebArchive.class, "cache-eviction-test.war")
+                .addPackages(true, "edu.cmu.oli.content.models")
+                .addPackage("edu.cmu.oli.content.resource.builders")
+                .addClasses(AppUtils.class, ResourceException.class, JsonWrapperSerializer.class,
+                        ResourceChangeEvent.class, CacheEvictionController.class, LoggerExposer.class, Logging.class)
+                .addAsResource("META-INF/cache-eviction-persistence.xml", "META-INF/persistence.xml")
+                .addAsWebInfResource("test-ds.xml")
+                .addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml")
+                .addAsLibraries(libs);
+    }
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Inject
+    UserTransaction utx;
+
+    @Inject
+    Event<ResourceChangeEvent> resourceChange;
+
+    @javax.annotation.Resource(lookup = "java:jboss/datasources/TestDS")
+    DataSource dataSource;
+
+    @Test
+    public void staleResourceIsEvictedByItsChangeEvent() throws Exception {
+        utx.begin();
+        ContentPackage contentPackage = new ContentPackage("cache-eviction", "1.0");
+        contentPackage.setTitle("cache-eviction");
+        Resource resource = new Resource();
+        resource.setId("cache-eviction-r1");
+        resource.setType("x-oli-workbook_page");
+        resource.setTitle("Before");
+        resource.setContentPackage(contentPackage);
+        resource.setFileNode(new FileNode("/tmp", "content/r1.xml", "content/r1.json", "application/json"));
+        contentPackage.addResource(resource);
+        em.persist(contentPackage);
+        utx.commit();
+        em.clear();
+
+        assertEquals("Before", titleOf(resource.getGuid()));
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement update = connection.prepareStatement("update resource set title = ? where guid = ?")) {
+            update.setString(1, "After");
+            update.setString(2, resource.getGuid());
+            assertEquals(1, update.executeUpdate());
+        }
+        assertTrue(em.getEntityManagerFactory().getCache().contains(Resource.class, resource.getGuid()));
+        assertEquals("stale read is served from the cache", "Before", titleOf(resource.getGuid()));
+
+        utx.begin();
+        resourceChange.fire(new ResourceChangeEvent(contentPackage.getGuid(), resource.getGuid(),
+                ResourceEventType.RESOURCE_UPDATED, null));
+        utx.commit();
+
+        assertFalse(em.getEntityManagerFactory().getCache().contains(Resource.class, resource.getGuid()));
+        assertEquals("After", titleOf(resource.getGuid()));
+    }
+
+    private String titleOf(String guid) throws Exception {
+        utx.begin();
+        try {
+            return em.find(Resource.class, guid).getTitle();
+        } finally {
+            utx.rollback();
+            em.clear();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package edu.cmu.oli.content.controllers;
+
+import edu.cmu.oli.content.boundary.CoalescedChangeEvent;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent.ResourceEventType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+
+import javax.enterprise.event.Event;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the coalescing of resource change notifications.
+ */
+public class ChangeCoalescerTest {
+
+    private ChangeCoalescer cut;
+    private Event<CoalescedChangeEvent> delivered;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        this.cut = new ChangeCoalescer();
+        this.cut.log = mock(Logger.class);
+        this.delivered = mock(Event.class);
+        this.cut.coalescedChange = delivered;
+        this.cut.windowMillis = 100;
+        this.cut.init();
+    }
+
+    @After
+    public void tearDown() {
+        cut.shutdown();
+    }
+
+    @Test
+    public void burstOfUpdatesIsDeliveredOnceWithLatestRevision() {
+        for (int i = 1; i <= 20; i++) {
+            cut.onResourceChange(update("page1", "rev" + i));
+        }
+        cut.onResourceChange(update("page2", "revA"));
+        verify(delivered, never()).fire(any(CoalescedChangeEvent.class));
+
+        verify(delivered, timeout(2000).times(2)).fire(any(CoalescedChangeEvent.class));
+        List<CoalescedChangeEvent> events = fired(2);
+        ResourceChangeEvent page1 = events.stream().map(CoalescedChangeEvent::getChange)
+                .filter(e -> e.getResourceId().equals("page1")).findFirst().get();
+        assertEquals("rev20", page1.getRevision());
+        assertEquals(20, page1.getMerged());
+        assertEquals(0, cut.pending());
+    }
+
+    @Test
+    public void otherChangeDeliversPendingUpdateFirst() {
+        cut.windowMillis = 60000;
+        cut.onResourceChange(update("page1", "rev1"));
+        cut.onResourceChange(update("page1", "rev2"));
+        cut.onResourceChange(new ResourceChangeEvent("pkg1", "page1", ResourceEventType.RESOURCE_DELETED, null));
+
+        List<CoalescedChangeEvent> events = fired(2);
+        assertEquals(ResourceEventType.RESOURCE_UPDATED, events.get(0).getChange().getChangeInfo());
+        assertEquals("rev2", events.get(0).getChange().getRevision());
+        assertEquals(ResourceEventType.RESOURCE_DELETED, events.get(1).getChange().getChangeInfo());
+        assertEquals(0, cut.pending());
+    }
+
+    @Test
+    public void readDoesNotDeliverPendingUpdateEarly() {
+        cut.windowMillis = 500;
+        cut.onResourceChange(update("page1", "rev1"));
+        cut.onResourceChange(new ResourceChangeEvent("pkg1", "page1", ResourceEventType.RESOURCE_REQUESTED, null));
+
+        List<CoalescedChangeEvent> events = fired(1);
+        assertEquals(ResourceEventType.RESOURCE_REQUESTED, events.get(0).getChange().getChangeInfo());
+        assertEquals(1, cut.pending());
+
+        verify(delivered, timeout(2000).times(2)).fire(any(CoalescedChangeEvent.class));
+        events = fired(2);
+        assertEquals(ResourceEventType.RESOURCE_UPDATED, events.get(1).getChange().getChangeInfo());
+        assertEquals("rev1", events.get(1).getChange().getRevision());
+        assertEquals(1, events.get(1).getChange().getMerged());
+        assertEquals(0, cut.pending());
+    }
+
+    @Test
+    public void slowWatcherDoesNotBlockReportedChanges() throws Exception {
+        cut.windowMillis = 60000;
+        CountDownLatch watching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            watching.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(delivered).fire(any(CoalescedChangeEvent.class));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> slow = executor.submit(() -> cut.onResourceChange(
+                    new ResourceChangeEvent("pkg1", "page1", ResourceEventType.RESOURCE_DELETED, null)));
+            assertTrue(watching.await(5, TimeUnit.SECONDS));
+
+            // Neither waits for the watcher still handling the first change
+            cut.onResourceChange(update("page2", "rev1"));
+            cut.onResourceChange(new ResourceChangeEvent("pkg1", "page3", ResourceEventType.RESOURCE_DELETED, null));
+            assertEquals(1, cut.pending());
+
+            release.countDown();
+            slow.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        // The change picked while the watcher was busy is delivered after it, by the delivering thread
+        List<CoalescedChangeEvent> events = fired(2);
+        assertEquals("page1", events.get(0).getChange().getResourceId());
+        assertEquals("page3", events.get(1).getChange().getResourceId());
+    }
+
+    @Test
+    public void noWindowDeliversEveryUpdate() {
+        cut.windowMillis = 0;
+        cut.onResourceChange(update("page1", "rev1"));
+        cut.onResourceChange(update("page1", "rev2"));
+
+        assertEquals(2, fired(2).size());
+    }
+
+    private List<CoalescedChangeEvent> fired(int times) {
+        ArgumentCaptor<CoalescedChangeEvent> captor = ArgumentCaptor.forClass(CoalescedChangeEvent.class);
+        verify(delivered, times(times)).fire(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static ResourceChangeEvent update(String resourceId, String revision) {
+        ResourceChangeEvent update = new ResourceChangeEvent("pkg1", resourceId, ResourceEventType.RESOURCE_UPDATED,
+                null);
+        update.setRevision(revision);
+        return update;
+    }
+}
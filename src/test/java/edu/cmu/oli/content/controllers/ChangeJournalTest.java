@@ -0,0 +1,106 @@
+package edu.cmu.oli.content.controllers;
+
+import com.google.gson.JsonObject;
+import edu.cmu.oli.content.boundary.CoalescedChangeEvent;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent.ResourceEventType;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the bounded change journal.
+ */
+public class ChangeJournalTest {
+
+    private ChangeJournal cut;
+
+    @Before
+    public void setUp() {
+        this.cut = new ChangeJournal(3, 100);
+    }
+
+    @Test
+    public void sequencesChangesAndReplaysAfterCursor() {
+        long first = cut.append(change("res1"));
+        long second = cut.append(change("res2"));
+        long third = cut.append(change("res1"));
+
+        assertEquals(100, first);
+        assertEquals(first + 1, second);
+        assertEquals(third, cut.cursor());
+
+        ChangeJournal.Replay replay = cut.since(first, e -> e.getResourceId().equals("res1"));
+        assertFalse(replay.isReset());
+        assertEquals(third, replay.getCursor());
+        assertEquals(1, replay.getChanges().size());
+        assertEquals(third, replay.getChanges().get(0).getSequence());
+
+        assertTrue(cut.since(third, e -> true).getChanges().isEmpty());
+    }
+
+    @Test
+    public void cursorOlderThanJournalIsReset() {
+        long first = cut.append(change("res1"));
+        // Nothing dropped yet, a cursor from just before the first change still replays everything
+        assertEquals(1, cut.since(first - 1, e -> true).getChanges().size());
+
+        for (int i = 0; i < 3; i++) {
+            cut.append(change("res" + i));
+        }
+        assertTrue(cut.since(first - 1, e -> true).isReset());
+        assertFalse(cut.since(first, e -> true).isReset());
+        assertEquals(3, cut.since(first, e -> true).getChanges().size());
+    }
+
+    @Test
+    public void cursorAheadOfJournalIsReset() {
+        long first = cut.append(change("res1"));
+
+        // Handed out by a node started later, or another node altogether
+        ChangeJournal.Replay replay = cut.since(first + 1000, e -> true);
+        assertTrue(replay.isReset());
+        assertEquals(first, replay.getCursor());
+    }
+
+    @Test
+    public void journalKeepsChangesWithoutPayload() {
+        JsonObject payload = new JsonObject();
+        payload.addProperty("title", "Updated");
+        ResourceChangeEvent change = new ResourceChangeEvent("pkg1", "res1", ResourceEventType.RESOURCE_UPDATED,
+                payload);
+        change.setRevision("rev1");
+        long sequence = cut.append(change);
+
+        ResourceChangeEvent entry = cut.since(sequence - 1, e -> true).getChanges().get(0);
+        assertNull(entry.getEventPayload());
+        assertEquals("res1", entry.getResourceId());
+        assertEquals("rev1", entry.getRevision());
+        assertEquals(sequence, entry.getSequence());
+        // The live change keeps its payload for the watchers notified after the journal
+        assertSame(payload, change.getEventPayload());
+        assertEquals(sequence, change.getSequence());
+    }
+
+    @Test
+    public void readsDoNotPushOutChanges() {
+        long first = cut.append(change("res1"));
+        for (int i = 0; i < 10; i++) {
+            ResourceChangeEvent read = new ResourceChangeEvent("pkg1", "res1", ResourceEventType.RESOURCE_REQUESTED,
+                    null);
+            cut.onResourceChange(new CoalescedChangeEvent(read));
+            assertEquals(0, read.getSequence());
+        }
+
+        assertEquals(first, cut.cursor());
+        ChangeJournal.Replay replay = cut.since(first - 1, e -> true);
+        assertFalse(replay.isReset());
+        assertEquals(1, replay.getChanges().size());
+        assertEquals(ResourceEventType.RESOURCE_UPDATED, replay.getChanges().get(0).getChangeInfo());
+    }
+
+    private static ResourceChangeEvent change(String resourceId) {
+        return new ResourceChangeEvent("pkg1", resourceId, ResourceEventType.RESOURCE_UPDATED, null);
+    }
+}
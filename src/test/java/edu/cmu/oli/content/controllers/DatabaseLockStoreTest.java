@@ -0,0 +1,70 @@
+package edu.cmu.oli.content.controllers;
+
+import edu.cmu.oli.content.models.ResourceEditLock;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the lock churn accounting and read-through cache of DatabaseLockStore.
+ */
+public class DatabaseLockStoreTest {
+
+    private DatabaseLockStore cut;
+    private ResourceLockRepository repository;
+
+    @Before
+    public void setUp() {
+        this.cut = new DatabaseLockStore();
+        this.repository = mock(ResourceLockRepository.class);
+        this.cut.repository = repository;
+        this.cut.cacheTtlMillis = 60000;
+    }
+
+    @Test
+    public void readsGoThroughTheCache() {
+        ResourceEditLock held = new ResourceEditLock("lock1", "res1", "alice", 1000);
+        when(repository.find("res1")).thenReturn(held);
+
+        assertSame(held, cut.find("res1"));
+        assertSame(held, cut.find("res1"));
+        assertSame(held, cut.findOrCreate("res1", "bob", 60000));
+        verify(repository, times(1)).find("res1");
+        verify(repository, never()).findOrCreate(anyString(), anyString(), anyString(), anyLong());
+
+        when(repository.release("res1", "alice")).thenReturn(1);
+        assertTrue(cut.release("res1", "alice"));
+        when(repository.find("res1")).thenReturn(null);
+        assertNull(cut.find("res1"));
+        verify(repository, times(2)).find("res1");
+    }
+
+    @Test
+    public void acquireLostToAnotherUserIsContended() {
+        ResourceEditLock held = new ResourceEditLock("lock1", "res1", "alice", 1000);
+        when(repository.acquire(eq("res1"), anyString(), eq("bob"), anyLong())).thenReturn(held);
+
+        assertSame(held, cut.acquire("res1", "bob", 60000));
+        assertEquals(1, cut.stats().getContended());
+        assertEquals(0, cut.stats().getAcquired());
+        // The lock in force is cached for the following reads
+        assertSame(held, cut.find("res1"));
+        verify(repository, never()).find("res1");
+    }
+
+    @Test
+    public void acquireByTheHolderIsARenewal() {
+        ResourceEditLock held = new ResourceEditLock("lock1", "res1", "alice", 1000);
+        when(repository.acquire(eq("res1"), anyString(), eq("alice"), anyLong())).thenReturn(held);
+
+        assertSame(held, cut.acquire("res1", "alice", 60000));
+        assertEquals(1, cut.stats().getRenewed());
+        assertEquals(0, cut.stats().getAcquired());
+        assertEquals(0, cut.stats().getContended());
+    }
+}
@@ -0,0 +1,157 @@
+package edu.cmu.oli.content.controllers;
+
+import edu.cmu.oli.content.ResourceException;
+import edu.cmu.oli.content.configuration.Configurations;
+import edu.cmu.oli.content.models.LockStats;
+import edu.cmu.oli.content.models.ResourceEditLock;
+import edu.cmu.oli.content.security.AppSecurityContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import javax.enterprise.inject.Instance;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the lease-based edit locks of LockControllerImpl.
+ */
+public class LockControllerImplTest {
+
+    private LockControllerImpl cut;
+    private Configurations configurations;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        this.cut = new LockControllerImpl();
+        this.cut.log = mock(Logger.class);
+        this.configurations = new Configurations();
+        this.cut.configuration = mock(Instance.class);
+        when(cut.configuration.get()).thenReturn(configurations);
+        this.cut.init();
+    }
+
+    @After
+    public void tearDown() {
+        cut.shutdown();
+    }
+
+    @Test
+    public void concurrentAcquireHasExactlyOneWinner() throws Exception {
+        int users = 16;
+        int rounds = 200;
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        try {
+            for (int round = 0; round < rounds; round++) {
+                String resourceId = "res" + round;
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Boolean>> won = new ArrayList<>();
+                for (int u = 0; u < users; u++) {
+                    AppSecurityContext session = session("user" + u);
+                    won.add(pool.submit(() -> {
+                        start.await();
+                        ResourceEditLock lock = cut.aquire(session, resourceId);
+                        return lock.getLockedBy().equals(session.getPreferredUsername());
+                    }));
+                }
+                start.countDown();
+                int winners = 0;
+                for (Future<Boolean> result : won) {
+                    winners += result.get() ? 1 : 0;
+                }
+                assertEquals("round " + round, 1, winners);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        LockStats stats = cut.stats();
+        assertEquals(rounds, stats.getActive());
+        assertEquals(rounds, stats.getAcquired());
+        assertEquals(rounds * (users - 1), stats.getContended());
+    }
+
+    @Test
+    public void sweeperEvictsExpiredLeasesOnly() throws Exception {
+        configurations.setEditLockMaxDuration(50);
+        cut.aquire(session("alice"), "res1");
+        Thread.sleep(100);
+        cut.aquire(session("bob"), "res2");
+
+        cut.sweep();
+
+        assertEquals("EXPIRED", cut.status("res1"));
+        assertEquals("ACTIVE", cut.status("res2"));
+        LockStats stats = cut.stats();
+        assertEquals(1, stats.getActive());
+        assertEquals(1, stats.getExpired());
+    }
+
+    @Test
+    public void holderOfEvictedLeaseCanSaveUnlessTakenOver() throws Exception {
+        configurations.setEditLockMaxDuration(50);
+        AppSecurityContext alice = session("alice");
+        AppSecurityContext bob = session("bob");
+        ResourceEditLock lock = cut.aquire(alice, "res1");
+        cut.aquire(alice, "res2");
+        Thread.sleep(100);
+        cut.sweep();
+
+        // Idle author saving after the sweep
+        cut.checkLockPermission(alice, "res1", true);
+        assertEquals("ACTIVE", cut.status("res1"));
+        assertEquals(lock.getLockId(), cut.renew(alice, "res1").getLockId());
+        try {
+            cut.checkLockPermission(bob, "res1", true);
+            fail("bob does not hold the lock");
+        } catch (ResourceException e) {
+            // expected
+        }
+
+        assertEquals("bob", cut.aquire(bob, "res2").getLockedBy());
+        try {
+            cut.checkLockPermission(alice, "res2", true);
+            fail("bob took the lock over");
+        } catch (ResourceException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void renewAndReleaseBelongToTheHolder() {
+        AppSecurityContext alice = session("alice");
+        AppSecurityContext bob = session("bob");
+        ResourceEditLock lock = cut.aquire(alice, "res1");
+
+        assertEquals("alice", cut.aquire(bob, "res1").getLockedBy());
+        try {
+            cut.checkLockPermission(bob, "res1", true);
+            fail("bob does not hold the lock");
+        } catch (ResourceException e) {
+            // expected
+        }
+        cut.checkLockPermission(alice, "res1", true);
+        assertEquals(lock.getLockId(), cut.getLockForResource(alice, "res1", false).getLockId());
+
+        assertFalse(cut.release(bob, "res1"));
+        assertTrue(cut.release(alice, "res1"));
+        assertEquals("NONE", cut.status("res1"));
+        assertEquals(1, cut.stats().getRenewed());
+        assertEquals(1, cut.stats().getReleased());
+    }
+
+    private static AppSecurityContext session(String username) {
+        return new AppSecurityContext("token", username, "First", "Last", username + "@example.edu",
+                Collections.emptySet());
+    }
+}
@@ -0,0 +1,178 @@
+package edu.cmu.oli.content.controllers;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import edu.cmu.oli.content.boundary.CoalescedChangeEvent;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent.ResourceEventType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+
+import javax.ws.rs.container.AsyncResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the suspended long-poll registry of LongPollController.
+ */
+public class LongPollControllerTest {
+
+    private LongPollController cut;
+
+    @Before
+    public void setUp() {
+        this.cut = new LongPollController();
+        this.cut.log = mock(Logger.class);
+        this.cut.journal = new ChangeJournal(100, 1);
+        this.cut.changeDocs = mock(ChangeDocs.class);
+        this.cut.init();
+    }
+
+    @After
+    public void tearDown() {
+        cut.shutdown();
+    }
+
+    @Test
+    public void changeResumesEverySubscriberOfTheResource() {
+        int threadsBefore = Thread.activeCount();
+        List<AsyncResponse> editors = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            AsyncResponse response = mock(AsyncResponse.class);
+            cut.register(Collections.singletonList("res1"), 60000, null, false, response);
+            editors.add(response);
+        }
+        AsyncResponse other = mock(AsyncResponse.class);
+        cut.register(Collections.singletonList("res2"), 60000, null, false, other);
+
+        assertTrue("polls must not hold threads", Thread.activeCount() - threadsBefore <= 1);
+
+        JsonObject payload = new JsonObject();
+        payload.addProperty("title", "Updated");
+        fire(new ResourceChangeEvent("res1", ResourceEventType.RESOURCE_UPDATED, payload));
+
+        for (AsyncResponse response : editors) {
+            verify(response, times(1)).resume(anyString());
+        }
+        JsonObject delivered = entity(editors.get(0));
+        assertEquals("res1", delivered.get("resourceId").getAsString());
+        assertEquals("RESOURCE_UPDATED", delivered.get("changeInfo").getAsString());
+        assertEquals("Updated", delivered.getAsJsonObject("payload").get("title").getAsString());
+        assertEquals(0, cut.waiting("res1"));
+
+        verify(other, never()).resume(anyString());
+        assertEquals(1, cut.waiting("res2"));
+    }
+
+    @Test
+    public void pollOnSeveralResourcesIsResumedOnce() {
+        AsyncResponse response = mock(AsyncResponse.class);
+        cut.register(Arrays.asList("res1", "res2"), 60000, null, false, response);
+
+        fire(new ResourceChangeEvent("res2", ResourceEventType.RESOURCE_DELETED));
+        fire(new ResourceChangeEvent("res1", ResourceEventType.RESOURCE_UPDATED));
+
+        verify(response, times(1)).resume(anyString());
+        assertEquals("res2", entity(response).get("resourceId").getAsString());
+        assertEquals(0, cut.waiting("res1"));
+    }
+
+    @Test
+    public void timeoutResumesWithoutChange() {
+        AsyncResponse response = mock(AsyncResponse.class);
+        cut.register(Collections.singletonList("res1"), 50, null, false, response);
+
+        verify(response, timeout(2000).times(1)).resume(anyString());
+        JsonObject delivered = entity(response);
+        assertEquals("res1", delivered.get("resourceId").getAsString());
+        assertTrue(delivered.get("changeInfo").isJsonNull());
+        assertEquals(0, cut.waiting("res1"));
+
+        fire(new ResourceChangeEvent("res1", ResourceEventType.RESOURCE_UPDATED));
+        verify(response, times(1)).resume(anyString());
+    }
+
+    @Test
+    public void pollWithCursorGetsEveryMissedChangeAtOnce() {
+        journalAndDispatch(new ResourceChangeEvent("res1", ResourceEventType.RESOURCE_UPDATED));
+        long cursor = cut.journal.cursor();
+        journalAndDispatch(new ResourceChangeEvent("res1", ResourceEventType.RESOURCE_UPDATED));
+        journalAndDispatch(new ResourceChangeEvent("res2", ResourceEventType.RESOURCE_UPDATED));
+        journalAndDispatch(new ResourceChangeEvent("res1", ResourceEventType.RESOURCE_DELETED));
+
+        AsyncResponse behind = mock(AsyncResponse.class);
+        cut.register(Collections.singletonList("res1"), 60000, cursor, false, behind);
+        JsonObject batch = entity(behind);
+        assertFalse(batch.get("reset").getAsBoolean());
+        assertEquals(cut.journal.cursor(), batch.get("cursor").getAsLong());
+        assertEquals(2, batch.getAsJsonArray("changes").size());
+        assertEquals("RESOURCE_DELETED",
+                batch.getAsJsonArray("changes").get(1).getAsJsonObject().get("changeInfo").getAsString());
+        assertEquals(0, cut.waiting("res1"));
+
+        AsyncResponse upToDate = mock(AsyncResponse.class);
+        cut.register(Collections.singletonList("res1"), 60000, cut.journal.cursor(), false, upToDate);
+        verify(upToDate, never()).resume(anyString());
+        journalAndDispatch(new ResourceChangeEvent("res1", ResourceEventType.RESOURCE_REQUESTED));
+        verify(upToDate, never()).resume(anyString());
+        journalAndDispatch(new ResourceChangeEvent("res1", ResourceEventType.RESOURCE_UPDATED));
+        JsonObject live = entity(upToDate);
+        assertEquals(1, live.getAsJsonArray("changes").size());
+        assertEquals(cut.journal.cursor(), live.get("cursor").getAsLong());
+
+        AsyncResponse tooOld = mock(AsyncResponse.class);
+        cut.register(Collections.singletonList("res1"), 60000, -5L, false, tooOld);
+        assertTrue(entity(tooOld).get("reset").getAsBoolean());
+    }
+
+    @Test
+    public void replayedChangesCarryDocsOnlyWhenIncluded() {
+        long cursor = cut.journal.cursor();
+        JsonObject payload = new JsonObject();
+        payload.addProperty("title", "Updated");
+        ResourceChangeEvent change = new ResourceChangeEvent("pkg1", "res1", ResourceEventType.RESOURCE_UPDATED,
+                payload);
+        change.setRevision("rev1");
+        journalAndDispatch(change);
+        JsonObject doc = new JsonObject();
+        doc.addProperty("title", "Loaded");
+        when(cut.changeDocs.load(any(ResourceChangeEvent.class))).thenReturn(doc);
+
+        AsyncResponse withoutDocs = mock(AsyncResponse.class);
+        cut.register(Collections.singletonList("res1"), 60000, cursor, false, withoutDocs);
+        JsonObject replayed = entity(withoutDocs).getAsJsonArray("changes").get(0).getAsJsonObject();
+        assertTrue(replayed.get("payload").isJsonNull());
+        assertEquals("rev1", replayed.get("revision").getAsString());
+
+        AsyncResponse withDocs = mock(AsyncResponse.class);
+        cut.register(Collections.singletonList("res1"), 60000, cursor, true, withDocs);
+        replayed = entity(withDocs).getAsJsonArray("changes").get(0).getAsJsonObject();
+        assertEquals("Loaded", replayed.getAsJsonObject("payload").get("title").getAsString());
+    }
+
+    private void journalAndDispatch(ResourceChangeEvent resourceChangeEvent) {
+        CoalescedChangeEvent coalescedChangeEvent = new CoalescedChangeEvent(resourceChangeEvent);
+        cut.journal.onResourceChange(coalescedChangeEvent);
+        cut.onFileChange(coalescedChangeEvent);
+    }
+
+    private void fire(ResourceChangeEvent resourceChangeEvent) {
+        cut.onFileChange(new CoalescedChangeEvent(resourceChangeEvent));
+    }
+
+    private static JsonObject entity(AsyncResponse response) {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(response).resume(captor.capture());
+        return new JsonParser().parse(captor.getValue()).getAsJsonObject();
+    }
+}
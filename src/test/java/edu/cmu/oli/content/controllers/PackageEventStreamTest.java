@@ -0,0 +1,183 @@
+package edu.cmu.oli.content.controllers;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import edu.cmu.oli.content.boundary.CoalescedChangeEvent;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent;
+import edu.cmu.oli.content.boundary.ResourceChangeEvent.ResourceEventType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+
+import javax.ws.rs.core.GenericType;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the package Server-Sent Events stream.
+ */
+public class PackageEventStreamTest {
+
+    private PackageEventStream cut;
+    private Sse sse;
+
+    @Before
+    public void setUp() {
+        this.cut = new PackageEventStream();
+        this.cut.log = mock(Logger.class);
+        this.cut.journal = new ChangeJournal(100, 1);
+        this.cut.init();
+        this.sse = mock(Sse.class);
+        when(sse.newEventBuilder()).thenAnswer(invocation -> new EventBuilder());
+    }
+
+    @After
+    public void tearDown() {
+        cut.shutdown();
+    }
+
+    @Test
+    public void streamsPackageChangesMatchingTheFilter() {
+        SseEventSink all = sink();
+        SseEventSink page = sink();
+        SseEventSink otherPackage = sink();
+        cut.subscribe("pkg1", Collections.emptySet(), EnumSet.noneOf(ResourceEventType.class), null, all, sse);
+        cut.subscribe("pkg1", Collections.singleton("page1"), EnumSet.of(ResourceEventType.RESOURCE_UPDATED), null,
+                page, sse);
+        cut.subscribe("pkg2", Collections.emptySet(), EnumSet.noneOf(ResourceEventType.class), null, otherPackage,
+                sse);
+
+        JsonObject payload = new JsonObject();
+        payload.addProperty("title", "Page One");
+        fire(new ResourceChangeEvent("pkg1", "page1", ResourceEventType.RESOURCE_UPDATED, payload));
+        fire(new ResourceChangeEvent("pkg1", "page2", ResourceEventType.RESOURCE_UPDATED, null));
+        fire(new ResourceChangeEvent("pkg1", "page1", ResourceEventType.RESOURCE_REQUESTED, null));
+
+        assertEquals(3, sent(all).size());
+        List<OutboundSseEvent> pageEvents = sent(page);
+        assertEquals(1, pageEvents.size());
+        assertEquals("RESOURCE_UPDATED", pageEvents.get(0).getName());
+        assertEquals(MediaType.APPLICATION_JSON_TYPE, pageEvents.get(0).getMediaType());
+        JsonObject data = new JsonParser().parse((String) pageEvents.get(0).getData()).getAsJsonObject();
+        assertEquals("page1", data.get("resourceId").getAsString());
+        assertEquals("Page One", data.getAsJsonObject("payload").get("title").getAsString());
+        verify(otherPackage, never()).send(any(OutboundSseEvent.class));
+    }
+
+    @Test
+    public void closedSinksAreDropped() {
+        SseEventSink closed = sink();
+        SseEventSink failing = sink();
+        cut.subscribe("pkg1", Collections.emptySet(), EnumSet.noneOf(ResourceEventType.class), null, closed, sse);
+        cut.subscribe("pkg1", Collections.emptySet(), EnumSet.noneOf(ResourceEventType.class), null, failing, sse);
+        when(closed.isClosed()).thenReturn(true);
+        CompletableFuture<Object> error = new CompletableFuture<>();
+        error.completeExceptionally(new IllegalStateException("Broken pipe"));
+        when(failing.send(any(OutboundSseEvent.class))).thenReturn((CompletableFuture) error);
+
+        cut.sendHeartbeats();
+
+        assertEquals(0, cut.subscribers("pkg1"));
+        verify(closed, never()).send(any(OutboundSseEvent.class));
+        verify(failing).close();
+    }
+
+    @Test
+    public void reconnectReplaysMissedChangesOnce() {
+        ResourceChangeEvent first = new ResourceChangeEvent("pkg1", "page1", ResourceEventType.RESOURCE_UPDATED, null);
+        cut.journal.append(first);
+        cut.journal.append(new ResourceChangeEvent("pkg1", "page2", ResourceEventType.RESOURCE_UPDATED, null));
+        ResourceChangeEvent missed = new ResourceChangeEvent("pkg1", "page1", ResourceEventType.RESOURCE_DELETED, null);
+        cut.journal.append(missed);
+
+        SseEventSink reconnected = sink();
+        cut.subscribe("pkg1", Collections.singleton("page1"), EnumSet.noneOf(ResourceEventType.class),
+                first.getSequence(), reconnected, sse);
+        // Already replayed, delivered late by the observer
+        fire(missed);
+
+        List<OutboundSseEvent> events = sent(reconnected);
+        assertEquals(1, events.size());
+        assertEquals("RESOURCE_DELETED", events.get(0).getName());
+        assertEquals(String.valueOf(missed.getSequence()), events.get(0).getId());
+
+        SseEventSink stale = sink();
+        cut.subscribe("pkg1", Collections.emptySet(), EnumSet.noneOf(ResourceEventType.class), -1L, stale, sse);
+        assertEquals(PackageEventStream.RESET_EVENT, sent(stale).get(0).getName());
+    }
+
+    private void fire(ResourceChangeEvent resourceChangeEvent) {
+        cut.onResourceChange(new CoalescedChangeEvent(resourceChangeEvent));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SseEventSink sink() {
+        SseEventSink sink = mock(SseEventSink.class);
+        when(sink.send(any(OutboundSseEvent.class))).thenReturn((CompletableFuture) CompletableFuture.completedFuture(
+                null));
+        return sink;
+    }
+
+    private static List<OutboundSseEvent> sent(SseEventSink sink) {
+        ArgumentCaptor<OutboundSseEvent> captor = ArgumentCaptor.forClass(OutboundSseEvent.class);
+        verify(sink, atLeast(0)).send(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static class EventBuilder implements OutboundSseEvent.Builder {
+        private final OutboundSseEvent event = mock(OutboundSseEvent.class);
+
+        public OutboundSseEvent.Builder id(String id) {
+            when(event.getId()).thenReturn(id);
+            return this;
+        }
+
+        public OutboundSseEvent.Builder name(String name) {
+            when(event.getName()).thenReturn(name);
+            return this;
+        }
+
+        public OutboundSseEvent.Builder reconnectDelay(long milliseconds) {
+            return this;
+        }
+
+        public OutboundSseEvent.Builder mediaType(MediaType mediaType) {
+            when(event.getMediaType()).thenReturn(mediaType);
+            return this;
+        }
+
+        public OutboundSseEvent.Builder comment(String comment) {
+            when(event.getComment()).thenReturn(comment);
+            return this;
+        }
+
+        public OutboundSseEvent.Builder data(Class type, Object data) {
+            when(event.getData()).thenReturn(data);
+            return this;
+        }
+
+        public OutboundSseEvent.Builder data(GenericType type, Object data) {
+            when(event.getData()).thenReturn(data);
+            return this;
+        }
+
+        public OutboundSseEvent.Builder data(Object data) {
+            when(event.getData()).thenReturn(data);
+            return this;
+        }
+
+        public OutboundSseEvent build() {
+            return event;
+        }
+    }
+}
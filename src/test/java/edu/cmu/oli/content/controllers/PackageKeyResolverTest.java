@@ -0,0 +1,77 @@
+package edu.cmu.oli.content.controllers;
+
+import edu.cmu.oli.content.ResourceException;
+import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.Collections;
+
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the cached package key lookups of PackageKeyResolver.
+ */
+public class PackageKeyResolverTest {
+
+    private PackageKeyResolver cut;
+    private TypedQuery mockQuery;
+    private ContentPackage pkg;
+
+    @Before
+    public void setUp() {
+        this.cut = new PackageKeyResolver();
+        this.cut.em = mock(EntityManager.class);
+        this.cut.log = mock(Logger.class);
+        this.mockQuery = mock(TypedQuery.class);
+        this.pkg = new ContentPackage("pkgOne", "1.0");
+
+        when(this.cut.em.createNamedQuery(anyString(), any())).thenReturn(mockQuery);
+        when(mockQuery.setParameter(anyString(), any())).thenReturn(mockQuery);
+        when(mockQuery.getResultList()).thenReturn(Collections.singletonList(pkg));
+        when(this.cut.em.find(ContentPackage.class, pkg.getGuid())).thenReturn(pkg);
+    }
+
+    @Test
+    public void repeatedLookupsSkipTheQuery() {
+        assertSame(pkg, cut.findContentPackage("pkgOne-1.0"));
+        assertSame(pkg, cut.findContentPackage("pkgOne-1.0"));
+        assertSame(pkg, cut.findContentPackage("pkgOne-1.0"));
+
+        verify(cut.em, times(1)).createNamedQuery(anyString(), any());
+        verify(mockQuery, times(1)).getResultList();
+    }
+
+    @Test
+    public void staleGuidIsRequeried() {
+        cut.findContentPackage("pkgOne-1.0");
+
+        ContentPackage replacement = new ContentPackage("pkgOne", "1.0");
+        when(this.cut.em.find(ContentPackage.class, pkg.getGuid())).thenReturn(null);
+        when(mockQuery.getResultList()).thenReturn(Collections.singletonList(replacement));
+
+        assertSame(replacement, cut.findContentPackage("pkgOne-1.0"));
+        verify(mockQuery, times(2)).getResultList();
+    }
+
+    @Test
+    public void invalidateGuidDropsKey() {
+        cut.findContentPackage("pkgOne-1.0");
+        cut.invalidateGuid(pkg.getGuid());
+        cut.findContentPackage("pkgOne-1.0");
+
+        verify(mockQuery, times(2)).getResultList();
+    }
+
+    @Test(expected = ResourceException.class)
+    public void missingPackageIsNotFound() {
+        when(mockQuery.getResultList()).thenReturn(Collections.emptyList());
+        cut.findContentPackage("pkgTwo-1.0");
+    }
+}
@@ -0,0 +1,153 @@
+package edu.cmu.oli.content.controllers;
+
+import edu.cmu.oli.JsonWrapperSerializer;
+import edu.cmu.oli.content.AppUtils;
+import edu.cmu.oli.content.ResourceException;
+import edu.cmu.oli.content.models.persistance.JsonWrapper;
+import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
+import edu.cmu.oli.content.models.persistance.entities.FileNode;
+import edu.cmu.oli.content.models.persistance.entities.Resource;
+import edu.cmu.oli.content.models.persistance.entities.Revision;
+import edu.cmu.oli.content.models.persistance.entities.RevisionBlob;
+import edu.cmu.oli.content.models.persistance.entities.WebContent;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.resolver.api.maven.Maven;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.UserTransaction;
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Statement count regression test for loading a full content package. The number of statements issued by
+ * {@link PackageLoader} must not grow with the number of resources or web contents in the package.
+ * <p>
+ * Run with: mvn clean test -Parq-wildfly-managed
+ */
+@RunWith(Arquillian.class)
+public class PackageLoaderIT {
+
+    private static final int MAX_STATEMENTS = 3;
+
+    @Deployment
+    public static WebArchive createDeployment() {
+        File[] libs = Maven.resolver().loadPomFromFile("pom.xml").importRuntimeDependencies().resolve()
+                .withTransitivity().asFile();
+        return ShrinkWrap.create(WebArchive.class, "package-loader-test.war")
+                .addPackages(true, "edu.cmu.oli.content.models")
+                .addPackage("edu.cmu.oli.content.resource.builders")
+                .addClasses(AppUtils.class, ResourceException.class, JsonWrapperSerializer.class, PackageLoader.class)
+                .addAsResource("META-INF/package-loader-persistence.xml", "META-INF/persistence.xml")
+                .addAsWebInfResource("test-ds.xml")
+                .addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml")
+                .addAsLibraries(libs);
+    }
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Inject
+    UserTransaction utx;
+
+    @Inject
+    PackageLoader packageLoader;
+
+    @Test
+    public void packageLoadIssuesFixedNumberOfStatements() throws Exception {
+        long small = statementsToLoad(createPackage("loader-small", 3));
+        long large = statementsToLoad(createPackage("loader-large", 40));
+
+        assertEquals("statements must not depend on package size", small, large);
+        assertTrue("expected at most " + MAX_STATEMENTS + " statements but was " + large, large <= MAX_STATEMENTS);
+    }
+
+    @Test
+    public void lastRevisionBodiesArePrefetchedInOneStatement() throws Exception {
+        String guid = createPackage("loader-bodies", 25);
+        Statistics statistics = statistics();
+
+        utx.begin();
+        try {
+            ContentPackage contentPackage = em.find(ContentPackage.class, guid);
+            packageLoader.loadGraph(contentPackage);
+            statistics.clear();
+
+            packageLoader.prefetchLastRevisionBodies(contentPackage.getResources());
+            contentPackage.getResources().forEach(resource -> resource.getLastRevision().getBody().getBody());
+
+            assertEquals(1, statistics.getPrepareStatementCount());
+        } finally {
+            utx.rollback();
+        }
+    }
+
+    private long statementsToLoad(String guid) throws Exception {
+        Statistics statistics = statistics();
+        utx.begin();
+        try {
+            ContentPackage contentPackage = em.find(ContentPackage.class, guid);
+            statistics.clear();
+
+            packageLoader.loadGraph(contentPackage);
+            // Touch everything pkgLoad serializes
+            for (Resource resource : contentPackage.getResources()) {
+                resource.getFileNode().getPathTo();
+                resource.getLastRevision().getRevisionNumber();
+            }
+            for (WebContent webContent : contentPackage.getWebContents()) {
+                webContent.getFileNode().getPathTo();
+            }
+            return statistics.getPrepareStatementCount();
+        } finally {
+            utx.rollback();
+        }
+    }
+
+    private String createPackage(String pkgId, int size) throws Exception {
+        utx.begin();
+        ContentPackage contentPackage = new ContentPackage(pkgId, "1.0");
+        contentPackage.setTitle(pkgId);
+        for (int i = 0; i < size; i++) {
+            Resource resource = new Resource();
+            resource.setId(pkgId + "-r" + i);
+            resource.setType("x-oli-workbook_page");
+            resource.setTitle("Resource " + i);
+            resource.setContentPackage(contentPackage);
+            resource.setFileNode(new FileNode("/tmp", "content/r" + i + ".xml", "content/r" + i + ".json",
+                    "application/json"));
+            Revision revision = new Revision(resource, null,
+                    new RevisionBlob(new JsonWrapper("{\"workbook_page\":{\"@id\":\"r" + i + "\"}}")), "test");
+            resource.addRevision(revision);
+            resource.setLastRevision(revision);
+            contentPackage.addResource(resource);
+
+            WebContent webContent = new WebContent();
+            webContent.setContentPackage(contentPackage);
+            webContent.setFileNode(new FileNode("/tmp", "webcontent/w" + i + ".png", "webcontent/w" + i + ".png",
+                    "image/png"));
+            contentPackage.addWebContent(webContent);
+        }
+        em.persist(contentPackage);
+        utx.commit();
+        em.clear();
+        em.getEntityManagerFactory().getCache().evictAll();
+        return contentPackage.getGuid();
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        return statistics;
+    }
+}
@@ -0,0 +1,135 @@
+package edu.cmu.oli.content.controllers;
+
+import edu.cmu.oli.JsonWrapperSerializer;
+import edu.cmu.oli.content.AppUtils;
+import edu.cmu.oli.content.ResourceException;
+import edu.cmu.oli.content.logging.LoggerExposer;
+import edu.cmu.oli.content.logging.Logging;
+import edu.cmu.oli.content.models.ResourceEditLock;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.resolver.api.maven.Maven;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.UserTransaction;
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the conditional upserts of ResourceLockRepository against MySQL: granting a lock, losing it to the holder,
+ * taking an expired lease over and releasing it.
+ * <p>
+ * Run with: mvn clean test -Parq-wildfly-managed
+ */
+@RunWith(Arquillian.class)
+public class ResourceLockRepositoryIT {
+
+    private static final long LEASE_MILLIS = 60000;
+
+    @Deployment
+    public static WebArchive createDeployment() {
+        File[] libs = Maven.resolver().loadPomFromFile("pom.xml").importRuntimeDependencies().resolve()
+                .withTransitivity().asFile();
+        return ShrinkWrap.create(WebArchive.class, "resource-lock-repository-test.war")
+                .addPackages(true, "edu.cmu.oli.content.models")
+                .addPackage("edu.cmu.oli.content.resource.builders")
+                .addClasses(AppUtils.class, ResourceException.class, JsonWrapperSerializer.class,
+                        ResourceLockRepository.class, LoggerExposer.class, Logging.class)
+                .addAsResource("META-INF/resource-lock-persistence.xml", "META-INF/persistence.xml")
+                .addAsWebInfResource("test-ds.xml")
+                .addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml")
+                .addAsLibraries(libs);
+    }
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Inject
+    UserTransaction utx;
+
+    @Inject
+    ResourceLockRepository repository;
+
+    @Before
+    public void createTable() throws Exception {
+        // Same table as the 0.38.0 changelog creates
+        utx.begin();
+        em.createNativeQuery("CREATE TABLE IF NOT EXISTS resource_lock (resource_id VARCHAR(255) NOT NULL, "
+                + "lock_id VARCHAR(32) NOT NULL, locked_by VARCHAR(255) NOT NULL, locked_at BIGINT NOT NULL, "
+                + "expires_at BIGINT NOT NULL, PRIMARY KEY (resource_id), "
+                + "INDEX idx_resource_lock_expires_at (expires_at))").executeUpdate();
+        em.createNativeQuery("DELETE FROM resource_lock").executeUpdate();
+        utx.commit();
+    }
+
+    @Test
+    public void acquireIsGrantedOnceAndRenewedByTheHolder() {
+        ResourceEditLock granted = repository.acquire("res1", "lock1", "alice", LEASE_MILLIS);
+        assertEquals("lock1", granted.getLockId());
+        assertEquals("alice", granted.getLockedBy());
+
+        ResourceEditLock contended = repository.acquire("res1", "lock2", "bob", LEASE_MILLIS);
+        assertEquals("lock1", contended.getLockId());
+        assertEquals("alice", contended.getLockedBy());
+
+        ResourceEditLock renewed = repository.acquire("res1", "lock3", "alice", LEASE_MILLIS);
+        assertEquals("the holder keeps the lock id", "lock1", renewed.getLockId());
+        assertTrue(renewed.getLockedAt() >= granted.getLockedAt());
+        assertEquals(1, repository.count());
+    }
+
+    @Test
+    public void expiredLeaseIsTakenOver() throws Exception {
+        repository.acquire("res1", "lock1", "alice", 1);
+        Thread.sleep(50);
+        assertEquals(0, repository.count());
+
+        ResourceEditLock takenOver = repository.acquire("res1", "lock2", "bob", LEASE_MILLIS);
+        assertEquals("lock2", takenOver.getLockId());
+        assertEquals("bob", takenOver.getLockedBy());
+        assertEquals(1, repository.count());
+
+        // The former holder neither renews nor releases the lock any more
+        assertEquals("bob", repository.renew("res1", "alice", LEASE_MILLIS).getLockedBy());
+        assertEquals(0, repository.release("res1", "alice"));
+    }
+
+    @Test
+    public void expiredLeaseIsKeptForItsHolderUntilEvicted() throws Exception {
+        repository.acquire("res1", "lock1", "alice", 1);
+        Thread.sleep(50);
+
+        assertEquals(0, repository.evictExpired(LEASE_MILLIS));
+        ResourceEditLock renewed = repository.renew("res1", "alice", LEASE_MILLIS);
+        assertEquals("lock1", renewed.getLockId());
+        assertEquals(1, repository.count());
+
+        repository.acquire("res2", "lock2", "bob", 1);
+        Thread.sleep(50);
+        assertEquals(1, repository.evictExpired(0));
+        assertNull(repository.find("res2"));
+    }
+
+    @Test
+    public void releaseBelongsToTheHolder() {
+        repository.acquire("res1", "lock1", "alice", LEASE_MILLIS);
+
+        assertEquals(0, repository.release("res1", "bob"));
+        assertNotNull(repository.find("res1"));
+        assertEquals(1, repository.release("res1", "alice"));
+        assertNull(repository.find("res1"));
+
+        ResourceEditLock next = repository.acquire("res1", "lock2", "bob", LEASE_MILLIS);
+        assertEquals("lock2", next.getLockId());
+        assertTrue(Math.abs(repository.now() - next.getLockedAt()) < LEASE_MILLIS);
+    }
+}
@@ -0,0 +1,160 @@
+package edu.cmu.oli.content.controllers;
+
+import edu.cmu.oli.JsonWrapperSerializer;
+import edu.cmu.oli.content.AppUtils;
+import edu.cmu.oli.content.ResourceException;
+import edu.cmu.oli.content.logging.LoggerExposer;
+import edu.cmu.oli.content.logging.Logging;
+import edu.cmu.oli.content.models.persistance.JsonWrapper;
+import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
+import edu.cmu.oli.content.models.persistance.entities.FileNode;
+import edu.cmu.oli.content.models.persistance.entities.Resource;
+import edu.cmu.oli.content.models.persistance.entities.Revision;
+import edu.cmu.oli.content.models.persistance.entities.RevisionBlob;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.EmptyAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.resolver.api.maven.Maven;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.UserTransaction;
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that revision blobs left unreferenced by a package delete are removed, while blobs other packages still
+ * share are kept.
+ * <p>
+ * Run with: mvn clean test -Parq-wildfly-managed
+ */
+@RunWith(Arquillian.class)
+public class RevisionBlobStoreIT {
+
+    @Deployment
+    public static WebArchive createDeployment() {
+        File[] libs = Maven.resolver().loadPomFromFile("pom.xml").importRuntimeDependencies().resolve()
+                .withTransitivity().asFile();
+        return ShrinkWrap.create(WebArchive.class, "revision-blob-store-test.war")
+                .addPackages(true, "edu.cmu.oli.content.models")
+                .addPackage("edu.cmu.oli.content.resource.builders")
+                .addClasses(AppUtils.class, ResourceException.class, JsonWrapperSerializer.class,
+                        RevisionBlobStore.class, LoggerExposer.class, Logging.class)
+                .addAsResource("META-INF/revision-blob-persistence.xml", "META-INF/persistence.xml")
+                .addAsWebInfResource("test-ds.xml")
+                .addAsWebInfResource(EmptyAsset.INSTANCE, "beans.xml")
+                .addAsLibraries(libs);
+    }
+
+    @PersistenceContext
+    EntityManager em;
+
+    @Inject
+    UserTransaction utx;
+
+    @Inject
+    RevisionBlobStore revisionBlobStore;
+
+    @Test
+    public void deletedPackageLeavesOnlySharedBlobs() throws Exception {
+        ContentPackage first = createPackage("blobs-first", "{\"shared\":true}", "{\"first\":true}");
+        ContentPackage second = createPackage("blobs-second", "{\"shared\":true}", "{\"second\":true}");
+        String shared = lastBlobGuid(first, 0);
+        String onlyFirst = lastBlobGuid(first, 1);
+        assertEquals("identical payloads are interned into one blob", shared, lastBlobGuid(second, 0));
+
+        utx.begin();
+        List<String> blobGuids = revisionBlobStore.blobGuidsOf(first.getGuid());
+        em.remove(em.find(ContentPackage.class, first.getGuid()));
+        assertEquals(1, revisionBlobStore.deleteOrphans(blobGuids));
+        utx.commit();
+
+        assertFalse(blobExists(onlyFirst));
+        assertTrue(blobExists(shared));
+
+        // Deleting without cleaning up leaves the blob to the purge
+        utx.begin();
+        em.remove(em.find(ContentPackage.class, second.getGuid()));
+        utx.commit();
+        assertTrue(blobExists(shared));
+
+        utx.begin();
+        assertTrue(revisionBlobStore.purgeOrphans() >= 2);
+        utx.commit();
+        assertFalse(blobExists(shared));
+    }
+
+    @Test
+    public void purgedBlobIsNotReused() throws Exception {
+        utx.begin();
+        RevisionBlob orphan = new RevisionBlob(new JsonWrapper("{\"orphan\":true}"));
+        em.persist(orphan);
+        utx.commit();
+
+        utx.begin();
+        revisionBlobStore.purgeOrphans();
+        utx.commit();
+
+        utx.begin();
+        try {
+            RevisionBlob candidate = new RevisionBlob(new JsonWrapper("{\"orphan\":true}"));
+            assertSame(candidate, revisionBlobStore.intern(candidate));
+        } finally {
+            utx.rollback();
+        }
+    }
+
+    private ContentPackage createPackage(String pkgId, String... payloads) throws Exception {
+        utx.begin();
+        ContentPackage contentPackage = new ContentPackage(pkgId, "1.0");
+        contentPackage.setTitle(pkgId);
+        for (int i = 0; i < payloads.length; i++) {
+            Resource resource = new Resource();
+            resource.setId(pkgId + "-r" + i);
+            resource.setType("x-oli-workbook_page");
+            resource.setTitle("Resource " + i);
+            resource.setContentPackage(contentPackage);
+            resource.setFileNode(new FileNode("/tmp", "content/r" + i + ".xml", "content/r" + i + ".json",
+                    "application/json"));
+            RevisionBlob body = revisionBlobStore.intern(new RevisionBlob(new JsonWrapper(payloads[i])));
+            Revision revision = new Revision(resource, null, body, "test");
+            resource.addRevision(revision);
+            resource.setLastRevision(revision);
+            contentPackage.addResource(resource);
+        }
+        em.persist(contentPackage);
+        utx.commit();
+        em.clear();
+        return contentPackage;
+    }
+
+    private String lastBlobGuid(ContentPackage contentPackage, int index) throws Exception {
+        utx.begin();
+        try {
+            Resource resource = em.find(ContentPackage.class, contentPackage.getGuid()).getResources().stream()
+                    .filter(r -> r.getId().equals(contentPackage.getId() + "-r" + index))
+                    .findFirst().get();
+            return resource.getLastRevision().getBody().getGuid();
+        } finally {
+            utx.rollback();
+            em.clear();
+        }
+    }
+
+    private boolean blobExists(String guid) throws Exception {
+        utx.begin();
+        try {
+            return em.find(RevisionBlob.class, guid) != null;
+        } finally {
+            utx.rollback();
+            em.clear();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package edu.cmu.oli.content.models.persistance;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for JsonDelta diff and apply.
+ */
+public class JsonDeltaTest {
+
+    private final JsonParser parser = new JsonParser();
+
+    private void assertRoundTrip(String base, String target) {
+        JsonElement baseTree = parser.parse(base);
+        JsonElement targetTree = parser.parse(target);
+        JsonObject delta = JsonDelta.diff(baseTree, targetTree);
+
+        assertEquals(targetTree, JsonDelta.apply(baseTree, delta));
+        assertEquals(parser.parse(base), baseTree);
+    }
+
+    @Test
+    public void equalDocumentsProduceEmptyDelta() {
+        JsonElement doc = parser.parse("{\"a\":{\"b\":[1,2,3]}}");
+        JsonObject delta = JsonDelta.diff(doc, doc.deepCopy());
+
+        assertEquals(0, delta.size());
+        assertEquals(doc, JsonDelta.apply(doc, delta));
+    }
+
+    @Test
+    public void objectMembersAreAddedChangedAndRemoved() {
+        assertRoundTrip("{\"a\":1,\"b\":{\"c\":\"x\",\"d\":true},\"e\":null}",
+                "{\"a\":2,\"b\":{\"c\":\"y\"},\"f\":[1]}");
+    }
+
+    @Test
+    public void arraysArePatchedAndResized() {
+        assertRoundTrip("{\"#array\":[{\"p\":\"one\"},{\"p\":\"two\"},{\"p\":\"three\"}]}",
+                "{\"#array\":[{\"p\":\"one\"},{\"p\":\"2\"}]}");
+        assertRoundTrip("[1,2]", "[1,2,{\"x\":[3]}]");
+    }
+
+    @Test
+    public void typeChangesReplaceValue() {
+        assertRoundTrip("{\"a\":[1]}", "{\"a\":{\"0\":1}}");
+        assertRoundTrip("\"text\"", "{\"a\":1}");
+    }
+
+    @Test
+    public void deltaOnlyCarriesChanges() {
+        JsonElement base = parser.parse("{\"body\":{\"#array\":[{\"p\":\"long unchanged paragraph\"},{\"p\":\"a\"}]}}");
+        JsonElement target = parser.parse("{\"body\":{\"#array\":[{\"p\":\"long unchanged paragraph\"},{\"p\":\"b\"}]}}");
+
+        String delta = JsonDelta.diff(base, target).toString();
+        assertFalse(delta.contains("unchanged"));
+    }
+}
@@ -0,0 +1,74 @@
+package edu.cmu.oli.content.models.persistance;
+
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the memoized tree and fingerprint dirty checking of JsonWrapper.
+ */
+public class JsonWrapperTest {
+
+    @Test
+    public void sharedTreeIsParsedOnce() {
+        JsonWrapper wrapper = new JsonWrapper("{\"a\":{\"resourceId\":\"r1\"}}");
+        assertSame(wrapper.getSharedJsonObject(), wrapper.getSharedJsonObject());
+    }
+
+    @Test
+    public void copiesDoNotLeakIntoWrapper() {
+        JsonWrapper wrapper = new JsonWrapper("{\"a\":1}");
+        JsonObject copy = wrapper.getJsonObject().getAsJsonObject();
+        copy.addProperty("b", 2);
+
+        assertFalse(wrapper.getSharedJsonObject().getAsJsonObject().has("b"));
+        assertEquals("{\"a\":1}", wrapper.getAsString());
+    }
+
+    @Test
+    public void setJsonObjectInvalidatesTree() {
+        JsonWrapper wrapper = new JsonWrapper("{\"a\":1}");
+        wrapper.getSharedJsonObject();
+        long before = wrapper.fingerprint();
+
+        JsonObject replacement = new JsonObject();
+        replacement.addProperty("a", 2);
+        wrapper.setJsonObject(replacement);
+
+        assertEquals(2, wrapper.getSharedJsonObject().getAsJsonObject().get("a").getAsInt());
+        assertNotEquals(before, wrapper.fingerprint());
+    }
+
+    @Test
+    public void dirtyCheckUsesSnapshotFingerprint() {
+        JsonWrapperType type = new JsonWrapperType();
+        JsonWrapper current = new JsonWrapper("{\"a\":1}");
+        Object snapshot = type.deepCopy(current);
+
+        assertTrue(type.equals(current, snapshot));
+        assertEquals(type.hashCode(current), type.hashCode(snapshot));
+
+        JsonObject changed = current.getJsonObject().getAsJsonObject();
+        changed.addProperty("a", 3);
+        current.setJsonObject(changed);
+        assertFalse(type.equals(current, snapshot));
+        assertFalse(type.equals(current, null));
+    }
+
+    @Test
+    public void snapshotsDoNotHashUnchangedValues() {
+        JsonWrapperType type = new JsonWrapperType();
+        JsonWrapper current = new JsonWrapper("{\"a\":1}");
+        JsonWrapper snapshot = (JsonWrapper) type.deepCopy(current);
+
+        assertTrue(type.equals(current, snapshot));
+        assertFalse(current.isFingerprinted());
+        assertFalse(snapshot.isFingerprinted());
+
+        long fingerprint = current.fingerprint();
+        JsonWrapper next = (JsonWrapper) type.deepCopy(current);
+        assertTrue(next.isFingerprinted());
+        assertEquals(fingerprint, next.fingerprint());
+    }
+}
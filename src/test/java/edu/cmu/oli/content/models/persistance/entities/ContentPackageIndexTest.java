@@ -0,0 +1,99 @@
+package edu.cmu.oli.content.models.persistance.entities;
+
+import edu.cmu.oli.content.models.persistance.JsonWrapper;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the relational objective and skill indexes kept on ContentPackage.
+ */
+public class ContentPackageIndexTest {
+
+    @Test
+    public void indexingOnlyTouchesEntriesOfTheSavedResource() {
+        ContentPackage pkg = new ContentPackage("pkg", "1.0");
+        pkg.indexObjectives("lo1", Collections.emptySet(), new HashSet<>(Arrays.asList("o1", "o2")));
+        pkg.indexObjectives("lo2", Collections.emptySet(), new HashSet<>(Collections.singletonList("o3")));
+        ObjectiveIndexEntry untouched = pkg.getObjectiveIndexEntries().get("o3");
+
+        pkg.indexObjectives("lo1", new HashSet<>(Arrays.asList("o1", "o3")), new HashSet<>(Arrays.asList("o2", "o4")));
+
+        assertEquals(new HashSet<>(Arrays.asList("o2", "o3", "o4")), pkg.getObjectiveIndexEntries().keySet());
+        assertSame(untouched, pkg.getObjectiveIndexEntries().get("o3"));
+        assertEquals("lo1", pkg.getObjectiveIndexEntries().get("o4").getResourceId());
+        assertSame(pkg, pkg.getObjectiveIndexEntries().get("o4").getContentPackage());
+    }
+
+    @Test
+    public void movedSkillIsReassignedInPlace() {
+        ContentPackage pkg = new ContentPackage("pkg", "1.0");
+        pkg.indexSkills("skills1", Collections.emptySet(), new HashSet<>(Collections.singletonList("s1")));
+        SkillIndexEntry entry = pkg.getSkillIndexEntries().get("s1");
+
+        pkg.indexSkills("skills2", Collections.emptySet(), new HashSet<>(Collections.singletonList("s1")));
+
+        assertSame(entry, pkg.getSkillIndexEntries().get("s1"));
+        assertEquals("skills2", entry.getResourceId());
+    }
+
+    @Test
+    public void backfillCopiesJsonIndexesOnce() {
+        ContentPackage pkg = new ContentPackage("pkg", "1.0");
+        pkg.setObjectivesIndex(new JsonWrapper("{\"o1\":{\"resourceId\":\"lo1\",\"objectiveText\":\"One\"},"
+                + "\"o2\":{\"resourceId\":\"lo2\",\"objectiveText\":\"Two\"}}"));
+        pkg.setSkillsIndex(new JsonWrapper("{\"s1\":{\"resourceId\":\"skills1\",\"skillText\":\"Skill\"}}"));
+
+        assertTrue(pkg.backfillLearningIndexes());
+        assertTrue(pkg.isLearningIndexed());
+        assertEquals("lo2", pkg.getObjectiveIndexEntries().get("o2").getResourceId());
+        assertEquals("skills1", pkg.getSkillIndexEntries().get("s1").getResourceId());
+        assertFalse(pkg.backfillLearningIndexes());
+    }
+
+    @Test
+    public void indexingReadsOnlyTheEntriesItNames() throws Exception {
+        ContentPackage pkg = new ContentPackage("pkg", "1.0");
+        Map<String, ObjectiveIndexEntry> entries = new KeyedOnlyMap<>();
+        entries.put("o1", new ObjectiveIndexEntry(pkg, "o1", "lo1"));
+        entries.put("o9", new ObjectiveIndexEntry(pkg, "o9", "lo9"));
+        Field field = ContentPackage.class.getDeclaredField("objectiveIndexEntries");
+        field.setAccessible(true);
+        field.set(pkg, entries);
+
+        pkg.indexObjectives("lo1", new HashSet<>(Arrays.asList("o1", "o9")), new HashSet<>(Arrays.asList("o2")));
+
+        assertNull(entries.get("o1"));
+        assertEquals("lo1", entries.get("o2").getResourceId());
+        assertEquals("lo9", entries.get("o9").getResourceId());
+    }
+
+    /**
+     * Stands in for an uninitialized extra lazy collection, which loads in full when walked.
+     */
+    private static class KeyedOnlyMap<K, V> extends HashMap<K, V> {
+        @Override
+        public Collection<V> values() {
+            throw new AssertionError("index walked");
+        }
+
+        @Override
+        public Set<K> keySet() {
+            throw new AssertionError("index walked");
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            throw new AssertionError("index walked");
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package edu.cmu.oli.content.models.persistance.entities;
+
+import edu.cmu.oli.content.models.persistance.JsonWrapper;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for compressed, content addressed RevisionBlob payloads.
+ */
+public class RevisionBlobTest {
+
+    private static final String XML = "<workbook_page id=\"p1\"><body><p>Hello</p><p>Hello</p><p>Hello</p></body>"
+            + "</workbook_page>";
+
+    @Test
+    public void payloadRoundTripsThroughCompression() {
+        String inflated = RevisionBlob.inflate(RevisionBlob.deflate(XML));
+        assertEquals(XML, inflated);
+
+        RevisionBlob revisionBlob = new RevisionBlob(XML);
+        assertEquals(RevisionBlob.PayloadFormat.XML, revisionBlob.getPayloadFormat());
+        assertEquals(XML, revisionBlob.getXmlPayload());
+        assertNull(revisionBlob.getJsonPayload());
+        assertEquals(XML, revisionBlob.cloneVersion().getBody());
+    }
+
+    @Test
+    public void identicalPayloadsShareContentHash() {
+        RevisionBlob first = new RevisionBlob(new JsonWrapper("{\"a\":1}"));
+        RevisionBlob second = new RevisionBlob(new JsonWrapper("{\"a\":1}"));
+        RevisionBlob other = new RevisionBlob(new JsonWrapper("{\"a\":2}"));
+
+        assertEquals(64, first.getContentHash().length());
+        assertTrue(first.samePayload(second));
+        assertFalse(first.samePayload(other));
+        // Same text stored as xml must not collide with the json payload
+        assertNotEquals(first.getContentHash(), new RevisionBlob("{\"a\":1}").getContentHash());
+    }
+
+    @Test
+    public void compactMovesLegacyPayload() throws Exception {
+        assertFalse(new RevisionBlob().compact());
+
+        // Simulates a row loaded before the compressed columns were populated
+        RevisionBlob legacy = new RevisionBlob();
+        Field xmlPayload = RevisionBlob.class.getDeclaredField("xmlPayload");
+        xmlPayload.setAccessible(true);
+        xmlPayload.set(legacy, XML);
+        assertNull(legacy.getContentHash());
+        assertEquals(XML, legacy.getBody());
+
+        assertTrue(legacy.compact());
+        assertNull(xmlPayload.get(legacy));
+        assertEquals(XML, legacy.getBody());
+        assertTrue(legacy.samePayload(new RevisionBlob(XML)));
+        assertFalse(legacy.compact());
+    }
+}
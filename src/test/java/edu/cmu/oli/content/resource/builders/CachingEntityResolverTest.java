@@ -0,0 +1,115 @@
+package edu.cmu.oli.content.resource.builders;
+
+import org.jdom2.Document;
+import org.jdom2.JDOMException;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.input.sax.XMLReaders;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the external entities kept by CachingEntityResolver across validating parses.
+ */
+public class CachingEntityResolverTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void entitiesAreLoadedOnceAndValidateFromMemory() throws Exception {
+        File dtd = folder.newFile("page.dtd");
+        File module = folder.newFile("body.mod");
+        Files.write(dtd.toPath(), ("<!ENTITY % body SYSTEM \"body.mod\">\n%body;\n"
+                + "<!ELEMENT page (title, body)>\n<!ELEMENT title (#PCDATA)>\n").getBytes(StandardCharsets.UTF_8));
+        Files.write(module.toPath(), "<!ELEMENT body (#PCDATA)>\n".getBytes(StandardCharsets.UTF_8));
+
+        EntityResolver catalog = mock(EntityResolver.class);
+        CachingEntityResolver resolver = new CachingEntityResolver(catalog);
+        String doctype = "<!DOCTYPE page PUBLIC \"-//Test//DTD Page//EN\" \"" + dtd.toURI() + "\">";
+
+        Document first = parse(resolver, doctype + "<page><title>One</title><body>Text</body></page>");
+        assertEquals("page", first.getRootElement().getName());
+        assertEquals(2, resolver.size());
+
+        // Later parses no longer need the files, nor the catalog
+        Files.delete(dtd.toPath());
+        Files.delete(module.toPath());
+        parse(resolver, doctype + "<page><title>Two</title><body>Text</body></page>");
+        verify(catalog, times(2)).resolveEntity(anyString(), anyString());
+
+        try {
+            parse(resolver, doctype + "<page><body>No title</body></page>");
+            throw new AssertionError("page without a title is invalid");
+        } catch (JDOMException e) {
+            // Validation still applies the cached grammar
+        }
+    }
+
+    @Test
+    public void slowLoadOnlyHoldsUpItsOwnEntity() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        EntityResolver catalog = mock(EntityResolver.class);
+        when(catalog.resolveEntity(anyString(), anyString())).thenAnswer(invocation -> {
+            if ("slow.dtd".equals(invocation.getArguments()[1])) {
+                loading.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            return new InputSource(new StringReader("<!ELEMENT page (#PCDATA)>"));
+        });
+        CachingEntityResolver resolver = new CachingEntityResolver(catalog);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<InputSource> slow = executor.submit(() -> resolver.resolveEntity(null, "slow.dtd"));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            assertNotNull(resolver.resolveEntity(null, "fast.dtd"));
+
+            release.countDown();
+            assertNotNull(slow.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2, resolver.size());
+    }
+
+    @Test
+    public void cacheKeepsAtMostTheGivenNumberOfEntities() throws Exception {
+        EntityResolver catalog = mock(EntityResolver.class);
+        when(catalog.resolveEntity(anyString(), anyString()))
+                .thenAnswer(invocation -> new InputSource(new StringReader("<!ELEMENT page (#PCDATA)>")));
+        CachingEntityResolver resolver = new CachingEntityResolver(catalog, 2);
+
+        for (int i = 0; i < 10; i++) {
+            resolver.resolveEntity(null, "uploaded" + i + ".dtd");
+        }
+
+        assertTrue(resolver.size() <= 2);
+    }
+
+    private static Document parse(EntityResolver resolver, String xml) throws Exception {
+        SAXBuilder builder = new SAXBuilder(XMLReaders.DTDVALIDATING);
+        builder.setExpandEntities(false);
+        builder.setEntityResolver(resolver);
+        return builder.build(new StringReader(xml));
+    }
+}
@@ -0,0 +1,108 @@
+package edu.cmu.oli.content.resource.builders;
+
+import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
+import edu.cmu.oli.content.models.persistance.entities.FileNode;
+import edu.cmu.oli.content.models.persistance.entities.Resource;
+import edu.cmu.oli.content.resource.validators.BaseResourceValidator;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.filter.Filters;
+import org.jdom2.xpath.XPathFactory;
+
+import java.util.function.Consumer;
+
+/**
+ * Throughput of the XPath queries run by BaseResourceValidator, compiled on every validation as they used to be
+ * against shared compiled ones from the XPathRegistry, and of a whole BaseResourceValidator validation.
+ * <p>
+ * Not a unit test; run the main method with the test classpath:
+ * <pre>
+ * mvn -B test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=edu.cmu.oli.content.resource.builders.XPathRegistryBenchmark
+ * </pre>
+ */
+public class XPathRegistryBenchmark {
+
+    // The queries one BaseResourceValidator validation ran against the whole document before it moved to a single
+    // ElementVisitor traversal
+    static final String[] VALIDATOR_QUERIES = {
+            "//p | //em | //th | //td | //sub | //sup | //li | //var | //bdo | //cite | //code | //formula | //ipa "
+                    + "| //quote | //foreign",
+            "//p", "//title | //caption", "//path", "//image", "//audio", "//flash", "//director", "//mathematica",
+            "//unity", "//video", "//link", "//popout", "//alternatives", "//objective", "//skill", "//objref",
+            "//*[contains(@src, 'webcontent/')] | //*[contains(text(),'webcontent/')]"
+    };
+
+    private static final int WARM_UP_SECONDS = 5;
+    private static final int MEASURE_SECONDS = 10;
+
+    public static void main(String[] args) {
+        Document document = workbookPage(200);
+
+        run("compiled per validation", document, doc -> {
+            XPathFactory xFactory = XPathFactory.instance();
+            for (String query : VALIDATOR_QUERIES) {
+                xFactory.compile(query, Filters.element()).evaluate(doc);
+            }
+        });
+        run("shared compiled queries", document, doc -> {
+            for (String query : VALIDATOR_QUERIES) {
+                XPathRegistry.elements(query).evaluate(doc);
+            }
+        });
+        run("BaseResourceValidator", document, doc -> {
+            BaseResourceValidator validator = new BaseResourceValidator();
+            validator.initValidator(resource(), doc, false);
+            validator.validate();
+        });
+    }
+
+    private static void run(String name, Document document, Consumer<Document> operation) {
+        loop(document, operation, WARM_UP_SECONDS);
+        long operations = loop(document, operation, MEASURE_SECONDS);
+        System.out.printf("%-26s %10.1f ops/s%n", name, operations / (double) MEASURE_SECONDS);
+    }
+
+    private static long loop(Document document, Consumer<Document> operation, int seconds) {
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        long operations = 0;
+        while (System.nanoTime() < end) {
+            operation.accept(document);
+            operations++;
+        }
+        return operations;
+    }
+
+    static Document workbookPage(int sections) {
+        Element body = new Element("body");
+        for (int i = 0; i < sections; i++) {
+            Element section = new Element("section").setAttribute("id", "s" + i);
+            section.addContent(new Element("title").setText("Section " + i));
+            Element sectionBody = new Element("body");
+            sectionBody.addContent(new Element("p").addContent("Text with ")
+                    .addContent(new Element("em").setText("emphasis")));
+            sectionBody.addContent(new Element("image").setAttribute("src", "../webcontent/image" + i + ".png"));
+            sectionBody.addContent(new Element("ul").addContent(new Element("li").setText("item")));
+            section.addContent(sectionBody);
+            body.addContent(section);
+        }
+        Element head = new Element("head").addContent(new Element("title").setText("Benchmark page"));
+        return new Document(new Element("workbook_page").setAttribute("id", "page").addContent(head)
+                .addContent(body));
+    }
+
+    static Resource resource() {
+        Resource resource = new Resource();
+        resource.setType("x-oli-workbook_page");
+        resource.setId("page");
+        FileNode node = new FileNode();
+        node.setPathFrom("content/page.xml");
+        resource.setFileNode(node);
+        ContentPackage pack = new ContentPackage();
+        pack.setId("benchmark");
+        pack.setVersion("1.0");
+        pack.setSourceLocation("/some/location");
+        resource.setContentPackage(pack);
+        return resource;
+    }
+}
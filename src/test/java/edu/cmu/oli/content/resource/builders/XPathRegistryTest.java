@@ -0,0 +1,70 @@
+package edu.cmu.oli.content.resource.builders;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jdom2.xpath.XPathExpression;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the shared compiled XPath queries of XPathRegistry.
+ */
+public class XPathRegistryTest {
+
+    private static final Namespace WB = Namespace.getNamespace("wb", "http://oli.web.cmu.edu/activity/workbook/");
+    private static final Namespace CMD = Namespace.getNamespace("cmd", "http://oli.web.cmu.edu/content/metadata/2.1/");
+
+    @Test
+    public void queriesAreCompiledOncePerNamespaceSet() {
+        XPathExpression<Element> paragraphs = XPathRegistry.elements("//p");
+        assertSame(paragraphs, XPathRegistry.elements("//p"));
+
+        XPathExpression<Element> paths = XPathRegistry.elements("//wb:path | //cmd:concept", WB, CMD);
+        assertSame(paths, XPathRegistry.elements("//wb:path | //cmd:concept", CMD, WB));
+        assertSame(paths, XPathRegistry.elements("//wb:path | //cmd:concept", Arrays.asList(WB, CMD)));
+
+        Namespace otherWb = Namespace.getNamespace("wb", "http://oli.web.cmu.edu/activity/workbook/2/");
+        assertNotSame(paths, XPathRegistry.elements("//wb:path | //cmd:concept", otherWb, CMD));
+    }
+
+    @Test
+    public void sharedQueriesEvaluateConcurrently() throws Exception {
+        Element body = new Element("body");
+        for (int i = 0; i < 50; i++) {
+            body.addContent(new Element("p").setText("paragraph " + i));
+            body.addContent(new Element("path", WB));
+        }
+        Document document = new Document(new Element("workbook_page").addContent(body));
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Boolean>> readers = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                readers.add(() -> {
+                    for (int n = 0; n < 200; n++) {
+                        if (XPathRegistry.elements("//p").evaluate(document).size() != 50
+                                || XPathRegistry.elements("//wb:path", WB).evaluate(document).size() != 50) {
+                            return false;
+                        }
+                    }
+                    return true;
+                });
+            }
+            for (Future<Boolean> result : pool.invokeAll(readers)) {
+                assertTrue(result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
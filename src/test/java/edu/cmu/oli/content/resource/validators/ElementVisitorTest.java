@@ -0,0 +1,76 @@
+package edu.cmu.oli.content.resource.validators;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.jdom2.Namespace;
+import org.jdom2.filter.Filters;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.xpath.XPathFactory;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that rules registered with an ElementVisitor match the elements of the XPath queries they replace.
+ */
+public class ElementVisitorTest {
+
+    private static final Namespace WB = Namespace.getNamespace("wb", "http://oli.web.cmu.edu/activity/workbook/");
+
+    private static final String PAGE = "<p id='root' xmlns:wb='http://oli.web.cmu.edu/activity/workbook/'>"
+            + "<title>Page</title>"
+            + "<section id='s1'><body><p>One <em/></p><wb:p/><caption/></body></section>"
+            + "<body><p id='two'/><wb:inline idref='a'/></body>"
+            + "<command type='broadcast'/><command type='message'/><command/>"
+            + "</p>";
+
+    @Test
+    public void rulesMatchTheirQueriesInDocumentOrder() throws Exception {
+        Document doc = new SAXBuilder().build(new StringReader(PAGE));
+        ElementVisitor visitor = new ElementVisitor();
+        ElementVisitor.Rule paragraphs = visitor.match("p");
+        ElementVisitor.Rule titlesAndCaptions = visitor.match("title", "caption");
+        ElementVisitor.Rule inlines = visitor.match(Collections.singletonList(WB), "wb:inline", "wb:p");
+        ElementVisitor.Rule identifiables = visitor.matchAny().withAttribute("id");
+        ElementVisitor.Rule sectionBodies = visitor.match("body")
+                .where(body -> "section".equals(body.getParentElement().getName()));
+        ElementVisitor.Rule commands = visitor.match("command").withAttribute("type")
+                .where(command -> !"broadcast".equals(command.getAttributeValue("type")));
+        visitor.visit(doc);
+
+        assertMatches(doc, "//p", paragraphs.elements());
+        assertMatches(doc, "//title | //caption", titlesAndCaptions.elements());
+        assertMatches(doc, "//wb:inline | //wb:p", inlines.elements());
+        assertMatches(doc, "/descendant::*[@id]", identifiables.elements());
+        assertMatches(doc, "//section/body", sectionBodies.elements());
+        assertMatches(doc, "//command[@type != 'broadcast']", commands.elements());
+        assertEquals(3, paragraphs.elements().size());
+    }
+
+    @Test
+    public void actionsRunBeforeLaterRulesSeeTheElement() throws Exception {
+        Document doc = new SAXBuilder().build(new StringReader(PAGE));
+        ElementVisitor visitor = new ElementVisitor();
+        visitor.match("p", "em").where(element -> element.getContent().isEmpty())
+                .onVisit(element -> element.setAttribute("empty", "true"));
+        ElementVisitor.Rule empty = visitor.matchAny().withAttribute("empty");
+        visitor.visit(doc);
+
+        assertMatches(doc, "//p[@empty] | //em[@empty]", empty.elements());
+        assertEquals(2, empty.elements().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unboundPrefixIsRejected() {
+        new ElementVisitor().match("wb:inline");
+    }
+
+    private static void assertMatches(Document doc, String query, List<Element> matched) {
+        List<Element> expected = XPathFactory.instance().compile(query, Filters.element(), null, WB).evaluate(doc);
+        assertEquals(query, expected, matched);
+    }
+}
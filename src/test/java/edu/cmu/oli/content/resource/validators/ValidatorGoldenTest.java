@@ -0,0 +1,226 @@
+package edu.cmu.oli.content.resource.validators;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import edu.cmu.oli.content.configuration.Configurations;
+import edu.cmu.oli.content.contentfiles.utils.TestUtils;
+import edu.cmu.oli.content.models.persistance.JsonWrapper;
+import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
+import edu.cmu.oli.content.models.persistance.entities.Edge;
+import edu.cmu.oli.content.models.persistance.entities.FileNode;
+import edu.cmu.oli.content.models.persistance.entities.Resource;
+import org.jdom2.Document;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.input.sax.XMLReaders;
+import org.jdom2.output.Format;
+import org.jdom2.output.XMLOutputter;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Golden tests pinning the errors, edges, indexes and document fix-ups produced by the base and resource type
+ * validators. Documents are parsed without fetching their DTD so that the tests run
+ * offline.
+ * <p>
+ * Run with -Dgolden.update=true to rewrite the golden files after an intended change in validation output.
+ */
+public class ValidatorGoldenTest {
+
+    private static final String BUILDERS = "/edu/cmu/oli/content/resource/builders/test-resources/";
+    private static final String READERS = "/edu/cmu/oli/content/contentfiles/readers/";
+
+    // Empty assessment parts are given a random id
+    private static final Pattern GENERATED_PART_ID = Pattern.compile("<part id=\"-[0-9a-f]{12}\"");
+
+    private static Configurations configurations;
+
+    @BeforeClass
+    public static void loadConfiguration() throws Exception {
+        configurations = TestUtils.loadConfiguration();
+    }
+
+    @Test
+    public void validationRules() throws Exception {
+        assertGolden("validation-rules.xml", "x-oli-workbook_page");
+    }
+
+    @Test
+    public void workbookPageMetadata() throws Exception {
+        assertGolden(READERS + "sent_meta_completeness.xml", "x-oli-workbook_page");
+    }
+
+    @Test
+    public void assessment() throws Exception {
+        assertGolden(BUILDERS + "_u02_m0_pre-assm.xml", "x-oli-assessment2");
+    }
+
+    @Test
+    public void quizAssessment() throws Exception {
+        assertGolden(BUILDERS + "example-quiz-assessment2.xml", "x-oli-assessment2");
+    }
+
+    @Test
+    public void inlineAssessment() throws Exception {
+        assertGolden(BUILDERS + "_u02_m01_privs_DIGT_8c.xml", "x-oli-inline-assessment");
+    }
+
+    @Test
+    public void pool() throws Exception {
+        assertGolden(READERS + "responses-pool.xml", "x-oli-assessment2-pool");
+    }
+
+    @Test
+    public void learningObjectives() throws Exception {
+        assertGolden(BUILDERS + "_u2_m1_objectives.xml", "x-oli-learning_objectives");
+    }
+
+    @Test
+    public void organization() throws Exception {
+        assertGolden(BUILDERS + "organization.xml", "x-oli-organization");
+    }
+
+    @Test
+    public void feedback() throws Exception {
+        assertGolden("feedback-rules.xml", "x-oli-feedback");
+    }
+
+    @Test
+    public void firstErrorIsThrownWhenAsked() throws Exception {
+        Resource resource = resource("x-oli-workbook_page");
+        try {
+            validate(resource, document("validation-rules.xml"), true);
+            fail("validation-rules.xml has errors");
+        } catch (RuntimeException e) {
+            String golden = golden("validation-rules.xml");
+            String firstError = golden.substring(golden.indexOf("ERROR ") + "ERROR ".length());
+            assertEquals(firstError.substring(0, firstError.indexOf('\n')), e.getMessage());
+        }
+    }
+
+    private void assertGolden(String name, String resourceType) throws Exception {
+        Resource resource = resource(resourceType);
+        Document document = document(name);
+        validate(resource, document, false);
+        String actual = render(resource, document);
+
+        String fileName = Paths.get(name).getFileName().toString().replace(".xml", ".txt");
+        if (Boolean.getBoolean("golden.update")) {
+            Path golden = Paths.get("src/test/resources/edu/cmu/oli/content/resource/validators/golden", fileName);
+            Files.createDirectories(golden.getParent());
+            Files.write(golden, actual.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        assertEquals(name, golden(name), actual);
+    }
+
+    private static void validate(Resource resource, Document document, boolean throwErrors) throws Exception {
+        ResourceValidator validator = new BaseResourceValidator();
+        validator.initValidator(resource, document, throwErrors);
+        validator.validate();
+
+        JsonObject resourceType = configurations.getResourceTypeById(resource.getType());
+        ResourceValidator typeValidator = (ResourceValidator) Class.forName(
+                resourceType.get("validatorClass").getAsString()).newInstance();
+        typeValidator.initValidator(resource, document, throwErrors);
+        typeValidator.validate();
+    }
+
+    private static String render(Resource resource, Document document) {
+        StringBuilder out = new StringBuilder();
+        if (resource.getErrors() != null) {
+            JsonObject errors = resource.getErrors().getJsonObject().getAsJsonObject();
+            for (JsonElement error : errors.getAsJsonArray("errorList")) {
+                JsonObject entry = error.getAsJsonObject();
+                out.append(entry.get("level").getAsString()).append(' ')
+                        .append(entry.get("message").getAsString()).append('\n');
+            }
+        }
+        ContentPackage pkg = resource.getContentPackage();
+        out.append("--- edges\n");
+        List<String> edges = pkg.getEdges().stream().map(ValidatorGoldenTest::render).sorted()
+                .collect(Collectors.toList());
+        edges.forEach(edge -> out.append(edge).append('\n'));
+        out.append("--- objectives\n");
+        if (pkg.getObjectivesIndex() != null) {
+            out.append(pkg.getObjectivesIndex().getJsonObject()).append('\n');
+        }
+        out.append("--- skills\n");
+        if (pkg.getSkillsIndex() != null) {
+            out.append(pkg.getSkillsIndex().getJsonObject()).append('\n');
+        }
+        out.append("--- document\n");
+        String xml = new XMLOutputter(Format.getRawFormat()).outputString(document.getRootElement());
+        out.append(GENERATED_PART_ID.matcher(xml).replaceAll("<part id=\"generated\"")).append('\n');
+        return out.toString();
+    }
+
+    private static String render(Edge edge) {
+        return edge.getRelationship() + " " + edge.getSourceId() + " -> " + edge.getDestinationId() + " ["
+                + edge.getSourceType() + " -> " + edge.getDestinationType() + "] " + edge.getReferenceType() + " "
+                + edge.getPurpose() + " " + edge.getMetadata().getJsonObject();
+    }
+
+    private static Document document(String name) throws Exception {
+        URL url = ValidatorGoldenTest.class.getResource(name);
+        SAXBuilder builder = new SAXBuilder(XMLReaders.NONVALIDATING);
+        builder.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        builder.setExpandEntities(false);
+        return builder.build(url);
+    }
+
+    private static String golden(String name) throws Exception {
+        String fileName = Paths.get(name).getFileName().toString().replace(".xml", ".txt");
+        URL golden = ValidatorGoldenTest.class.getResource("golden/" + fileName);
+        return new String(Files.readAllBytes(Paths.get(golden.toURI())), StandardCharsets.UTF_8);
+    }
+
+    private static Resource resource(String resourceType) {
+        Resource resource = new RecordingResource();
+        resource.setType(resourceType);
+        resource.setId("fakeId");
+        FileNode node = new FileNode();
+        node.setPathFrom("content/x-oli-workbook_page/fakeId.xml");
+        resource.setFileNode(node);
+        ContentPackage pack = new ContentPackage();
+        pack.setId("golden");
+        pack.setVersion("1.0");
+        pack.setSourceLocation("/some/location");
+        resource.setContentPackage(pack);
+        return resource;
+    }
+
+    // Keeps the errors validators record; JsonWrapper hands out copies of its tree, which drop them
+    private static final class RecordingResource extends Resource {
+        private JsonElement errors;
+
+        @Override
+        public JsonWrapper getErrors() {
+            if (errors == null) {
+                return null;
+            }
+            return new JsonWrapper() {
+                @Override
+                public JsonElement getJsonObject() {
+                    return errors;
+                }
+            };
+        }
+
+        @Override
+        public void setErrors(JsonWrapper errors) {
+            this.errors = errors == null ? null : errors.getJsonObject();
+        }
+    }
+}
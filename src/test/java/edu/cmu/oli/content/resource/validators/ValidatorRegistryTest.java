@@ -0,0 +1,108 @@
+package edu.cmu.oli.content.resource.validators;
+
+import com.google.gson.JsonObject;
+import edu.cmu.oli.content.configuration.Configurations;
+import edu.cmu.oli.content.models.persistance.entities.ContentPackage;
+import edu.cmu.oli.content.models.persistance.entities.FileNode;
+import edu.cmu.oli.content.models.persistance.entities.Resource;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import javax.enterprise.inject.Instance;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the per resource type validator resolution of ValidatorRegistry.
+ */
+public class ValidatorRegistryTest {
+
+    private ValidatorRegistry cut;
+    private Configurations configurations;
+    private Instance<OrganizationValidator> organizationValidators;
+    private OrganizationValidator organizationValidator;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        this.cut = new ValidatorRegistry();
+        this.cut.log = mock(Logger.class);
+        this.configurations = new Configurations();
+        configurations.addResourceType("x-oli-organization",
+                resourceType(OrganizationValidator.class.getName()));
+        configurations.addResourceType("x-oli-missing", resourceType("edu.cmu.oli.NoSuchValidator"));
+        configurations.addResourceType("x-oli-none", new JsonObject());
+        this.cut.configuration = mock(Instance.class);
+        when(cut.configuration.get()).thenReturn(configurations);
+
+        this.organizationValidator = mock(OrganizationValidator.class);
+        this.organizationValidators = mock(Instance.class);
+        when(organizationValidators.get()).thenReturn(organizationValidator);
+        this.cut.validators = mock(Instance.class);
+        when(cut.validators.select(OrganizationValidator.class)).thenReturn((Instance) organizationValidators);
+    }
+
+    @Test
+    public void validatorsAreResolvedOnceAndCreatedPerValidation() {
+        cut.validate(resource("x-oli-organization"), document(), false);
+        cut.validate(resource("x-oli-organization"), document(), true);
+
+        verify(cut.validators, times(1)).select(OrganizationValidator.class);
+        verify(organizationValidators, times(2)).get();
+        verify(organizationValidator, times(2)).validate();
+        verify(organizationValidators, times(2)).destroy(organizationValidator);
+    }
+
+    @Test
+    public void typesWithoutUsableValidatorOnlyGetBaseValidation() {
+        cut.validate(resource("x-oli-missing"), document(), false);
+        cut.validate(resource("x-oli-none"), document(), false);
+
+        assertTrue(cut.hasValidator("x-oli-organization"));
+        assertFalse(cut.hasValidator("x-oli-missing"));
+        assertFalse(cut.hasValidator("x-oli-none"));
+        verify(organizationValidator, never()).initValidator(any(Resource.class), any(Document.class), anyBoolean());
+    }
+
+    @Test
+    public void reloadedConfigurationIsResolvedAgain() {
+        cut.validate(resource("x-oli-organization"), document(), false);
+        Configurations reloaded = new Configurations();
+        reloaded.addResourceType("x-oli-organization", resourceType(OrganizationValidator.class.getName()));
+        when(cut.configuration.get()).thenReturn(reloaded);
+
+        cut.validate(resource("x-oli-organization"), document(), false);
+
+        verify(cut.validators, times(2)).select(OrganizationValidator.class);
+        assertFalse(cut.hasValidator("x-oli-none"));
+    }
+
+    private static JsonObject resourceType(String validatorClass) {
+        JsonObject resourceType = new JsonObject();
+        resourceType.addProperty("validatorClass", validatorClass);
+        return resourceType;
+    }
+
+    private static Resource resource(String type) {
+        Resource resource = new Resource();
+        resource.setType(type);
+        resource.setId("fakeId");
+        FileNode node = new FileNode();
+        node.setPathFrom("fakePath");
+        resource.setFileNode(node);
+        ContentPackage pack = new ContentPackage();
+        pack.setSourceLocation("/some/location");
+        resource.setContentPackage(pack);
+        return resource;
+    }
+
+    private static Document document() {
+        return new Document(new Element("organization"));
+    }
+}
@@ -0,0 +1,186 @@
+package edu.cmu.oli.content.security;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.keycloak.admin.client.KeycloakBuilder;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.keycloak.util.JsonSerialization;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for batched user attribute updates, run through KeyCloakSecurityProxy against a local HTTP stand-in for the
+ * Keycloak admin API.
+ */
+public class BatchAttributeUpdaterTest {
+
+    private static final int CONCURRENCY = 4;
+    private static final long UPDATE_LATENCY_MILLIS = 100;
+    private static final String USERS_PATH = "/auth/admin/realms/oli_security/users";
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private KeyCloakSecurityProxy cut;
+
+    private final List<UserRepresentation> users = new ArrayList<>();
+    private final Map<String, AtomicInteger> attempts = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicBoolean arrivalsTimedOut = new AtomicBoolean();
+    private volatile CountDownLatch arrivals;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/auth/realms/master/protocol/openid-connect/token", exchange -> respond(exchange, 200,
+                "{\"access_token\":\"token\",\"expires_in\":600,\"refresh_expires_in\":1800,"
+                        + "\"refresh_token\":\"refresh\",\"token_type\":\"bearer\"}"));
+        server.createContext(USERS_PATH, this::handleUsers);
+        server.start();
+
+        cut = new KeyCloakSecurityProxy();
+        cut.attributeUpdater = new BatchAttributeUpdater(CONCURRENCY, 3, 10);
+        cut.realmResource = KeycloakBuilder.builder()
+                .serverUrl("http://localhost:" + server.getAddress().getPort() + "/auth").realm("master")
+                .username("admin").password("admin").clientId("admin-cli")
+                .resteasyClient(new ResteasyClientBuilder().connectionPoolSize(10)
+                        .register(cut.new CustomJacksonProvider()).build())
+                .build().realm(cut.REALM);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    public void updatesRunConcurrentlyUpToTheLimit() {
+        Set<String> userNames = new HashSet<>();
+        for (int i = 0; i < 24; i++) {
+            userNames.add(addUser("dev" + i).getUsername());
+        }
+
+        // The first updates are held until as many as the limit are in flight together
+        arrivals = new CountDownLatch(CONCURRENCY);
+        Set<UserInfo> updated = cut.updateUsersAttributes(userNames, permission("pkg1guid"), null);
+
+        assertEquals(userNames, updated.stream().map(UserInfo::getUsername).collect(Collectors.toSet()));
+        assertTrue(updated.stream().allMatch(userInfo -> userInfo.getAttributes().containsKey("pkg1guid")));
+        assertFalse("fewer than " + CONCURRENCY + " updates ran together", arrivalsTimedOut.get());
+        assertTrue("peak of " + peakInFlight.get(), peakInFlight.get() <= CONCURRENCY);
+    }
+
+    @Test
+    public void failuresAreRetriedOrReportedPerUser() {
+        addUser("steady");
+        addUser("flaky");
+        addUser("gone");
+        addUser("down");
+        addUser("bystander");
+
+        try {
+            cut.updateUsersAttributes(new HashSet<>(Arrays.asList("steady", "flaky", "gone", "down")),
+                    permission("pkg1guid"), null);
+            fail("failed users are reported");
+        } catch (UserAttributesUpdateException e) {
+            assertEquals(new HashSet<>(Arrays.asList("gone", "down")), new HashSet<>(e.getFailedUsers()));
+            assertEquals(2, e.getSuppressed().length);
+        }
+
+        assertEquals(1, attempts.get("steady").get());
+        assertEquals(2, attempts.get("flaky").get());
+        assertEquals("client errors are not retried", 1, attempts.get("gone").get());
+        assertEquals(3, attempts.get("down").get());
+        assertNull(attempts.get("bystander"));
+    }
+
+    private UserRepresentation addUser(String username) {
+        UserRepresentation user = new UserRepresentation();
+        user.setId(username + "-id");
+        user.setUsername(username);
+        user.setEnabled(true);
+        users.add(user);
+        return user;
+    }
+
+    private static Map<String, List<String>> permission(String packageGuid) {
+        Map<String, List<String>> permission = new HashMap<>();
+        permission.put(packageGuid, Collections.singletonList(Scopes.VIEW_MATERIAL_ACTION.toString()));
+        return permission;
+    }
+
+    private void handleUsers(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if ("GET".equals(exchange.getRequestMethod())) {
+            if (path.endsWith("/count")) {
+                respond(exchange, 200, String.valueOf(users.size()));
+            } else {
+                respond(exchange, 200, JsonSerialization.writeValueAsString(users));
+            }
+            return;
+        }
+        String username = path.substring(path.lastIndexOf('/') + 1).replace("-id", "");
+        int attempt = attempts.computeIfAbsent(username, k -> new AtomicInteger()).incrementAndGet();
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            CountDownLatch arrivals = this.arrivals;
+            if (arrivals != null && arrivals.getCount() > 0) {
+                arrivals.countDown();
+                if (!arrivals.await(5, TimeUnit.SECONDS)) {
+                    arrivalsTimedOut.set(true);
+                }
+            }
+            Thread.sleep(UPDATE_LATENCY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        if (username.equals("gone")) {
+            respond(exchange, 404, "");
+        } else if (username.equals("down") || (username.equals("flaky") && attempt == 1)) {
+            respond(exchange, 503, "");
+        } else {
+            respond(exchange, 204, null);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        exchange.getRequestBody().close();
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+}
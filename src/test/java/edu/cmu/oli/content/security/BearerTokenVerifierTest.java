@@ -0,0 +1,120 @@
+package edu.cmu.oli.content.security;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.keycloak.representations.AccessToken;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for local verification of realm access tokens.
+ */
+public class BearerTokenVerifierTest {
+
+    private LocalRealmKeys realm;
+    private BearerTokenVerifier cut;
+
+    @Before
+    public void setUp() {
+        this.realm = new LocalRealmKeys("key1");
+        this.cut = new BearerTokenVerifier(realm.keySource(), LocalRealmKeys.REALM_URL);
+    }
+
+    @Test
+    public void verifiesTokenAndExtractsClaims() {
+        AccessToken token = realm.withPackagePermissions(realm.token("developer", "content_developer"), "pkg1guid",
+                "view_material_action", "edit_material_action");
+
+        AccessToken verified = cut.verify(realm.sign(token));
+
+        assertNotNull(verified);
+        assertEquals("developer", verified.getPreferredUsername());
+        assertEquals(Collections.singleton("content_developer"), BearerTokenVerifier.realmRoles(verified));
+        assertEquals(new HashSet<>(Arrays.asList("view_material_action", "edit_material_action")),
+                new HashSet<>(BearerTokenVerifier.packagePermissions(verified).get("pkg1guid")));
+        assertEquals(1, realm.fetches.get());
+    }
+
+    @Test
+    public void missingPermissionsClaimIsNull() {
+        AccessToken verified = cut.verify(realm.sign(realm.token("developer", "content_developer")));
+
+        assertNull(BearerTokenVerifier.packagePermissions(verified));
+    }
+
+    @Test
+    public void rejectsTokenSignedByUnknownKey() {
+        LocalRealmKeys other = new LocalRealmKeys("key1");
+
+        assertNull(cut.verify(other.sign(other.token("developer", "admin"))));
+    }
+
+    @Test
+    public void rejectsTamperedToken() {
+        String[] parts = realm.sign(realm.token("developer", "content_developer")).split("\\.");
+        String forged = realm.sign(realm.token("developer", "admin")).split("\\.")[1];
+
+        assertNull(cut.verify(parts[0] + "." + forged + "." + parts[2]));
+    }
+
+    @Test
+    public void rejectsTokenFromOtherIssuer() {
+        AccessToken token = realm.token("developer", "admin");
+        token.issuer("http://localhost/auth/realms/other");
+
+        assertNull(cut.verify(realm.sign(token)));
+    }
+
+    @Test
+    public void rejectsExpiredToken() {
+        AccessToken token = realm.token("developer", "content_developer");
+        token.expiration(token.getIssuedAt() - 60);
+
+        assertNull(cut.verify(realm.sign(token)));
+    }
+
+    @Test
+    public void unknownKeyIdRefreshIsRateLimited() {
+        LocalRealmKeys rotated = new LocalRealmKeys("key2");
+        cut.verify(realm.sign(realm.token("developer")));
+
+        assertNull(cut.verify(rotated.sign(rotated.token("developer"))));
+        assertNull(cut.verify(rotated.sign(rotated.token("developer"))));
+
+        // The first verification fetched the keys, unknown key ids within the minimum interval do not refetch
+        assertEquals(1, realm.fetches.get());
+    }
+
+    @Test
+    public void concurrentUnknownKeyIdsShareOneRefresh() throws Exception {
+        LocalRealmKeys rotated = new LocalRealmKeys("key2");
+        String token = rotated.sign(rotated.token("developer"));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<AccessToken>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cut.verify(token);
+                }));
+            }
+            start.countDown();
+            for (Future<AccessToken> result : results) {
+                assertNull(result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Requests waiting on the refresh in progress use its keys instead of fetching again
+        assertEquals(1, realm.fetches.get());
+    }
+}
@@ -0,0 +1,168 @@
+package edu.cmu.oli.content.security;
+
+import edu.cmu.oli.content.ResourceException;
+import org.junit.Before;
+import org.junit.Test;
+import org.keycloak.admin.client.resource.RealmResource;
+import org.keycloak.admin.client.resource.UserResource;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.AccessToken;
+import org.keycloak.representations.idm.RoleRepresentation;
+import org.keycloak.representations.idm.UserRepresentation;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static edu.cmu.oli.content.security.Roles.ADMIN;
+import static edu.cmu.oli.content.security.Roles.CONTENT_DEVELOPER;
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the authorization decision cache and token claim checks of KeyCloakSecurityProxy.
+ */
+public class KeyCloakSecurityProxyTest {
+
+    private static final String PKG_GUID = "pkg1guid";
+
+    private KeyCloakSecurityProxy cut;
+    private UsersResource users;
+    private UserRepresentation user;
+    private AtomicLong clock = new AtomicLong();
+    private AppSecurityContext session;
+    private LocalRealmKeys realm = new LocalRealmKeys("key1");
+
+    @Before
+    public void setUp() {
+        this.cut = new KeyCloakSecurityProxy();
+        this.cut.authorizationCache = new AuthorizationCache(60, clock::get);
+        this.cut.realmResource = mock(RealmResource.class);
+        this.cut.tokenVerifier = new BearerTokenVerifier(realm.keySource(), LocalRealmKeys.REALM_URL);
+        this.users = mock(UsersResource.class);
+        UserResource userResource = mock(UserResource.class, RETURNS_DEEP_STUBS);
+        this.user = new UserRepresentation();
+        user.setId("u1");
+        user.setUsername("developer");
+        Map<String, List<String>> attributes = new HashMap<>();
+        attributes.put(PKG_GUID, Collections.singletonList(Scopes.VIEW_MATERIAL_ACTION.toString()));
+        user.setAttributes(attributes);
+        RoleRepresentation role = new RoleRepresentation();
+        role.setName(CONTENT_DEVELOPER.toString());
+
+        when(cut.realmResource.users()).thenReturn(users);
+        when(users.search(anyString())).thenReturn(Collections.singletonList(user));
+        when(users.get("u1")).thenReturn(userResource);
+        when(userResource.roles().realmLevel().listAll()).thenReturn(Collections.singletonList(role));
+
+        this.session = new AppSecurityContext("token", "developer", "Dev", "Eloper", "dev@example.edu",
+                new HashSet<>(Collections.singletonList(CONTENT_DEVELOPER.toString())));
+    }
+
+    @Test
+    public void repeatedAuthorizationsSkipKeycloak() {
+        for (int i = 0; i < 3; i++) {
+            Set<String> permitted = authorizeView();
+            assertEquals(Collections.singleton(PKG_GUID), permitted);
+            cut.authorize(session, Arrays.asList(ADMIN, CONTENT_DEVELOPER), null, null, null);
+        }
+
+        // One lookup for the scope decision, one for the role decision
+        verify(users, times(2)).search("developer");
+    }
+
+    @Test
+    public void decisionsExpire() {
+        authorizeView();
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        authorizeView();
+
+        verify(users, times(2)).search("developer");
+    }
+
+    @Test
+    public void attributeUpdatesInvalidateTheUser() {
+        authorizeView();
+
+        user.setAttributes(new HashMap<>());
+        cut.updateUserAttributes("developer", null, Collections.singleton(PKG_GUID));
+
+        try {
+            authorizeView();
+            fail("Revoked permission must not be served from the cache");
+        } catch (ResourceException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void callerCannotModifyCachedDecision() {
+        authorizeView().add("other");
+        assertEquals(Collections.singleton(PKG_GUID), authorizeView());
+    }
+
+    @Test
+    public void verifiedClaimsSkipKeycloak() {
+        AccessToken token = realm.withPackagePermissions(realm.token("developer", CONTENT_DEVELOPER.toString()),
+                PKG_GUID, Scopes.VIEW_MATERIAL_ACTION.toString());
+        AppSecurityContext signed = signedSession(token);
+
+        assertEquals(Collections.singleton(PKG_GUID), authorizeView(signed));
+        cut.authorize(signed, Arrays.asList(ADMIN, CONTENT_DEVELOPER), null, null, null);
+
+        verify(cut.realmResource, never()).users();
+    }
+
+    @Test
+    public void missingClaimsFallBackToKeycloak() {
+        AppSecurityContext signed = signedSession(realm.token("developer", CONTENT_DEVELOPER.toString()));
+
+        assertEquals(Collections.singleton(PKG_GUID), authorizeView(signed));
+
+        verify(users).search("developer");
+    }
+
+    @Test
+    public void claimsIssuedBeforeAttributeUpdateAreNotTrusted() {
+        AccessToken token = realm.withPackagePermissions(realm.token("developer", CONTENT_DEVELOPER.toString()),
+                PKG_GUID, Scopes.VIEW_MATERIAL_ACTION.toString());
+        AppSecurityContext signed = signedSession(token);
+
+        user.setAttributes(new HashMap<>());
+        cut.updateUserAttributes("developer", null, Collections.singleton(PKG_GUID));
+
+        try {
+            authorizeView(signed);
+            fail("Revoked permission must not be granted from stale claims");
+        } catch (ResourceException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void decisionsAreKeptForBoundedUsers() {
+        AuthorizationCache cache = new AuthorizationCache(60, 2, clock::get);
+        for (String userId : Arrays.asList("u1", "u2", "u3")) {
+            cache.decision(userId, "roles", () -> true);
+        }
+        assertTrue(cache.cachedUsers() <= 2);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        assertEquals(0, cache.cachedUsers());
+    }
+
+    private AppSecurityContext signedSession(AccessToken token) {
+        return new AppSecurityContext(realm.sign(token), "developer", "Dev", "Eloper", "dev@example.edu",
+                new HashSet<>(Collections.singletonList(CONTENT_DEVELOPER.toString())));
+    }
+
+    private Set<String> authorizeView() {
+        return authorizeView(session);
+    }
+
+    private Set<String> authorizeView(AppSecurityContext session) {
+        return cut.authorize(session, Arrays.asList(ADMIN, CONTENT_DEVELOPER), PKG_GUID, "name=" + PKG_GUID,
+                Collections.singletonList(Scopes.VIEW_MATERIAL_ACTION));
+    }
+}
@@ -0,0 +1,76 @@
+package edu.cmu.oli.content.security;
+
+import org.keycloak.jose.jwk.JSONWebKeySet;
+import org.keycloak.jose.jwk.JWK;
+import org.keycloak.jose.jwk.JWKBuilder;
+import org.keycloak.jose.jws.JWSBuilder;
+import org.keycloak.representations.AccessToken;
+import org.keycloak.util.JsonSerialization;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test fixture standing in for a realm: an RSA signing key, its JWKS and signed access tokens, so token
+ * verification can be tested without a Keycloak server.
+ */
+class LocalRealmKeys {
+
+    static final String REALM_URL = "http://localhost/auth/realms/oli_security";
+
+    final String kid;
+    final KeyPair keyPair;
+    final AtomicInteger fetches = new AtomicInteger();
+
+    LocalRealmKeys(String kid) {
+        this.kid = kid;
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            this.keyPair = generator.generateKeyPair();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    BearerTokenVerifier.KeySource keySource() {
+        return () -> {
+            fetches.incrementAndGet();
+            JSONWebKeySet keySet = new JSONWebKeySet();
+            keySet.setKeys(new JWK[]{JWKBuilder.create().kid(kid).rs256(keyPair.getPublic())});
+            // Round trip through JSON as the realm certs endpoint would serve it
+            return JsonSerialization.readValue(JsonSerialization.writeValueAsBytes(keySet), JSONWebKeySet.class);
+        };
+    }
+
+    /**
+     * Active bearer token for the user, issued by {@link #REALM_URL} a second ago and valid for five minutes.
+     */
+    AccessToken token(String username, String... realmRoles) {
+        int now = (int) TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        AccessToken token = new AccessToken();
+        token.type("Bearer").issuer(REALM_URL).subject(username).issuedAt(now - 1).expiration(now + 300);
+        token.setPreferredUsername(username);
+        AccessToken.Access realmAccess = new AccessToken.Access();
+        for (String role : realmRoles) {
+            realmAccess.addRole(role);
+        }
+        token.setRealmAccess(realmAccess);
+        return token;
+    }
+
+    AccessToken withPackagePermissions(AccessToken token, String packageGuid, String... scopes) {
+        Map<String, List<String>> permissions = new HashMap<>();
+        permissions.put(packageGuid, Arrays.asList(scopes));
+        token.setOtherClaims(BearerTokenVerifier.PACKAGE_PERMISSIONS_CLAIM, permissions);
+        return token;
+    }
+
+    String sign(AccessToken token) {
+        return new JWSBuilder().kid(kid).jsonContent(token).rsa256(keyPair.getPrivate());
+    }
+}
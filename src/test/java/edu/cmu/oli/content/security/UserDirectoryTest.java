@@ -0,0 +1,92 @@
+package edu.cmu.oli.content.security;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the in-memory user directory snapshot.
+ */
+public class UserDirectoryTest {
+
+    private List<UserInfo> realm;
+    private int loads;
+    private UserDirectory cut;
+
+    @Before
+    public void setUp() {
+        this.realm = new ArrayList<>(Arrays.asList(user("carol", "pkg1"), user("alice"), user("Bob", "pkg1", "pkg2")));
+        this.cut = new UserDirectory(() -> {
+            loads++;
+            return new ArrayList<>(realm);
+        }, 0);
+    }
+
+    @Test
+    public void snapshotIsSortedAndIndexed() {
+        assertEquals(Arrays.asList("alice", "Bob", "carol"), names(cut.users()));
+        assertEquals(Arrays.asList("Bob", "carol"), names(cut.packageDevelopers("pkg1")));
+        assertEquals(Collections.singletonList("Bob"), names(cut.packageDevelopers("pkg2")));
+        assertTrue(cut.packageDevelopers("pkg3").isEmpty());
+        assertEquals("carol", cut.user("carol").get().getUsername());
+        assertEquals(1, loads);
+    }
+
+    @Test
+    public void packageUsersListDevelopersFirst() {
+        assertEquals(Arrays.asList("Bob", "alice", "carol"), names(cut.usersByPackage("pkg2")));
+    }
+
+    @Test
+    public void updateReplacesSingleUserWithoutReload() {
+        cut.users();
+
+        cut.update(user("alice", "pkg2"));
+        cut.update(user("carol"));
+
+        assertEquals(Arrays.asList("alice", "Bob"), names(cut.packageDevelopers("pkg2")));
+        assertEquals(Collections.singletonList("Bob"), names(cut.packageDevelopers("pkg1")));
+        assertEquals(3, cut.users().size());
+        assertEquals(1, loads);
+    }
+
+    @Test
+    public void batchUpdateReplacesUsersWithoutReload() {
+        cut.users();
+
+        cut.update(Arrays.asList(user("alice", "pkg1"), user("Bob"), user("dave", "pkg1")));
+
+        assertEquals(Arrays.asList("alice", "Bob", "carol", "dave"), names(cut.users()));
+        assertEquals(Arrays.asList("alice", "carol", "dave"), names(cut.packageDevelopers("pkg1")));
+        assertTrue(cut.packageDevelopers("pkg2").isEmpty());
+        assertEquals(1, loads);
+    }
+
+    @Test
+    public void failedRefreshKeepsSnapshot() {
+        cut.users();
+        realm = null;
+
+        cut.refresh();
+
+        assertEquals(3, cut.users().size());
+        assertEquals(2, loads);
+    }
+
+    private static UserInfo user(String username, String... packageGuids) {
+        Map<String, List<String>> attributes = new HashMap<>();
+        for (String packageGuid : packageGuids) {
+            attributes.put(packageGuid, Collections.singletonList(Scopes.VIEW_MATERIAL_ACTION.toString()));
+        }
+        return new UserInfo(username + "-id", username, true, true, username, username, username + "@example.edu",
+                null, attributes);
+    }
+
+    private static List<String> names(List<UserInfo> users) {
+        return users.stream().map(UserInfo::getUsername).collect(Collectors.toList());
+    }
+}